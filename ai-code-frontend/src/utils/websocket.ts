@@ -1,3 +1,8 @@
+/**
+ * 服务端合并多条消息时使用的消息类型
+ */
+const BATCH_MESSAGE_TYPE = '批量消息'
+
 export default class AppEditWebSocket {
     private appId: string
     private socket: WebSocket | null
@@ -33,6 +38,12 @@ export default class AppEditWebSocket {
             const message = JSON.parse(event.data)
             console.log('收到消息:', message)
 
+            // 批量消息：按顺序逐条分发
+            if (message.type === BATCH_MESSAGE_TYPE && Array.isArray(message.messages)) {
+                message.messages.forEach((item) => this.triggerEvent(item.type, item))
+                return
+            }
+
             const type = message.type
             this.triggerEvent(type, message)
         }
@@ -1,19 +1,22 @@
 package com.mashang.aicode.web.ai.core;
 
-import cn.hutool.json.JSONUtil;
-import com.mashang.aicode.web.ai.core.parser.CodeParserExecutor;
-import com.mashang.aicode.web.ai.core.parser.MultiFileCodeParser;
+import com.mashang.aicode.web.ai.core.handler.SseMessageEncoder;
 import com.mashang.aicode.web.ai.core.saver.CodeFileSaverExecutor;
+import com.mashang.aicode.web.ai.core.saver.StreamingCodeFileWriter;
 import com.mashang.aicode.web.ai.service.AiCodeGeneratorService;
 import com.mashang.aicode.web.ai.factory.AiCodeGeneratorServiceFactory;
 import com.mashang.aicode.web.ai.model.HtmlCodeResult;
 import com.mashang.aicode.web.ai.model.MultiFileCodeResult;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
 import com.mashang.aicode.web.ai.model.message.AiResponseMessage;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
 import com.mashang.aicode.web.ai.model.message.ToolExecutedMessage;
 import com.mashang.aicode.web.ai.model.message.ToolRequestMessage;
-import com.mashang.aicode.web.manager.task.GenerationTaskManager;
+import com.mashang.aicode.web.manager.task.GenerationRegistry;
+import com.mashang.aicode.web.manager.task.GenerationTask;
 import com.mashang.aicode.web.manager.websocket.AppEditHandler;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.StagedWorkspace;
 import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.service.ChatHistoryService;
 import com.mashang.aicode.web.exception.BusinessException;
@@ -26,12 +29,10 @@ import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.ApplicationContext;
 import org.springframework.stereotype.Service;
-import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 import java.io.File;
-import java.util.Map;
-import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.Consumer;
 
 /**
@@ -48,7 +49,7 @@ public class AiCodeGeneratorFacade {
     private ChatHistoryService chatHistoryService;
 
     @Resource
-    private GenerationTaskManager generationTaskManager;
+    private GenerationRegistry generationRegistry;
 
     @Resource
     private ApplicationContext applicationContext;
@@ -56,61 +57,31 @@ public class AiCodeGeneratorFacade {
     @Resource
     private UserService userService;
 
-    /**
-     * 中断标志映射，用于控制不同应用的流式输出的中断
-     * <p>
-     * 这个Map存储了每个应用ID对应的中断标志，就像一个"控制台"，
-     * 可以单独控制每个应用的代码生成任务是否需要中断。
-     * <p>
-     * 使用ConcurrentHashMap是为了保证多线程环境下的安全性。
-     * <p>
-     * Key: 应用ID (appId)
-     * Value: 中断标志 (true表示需要中断，false表示正常进行)
-     */
-    private final Map<Long, Boolean> interruptedFlags = new ConcurrentHashMap<>();
+    @Resource
+    private StreamMessageCoalescer streamMessageCoalescer;
+
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
 
     /**
-     * 中断指定应用的流式输出
+     * 中断指定应用正在进行的流式输出
+     * <p>
+     * 取消会传递到模型的 HTTP 请求，上游生成随之停止
      *
      * @param appId  应用ID
      * @param userId 用户ID
      * @return 是否成功中断
      */
     public boolean interrupt(Long appId, Long userId) {
-        interruptedFlags.put(appId, true);
-        log.info("已设置中断标志，appId: {} 流式输出将被中断", appId);
-
-        // 使用 GenerationTaskManager 取消任务
-        boolean cancelled = generationTaskManager.cancelTask(appId, userId);
+        boolean cancelled = generationRegistry.cancelByAppId(appId, userId);
         if (cancelled) {
             log.info("成功取消生成任务，appId: {}, userId: {}", appId, userId);
         } else {
             log.warn("取消生成任务失败，appId: {}, userId: {}", appId, userId);
         }
-
         return cancelled;
     }
 
-    /**
-     * 重置指定应用的中断标志
-     *
-     * @param appId 应用ID
-     */
-    public void resetInterrupt(Long appId) {
-        interruptedFlags.put(appId, false);
-        log.info("已重置中断标志，appId: {}", appId);
-    }
-
-    /**
-     * 检查指定应用是否被中断
-     *
-     * @param appId 应用ID
-     * @return 是否被中断
-     */
-    public boolean isInterrupted(Long appId) {
-        return interruptedFlags.getOrDefault(appId, false);
-    }
-
 
     /**
      * 生成并保存代码（非流式）
@@ -133,8 +104,14 @@ public class AiCodeGeneratorFacade {
      * 生成并保存HTML代码
      */
     private File generateAndSaveHtmlCode(String userMessage, Long appId) {
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
-        HtmlCodeResult result = aiCodeGeneratorService.generateHtmlCode(Math.toIntExact(appId), userMessage);
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService();
+        int memoryId = Math.toIntExact(appId);
+        HtmlCodeResult result;
+        try {
+            result = aiCodeGeneratorService.generateHtmlCode(memoryId, userMessage);
+        } finally {
+            aiCodeGeneratorServiceFactory.evictChatMemory(memoryId);
+        }
         return CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.HTML, appId);
     }
 
@@ -142,294 +119,270 @@ public class AiCodeGeneratorFacade {
      * 生成并保存多文件代码
      */
     private File generateAndSaveMultiFileCode(String userMessage, Long appId) {
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId);
-        MultiFileCodeResult result = aiCodeGeneratorService.generateMultiFileCode(userMessage);
+        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService();
+        MultiFileCodeResult result;
+        try {
+            result = aiCodeGeneratorService.generateMultiFileCode(appId, userMessage);
+        } finally {
+            aiCodeGeneratorServiceFactory.evictChatMemory(appId);
+        }
         return CodeFileSaverExecutor.executeSaver(result, CodeGenTypeEnum.MULTI_FILE, appId);
     }
 
     /**
      * 流式生成并保存代码（不带SSE回调）
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, Long userId) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, Long userId) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
-        // 根据 appId 获取对应的 AI 服务实例
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
-        return switch (codeGenTypeEnum) {
-            case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                StringBuilder codeBuilder = new StringBuilder();
-                yield codeStream.doOnNext(codeBuilder::append).doOnComplete(() -> {
-                    try {
-                        String completeHtmlCode = codeBuilder.toString();
-                        HtmlCodeResult htmlCodeResult = (HtmlCodeResult) CodeParserExecutor.executeParser(completeHtmlCode, CodeGenTypeEnum.HTML);
-                        File savedDir = CodeFileSaverExecutor.executeSaver(htmlCodeResult, CodeGenTypeEnum.HTML, appId);
-                        log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-                    } catch (Exception e) {
-                        log.error("保存失败: {}", e.getMessage());
-                    }
-                });
-            }
-            case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                StringBuilder codeBuilder = new StringBuilder();
-                yield codeStream.doOnNext(codeBuilder::append).doOnComplete(() -> {
-                    try {
-                        String completeMultiFileCode = codeBuilder.toString();
-                        MultiFileCodeResult multiFileResult = (MultiFileCodeResult) CodeParserExecutor.executeParser(completeMultiFileCode, CodeGenTypeEnum.MULTI_FILE);
-                        File savedDir = CodeFileSaverExecutor.executeSaver(multiFileResult, CodeGenTypeEnum.MULTI_FILE, appId);
-                        log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-                    } catch (Exception e) {
-                        log.error("保存失败: {}", e.getMessage(), e);
-                    }
-                });
-            }
-            case VUE_PROJECT -> {
-                TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
-                yield processTokenStream(tokenStream, appId, userId);
-            }
-            case REACT_PROJECT -> {
-                TokenStream tokenStream = aiCodeGeneratorService.generateReactProjectCodeStream(appId, userMessage);
-                yield processTokenStream(tokenStream, appId, userId);
-            }
-            default -> {
-                String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
-            }
-        };
+        return generationRegistry.track(appId, userId, codeGenTypeEnum.getValue(), task -> {
+            // 根据生成类型获取对应的 AI 服务实例
+            AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(codeGenTypeEnum);
+            Flux<StreamMessage> messageStream = switch (codeGenTypeEnum) {
+                case HTML -> {
+                    Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage);
+                    yield saveCodeStream(codeStream, CodeGenTypeEnum.HTML, task);
+                }
+                case MULTI_FILE -> {
+                    Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage);
+                    yield saveCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, task);
+                }
+                case VUE_PROJECT -> {
+                    TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
+                    yield stageProjectWrites(processTokenStream(tokenStream, task, null), codeGenTypeEnum, task);
+                }
+                case REACT_PROJECT -> {
+                    TokenStream tokenStream = aiCodeGeneratorService.generateReactProjectCodeStream(appId, userMessage);
+                    yield stageProjectWrites(processTokenStream(tokenStream, task, null), codeGenTypeEnum, task);
+                }
+                default -> {
+                    String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
+                    throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
+                }
+            };
+            // 合并细碎的 token，减少下游 SSE 事件数量
+            return streamMessageCoalescer.coalesce(messageStream);
+        }).doFinally(signalType -> aiCodeGeneratorServiceFactory.evictChatMemory(appId));
     }
 
     /**
      * 统一流式返回方法（带SSE回调）
+     * <p>
+     * 链路内部直接传递类型化的 StreamMessage，只在输出到客户端时序列化一次
      *
      * @return
      */
-    public Flux<String> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, Consumer<String> sseCallback, Long userId, User user) {
+    public Flux<StreamMessage> generateAndSaveCodeStream(String userMessage, CodeGenTypeEnum codeGenTypeEnum, Long appId, Consumer<String> sseCallback, Long userId, User user) {
         if (codeGenTypeEnum == null) {
             throw new BusinessException(ErrorCode.SYSTEM_ERROR, "生成类型为空");
         }
-        AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(appId, codeGenTypeEnum);
-        return switch (codeGenTypeEnum) {
-            case HTML -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(userMessage);
-                StringBuilder codeBuilder = new StringBuilder();
-                yield codeStream.doOnNext(codeBuilder::append).doOnComplete(() -> {
-                    try {
-                        String completeHtmlCode = codeBuilder.toString();
-                        HtmlCodeResult htmlCodeResult = (HtmlCodeResult) CodeParserExecutor.executeParser(completeHtmlCode, CodeGenTypeEnum.HTML);
-                        File savedDir = CodeFileSaverExecutor.executeSaver(htmlCodeResult, CodeGenTypeEnum.HTML, appId);
-                        log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
-                    } catch (Exception e) {
-                        log.error("保存失败: {}", e.getMessage());
+        return generationRegistry.track(appId, userId, codeGenTypeEnum.getValue(), task -> {
+            AiCodeGeneratorService aiCodeGeneratorService = aiCodeGeneratorServiceFactory.getAiCodeGeneratorService(codeGenTypeEnum);
+            return switch (codeGenTypeEnum) {
+                case HTML -> {
+                    Flux<String> codeStream = aiCodeGeneratorService.generateHtmlCodeStream(appId, userMessage);
+                    yield streamMessageCoalescer.coalesce(saveCodeStream(codeStream, CodeGenTypeEnum.HTML, task));
+                }
+                case MULTI_FILE -> {
+                    Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(appId, userMessage);
+                    yield streamMessageCoalescer.coalesce(saveCodeStream(codeStream, CodeGenTypeEnum.MULTI_FILE, task));
+                }
+                case VUE_PROJECT -> {
+                    TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
+                    yield stageProjectWrites(processTokenStreamWithCallback(tokenStream, task, sseCallback, user), codeGenTypeEnum, task);
+                }
+                case REACT_PROJECT -> {
+                    TokenStream tokenStream = aiCodeGeneratorService.generateReactProjectCodeStream(appId, userMessage);
+                    yield stageProjectWrites(processTokenStreamWithCallback(tokenStream, task, sseCallback, user), codeGenTypeEnum, task);
+                }
+                default -> {
+                    String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
+                    throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
+                }
+            };
+        }).doFinally(signalType -> aiCodeGeneratorServiceFactory.evictChatMemory(appId));
+    }
+
+    /**
+     * 边接收边解析代码块并写入文件（HTML、MULTI_FILE）
+     * <p>
+     * 不再缓存完整响应后统一解析，流结束时文件已全部落盘；保存失败只记录日志，不影响流式输出。
+     * 用户主动中断时正常结束流，只保留已完整写入的文件，未完成的代码块丢弃
+     *
+     * @param codeStream  代码流
+     * @param codeGenType 代码生成类型
+     * @param task        生成任务
+     * @return Flux<StreamMessage> 流式响应
+     */
+    private Flux<StreamMessage> saveCodeStream(Flux<String> codeStream, CodeGenTypeEnum codeGenType, GenerationTask task) {
+        // 任务取消时结束流；上游请求被中断产生的错误不再向下游传递
+        Mono<Void> cancelSignal = Mono.create(sink -> {
+            Runnable unregister = task.onCancel(sink::success);
+            sink.onDispose(unregister::run);
+        });
+        Flux<String> cancellableStream = codeStream
+                .takeUntilOther(cancelSignal)
+                .onErrorResume(error -> task.isCancelled(), error -> {
+                    log.info("代码生成已中断，appId: {}", task.getAppId());
+                    return Flux.empty();
+                })
+                .doOnNext(task::recordChunk);
+        return Flux.using(
+                () -> CodeFileSaverExecutor.openStreamingWriter(codeGenType, task.getAppId()),
+                writer -> cancellableStream.doOnNext(writer::append).doOnComplete(() -> {
+                    if (task.isCancelled()) {
+                        return;
                     }
-                });
-            }
-            case MULTI_FILE -> {
-                Flux<String> codeStream = aiCodeGeneratorService.generateMultiFileCodeStream(userMessage);
-                StringBuilder codeBuilder = new StringBuilder();
-                yield codeStream.doOnNext(codeBuilder::append).doOnComplete(() -> {
                     try {
-                        String completeMultiFileCode = codeBuilder.toString();
-                        MultiFileCodeResult multiFileResult = (MultiFileCodeResult) CodeParserExecutor.executeParser(completeMultiFileCode, CodeGenTypeEnum.MULTI_FILE);
-                        File savedDir = CodeFileSaverExecutor.executeSaver(multiFileResult, CodeGenTypeEnum.MULTI_FILE, appId);
+                        File savedDir = writer.complete();
                         log.info("保存成功，路径为：" + savedDir.getAbsolutePath());
                     } catch (Exception e) {
-                        log.error("保存失败: {}", e.getMessage());
+                        log.error("保存失败: {}", e.getMessage(), e);
                     }
-                });
-            }
-            case VUE_PROJECT -> {
-                TokenStream tokenStream = aiCodeGeneratorService.generateVueProjectCodeStream(appId, userMessage);
-                yield processTokenStreamWithCallback(tokenStream, appId, sseCallback, userId, user);
-            }
-            case REACT_PROJECT -> {
-                TokenStream tokenStream = aiCodeGeneratorService.generateReactProjectCodeStream(appId, userMessage);
-                yield processTokenStreamWithCallback(tokenStream, appId, sseCallback, userId, user);
-            }
-            default -> {
-                String errorMessage = "不支持的生成类型：" + codeGenTypeEnum.getValue();
-                throw new BusinessException(ErrorCode.SYSTEM_ERROR, errorMessage);
+                }),
+                StreamingCodeFileWriter::close)
+                .<StreamMessage>map(AiResponseMessage::new);
+    }
+
+    /**
+     * Vue/React 项目生成期间的文件写入进入暂存工作区：正常结束时整体提交到项目目录，出错或被取消时丢弃
+     * <p>
+     * 该应用已有进行中的暂存工作区时（如工作流在多轮生成间共用一个），由其开启方负责提交，这里不处理
+     *
+     * @param messageStream 生成输出流
+     * @param codeGenType   代码生成类型
+     * @param task          生成任务
+     * @return Flux<StreamMessage> 流式响应
+     */
+    private Flux<StreamMessage> stageProjectWrites(Flux<StreamMessage> messageStream, CodeGenTypeEnum codeGenType, GenerationTask task) {
+        return Flux.defer(() -> {
+            StagedWorkspace staged = projectWorkspaceManager.beginStaging(codeGenType, task.getAppId());
+            if (staged == null) {
+                return messageStream;
             }
-        };
+            // 用户中断时流是正常结束的，需要按任务状态区分
+            return messageStream
+                    .doOnComplete(() -> {
+                        if (task.isCancelled()) {
+                            staged.discard();
+                        } else {
+                            staged.commit();
+                        }
+                    })
+                    .doOnError(error -> staged.discard())
+                    .doOnCancel(staged::discard);
+        });
     }
 
     /**
-     * 将 TokenStream 转换为 Flux<String>，并传递工具调用信息
+     * 将 TokenStream 转换为 Flux<StreamMessage>，并传递工具调用信息
+     * <p>
+     * 用户主动中断时正常结束流，上游模型请求由生成任务负责中断
      *
-     * @param tokenStream TokenStream 对象
-     * @param appId       应用 ID
-     * @param userId      用户 ID
-     * @return Flux<String> 流式响应
+     * @param tokenStream    TokenStream 对象
+     * @param task           生成任务
+     * @param contentBuilder 收集输出内容，可为 null
+     * @return Flux<StreamMessage> 流式响应
      */
-    private Flux<String> processTokenStream(TokenStream tokenStream, Long appId, Long userId) {
+    private Flux<StreamMessage> processTokenStream(TokenStream tokenStream, GenerationTask task, StringBuilder contentBuilder) {
+        Long appId = task.getAppId();
         return Flux.create(sink -> {
-            // 使用 StringBuilder 实时接收内容
-            StringBuilder contentBuilder = new StringBuilder();
-
-            // 创建一个占位符 Disposable
-            Disposable placeholderDisposable = Flux.never().subscribe();
-
-            // 注册任务到任务管理器
-            generationTaskManager.registerTask(appId, "CODE_GENERATION", placeholderDisposable, sink, userId, contentBuilder);
-
-            // 添加取消处理器
-            sink.onCancel(() -> {
-                log.info("FluxSink 被取消，appId: {}", appId);
-                // 完成任务
-                generationTaskManager.completeTask(appId, contentBuilder, userId);
-            });
-
+            task.onCancel(sink::complete);
             tokenStream.onPartialResponse((String partialResponse) -> {
-                // 检查是否被中断
-                if (isInterrupted(appId)) {
-                    log.info("检测到中断信号，停止流式输出，appId: {}", appId);
-                    // 完成任务
-                    generationTaskManager.completeTask(appId, contentBuilder, userId);
-                    sink.complete();
-                    return;
+                task.recordChunk(partialResponse);
+                if (contentBuilder != null) {
+                    contentBuilder.append(partialResponse);
                 }
-
-                AiResponseMessage aiResponseMessage = new AiResponseMessage(partialResponse);
-                sink.next(JSONUtil.toJsonStr(aiResponseMessage));
+                sink.next(new AiResponseMessage(partialResponse));
             }).onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                // 检查是否被中断
-                if (isInterrupted(appId)) {
-                    log.info("检测到中断信号，停止流式输出，appId: {}", appId);
-                    // 完成任务
-                    generationTaskManager.completeTask(appId, contentBuilder, userId);
-                    sink.complete();
-                    return;
-                }
-
-                ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
-                String json = JSONUtil.toJsonStr(toolRequestMessage);
-                sink.next(json);
+                sink.next(new ToolRequestMessage(toolExecutionRequest));
             }).onToolExecuted((ToolExecution toolExecution) -> {
-                // 检查是否被中断
-                if (isInterrupted(appId)) {
-                    log.info("检测到中断信号，停止流式输出，appId: {}", appId);
-                    // 完成任务
-                    generationTaskManager.completeTask(appId, contentBuilder, userId);
-                    sink.complete();
-                    return;
-                }
-
-                ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                sink.next(JSONUtil.toJsonStr(toolExecutedMessage));
+                sink.next(new ToolExecutedMessage(toolExecution));
             }).onCompleteResponse((ChatResponse response) -> {
                 log.info("项目代码生成完成，appId: {}", appId);
-                // 完成任务
-                generationTaskManager.completeTask(appId, contentBuilder, userId);
                 sink.complete();
             }).onError((Throwable error) -> {
+                if (task.isCancelled()) {
+                    log.info("项目代码生成已中断，appId: {}", appId);
+                    sink.complete();
+                    return;
+                }
                 log.error("项目代码生成失败: {}", error.getMessage(), error);
-                // 完成任务
-                generationTaskManager.completeTask(appId, contentBuilder, userId);
                 sink.error(error);
             }).start();
         });
     }
 
     /**
-     * 将 TokenStream 转换为 Flux<String>，并传递工具调用信息（带SSE回调）
+     * 将 TokenStream 转换为 Flux<StreamMessage>，并传递工具调用信息（带SSE回调）
      *
      * @param tokenStream TokenStream 对象
-     * @param appId       应用 ID
+     * @param task        生成任务
      * @param sseCallback SSE消息回调
-     * @param userId      用户ID
      * @param user        用户信息
-     * @return Flux<String> 流式响应
+     * @return Flux<StreamMessage> 流式响应
      */
-    private Flux<String> processTokenStreamWithCallback(TokenStream tokenStream, Long appId, Consumer<String> sseCallback, Long userId, User user) {
-        return Flux.create(sink -> {
-            // 重置中断标志
-            resetInterrupt(appId);
-
-            // 使用 StringBuilder 实时接收内容
-            StringBuilder contentBuilder = new StringBuilder();
-
-            // 创建一个占位符 Disposable
-            Disposable placeholderDisposable = Flux.never().subscribe();
-
-            // 注册任务到任务管理器
-            generationTaskManager.registerTask(appId, "CODE_GENERATION", placeholderDisposable, sink, userId, contentBuilder);
-
-            // 添加取消处理器
-            sink.onCancel(() -> {
-                log.info("FluxSink 被取消，appId: {}", appId);
-                // 完成任务
-                generationTaskManager.completeTask(appId, contentBuilder, userId);
-            });
-
-            tokenStream.onPartialResponse((String partialResponse) -> {
-                // 检查是否被中断
-                if (isInterrupted(appId)) {
-                    log.info("检测到中断信号，停止流式输出，appId: {}", appId);
-                    // 完成任务
-                    generationTaskManager.completeTask(appId, contentBuilder, userId);
-                    sink.complete();
-                    return;
-                }
-
-                contentBuilder.append(partialResponse);
-
-                if (sseCallback != null) {
-                    sseCallback.accept(partialResponse);
-                }
-                sink.next(partialResponse);
-
-                // 通过 WebSocket 广播 AI 回复给所有协同编辑的用户
-                try {
-                    AppEditHandler appEditHandler = applicationContext.getBean(AppEditHandler.class);
-                    appEditHandler.broadcastAiResponse(appId, user, partialResponse);
-                } catch (Exception e) {
-                    log.error("广播 AI 回复失败: {}", e.getMessage(), e);
-                }
-            }).onPartialToolExecutionRequest((index, toolExecutionRequest) -> {
-                // 检查是否被中断
-                if (isInterrupted(appId)) {
-                    log.info("检测到中断信号，停止流式输出，appId: {}", appId);
-                    // 完成任务
-                    generationTaskManager.completeTask(appId, contentBuilder, userId);
-                    sink.complete();
-                    return;
-                }
+    private Flux<StreamMessage> processTokenStreamWithCallback(TokenStream tokenStream, GenerationTask task, Consumer<String> sseCallback, User user) {
+        Long appId = task.getAppId();
+        // 使用 StringBuilder 实时接收内容，结束（含中断）时保存到对话历史
+        StringBuilder contentBuilder = new StringBuilder();
+        // 先合并再回调，SSE 回调和 WebSocket 广播都按合并后的帧发送
+        return streamMessageCoalescer.coalesce(processTokenStream(tokenStream, task, contentBuilder))
+                .doOnNext(message -> dispatchMessage(message, appId, sseCallback, user))
+                .doFinally(signalType -> {
+                    // 下游处理器已保存完整回复时不再重复保存（客户端断开时只有这里会保存）
+                    if (task.markReplySaved()) {
+                        savePartialContentToChatHistory(contentBuilder.toString(), appId, task.getUserId());
+                    }
+                });
+    }
 
-                ToolRequestMessage toolRequestMessage = new ToolRequestMessage(toolExecutionRequest);
-                String json = JSONUtil.toJsonStr(toolRequestMessage);
-                if (sseCallback != null) {
-                    sseCallback.accept(json);
-                }
-                sink.next(json);
-            }).onToolExecuted((ToolExecution toolExecution) -> {
-                // 检查是否被中断
-                if (isInterrupted(appId)) {
-                    log.info("检测到中断信号，停止流式输出，appId: {}", appId);
-                    // 完成任务
-                    generationTaskManager.completeTask(appId, contentBuilder, userId);
-                    sink.complete();
-                    return;
-                }
+    /**
+     * 保存已生成的内容到对话历史
+     *
+     * @param partialContent 已生成的内容
+     * @param appId          应用 ID
+     * @param userId         用户 ID
+     */
+    private void savePartialContentToChatHistory(String partialContent, Long appId, Long userId) {
+        try {
+            log.info("开始保存部分内容到对话历史，appId: {}, userId: {}, 内容长度: {}", appId, userId, partialContent.length());
+            boolean saveResult = chatHistoryService.saveAIMessage(appId, userId, partialContent);
+            if (!saveResult) {
+                log.warn("部分内容保存到对话历史失败");
+            }
+        } catch (Exception e) {
+            log.error("保存部分内容到对话历史失败: {}", e.getMessage(), e);
+        }
+    }
 
-                ToolExecutedMessage toolExecutedMessage = new ToolExecutedMessage(toolExecution);
-                String json = JSONUtil.toJsonStr(toolExecutedMessage);
-                if (sseCallback != null) {
-                    sseCallback.accept(json);
-                }
-                sink.next(json);
-            }).onCompleteResponse((ChatResponse response) -> {
-                log.info("项目代码生成完成，appId: {}", appId);
-                // 完成任务
-                generationTaskManager.completeTask(appId, contentBuilder, userId);
-                sink.complete();
-            }).onError((Throwable error) -> {
-                log.error("项目代码生成失败: {}", error.getMessage(), error);
-                // 完成任务
-                generationTaskManager.completeTask(appId, contentBuilder, userId);
-                sink.error(error);
-            }).start();
-        });
+    /**
+     * 将合并后的消息分发给 SSE 回调和协同编辑的 WebSocket 用户
+     *
+     * @param message     流式消息
+     * @param appId       应用 ID
+     * @param sseCallback SSE消息回调
+     * @param user        用户信息
+     */
+    private void dispatchMessage(StreamMessage message, Long appId, Consumer<String> sseCallback, User user) {
+        if (!(message instanceof AiResponseMessage aiResponseMessage)) {
+            if (sseCallback != null) {
+                sseCallback.accept(SseMessageEncoder.encode(message));
+            }
+            return;
+        }
+        String data = aiResponseMessage.getData();
+        if (sseCallback != null) {
+            sseCallback.accept(data);
+        }
+        // 通过 WebSocket 广播 AI 回复给所有协同编辑的用户
+        try {
+            AppEditHandler appEditHandler = applicationContext.getBean(AppEditHandler.class);
+            appEditHandler.broadcastAiResponse(appId, user, data);
+        } catch (Exception e) {
+            log.error("广播 AI 回复失败: {}", e.getMessage(), e);
+        }
     }
 
 
@@ -3,6 +3,7 @@ package com.mashang.aicode.web.ai.core;
 import com.mashang.aicode.web.ai.core.handler.JsonMessageStreamHandler;
 import com.mashang.aicode.web.ai.core.handler.SimpleTextStreamHandler;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
 import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.service.ChatHistoryService;
 import jakarta.annotation.Resource;
@@ -33,7 +34,7 @@ public class StreamHandlerExecutor {
      * @param codeGenType        代码生成类型
      * @return 处理后的流
      */
-    public Flux<String> doExecute(Flux<String> originFlux,
+    public Flux<String> doExecute(Flux<StreamMessage> originFlux,
                                   ChatHistoryService chatHistoryService,
                                   long appId, User loginUser, CodeGenTypeEnum codeGenType) {
         log.info("StreamHandlerExecutor.doExecute called, appId: {}, codeGenType: {}", appId, codeGenType);
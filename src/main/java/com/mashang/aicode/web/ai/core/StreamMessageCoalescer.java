@@ -0,0 +1,154 @@
+package com.mashang.aicode.web.ai.core;
+
+import com.mashang.aicode.web.ai.model.message.AiResponseMessage;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
+import com.mashang.aicode.web.config.StreamCoalesceConfig;
+import com.mashang.aicode.web.monitor.StreamMetricsCollector;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.FluxSink;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 流式消息合并器
+ * <p>
+ * 模型每次只输出 1~3 个字符，逐个下发会产生大量 SSE 事件和 WebSocket 帧。
+ * 这里把连续的 AI 文本消息合并为一帧：累计字符数达到上限或首个 token 等待超时即刷新，
+ * 工具调用消息会先强制刷新已累计的文本再原样下发，保证顺序不变。
+ */
+@Slf4j
+@Component
+public class StreamMessageCoalescer {
+
+    @Resource
+    private StreamCoalesceConfig streamCoalesceConfig;
+
+    @Resource
+    private StreamMetricsCollector streamMetricsCollector;
+
+    private final Scheduler scheduler = Schedulers.parallel();
+
+    /**
+     * 对流式消息进行合并
+     *
+     * @param source 原始流
+     * @return 合并后的流
+     */
+    public Flux<StreamMessage> coalesce(Flux<StreamMessage> source) {
+        if (!streamCoalesceConfig.isEnabled()) {
+            return source;
+        }
+        int maxChars = streamCoalesceConfig.getMaxChars();
+        long maxDelayMillis = streamCoalesceConfig.getMaxDelayMillis();
+        return Flux.create(sink -> {
+            CoalescingBuffer buffer = new CoalescingBuffer(sink, maxChars, maxDelayMillis);
+            Disposable upstream = source.subscribe(buffer::onNext, buffer::onError, buffer::onComplete);
+            sink.onDispose(() -> {
+                upstream.dispose();
+                buffer.cancelTimer();
+            });
+        });
+    }
+
+    /**
+     * 单次订阅的合并缓冲，模型回调线程和定时刷新线程会并发访问，方法均加锁
+     */
+    private class CoalescingBuffer {
+
+        private final FluxSink<StreamMessage> sink;
+
+        private final int maxChars;
+
+        private final long maxDelayMillis;
+
+        private final StringBuilder pending = new StringBuilder();
+
+        private int pendingTokens;
+
+        private Disposable timer;
+
+        private boolean terminated;
+
+        CoalescingBuffer(FluxSink<StreamMessage> sink, int maxChars, long maxDelayMillis) {
+            this.sink = sink;
+            this.maxChars = maxChars;
+            this.maxDelayMillis = maxDelayMillis;
+        }
+
+        synchronized void onNext(StreamMessage message) {
+            if (terminated) {
+                return;
+            }
+            if (!(message instanceof AiResponseMessage aiMessage)) {
+                // 工具事件：先刷新文本，再原样下发
+                flush();
+                sink.next(message);
+                return;
+            }
+            String data = aiMessage.getData();
+            if (data == null || data.isEmpty()) {
+                return;
+            }
+            pending.append(data);
+            pendingTokens++;
+            if (pending.length() >= maxChars) {
+                flush();
+            } else if (timer == null) {
+                timer = scheduler.schedule(this::onTimer, maxDelayMillis, TimeUnit.MILLISECONDS);
+            }
+        }
+
+        synchronized void onComplete() {
+            if (terminated) {
+                return;
+            }
+            flush();
+            terminated = true;
+            sink.complete();
+        }
+
+        synchronized void onError(Throwable error) {
+            if (terminated) {
+                return;
+            }
+            flush();
+            terminated = true;
+            sink.error(error);
+        }
+
+        synchronized void cancelTimer() {
+            terminated = true;
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+        }
+
+        private synchronized void onTimer() {
+            timer = null;
+            if (!terminated) {
+                flush();
+            }
+        }
+
+        private void flush() {
+            if (timer != null) {
+                timer.dispose();
+                timer = null;
+            }
+            if (pendingTokens == 0) {
+                return;
+            }
+            sink.next(new AiResponseMessage(pending.toString()));
+            streamMetricsCollector.recordCoalescedFrame(pendingTokens);
+            pending.setLength(0);
+            pendingTokens = 0;
+        }
+    }
+}
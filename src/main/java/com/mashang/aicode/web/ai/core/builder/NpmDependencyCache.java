@@ -0,0 +1,366 @@
+package com.mashang.aicode.web.ai.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.io.resource.ResourceUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.mashang.aicode.web.config.NpmCacheConfig;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * 按内容寻址的 npm 依赖缓存
+ * <p>
+ * 以规范化后的 package.json 依赖声明和 lockfile 计算哈希，同一组依赖只在共享目录中安装一次，
+ * 之后构建时把 node_modules 以硬链接的方式铺到项目目录，跳过 npm install。
+ * 硬链接不额外占用磁盘，构建过程中新建的文件（如 .vite 缓存）只落在项目自己的目录里，不会污染共享目录；
+ * 构建或 npm 会原地改写的文件（{@link #MUTABLE_PATHS}）复制而不链接，避免改写穿透到共享目录。
+ * 正在链接的条目不会被淘汰。
+ * <p>
+ * 安装在共享目录的临时目录中进行，完成后整体重命名，项目目录中不会因此多出 lockfile，缓存 key 保持稳定。
+ */
+@Slf4j
+@Component
+public class NpmDependencyCache {
+
+    /**
+     * 参与缓存 key 计算的依赖字段
+     */
+    private static final List<String> DEPENDENCY_FIELDS = List.of(
+            "dependencies", "devDependencies", "peerDependencies", "optionalDependencies", "overrides", "resolutions");
+
+    private static final String LOCK_FILE = "package-lock.json";
+
+    private static final String NODE_MODULES = "node_modules";
+
+    /**
+     * 项目 node_modules 中记录当前缓存 key 的文件，key 未变时无需重新链接
+     */
+    private static final String KEY_MARKER = ".npm-cache-key";
+
+    /**
+     * 共享目录中标记安装完成的文件，同时用修改时间记录最近使用时间
+     */
+    private static final String COMPLETE_MARKER = ".complete";
+
+    /**
+     * 复制而不是链接的文件和目录（相对 node_modules，任意层级）：npm 的隐藏 lockfile、各类工具缓存
+     */
+    private static final Set<String> MUTABLE_PATHS = Set.of(".package-lock.json", ".cache", ".vite", ".vite-temp");
+
+    private static final List<String> TEMPLATE_PACKAGE_FILES = List.of(
+            "npm-template/vue-project-package.json",
+            "npm-template/react-project-package.json");
+
+    @Resource
+    private NpmCacheConfig npmCacheConfig;
+
+    /**
+     * 每个 key 一把锁，创建后不再移除，保证同一 key 的安装、链接登记和淘汰始终互斥；
+     * 数量与进程内出现过的依赖组合数相同
+     */
+    private final Map<String, ReentrantLock> keyLocks = new ConcurrentHashMap<>();
+
+    /**
+     * key → 正在链接该条目的构建数，大于 0 时不淘汰
+     */
+    private final Map<String, Integer> pins = new ConcurrentHashMap<>();
+
+    public boolean isEnabled() {
+        return npmCacheConfig.isEnabled();
+    }
+
+    /**
+     * 为项目准备依赖：缓存命中时直接链接，未命中时先在共享目录安装
+     *
+     * @param projectDir 项目目录
+     * @param installer  在指定目录执行 npm install
+     * @return 是否准备成功，失败时调用方应退回在项目目录中直接安装
+     */
+    public boolean prepare(File projectDir, Predicate<File> installer) {
+        String key;
+        try {
+            key = computeKey(projectDir);
+        } catch (Exception e) {
+            log.warn("计算依赖缓存 key 失败，跳过缓存: {}, error: {}", projectDir.getAbsolutePath(), e.getMessage());
+            return false;
+        }
+        File projectModules = new File(projectDir, NODE_MODULES);
+        File projectMarker = new File(projectModules, KEY_MARKER);
+        if (projectMarker.isFile() && key.equals(FileUtil.readUtf8String(projectMarker))) {
+            log.info("依赖未变化，复用已链接的 node_modules: {}", projectDir.getAbsolutePath());
+            touch(entryDir(key));
+            return true;
+        }
+        File entryDir = ensureEntry(key, projectDir, installer, true);
+        if (entryDir == null) {
+            return false;
+        }
+        try {
+            long start = System.currentTimeMillis();
+            FileUtil.del(projectModules);
+            linkTree(new File(entryDir, NODE_MODULES).toPath(), projectModules.toPath());
+            FileUtil.writeUtf8String(key, projectMarker);
+            log.info("依赖缓存命中，已链接 node_modules，key: {}, 耗时: {}ms", key, System.currentTimeMillis() - start);
+            return true;
+        } catch (Exception e) {
+            log.error("链接 node_modules 失败: {}, error: {}", projectDir.getAbsolutePath(), e.getMessage());
+            FileUtil.del(projectModules);
+            return false;
+        } finally {
+            unpin(key);
+        }
+    }
+
+    /**
+     * 预装 Vue/React 模板的依赖
+     *
+     * @param installer 在指定目录执行 npm install
+     */
+    public void warmUp(Predicate<File> installer) {
+        if (!npmCacheConfig.isEnabled() || !npmCacheConfig.isWarmUp()) {
+            return;
+        }
+        for (String templateFile : TEMPLATE_PACKAGE_FILES) {
+            File templateDir = FileUtil.mkdir(new File(npmCacheConfig.getStoreDir(), ".template-" + FileUtil.mainName(templateFile)));
+            try {
+                FileUtil.writeUtf8String(ResourceUtil.readUtf8Str(templateFile), new File(templateDir, "package.json"));
+                String key = computeKey(templateDir);
+                if (ensureEntry(key, templateDir, installer, false) != null) {
+                    log.info("模板依赖预装完成: {}, key: {}", templateFile, key);
+                }
+            } catch (Exception e) {
+                log.warn("模板依赖预装失败: {}, error: {}", templateFile, e.getMessage());
+            } finally {
+                FileUtil.del(templateDir);
+            }
+        }
+    }
+
+    /**
+     * 计算缓存 key：只取依赖相关字段并按 key 排序，项目名、版本号、脚本等不影响结果
+     */
+    String computeKey(File projectDir) {
+        JSONObject packageJson = JSONUtil.parseObj(FileUtil.readUtf8String(new File(projectDir, "package.json")));
+        StringBuilder canonical = new StringBuilder();
+        for (String field : DEPENDENCY_FIELDS) {
+            JSONObject value = packageJson.getJSONObject(field);
+            if (value != null && !value.isEmpty()) {
+                canonical.append(field).append('=');
+                appendCanonical(value, canonical);
+                canonical.append('\n');
+            }
+        }
+        File lockFile = new File(projectDir, LOCK_FILE);
+        if (lockFile.isFile()) {
+            JSONObject lock = JSONUtil.parseObj(FileUtil.readUtf8String(lockFile));
+            // 根项目的名称和版本不影响依赖树
+            lock.remove("name");
+            lock.remove("version");
+            JSONObject packages = lock.getJSONObject("packages");
+            JSONObject rootPackage = packages == null ? null : packages.getJSONObject("");
+            if (rootPackage != null) {
+                rootPackage.remove("name");
+                rootPackage.remove("version");
+            }
+            canonical.append("lockfile=");
+            appendCanonical(lock, canonical);
+            canonical.append('\n');
+        }
+        // 原生依赖（如 esbuild）与平台相关
+        canonical.append("platform=").append(System.getProperty("os.name")).append('-').append(System.getProperty("os.arch"));
+        return DigestUtil.sha256Hex(canonical.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 32);
+    }
+
+    /**
+     * 按 key 排序输出 JSON，保证同样的内容得到同样的结果，与原文件的字段顺序、缩进无关
+     */
+    private void appendCanonical(Object value, StringBuilder out) {
+        if (value instanceof Map<?, ?> map) {
+            out.append('{');
+            new TreeMap<>(map).forEach((k, v) -> {
+                out.append(JSONUtil.quote(String.valueOf(k))).append(':');
+                appendCanonical(v, out);
+                out.append(',');
+            });
+            out.append('}');
+        } else if (value instanceof Collection<?> list) {
+            out.append('[');
+            for (Object item : list) {
+                appendCanonical(item, out);
+                out.append(',');
+            }
+            out.append(']');
+        } else {
+            out.append(JSONUtil.quote(String.valueOf(value)));
+        }
+    }
+
+    /**
+     * 确保缓存条目存在，不存在时在临时目录中安装后整体重命名
+     *
+     * @param pin 是否登记为正在使用，登记后调用方链接完成时须调用 {@link #unpin(String)}
+     * @return 条目目录，安装失败返回 null
+     */
+    private File ensureEntry(String key, File sourceDir, Predicate<File> installer, boolean pin) {
+        File entryDir = entryDir(key);
+        ReentrantLock lock = keyLocks.computeIfAbsent(key, k -> new ReentrantLock());
+        lock.lock();
+        try {
+            // 等待期间其他线程可能已完成安装
+            if (isComplete(entryDir)) {
+                touch(entryDir);
+                if (pin) {
+                    pins.merge(key, 1, Integer::sum);
+                }
+                return entryDir;
+            }
+            log.info("依赖缓存未命中，开始安装，key: {}", key);
+            File stagingDir = new File(npmCacheConfig.getStoreDir(), key + ".tmp-" + System.nanoTime());
+            try {
+                FileUtil.mkdir(stagingDir);
+                FileUtil.copy(new File(sourceDir, "package.json"), stagingDir, true);
+                File lockFile = new File(sourceDir, LOCK_FILE);
+                if (lockFile.isFile()) {
+                    FileUtil.copy(lockFile, stagingDir, true);
+                }
+                if (!installer.test(stagingDir)) {
+                    log.error("依赖安装失败，key: {}", key);
+                    return null;
+                }
+                FileUtil.del(entryDir);
+                Files.move(stagingDir.toPath(), entryDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+                FileUtil.touch(new File(entryDir, COMPLETE_MARKER));
+                if (pin) {
+                    pins.merge(key, 1, Integer::sum);
+                }
+            } catch (IOException e) {
+                log.error("保存依赖缓存失败，key: {}, error: {}", key, e.getMessage());
+                return null;
+            } finally {
+                FileUtil.del(stagingDir);
+            }
+        } finally {
+            lock.unlock();
+        }
+        evictIfNecessary();
+        return entryDir;
+    }
+
+    private void unpin(String key) {
+        pins.computeIfPresent(key, (k, count) -> count > 1 ? count - 1 : null);
+    }
+
+    /**
+     * 把共享目录中的 node_modules 以硬链接方式复制到项目，目录逐层新建，符号链接（如 .bin）按原目标重建；
+     * {@link #MUTABLE_PATHS} 中的文件和目录整体复制
+     */
+    private void linkTree(Path source, Path target) throws IOException {
+        Files.walkFileTree(source, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                Path dest = target.resolve(source.relativize(dir));
+                if (!dir.equals(source) && MUTABLE_PATHS.contains(dir.getFileName().toString())) {
+                    FileUtil.copyContent(dir.toFile(), FileUtil.mkdir(dest.toFile()), true);
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(dest);
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path dest = target.resolve(source.relativize(file));
+                if (attrs.isSymbolicLink()) {
+                    Files.createSymbolicLink(dest, Files.readSymbolicLink(file));
+                    return FileVisitResult.CONTINUE;
+                }
+                if (MUTABLE_PATHS.contains(file.getFileName().toString())) {
+                    Files.copy(file, dest, LinkOption.NOFOLLOW_LINKS);
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    Files.createLink(dest, file);
+                } catch (UnsupportedOperationException | IOException e) {
+                    // 跨磁盘或文件系统不支持硬链接时退回复制
+                    Files.copy(file, dest, LinkOption.NOFOLLOW_LINKS);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 超出条目上限时按最近使用时间淘汰，已链接到项目中的文件不受影响；
+     * 正在安装或链接的条目跳过，先删除完成标记，其他线程随即视其为未安装
+     */
+    private void evictIfNecessary() {
+        File[] entries = new File(npmCacheConfig.getStoreDir()).listFiles(this::isComplete);
+        if (entries == null || entries.length <= npmCacheConfig.getMaxEntries()) {
+            return;
+        }
+        Arrays.stream(entries)
+                .sorted(Comparator.comparingLong(entry -> new File(entry, COMPLETE_MARKER).lastModified()))
+                .limit(entries.length - npmCacheConfig.getMaxEntries())
+                .forEach(this::evict);
+    }
+
+    private void evict(File entryDir) {
+        String key = entryDir.getName();
+        ReentrantLock lock = keyLocks.computeIfAbsent(key, k -> new ReentrantLock());
+        if (!lock.tryLock()) {
+            return;
+        }
+        try {
+            if (pins.containsKey(key)) {
+                log.debug("依赖缓存正在使用，暂不淘汰: {}", key);
+                return;
+            }
+            log.info("淘汰依赖缓存: {}", key);
+            FileUtil.del(new File(entryDir, COMPLETE_MARKER));
+            FileUtil.del(entryDir);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private File entryDir(String key) {
+        return new File(npmCacheConfig.getStoreDir(), key);
+    }
+
+    private boolean isComplete(File entryDir) {
+        return new File(entryDir, COMPLETE_MARKER).isFile() && new File(entryDir, NODE_MODULES).isDirectory();
+    }
+
+    private void touch(File entryDir) {
+        try {
+            Files.setLastModifiedTime(new File(entryDir, COMPLETE_MARKER).toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+        } catch (IOException e) {
+            log.debug("更新依赖缓存使用时间失败: {}", entryDir.getName());
+        }
+    }
+}
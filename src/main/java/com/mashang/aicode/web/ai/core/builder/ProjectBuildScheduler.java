@@ -0,0 +1,251 @@
+package com.mashang.aicode.web.ai.core.builder;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.HexUtil;
+import com.mashang.aicode.web.config.ProjectBuildConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Vue/React 项目构建调度器
+ * <p>
+ * 所有构建在固定大小的线程池中执行，避免同时拉起大量 node 进程。同一项目同一时间最多一个构建在执行、一个在排队：
+ * <ul>
+ *     <li>已有排队中的构建时，新请求直接共享它的结果（排队中的构建尚未开始，执行时看到的就是最新源码）</li>
+ *     <li>构建执行中时，新请求排在其后，等它完成后再执行</li>
+ *     <li>执行前计算源码哈希，与上次成功构建一致且 dist 存在时直接跳过</li>
+ * </ul>
+ * 部署等需要构建结果的场景调用 {@link #awaitBuild(String)}，会等待进行中的构建而不是另起一个。
+ */
+@Slf4j
+@Component
+public class ProjectBuildScheduler {
+
+    /**
+     * 不参与源码哈希的目录和文件
+     */
+    private static final Set<String> HASH_IGNORED_NAMES = Set.of("node_modules", "dist", ".git", ".vite", ".DS_Store");
+
+    /**
+     * 上次成功构建的源码哈希，放在 node_modules 中，不会被下载或部署出去
+     */
+    private static final String SOURCE_HASH_FILE = "node_modules/.build-source-hash";
+
+    @Resource
+    private ProjectBuilder projectBuilder;
+
+    @Resource
+    private ProjectBuildConfig projectBuildConfig;
+
+    /**
+     * key: 项目目录绝对路径，访问需持有 slots 锁
+     */
+    private final Map<String, BuildSlot> slots = new HashMap<>();
+
+    private ThreadPoolExecutor buildExecutor;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = projectBuildConfig.getPoolSize() > 0
+                ? projectBuildConfig.getPoolSize()
+                : Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadIndex = new AtomicInteger();
+        // 每个项目最多一个任务在队列中，队列长度受项目数限制
+        buildExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(),
+                r -> {
+                    Thread t = new Thread(r, "project-builder-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        log.info("项目构建调度器已启动，并发构建数: {}", poolSize);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        buildExecutor.shutdownNow();
+    }
+
+    /**
+     * 提交构建（不阻塞调用方）
+     *
+     * @param projectPath 项目路径
+     * @return 构建结果
+     */
+    public CompletableFuture<Boolean> submit(String projectPath) {
+        String key = new File(projectPath).getAbsolutePath();
+        CompletableFuture<Boolean> future;
+        synchronized (slots) {
+            BuildSlot slot = slots.computeIfAbsent(key, k -> new BuildSlot());
+            if (slot.pending != null) {
+                log.info("项目已有排队中的构建，合并请求: {}", key);
+                return slot.pending;
+            }
+            future = new CompletableFuture<>();
+            if (slot.running != null) {
+                log.info("项目构建进行中，新请求排队等待: {}", key);
+                slot.pending = future;
+                return future;
+            }
+            slot.running = future;
+        }
+        execute(key, future);
+        return future;
+    }
+
+    /**
+     * 提交构建并等待完成，已有进行中的构建时等待其结束
+     *
+     * @param projectPath 项目路径
+     * @return 是否构建成功
+     */
+    public boolean awaitBuild(String projectPath) {
+        try {
+            return submit(projectPath).get(projectBuildConfig.getAwaitTimeoutSeconds(), TimeUnit.SECONDS);
+        } catch (TimeoutException e) {
+            log.error("等待项目构建超时（{}秒）: {}", projectBuildConfig.getAwaitTimeoutSeconds(), projectPath);
+            return false;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException e) {
+            log.error("项目构建异常: {}, error: {}", projectPath, e.getMessage());
+            return false;
+        }
+    }
+
+    private void execute(String key, CompletableFuture<Boolean> future) {
+        try {
+            buildExecutor.execute(() -> run(key, future));
+        } catch (RejectedExecutionException e) {
+            log.error("构建线程池已关闭，放弃构建: {}", key);
+            finish(key, future, false);
+        }
+    }
+
+    private void run(String key, CompletableFuture<Boolean> future) {
+        boolean success = false;
+        try {
+            success = buildIfChanged(new File(key));
+        } catch (Exception e) {
+            log.error("构建 Vue/React 项目时发生异常: {}", e.getMessage(), e);
+        } finally {
+            finish(key, future, success);
+        }
+    }
+
+    /**
+     * 完成当前构建，有排队的构建时接着执行
+     */
+    private void finish(String key, CompletableFuture<Boolean> future, boolean success) {
+        CompletableFuture<Boolean> next;
+        synchronized (slots) {
+            BuildSlot slot = slots.get(key);
+            next = slot.pending;
+            slot.pending = null;
+            slot.running = next;
+            if (next == null) {
+                slots.remove(key);
+            }
+        }
+        future.complete(success);
+        if (next != null) {
+            execute(key, next);
+        }
+    }
+
+    private boolean buildIfChanged(File projectDir) throws IOException {
+        String sourceHash = projectBuildConfig.isSourceHashSkip() ? computeSourceHash(projectDir) : null;
+        File hashFile = new File(projectDir, SOURCE_HASH_FILE);
+        if (sourceHash != null && new File(projectDir, "dist").isDirectory()
+                && hashFile.isFile() && sourceHash.equals(FileUtil.readUtf8String(hashFile))) {
+            log.info("源码未变化，跳过构建: {}", projectDir.getAbsolutePath());
+            return true;
+        }
+        boolean success = projectBuilder.buildProject(projectDir.getAbsolutePath());
+        // 记录构建开始前的哈希，构建期间源码若有改动，下次会因哈希不同重新构建
+        if (success && sourceHash != null && hashFile.getParentFile().isDirectory()) {
+            FileUtil.writeUtf8String(sourceHash, hashFile);
+        }
+        return success;
+    }
+
+    /**
+     * 按相对路径排序后依次摘要路径和文件内容
+     */
+    private String computeSourceHash(File projectDir) throws IOException {
+        if (!projectDir.isDirectory()) {
+            return null;
+        }
+        Path root = projectDir.toPath();
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                if (!dir.equals(root) && HASH_IGNORED_NAMES.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && !HASH_IGNORED_NAMES.contains(file.getFileName().toString())) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(null);
+        MessageDigest digest;
+        try {
+            digest = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+        for (Path file : files) {
+            digest.update(root.relativize(file).toString().replace('\\', '/').getBytes(StandardCharsets.UTF_8));
+            digest.update((byte) 0);
+            digest.update(Files.readAllBytes(file));
+            digest.update((byte) 0);
+        }
+        return HexUtil.encodeHexStr(digest.digest());
+    }
+
+    /**
+     * 单个项目的构建状态
+     */
+    private static class BuildSlot {
+
+        private CompletableFuture<Boolean> running;
+
+        private CompletableFuture<Boolean> pending;
+    }
+}
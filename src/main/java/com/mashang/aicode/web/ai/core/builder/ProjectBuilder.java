@@ -1,7 +1,10 @@
 package com.mashang.aicode.web.ai.core.builder;
 
 import cn.hutool.core.util.RuntimeUtil;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
 import org.springframework.stereotype.Component;
 
 import java.io.File;
@@ -14,21 +17,8 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class ProjectBuilder {
 
-    /**
-     * 异步构建项目（不阻塞主流程）
-     *
-     * @param projectPath 项目路径
-     */
-    public void buildProjectAsync(String projectPath) {
-        // 在单独的线程中执行构建，避免阻塞主流程
-        Thread.ofVirtual().name("project-builder-" + System.currentTimeMillis()).start(() -> {
-            try {
-                buildProject(projectPath);
-            } catch (Exception e) {
-                log.error("异步构建 Vue/React 项目时发生异常: {}", e.getMessage(), e);
-            }
-        });
-    }
+    @Resource
+    private NpmDependencyCache npmDependencyCache;
 
     /**
      * 执行命令
@@ -84,8 +74,8 @@ public class ProjectBuilder {
             return false;
         }
         log.info("开始构建 Vue/React 项目: {}", projectPath);
-        // 执行 npm install
-        if (!executeNpmInstall(projectDir)) {
+        // 准备依赖：优先复用共享缓存，缓存不可用时在项目目录中安装
+        if (!prepareDependencies(projectDir)) {
             log.error("npm install 执行失败");
             return false;
         }
@@ -105,12 +95,30 @@ public class ProjectBuilder {
     }
 
 
+    /**
+     * 启动后预装 Vue/React 模板依赖，首次生成项目即可命中缓存
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUpDependencyCache() {
+        Thread.ofVirtual().name("npm-cache-warm-up").start(() -> npmDependencyCache.warmUp(this::executeNpmInstall));
+    }
+
+    /**
+     * 准备项目依赖
+     */
+    private boolean prepareDependencies(File projectDir) {
+        if (npmDependencyCache.isEnabled() && npmDependencyCache.prepare(projectDir, this::executeNpmInstall)) {
+            return true;
+        }
+        return executeNpmInstall(projectDir);
+    }
+
     /**
      * 执行 npm install 命令
      */
     private boolean executeNpmInstall(File projectDir) {
         log.info("执行 npm install...");
-        String command = String.format("%s install", buildCommand("npm"));
+        String command = String.format("%s install --no-audit --no-fund", buildCommand("npm"));
         return executeCommand(projectDir, command, 300); // 5分钟超时
     }
 
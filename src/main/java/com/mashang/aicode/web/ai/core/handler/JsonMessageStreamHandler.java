@@ -3,12 +3,14 @@ package com.mashang.aicode.web.ai.core.handler;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
-import com.mashang.aicode.web.ai.core.builder.ProjectBuilder;
+import com.mashang.aicode.web.ai.core.builder.ProjectBuildScheduler;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
 import com.mashang.aicode.web.ai.model.message.*;
 import com.mashang.aicode.web.ai.tool.BaseTool;
 import com.mashang.aicode.web.ai.tool.ToolManager;
 import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.task.GenerationRegistry;
+import com.mashang.aicode.web.manager.task.GenerationTask;
 import com.mashang.aicode.web.model.entity.App;
 import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.model.enums.ChatHistoryMessageTypeEnum;
@@ -27,6 +29,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReference;
 
 
 /**
@@ -38,7 +41,7 @@ import java.util.Set;
 public class JsonMessageStreamHandler {
 
     @Resource
-    private ProjectBuilder projectBuilder;
+    private ProjectBuildScheduler projectBuildScheduler;
 
     @Resource
     private ToolManager toolManager;
@@ -48,10 +51,9 @@ public class JsonMessageStreamHandler {
     private AppService appService;
 
 
-
     /**
      * 处理 TokenStream（PROJECT）
-     * 解析 JSON 消息并重组为完整的响应格式
+     * 直接消费类型化的流式消息并重组为完整的响应格式，无需再反序列化
      *
      * @param originFlux         原始流
      * @param chatHistoryService 聊天历史服务
@@ -59,7 +61,7 @@ public class JsonMessageStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux, ChatHistoryService chatHistoryService, long appId, User loginUser) {
+    public Flux<String> handle(Flux<StreamMessage> originFlux, ChatHistoryService chatHistoryService, long appId, User loginUser) {
         log.info("JsonMessageStreamHandler.handle called, appId: {}", appId);
         // 收集数据用于生成后端记忆格式
         StringBuilder chatHistoryStringBuilder = new StringBuilder();
@@ -67,38 +69,50 @@ public class JsonMessageStreamHandler {
         Set<String> seenToolIds = new HashSet<>();
         // 用于累积工具参数
         Map<String, String> toolArgumentsAccumulator = new HashMap<>();
+        // 本次生成的任务，订阅时由生成任务注册表填入
+        AtomicReference<GenerationTask> taskRef = new AtomicReference<>();
         return originFlux
                 .doOnSubscribe(subscription -> log.info("JsonMessageStreamHandler subscribed, appId: {}", appId))
-                .doOnNext(chunk -> log.info("JsonMessageStreamHandler 接收到消息: {}", chunk))
-                .map(chunk -> {
+                .map(message -> {
                     try {
-                        // 解析每个 JSON 消息块
-                        String result = handleJsonMessageChunk(chunk, chatHistoryStringBuilder, seenToolIds, toolArgumentsAccumulator);
-                        log.info("JsonMessageStreamHandler 处理结果: {}, 原始消息: {}", result, chunk);
+                        // 处理每条流式消息
+                        String result = handleStreamMessage(message, chatHistoryStringBuilder, seenToolIds, toolArgumentsAccumulator);
+                        log.debug("JsonMessageStreamHandler 处理结果: {}, 消息类型: {}", result, message.getType());
                         return result;
                     } catch (Exception e) {
-                        // 如果处理单个 chunk 失败，记录错误但继续处理
-                        log.warn("处理消息块失败，按普通文本处理: {}", e.getMessage());
-                        chatHistoryStringBuilder.append(chunk);
-                        return chunk;
+                        // 如果处理单条消息失败，记录错误但继续处理
+                        log.warn("处理流式消息失败，已跳过: {}", e.getMessage());
+                        return "";
                     }
                 })
                 .doOnComplete(() -> {
                     log.info("JsonMessageStreamHandler 流完成, appId: {}", appId);
                     // 流式响应完成后，添加 AI 消息到对话历史
                     String aiResponse = chatHistoryStringBuilder.toString();
-                    chatHistoryService.addChatMessage(appId, aiResponse, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                    // 异步构造 Vue/React 项目
+                    saveAiReply(chatHistoryService, taskRef.get(), appId, aiResponse, loginUser);
+                    // 异步构造 Vue/React 项目（提交到构建调度器排队）
                     String projectDirName = resolveProjectDirName(appId);
                     Path projectPath = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                    projectBuilder.buildProjectAsync(projectPath.toString());
+                    projectBuildScheduler.submit(projectPath.toString());
                 })
                 .doOnError(error -> {
                     // 如果AI回复失败，也要记录错误消息
                     log.error("AI 流处理失败，appId: {}, error: {}", appId, error.getMessage(), error);
                     String errorMessage = "AI回复失败: " + error.getMessage();
-                    chatHistoryService.addChatMessage(appId, errorMessage, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
-                });
+                    saveAiReply(chatHistoryService, taskRef.get(), appId, errorMessage, loginUser);
+                })
+                .contextWrite(GenerationRegistry.taskListener(taskRef::set));
+    }
+
+    /**
+     * 保存本次生成的 AI 回复，生成任务已保存过回复时跳过，避免同一次生成写入两条记录
+     */
+    private void saveAiReply(ChatHistoryService chatHistoryService, GenerationTask task, long appId, String content, User loginUser) {
+        if (task != null && !task.markReplySaved()) {
+            log.info("本次生成的回复已保存，跳过重复保存, appId: {}", appId);
+            return;
+        }
+        chatHistoryService.addChatMessage(appId, content, ChatHistoryMessageTypeEnum.AI.getValue(), loginUser.getId());
     }
 
     private String resolveProjectDirName(long appId) {
@@ -125,22 +139,24 @@ public class JsonMessageStreamHandler {
     }
 
     /**
-     * 解析并收集 TokenStream 数据
+     * 收集 TokenStream 数据
      */
-    private String handleJsonMessageChunk(String chunk, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds, Map<String, String> toolArgumentsAccumulator) {
-        // 解析 JSON
-        StreamMessage streamMessage = JSONUtil.toBean(chunk, StreamMessage.class);
+    private String handleStreamMessage(StreamMessage streamMessage, StringBuilder chatHistoryStringBuilder, Set<String> seenToolIds, Map<String, String> toolArgumentsAccumulator) {
         StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
+        if (typeEnum == null) {
+            log.error("不支持的消息类型: {}", streamMessage.getType());
+            return "";
+        }
         switch (typeEnum) {
             case AI_RESPONSE -> {
-                AiResponseMessage aiMessage = JSONUtil.toBean(chunk, AiResponseMessage.class);
+                AiResponseMessage aiMessage = (AiResponseMessage) streamMessage;
                 String data = aiMessage.getData();
                 // 直接拼接响应
                 chatHistoryStringBuilder.append(data);
                 return data;
             }
             case TOOL_REQUEST -> {
-                ToolRequestMessage toolRequestMessage = JSONUtil.toBean(chunk, ToolRequestMessage.class);
+                ToolRequestMessage toolRequestMessage = (ToolRequestMessage) streamMessage;
                 String toolId = toolRequestMessage.getId();
                 String toolName = toolRequestMessage.getName();
                 log.info("处理工具请求: toolId={}, toolName={}", toolId, toolName);
@@ -165,7 +181,7 @@ public class JsonMessageStreamHandler {
                 }
             }
             case TOOL_EXECUTED -> {
-                ToolExecutedMessage toolExecutedMessage = JSONUtil.toBean(chunk, ToolExecutedMessage.class);
+                ToolExecutedMessage toolExecutedMessage = (ToolExecutedMessage) streamMessage;
                 JSONObject jsonObject = JSONUtil.parseObj(toolExecutedMessage.getArguments());
                 // 根据工具名称获取工具实例
                 String toolName = toolExecutedMessage.getName();
@@ -1,5 +1,7 @@
 package com.mashang.aicode.web.ai.core.handler;
 
+import com.mashang.aicode.web.ai.model.message.AiResponseMessage;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
 import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.model.enums.ChatHistoryMessageTypeEnum;
 import com.mashang.aicode.web.service.ChatHistoryService;
@@ -23,12 +25,13 @@ public class SimpleTextStreamHandler {
      * @param loginUser          登录用户
      * @return 处理后的流
      */
-    public Flux<String> handle(Flux<String> originFlux,
+    public Flux<String> handle(Flux<StreamMessage> originFlux,
                                ChatHistoryService chatHistoryService,
                                long appId, User loginUser) {
         StringBuilder aiResponseBuilder = new StringBuilder();
         return originFlux
-                .map(chunk -> {
+                .map(message -> {
+                    String chunk = message instanceof AiResponseMessage aiMessage ? aiMessage.getData() : "";
                     // 收集AI响应内容
                     aiResponseBuilder.append(chunk);
                     return chunk;
@@ -0,0 +1,78 @@
+package com.mashang.aicode.web.ai.core.handler;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
+import com.mashang.aicode.web.exception.BusinessException;
+import com.mashang.aicode.web.exception.ErrorCode;
+import org.springframework.http.codec.ServerSentEvent;
+
+/**
+ * SSE 消息编码器
+ * <p>
+ * 流式链路内部直接传递 {@link StreamMessage} 对象，只在输出到客户端时序列化一次，
+ * 不再经过 toJsonStr -> toBean -> toJsonStr 的往返。
+ * ObjectWriter 线程安全，全局复用同一个实例。
+ */
+public final class SseMessageEncoder {
+
+    private static final ObjectMapper OBJECT_MAPPER = new ObjectMapper()
+            .setSerializationInclusion(JsonInclude.Include.NON_NULL);
+
+    private static final ObjectWriter CHUNK_WRITER = OBJECT_MAPPER.writerFor(ChunkFrame.class);
+
+    private static final ObjectWriter MESSAGE_WRITER = OBJECT_MAPPER.writer();
+
+    private SseMessageEncoder() {
+    }
+
+    /**
+     * 将输出片段编码为 SSE 事件，data 格式为 {"d": chunk}
+     *
+     * @param chunk 输出片段
+     * @return SSE 事件
+     */
+    public static ServerSentEvent<String> chunkEvent(String chunk) {
+        return ServerSentEvent.<String>builder()
+                .data(encodeChunk(chunk))
+                .build();
+    }
+
+    /**
+     * 将输出片段编码为 {"d": chunk}
+     *
+     * @param chunk 输出片段
+     * @return JSON 字符串
+     */
+    public static String encodeChunk(String chunk) {
+        try {
+            return CHUNK_WRITER.writeValueAsString(new ChunkFrame(chunk));
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "SSE 消息编码失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * 将流式消息编码为 JSON
+     *
+     * @param message 流式消息
+     * @return JSON 字符串
+     */
+    public static String encode(StreamMessage message) {
+        try {
+            return MESSAGE_WRITER.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "流式消息编码失败: " + e.getMessage());
+        }
+    }
+
+    /**
+     * SSE 数据帧
+     *
+     * @param d 输出片段
+     */
+    record ChunkFrame(String d) {
+    }
+}
@@ -0,0 +1,224 @@
+package com.mashang.aicode.web.ai.core.parser;
+
+import java.util.Locale;
+
+/**
+ * 增量代码块解析器（状态机）
+ * <p>
+ * 按流式分片逐字符扫描 ``` 围栏代码块，边接收边把代码块内容回调给监听器，
+ * 不需要缓存完整响应，单次生成的内存占用与响应长度无关。
+ * <p>
+ * 与 {@link HtmlCodeParser} / {@link MultiFileCodeParser} 的正则语义保持一致：
+ * 代码块内容去掉首尾空白，遇到第一个 ``` 即视为代码块结束。
+ * 开始围栏只在行首识别，避免正文中的行内 ``` 打乱状态。
+ * 跨分片的围栏（如 "``" + "`html"）和结尾空白会暂存到下一个分片再处理。
+ * <p>
+ * 非线程安全，每次生成使用一个实例。
+ */
+public class StreamingCodeParser {
+
+    private static final char FENCE_CHAR = '`';
+
+    private static final int FENCE_LENGTH = 3;
+
+    /**
+     * 语言标识最大长度，超出部分丢弃，防止异常输出撑大缓冲
+     */
+    private static final int MAX_INFO_LENGTH = 64;
+
+    private enum State {
+        /**
+         * 代码块之外的普通文本
+         */
+        TEXT,
+        /**
+         * 读取 ``` 后面的语言标识
+         */
+        INFO,
+        /**
+         * 代码块内部
+         */
+        BLOCK
+    }
+
+    private final CodeBlockListener listener;
+
+    private State state = State.TEXT;
+
+    /**
+     * 已连续读到但尚未确认是否构成围栏的反引号数量
+     */
+    private int pendingFenceChars;
+
+    /**
+     * 普通文本当前是否位于行首（允许前导空格）
+     */
+    private boolean atLineStart = true;
+
+    private final StringBuilder info = new StringBuilder();
+
+    /**
+     * 代码块开头的空白需要丢弃（对应 trim）
+     */
+    private boolean skipLeadingWhitespace;
+
+    /**
+     * 代码块内尚未确认是否位于末尾的空白，遇到非空白字符时才输出
+     */
+    private final StringBuilder pendingWhitespace = new StringBuilder();
+
+    /**
+     * 当前分片的输出缓冲，分片处理结束或状态切换时回调
+     */
+    private final StringBuilder output = new StringBuilder();
+
+    public StreamingCodeParser(CodeBlockListener listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * 输入一个流式分片
+     *
+     * @param chunk 分片内容
+     */
+    public void feed(String chunk) {
+        if (chunk == null || chunk.isEmpty()) {
+            return;
+        }
+        for (int i = 0; i < chunk.length(); i++) {
+            char c = chunk.charAt(i);
+            if (c == FENCE_CHAR) {
+                if (++pendingFenceChars == FENCE_LENGTH) {
+                    pendingFenceChars = 0;
+                    onFence();
+                }
+                continue;
+            }
+            flushPendingFenceChars();
+            accept(c);
+        }
+        flushOutput();
+    }
+
+    /**
+     * 流结束，输出剩余内容；未闭合的代码块按结束处理（模型输出被截断时尽量保留已生成内容）
+     */
+    public void finish() {
+        flushPendingFenceChars();
+        flushOutput();
+        if (state == State.BLOCK) {
+            listener.onBlockEnd();
+        }
+        state = State.TEXT;
+    }
+
+    private void onFence() {
+        switch (state) {
+            case TEXT -> {
+                if (!atLineStart) {
+                    output.append("```");
+                    return;
+                }
+                flushOutput();
+                info.setLength(0);
+                state = State.INFO;
+            }
+            case BLOCK -> {
+                flushOutput();
+                pendingWhitespace.setLength(0);
+                listener.onBlockEnd();
+                state = State.TEXT;
+                atLineStart = false;
+            }
+            default -> {
+                // 语言标识中出现围栏，忽略
+            }
+        }
+    }
+
+    private void flushPendingFenceChars() {
+        while (pendingFenceChars > 0) {
+            pendingFenceChars--;
+            accept(FENCE_CHAR);
+        }
+    }
+
+    private void accept(char c) {
+        switch (state) {
+            case TEXT -> {
+                output.append(c);
+                if (c == '\n') {
+                    atLineStart = true;
+                } else if (c != ' ' && c != '\t') {
+                    atLineStart = false;
+                }
+            }
+            case INFO -> {
+                if (c == '\n') {
+                    state = State.BLOCK;
+                    skipLeadingWhitespace = true;
+                    pendingWhitespace.setLength(0);
+                    listener.onBlockStart(info.toString().trim().toLowerCase(Locale.ROOT));
+                } else if (info.length() < MAX_INFO_LENGTH) {
+                    info.append(c);
+                }
+            }
+            case BLOCK -> {
+                if (Character.isWhitespace(c)) {
+                    if (!skipLeadingWhitespace) {
+                        pendingWhitespace.append(c);
+                    }
+                    return;
+                }
+                skipLeadingWhitespace = false;
+                if (!pendingWhitespace.isEmpty()) {
+                    output.append(pendingWhitespace);
+                    pendingWhitespace.setLength(0);
+                }
+                output.append(c);
+            }
+        }
+    }
+
+    private void flushOutput() {
+        if (output.isEmpty()) {
+            return;
+        }
+        if (state == State.BLOCK) {
+            listener.onBlockContent(output);
+        } else {
+            listener.onText(output);
+        }
+        output.setLength(0);
+    }
+
+    /**
+     * 代码块事件监听器
+     * <p>
+     * 回调中传入的 CharSequence 会被复用，需要在回调内消费完毕
+     */
+    public interface CodeBlockListener {
+
+        /**
+         * 代码块之外的普通文本
+         */
+        void onText(CharSequence text);
+
+        /**
+         * 代码块开始
+         *
+         * @param language 小写的语言标识，可能为空字符串
+         */
+        void onBlockStart(String language);
+
+        /**
+         * 代码块内容片段
+         */
+        void onBlockContent(CharSequence content);
+
+        /**
+         * 代码块结束
+         */
+        void onBlockEnd();
+    }
+}
@@ -29,4 +29,19 @@ public class CodeFileSaverExecutor {
         };
     }
 
+    /**
+     * 打开流式写入器
+     *
+     * @param codeGenType 代码生成类型
+     * @param appId       应用ID
+     * @return 流式写入器
+     */
+    public static StreamingCodeFileWriter openStreamingWriter(CodeGenTypeEnum codeGenType, Long appId) {
+        return switch (codeGenType) {
+            case HTML -> htmlCodeFileSaver.openStreamingWriter(appId);
+            case MULTI_FILE -> multiFileCodeFileSaver.openStreamingWriter(appId);
+            default -> throw new BusinessException(ErrorCode.SYSTEM_ERROR, "不支持的代码生成类型: " + codeGenType);
+        };
+    }
+
 }
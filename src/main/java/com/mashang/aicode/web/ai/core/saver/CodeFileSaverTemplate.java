@@ -9,6 +9,7 @@ import com.mashang.aicode.web.exception.ErrorCode;
 
 import java.io.File;
 import java.nio.charset.StandardCharsets;
+import java.util.Set;
 
 /**
  * 抽象代码文件保存器 - 模板方法模式
@@ -37,6 +38,46 @@ public abstract class CodeFileSaverTemplate<T> {
         return new File(baseDirPath);
     }
 
+    /**
+     * 打开流式写入器：边接收边解析代码块并写入文件
+     *
+     * @param appId 应用ID
+     * @return 流式写入器
+     */
+    public final StreamingCodeFileWriter openStreamingWriter(Long appId) {
+        return new StreamingCodeFileWriter(this, buildUniqueDir(appId));
+    }
+
+    /**
+     * 根据代码块语言解析目标文件名（流式写入使用，可由子类覆盖）
+     *
+     * @param language 小写的代码块语言标识
+     * @return 文件名，返回 null 表示忽略该代码块
+     */
+    protected String resolveFileName(String language) {
+        return null;
+    }
+
+    /**
+     * 没有任何代码块时，将普通文本写入的兜底文件名（可由子类覆盖）
+     *
+     * @return 文件名，返回 null 表示不兜底
+     */
+    protected String getFallbackFileName() {
+        return null;
+    }
+
+    /**
+     * 校验流式写入的结果（可由子类覆盖）
+     *
+     * @param savedFiles 已写入的文件名
+     */
+    protected void validateStreamedFiles(Set<String> savedFiles) {
+        if (savedFiles.isEmpty()) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "代码结果对象不能为空");
+        }
+    }
+
     /**
      * 验证输入参数（可由子类覆盖）
      *
@@ -6,6 +6,8 @@ import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 
+import java.util.Set;
+
 import static jodd.util.PropertiesUtil.writeToFile;
 
 /**
@@ -25,6 +27,24 @@ public class HtmlCodeFileSaverTemplate extends CodeFileSaverTemplate<HtmlCodeRes
         writeToFile(baseDirPath, "index.html", result.getHtmlCode());
     }
 
+    @Override
+    protected String resolveFileName(String language) {
+        return "html".equals(language) ? "index.html" : null;
+    }
+
+    @Override
+    protected String getFallbackFileName() {
+        // 如果没有找到代码块，将整个内容作为HTML
+        return "index.html";
+    }
+
+    @Override
+    protected void validateStreamedFiles(Set<String> savedFiles) {
+        if (!savedFiles.contains("index.html")) {
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "HTML代码内容不能为空");
+        }
+    }
+
     @Override
     protected void validateInput(HtmlCodeResult result) {
         super.validateInput(result);
@@ -0,0 +1,213 @@
+package com.mashang.aicode.web.ai.core.saver;
+
+import com.mashang.aicode.web.ai.core.parser.StreamingCodeParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashSet;
+import java.util.Set;
+
+/**
+ * 流式代码文件写入器
+ * <p>
+ * 配合 {@link StreamingCodeParser} 使用：代码块到达时直接写入临时文件，
+ * 代码块结束后原子替换为目标文件，流结束时文件已全部落盘。
+ * 每种语言只保留第一个代码块，与正则解析器的 find() 语义一致。
+ * <p>
+ * 由 {@link CodeFileSaverTemplate#openStreamingWriter(Long)} 创建，非线程安全。
+ */
+@Slf4j
+public class StreamingCodeFileWriter implements StreamingCodeParser.CodeBlockListener, AutoCloseable {
+
+    private static final String TEMP_FILE_SUFFIX = ".part";
+
+    private final CodeFileSaverTemplate<?> template;
+
+    private final Path baseDir;
+
+    private final StreamingCodeParser parser = new StreamingCodeParser(this);
+
+    /**
+     * 已写入完成的文件名
+     */
+    private final Set<String> savedFiles = new LinkedHashSet<>();
+
+    private BlockFile currentBlock;
+
+    /**
+     * 没有任何代码块时的兜底内容（如 HTML 模式下模型直接输出了完整页面），
+     * 保留在内存中，流结束后去掉首尾空白再落盘；出现代码块后立即丢弃
+     */
+    private StringBuilder fallbackContent;
+
+    private boolean blockSeen;
+
+    private boolean failed;
+
+    StreamingCodeFileWriter(CodeFileSaverTemplate<?> template, String baseDirPath) {
+        this.template = template;
+        this.baseDir = Paths.get(baseDirPath);
+    }
+
+    /**
+     * 追加一个流式分片，写入异常只记录日志，不影响流式输出
+     *
+     * @param chunk 分片内容
+     */
+    public void append(String chunk) {
+        if (failed) {
+            return;
+        }
+        try {
+            parser.feed(chunk);
+        } catch (UncheckedIOException e) {
+            failed = true;
+            log.error("流式写入代码文件失败，目录: {}, 错误: {}", baseDir, e.getMessage(), e);
+            close();
+        }
+    }
+
+    /**
+     * 流结束：收尾解析、落盘兜底文件并校验结果
+     *
+     * @return 保存的目录
+     */
+    public File complete() {
+        if (failed) {
+            throw new IllegalStateException("代码文件写入失败，目录: " + baseDir);
+        }
+        parser.finish();
+        if (fallbackContent != null) {
+            String content = fallbackContent.toString().trim();
+            fallbackContent = null;
+            BlockFile fallbackFile = new BlockFile(template.getFallbackFileName());
+            fallbackFile.write(content);
+            fallbackFile.commit();
+        }
+        template.validateStreamedFiles(savedFiles);
+        return baseDir.toFile();
+    }
+
+    /**
+     * 丢弃所有未完成的临时文件，已完成的文件保留
+     */
+    @Override
+    public void close() {
+        if (currentBlock != null) {
+            currentBlock.discard();
+            currentBlock = null;
+        }
+        fallbackContent = null;
+    }
+
+    @Override
+    public void onText(CharSequence text) {
+        if (blockSeen) {
+            return;
+        }
+        String fallbackFileName = template.getFallbackFileName();
+        if (fallbackFileName == null) {
+            return;
+        }
+        if (fallbackContent == null) {
+            fallbackContent = new StringBuilder();
+        }
+        fallbackContent.append(text);
+    }
+
+    @Override
+    public void onBlockStart(String language) {
+        blockSeen = true;
+        // 兜底内容与代码块可能是同一个目标文件，不能留到代码块落盘之后再处理
+        fallbackContent = null;
+        String fileName = template.resolveFileName(language);
+        if (fileName == null || savedFiles.contains(fileName)) {
+            return;
+        }
+        currentBlock = new BlockFile(fileName);
+    }
+
+    @Override
+    public void onBlockContent(CharSequence content) {
+        if (currentBlock != null) {
+            currentBlock.write(content);
+        }
+    }
+
+    @Override
+    public void onBlockEnd() {
+        if (currentBlock != null) {
+            currentBlock.commit();
+            currentBlock = null;
+        }
+    }
+
+    /**
+     * 单个目标文件：先写临时文件，完成后原子替换
+     */
+    private class BlockFile {
+
+        private final String fileName;
+
+        private final Path tempFile;
+
+        private Writer writer;
+
+        private boolean hasContent;
+
+        BlockFile(String fileName) {
+            this.fileName = fileName;
+            this.tempFile = baseDir.resolve(fileName + TEMP_FILE_SUFFIX);
+        }
+
+        void write(CharSequence content) {
+            if (content.isEmpty()) {
+                return;
+            }
+            try {
+                if (writer == null) {
+                    writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8);
+                }
+                writer.append(content);
+                hasContent = true;
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void commit() {
+            if (!hasContent) {
+                // 与 writeToFile 一致：空内容不落盘
+                discard();
+                return;
+            }
+            try {
+                writer.close();
+                Files.move(tempFile, baseDir.resolve(fileName), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                savedFiles.add(fileName);
+                log.info("代码文件写入完成: {}", baseDir.resolve(fileName));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+
+        void discard() {
+            try {
+                if (writer != null) {
+                    writer.close();
+                }
+                Files.deleteIfExists(tempFile);
+            } catch (IOException e) {
+                log.warn("清理临时文件失败: {}, 错误: {}", tempFile, e.getMessage());
+            }
+        }
+    }
+}
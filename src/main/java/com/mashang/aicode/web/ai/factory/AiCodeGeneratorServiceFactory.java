@@ -1,8 +1,9 @@
 package com.mashang.aicode.web.ai.factory;
 
-import com.github.benmanes.caffeine.cache.Cache;
-import com.github.benmanes.caffeine.cache.Caffeine;
 import com.mashang.aicode.web.ai.guardrail.PromptSafetyInputGuardrail;
+import com.mashang.aicode.web.ai.memory.ChatMemorySummarizer;
+import com.mashang.aicode.web.ai.memory.RedisCompactChatMemoryStore;
+import com.mashang.aicode.web.ai.memory.TokenBudgetChatMemory;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
 import com.mashang.aicode.web.ai.service.AiCodeGeneratorService;
 import com.mashang.aicode.web.ai.tool.CommandTool;
@@ -12,10 +13,11 @@ import com.mashang.aicode.web.ai.tool.FileModifyTool;
 import com.mashang.aicode.web.ai.tool.FileReadTool;
 import com.mashang.aicode.web.ai.tool.FileWriteTool;
 import com.mashang.aicode.web.ai.tool.ToolManager;
+import com.mashang.aicode.web.config.ChatMemoryConfig;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import dev.langchain4j.data.message.ToolExecutionResultMessage;
-import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.memory.ChatMemory;
 import dev.langchain4j.model.chat.ChatModel;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.service.AiServices;
@@ -24,7 +26,8 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
-import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * AI服务初始化工厂类（单模型版本）
@@ -46,44 +49,55 @@ public class AiCodeGeneratorServiceFactory {
     @Resource
     private ToolManager toolManager;
 
-    private final Cache<String, AiCodeGeneratorService> serviceCache = Caffeine.newBuilder()
-            .maximumSize(1000)
-            .expireAfterWrite(Duration.ofMinutes(30))
-            .expireAfterAccess(Duration.ofMinutes(10))
-            .removalListener((key, value, cause) -> {
-                log.debug("AI 服务实例被移除，key: {}, 原因: {}", key, cause);
-            })
-            .build();
-
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId) {
-        return getAiCodeGeneratorService(appId, CodeGenTypeEnum.MULTI_FILE);
+    @Resource
+    private RedisCompactChatMemoryStore redisCompactChatMemoryStore;
+
+    @Resource
+    private ChatMemorySummarizer chatMemorySummarizer;
+
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    /**
+     * 每种生成类型共用一个 AI 服务代理，对话记忆按 memoryId（appId）区分并保存在 Redis 中
+     */
+    private final Map<CodeGenTypeEnum, AiCodeGeneratorService> services = new ConcurrentHashMap<>();
+
+    public AiCodeGeneratorService getAiCodeGeneratorService() {
+        return getAiCodeGeneratorService(CodeGenTypeEnum.MULTI_FILE);
     }
 
     /**
-     * 根据 appId 和代码生成类型获取服务（带缓存）
+     * 根据代码生成类型获取服务，服务与 appId 无关，对话记忆通过各方法的 @MemoryId 参数区分
      */
-    public AiCodeGeneratorService getAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        String cacheKey = buildCacheKey(appId, codeGenType);
-        return serviceCache.get(cacheKey, key -> createAiCodeGeneratorService(appId, codeGenType));
+    public AiCodeGeneratorService getAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
+        return services.computeIfAbsent(codeGenType, this::createAiCodeGeneratorService);
     }
 
     /**
-     * 创建新的 AI 服务实例（单模型版本）
+     * 释放 AI 服务代理中缓存的对话记忆
+     * <p>
+     * AiServices 按 memoryId 缓存 ChatMemory 且不会主动清除，每次生成结束后释放，避免随应用数增长；
+     * 记忆内容保存在 Redis 中，下次生成时重新创建即可
+     *
+     * @param memoryId 生成时传入 @MemoryId 的值，类型需与之一致
      */
-    private AiCodeGeneratorService createAiCodeGeneratorService(long appId, CodeGenTypeEnum codeGenType) {
-        // 构建对话记忆
-        MessageWindowChatMemory chatMemory = MessageWindowChatMemory.builder()
-                .id(appId)
-                .maxMessages(30)
-                .build();
+    public void evictChatMemory(Object memoryId) {
+        services.values().forEach(service -> service.evictChatMemory(memoryId));
+    }
 
+    /**
+     * 创建 AI 服务代理（单模型版本）
+     */
+    private AiCodeGeneratorService createAiCodeGeneratorService(CodeGenTypeEnum codeGenType) {
+        log.info("创建 AI 服务代理，代码生成类型: {}", codeGenType.getValue());
         // 根据代码生成类型选择不同的模型配置
         return switch (codeGenType) {
             case VUE_PROJECT, REACT_PROJECT -> {
                 yield AiServices.builder(AiCodeGeneratorService.class)
                         .streamingChatModel(streamingChatModel)
-                        .chatMemoryProvider(memoryId -> chatMemory)
-                        .tools(getLangchainTools())
+                        .chatMemoryProvider(this::buildChatMemory)
+                        .tools(toolManager.getToolExecutors())
                         .inputGuardrails(new PromptSafetyInputGuardrail())
                         .maxSequentialToolsInvocations(10)
                         .hallucinatedToolNameStrategy(toolExecutionRequest ->
@@ -96,7 +110,7 @@ public class AiCodeGeneratorServiceFactory {
                 yield AiServices.builder(AiCodeGeneratorService.class)
                         .chatModel(ollamaChatModel)
                         .streamingChatModel(streamingChatModel)
-                        .chatMemory(chatMemory)
+                        .chatMemoryProvider(this::buildChatMemory)
                         .build();
             }
             default ->
@@ -105,21 +119,14 @@ public class AiCodeGeneratorServiceFactory {
     }
 
     /**
-     * 构建缓存键
+     * 构建对话记忆：消息不在堆中保存，每次读写都经过 Redis，首次读取时再从对话历史加载；按 token 预算裁剪
      */
-    private String buildCacheKey(long appId, CodeGenTypeEnum codeGenType) {
-        return appId + "_" + codeGenType.getValue();
+    private ChatMemory buildChatMemory(Object memoryId) {
+        return new TokenBudgetChatMemory(memoryId, redisCompactChatMemoryStore, chatMemorySummarizer, chatMemoryConfig);
     }
 
     @Bean
     public AiCodeGeneratorService aiCodeGeneratorService() {
-        return getAiCodeGeneratorService(0L);
-    }
-
-    /**
-     * 获取所有工具类
-     */
-    private Object[] getLangchainTools() {
-        return toolManager.getAllTools();
+        return getAiCodeGeneratorService();
     }
 }
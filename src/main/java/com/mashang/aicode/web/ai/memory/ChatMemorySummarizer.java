@@ -0,0 +1,147 @@
+package com.mashang.aicode.web.ai.memory;
+
+import cn.hutool.core.util.StrUtil;
+import com.mashang.aicode.web.config.ChatMemoryConfig;
+import com.mashang.aicode.web.monitor.AiModelMetricsCollector;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.model.chat.ChatModel;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 对话记忆滚动摘要
+ * <p>
+ * {@link TokenBudgetChatMemory} 移出的轮次在虚拟线程中与已有摘要合并成新摘要，不阻塞生成。
+ * 同一记忆的摘要任务按提交顺序串行执行，保证每轮内容都被合并进去。
+ * 摘要失败时保留旧摘要，只影响模型对更早内容的了解。
+ */
+@Slf4j
+@Component
+public class ChatMemorySummarizer {
+
+    /**
+     * 每条消息参与摘要的最大字符数
+     */
+    private static final int MAX_MESSAGE_CHARS = 2000;
+
+    private static final int MAX_TOOL_CHARS = 200;
+
+    private static final String PROMPT = """
+            你负责压缩一个 AI 代码生成应用的对话记忆。请把【已有摘要】和【新增对话】合并成一份新的摘要，要求：
+            1. 保留用户的需求、偏好和明确提出的修改要求
+            2. 保留已生成或修改过的文件及其作用、采用的技术方案和关键决定
+            3. 省略代码原文、工具调用细节和寒暄
+            4. 使用中文，不超过 %d 字，只输出摘要正文
+
+            【已有摘要】
+            %s
+
+            【新增对话】
+            %s
+            """;
+
+    @Resource(name = "openAiChatModel")
+    private ChatModel openAiChatModel;
+
+    @Resource
+    private RedisCompactChatMemoryStore redisCompactChatMemoryStore;
+
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    @Resource
+    private AiModelMetricsCollector aiModelMetricsCollector;
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 每个记忆最后提交的摘要任务，新任务接在它之后执行
+     */
+    private final Map<Object, CompletableFuture<Void>> pending = new ConcurrentHashMap<>();
+
+    /**
+     * 提交移出记忆的消息
+     *
+     * @param memoryId 记忆 ID
+     * @param evicted  移出的消息，按时间顺序
+     */
+    public void submit(Object memoryId, List<ChatMessage> evicted) {
+        aiModelMetricsCollector.recordMemoryEviction(evicted.size());
+        if (!chatMemoryConfig.isSummaryEnabled() || evicted.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Void> task = pending.compute(memoryId, (key, previous) -> previous == null
+                ? CompletableFuture.runAsync(() -> summarize(memoryId, evicted), executor)
+                : previous.thenRunAsync(() -> summarize(memoryId, evicted), executor));
+        // 任务可能在注册时已完成，回调会同步执行，因此不能在 compute 中注册，否则会递归修改同一个 key
+        task.whenComplete((result, error) -> pending.remove(memoryId, task));
+    }
+
+    private void summarize(Object memoryId, List<ChatMessage> evicted) {
+        long start = System.nanoTime();
+        try {
+            String previous = redisCompactChatMemoryStore.getSummary(memoryId);
+            // 模型字数与 token 数大致相当，摘要按 token 上限控制字数
+            int maxChars = chatMemoryConfig.getSummaryMaxTokens();
+            String prompt = PROMPT.formatted(maxChars, StrUtil.blankToDefault(previous, "无"), render(evicted));
+            String summary = StrUtil.maxLength(StrUtil.trim(openAiChatModel.chat(prompt)), maxChars);
+            if (StrUtil.isNotBlank(summary)) {
+                redisCompactChatMemoryStore.updateSummary(memoryId, summary);
+            }
+            aiModelMetricsCollector.recordMemorySummary("success", System.nanoTime() - start);
+            log.debug("对话摘要已更新，memoryId: {}, 合并消息数: {}", memoryId, evicted.size());
+        } catch (Exception e) {
+            aiModelMetricsCollector.recordMemorySummary("error", System.nanoTime() - start);
+            log.warn("生成对话摘要失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+        }
+    }
+
+    private String render(List<ChatMessage> messages) {
+        StringBuilder out = new StringBuilder();
+        for (ChatMessage message : messages) {
+            if (message instanceof UserMessage userMessage) {
+                out.append("用户：");
+                for (Content content : userMessage.contents()) {
+                    if (content instanceof TextContent textContent) {
+                        out.append(StrUtil.maxLength(textContent.text(), MAX_MESSAGE_CHARS));
+                    }
+                }
+                out.append('\n');
+            } else if (message instanceof AiMessage aiMessage) {
+                if (StrUtil.isNotBlank(aiMessage.text())) {
+                    out.append("AI：").append(StrUtil.maxLength(aiMessage.text(), MAX_MESSAGE_CHARS)).append('\n');
+                }
+                if (aiMessage.hasToolExecutionRequests()) {
+                    for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                        out.append("AI 调用工具 ").append(request.name()).append('：')
+                                .append(StrUtil.maxLength(request.arguments(), MAX_TOOL_CHARS)).append('\n');
+                    }
+                }
+            } else if (message instanceof ToolExecutionResultMessage result) {
+                out.append("工具 ").append(result.toolName()).append(" 返回：")
+                        .append(StrUtil.maxLength(result.text(), MAX_TOOL_CHARS)).append('\n');
+            }
+        }
+        return out.toString();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdownNow();
+    }
+}
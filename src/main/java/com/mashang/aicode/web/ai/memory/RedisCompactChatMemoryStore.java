@@ -0,0 +1,224 @@
+package com.mashang.aicode.web.ai.memory;
+
+import com.mashang.aicode.web.config.ChatMemoryConfig;
+import com.mashang.aicode.web.service.ChatHistoryService;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageDeserializer;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import dev.langchain4j.store.memory.chat.ChatMemoryStore;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.types.Expiration;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * 基于 Redis 的对话记忆存储
+ * <p>
+ * 记忆以 memoryId（即 appId）为 key 保存在 Redis 中，各节点共享，服务重启后不丢失。
+ * 值的首字节标记编码：0 为 UTF-8 JSON，1 为 deflate 压缩后的 JSON，生成的代码压缩率很高，较大的记忆都会压缩保存。
+ * <p>
+ * Redis 中没有记忆（首次对话、过期或 Redis 数据丢失）时，通过
+ * {@link ChatHistoryService#loadChatHistoryToMemory} 从对话历史表加载并回填。
+ * Redis 不可用时退化为每次从对话历史表加载，不影响生成。
+ * <p>
+ * 超出 token 预算被移出记忆的较早对话，由 {@link ChatMemorySummarizer} 压缩成摘要单独保存。
+ */
+@Slf4j
+@Component
+public class RedisCompactChatMemoryStore implements ChatMemoryStore {
+
+    private static final String KEY_PREFIX = "chat:memory:";
+
+    private static final String SUMMARY_KEY_PREFIX = "chat:memory:summary:";
+
+    private static final byte ENCODING_JSON = 0;
+
+    private static final byte ENCODING_DEFLATE = 1;
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private ChatMemoryConfig chatMemoryConfig;
+
+    @Resource
+    @Lazy
+    private ChatHistoryService chatHistoryService;
+
+    @Override
+    public List<ChatMessage> getMessages(Object memoryId) {
+        byte[] key = key(memoryId);
+        byte[] value;
+        try {
+            value = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+        } catch (Exception e) {
+            log.warn("读取对话记忆失败，从对话历史加载，memoryId: {}, error: {}", memoryId, e.getMessage());
+            return loadFromHistory(memoryId);
+        }
+        if (value == null) {
+            List<ChatMessage> messages = loadFromHistory(memoryId);
+            // 没有历史也写入空记忆，避免每次都查库
+            updateMessages(memoryId, messages);
+            return messages;
+        }
+        try {
+            return ChatMessageDeserializer.messagesFromJson(decode(value));
+        } catch (Exception e) {
+            log.warn("解析对话记忆失败，从对话历史重新加载，memoryId: {}, error: {}", memoryId, e.getMessage());
+            List<ChatMessage> messages = loadFromHistory(memoryId);
+            updateMessages(memoryId, messages);
+            return messages;
+        }
+    }
+
+    @Override
+    public void updateMessages(Object memoryId, List<ChatMessage> messages) {
+        byte[] key = key(memoryId);
+        byte[] value = encode(ChatMessageSerializer.messagesToJson(messages));
+        try {
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands().set(key, value,
+                    Expiration.from(chatMemoryConfig.getTtlSeconds(), TimeUnit.SECONDS), RedisStringCommands.SetOption.upsert()));
+        } catch (Exception e) {
+            log.warn("写入对话记忆失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+        }
+    }
+
+    @Override
+    public void deleteMessages(Object memoryId) {
+        try {
+            stringRedisTemplate.delete(List.of(KEY_PREFIX + memoryId, SUMMARY_KEY_PREFIX + memoryId));
+        } catch (Exception e) {
+            log.warn("删除对话记忆失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+        }
+    }
+
+    /**
+     * 获取较早对话的摘要
+     *
+     * @param memoryId 记忆 ID
+     * @return 摘要，没有时返回 null
+     */
+    public String getSummary(Object memoryId) {
+        byte[] key = (SUMMARY_KEY_PREFIX + memoryId).getBytes(StandardCharsets.UTF_8);
+        try {
+            byte[] value = stringRedisTemplate.execute((RedisCallback<byte[]>) connection -> connection.stringCommands().get(key));
+            return value == null ? null : decode(value);
+        } catch (Exception e) {
+            log.warn("读取对话摘要失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 保存较早对话的摘要，过期时间与对话记忆相同
+     *
+     * @param memoryId 记忆 ID
+     * @param summary  摘要
+     */
+    public void updateSummary(Object memoryId, String summary) {
+        byte[] key = (SUMMARY_KEY_PREFIX + memoryId).getBytes(StandardCharsets.UTF_8);
+        byte[] value = encode(summary);
+        try {
+            stringRedisTemplate.execute((RedisCallback<Boolean>) connection -> connection.stringCommands().set(key, value,
+                    Expiration.from(chatMemoryConfig.getTtlSeconds(), TimeUnit.SECONDS), RedisStringCommands.SetOption.upsert()));
+        } catch (Exception e) {
+            log.warn("写入对话摘要失败，memoryId: {}, error: {}", memoryId, e.getMessage());
+        }
+    }
+
+    /**
+     * 从对话历史表加载最近的消息
+     * <p>
+     * 用户消息在调用 AI 之前就已写入对话历史，末尾没有回复的用户消息要去掉，否则会与本次对话的消息重复
+     */
+    private List<ChatMessage> loadFromHistory(Object memoryId) {
+        long appId;
+        try {
+            appId = Long.parseLong(String.valueOf(memoryId));
+        } catch (NumberFormatException e) {
+            return new ArrayList<>();
+        }
+        MessageWindowChatMemory memory = MessageWindowChatMemory.builder()
+                .id(memoryId)
+                .maxMessages(chatMemoryConfig.getMaxMessages())
+                .build();
+        chatHistoryService.loadChatHistoryToMemory(appId, memory, chatMemoryConfig.getMaxMessages());
+        List<ChatMessage> messages = new ArrayList<>(memory.messages());
+        if (!messages.isEmpty() && messages.getLast() instanceof UserMessage) {
+            messages.removeLast();
+        }
+        return messages;
+    }
+
+    private byte[] encode(String json) {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length < chatMemoryConfig.getCompressMinBytes()) {
+            return prepend(ENCODING_JSON, bytes, bytes.length);
+        }
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(bytes);
+            deflater.finish();
+            ByteArrayOutputStream out = new ByteArrayOutputStream(bytes.length / 4 + 64);
+            out.write(ENCODING_DEFLATE);
+            byte[] buffer = new byte[8192];
+            while (!deflater.finished()) {
+                out.write(buffer, 0, deflater.deflate(buffer));
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    private String decode(byte[] value) throws DataFormatException {
+        if (value.length == 0) {
+            return "[]";
+        }
+        if (value[0] == ENCODING_JSON) {
+            return new String(value, 1, value.length - 1, StandardCharsets.UTF_8);
+        }
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(value, 1, value.length - 1);
+            ByteArrayOutputStream out = new ByteArrayOutputStream(value.length * 4);
+            byte[] buffer = new byte[8192];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new DataFormatException("对话记忆数据不完整");
+                }
+                out.write(buffer, 0, length);
+            }
+            return out.toString(StandardCharsets.UTF_8);
+        } finally {
+            inflater.end();
+        }
+    }
+
+    private static byte[] prepend(byte flag, byte[] bytes, int length) {
+        byte[] result = new byte[length + 1];
+        result[0] = flag;
+        System.arraycopy(bytes, 0, result, 1, length);
+        return result;
+    }
+
+    private static byte[] key(Object memoryId) {
+        return (KEY_PREFIX + memoryId).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,174 @@
+package com.mashang.aicode.web.ai.memory;
+
+import com.mashang.aicode.web.config.ChatMemoryConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.ChatMemory;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 按 token 预算裁剪的对话记忆
+ * <p>
+ * 消息保存在 {@link RedisCompactChatMemoryStore} 中，每次写入时整理：
+ * <ul>
+ *     <li>系统提示词始终保留在首位</li>
+ *     <li>最近 {@link ChatMemoryConfig#getRecentTurns()} 轮对话原样保留</li>
+ *     <li>更早轮次中较长的工具结果（文件内容、目录列表）和工具参数（写入的文件内容）替换为简短说明，
+ *     工具调用与结果的对应关系不变</li>
+ *     <li>仍超出预算时从最早的轮次开始整轮移出，交给 {@link ChatMemorySummarizer} 异步压缩为摘要，
+ *     摘要附在系统提示词之后</li>
+ * </ul>
+ * 只按用户消息的边界整轮移出，不会留下缺少调用的工具结果；当前轮次本身超出预算时也不会被裁剪。
+ */
+public class TokenBudgetChatMemory implements ChatMemory {
+
+    static final String SUMMARY_TITLE = "\n\n## 之前对话的摘要\n";
+
+    private final Object id;
+
+    private final RedisCompactChatMemoryStore store;
+
+    private final ChatMemorySummarizer summarizer;
+
+    private final ChatMemoryConfig config;
+
+    public TokenBudgetChatMemory(Object id, RedisCompactChatMemoryStore store, ChatMemorySummarizer summarizer, ChatMemoryConfig config) {
+        this.id = id;
+        this.store = store;
+        this.summarizer = summarizer;
+        this.config = config;
+    }
+
+    @Override
+    public Object id() {
+        return id;
+    }
+
+    @Override
+    public void add(ChatMessage message) {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        if (message instanceof SystemMessage) {
+            if (!messages.isEmpty() && message.equals(messages.getFirst())) {
+                return;
+            }
+            messages.removeIf(SystemMessage.class::isInstance);
+            messages.addFirst(message);
+        } else {
+            messages.add(message);
+        }
+        store.updateMessages(id, compact(messages));
+    }
+
+    @Override
+    public List<ChatMessage> messages() {
+        List<ChatMessage> messages = new ArrayList<>(store.getMessages(id));
+        String summary = config.isSummaryEnabled() ? store.getSummary(id) : null;
+        if (summary == null || summary.isBlank()) {
+            return messages;
+        }
+        if (!messages.isEmpty() && messages.getFirst() instanceof SystemMessage systemMessage) {
+            messages.set(0, SystemMessage.from(systemMessage.text() + SUMMARY_TITLE + summary));
+        } else {
+            messages.addFirst(SystemMessage.from(SUMMARY_TITLE.strip() + "\n" + summary));
+        }
+        return messages;
+    }
+
+    @Override
+    public void clear() {
+        store.deleteMessages(id);
+    }
+
+    /**
+     * 替换较早轮次的工具内容，超出预算时整轮移出并提交摘要
+     */
+    private List<ChatMessage> compact(List<ChatMessage> messages) {
+        int firstIndex = !messages.isEmpty() && messages.getFirst() instanceof SystemMessage ? 1 : 0;
+        int recentStart = recentTurnsStart(messages, firstIndex);
+        for (int i = firstIndex; i < recentStart; i++) {
+            messages.set(i, stub(messages.get(i)));
+        }
+        int budget = config.getMaxTokens() - (config.isSummaryEnabled() ? config.getSummaryMaxTokens() : 0);
+        int total = TokenEstimator.estimate(messages);
+        if (total <= budget) {
+            return messages;
+        }
+        // 从最早的轮次开始整轮移出，当前轮次（最后一条用户消息之后）始终保留
+        int lastTurnStart = lastUserMessageIndex(messages, firstIndex);
+        int cut = firstIndex;
+        for (int i = firstIndex; i < lastTurnStart; i++) {
+            total -= TokenEstimator.estimate(messages.get(i));
+            if (messages.get(i + 1) instanceof UserMessage) {
+                cut = i + 1;
+                if (total <= budget) {
+                    break;
+                }
+            }
+        }
+        if (cut == firstIndex) {
+            return messages;
+        }
+        List<ChatMessage> evicted = new ArrayList<>(messages.subList(firstIndex, cut));
+        List<ChatMessage> retained = new ArrayList<>(messages.size() - evicted.size());
+        retained.addAll(messages.subList(0, firstIndex));
+        retained.addAll(messages.subList(cut, messages.size()));
+        summarizer.submit(id, evicted);
+        return retained;
+    }
+
+    /**
+     * 最近若干轮的起始位置，轮次不足时返回 firstIndex
+     */
+    private int recentTurnsStart(List<ChatMessage> messages, int firstIndex) {
+        int turns = 0;
+        for (int i = messages.size() - 1; i >= firstIndex; i--) {
+            if (messages.get(i) instanceof UserMessage && ++turns >= config.getRecentTurns()) {
+                return i;
+            }
+        }
+        return firstIndex;
+    }
+
+    private int lastUserMessageIndex(List<ChatMessage> messages, int firstIndex) {
+        for (int i = messages.size() - 1; i >= firstIndex; i--) {
+            if (messages.get(i) instanceof UserMessage) {
+                return i;
+            }
+        }
+        return firstIndex;
+    }
+
+    private ChatMessage stub(ChatMessage message) {
+        int minChars = config.getStubMinChars();
+        if (message instanceof ToolExecutionResultMessage result && result.text() != null && result.text().length() > minChars) {
+            return ToolExecutionResultMessage.from(result.id(), result.toolName(),
+                    "[已省略较早的工具结果，原长度 " + result.text().length() + " 字符，需要时请重新调用 " + result.toolName() + "]");
+        }
+        if (message instanceof AiMessage aiMessage && aiMessage.hasToolExecutionRequests()) {
+            boolean changed = false;
+            List<ToolExecutionRequest> requests = new ArrayList<>(aiMessage.toolExecutionRequests().size());
+            for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                if (request.arguments() != null && request.arguments().length() > minChars) {
+                    requests.add(ToolExecutionRequest.builder()
+                            .id(request.id())
+                            .name(request.name())
+                            .arguments("{\"_omitted\":\"已省略较早的工具参数，原长度 " + request.arguments().length() + " 字符\"}")
+                            .build());
+                    changed = true;
+                } else {
+                    requests.add(request);
+                }
+            }
+            if (changed) {
+                return aiMessage.text() == null ? AiMessage.from(requests) : AiMessage.from(aiMessage.text(), requests);
+            }
+        }
+        return message;
+    }
+}
@@ -0,0 +1,79 @@
+package com.mashang.aicode.web.ai.memory;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.Content;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.TextContent;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+
+import java.util.List;
+
+/**
+ * token 数估算
+ * <p>
+ * 不依赖具体模型的分词器：中日韩字符按 1 个 token 计，其余字符按 4 个一个 token 计，每条消息另加固定开销。
+ * 用于记忆裁剪和指标统计，与模型实际计数有偏差，但足以比较大小和观察趋势。
+ */
+public final class TokenEstimator {
+
+    /**
+     * 每条消息的角色、分隔符等固定开销
+     */
+    private static final int MESSAGE_OVERHEAD = 4;
+
+    /**
+     * 图片等非文本内容按固定值计
+     */
+    private static final int NON_TEXT_CONTENT_TOKENS = 85;
+
+    private TokenEstimator() {
+    }
+
+    public static int estimate(List<ChatMessage> messages) {
+        int tokens = 0;
+        for (ChatMessage message : messages) {
+            tokens += estimate(message);
+        }
+        return tokens;
+    }
+
+    public static int estimate(ChatMessage message) {
+        int tokens = MESSAGE_OVERHEAD;
+        if (message instanceof SystemMessage systemMessage) {
+            tokens += estimate(systemMessage.text());
+        } else if (message instanceof UserMessage userMessage) {
+            for (Content content : userMessage.contents()) {
+                tokens += content instanceof TextContent textContent ? estimate(textContent.text()) : NON_TEXT_CONTENT_TOKENS;
+            }
+        } else if (message instanceof AiMessage aiMessage) {
+            tokens += estimate(aiMessage.text());
+            if (aiMessage.hasToolExecutionRequests()) {
+                for (ToolExecutionRequest request : aiMessage.toolExecutionRequests()) {
+                    tokens += MESSAGE_OVERHEAD + estimate(request.name()) + estimate(request.arguments());
+                }
+            }
+        } else if (message instanceof ToolExecutionResultMessage resultMessage) {
+            tokens += estimate(resultMessage.text());
+        }
+        return tokens;
+    }
+
+    public static int estimate(String text) {
+        if (text == null || text.isEmpty()) {
+            return 0;
+        }
+        int wide = 0;
+        int other = 0;
+        for (int i = 0; i < text.length(); i++) {
+            if (text.charAt(i) >= 0x2E80) {
+                wide++;
+            } else {
+                other++;
+            }
+        }
+        return wide + (other + 3) / 4;
+    }
+}
@@ -1,6 +1,11 @@
 package com.mashang.aicode.web.ai.tool;
 
+import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
+import dev.langchain4j.service.tool.ToolConcurrency;
+
+import java.nio.file.InvalidPathException;
+import java.nio.file.Paths;
 
 public abstract class BaseTool {
 
@@ -17,6 +22,34 @@ public abstract class BaseTool {
 
 
     public abstract String generateToolExecutedResult(JSONObject arguments);
+
+    /**
+     * 并发类别：同一条 AI 消息中的多个工具调用据此决定能否并发执行，默认独占执行
+     */
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.EXCLUSIVE;
+    }
+
+    /**
+     * 写入类工具本次写入的文件，同一文件的写入按顺序执行；返回 null 时独占执行
+     */
+    public String getConcurrencyKey(JSONObject arguments) {
+        return null;
+    }
+
+    /**
+     * 规范化相对路径，./a.js 与 a.js 视为同一文件
+     */
+    protected static String normalizeFilePath(String relativeFilePath) {
+        if (StrUtil.isBlank(relativeFilePath)) {
+            return null;
+        }
+        try {
+            return Paths.get(relativeFilePath).normalize().toString().replace('\\', '/');
+        } catch (InvalidPathException e) {
+            return relativeFilePath;
+        }
+    }
 }
 
 
@@ -0,0 +1,41 @@
+package com.mashang.aicode.web.ai.tool;
+
+import cn.hutool.json.JSONUtil;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ConcurrentToolExecutor;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import dev.langchain4j.service.tool.ToolExecutor;
+
+/**
+ * 带并发类别的工具执行器，执行委托给 langchain4j 的默认实现，并发类别取自 {@link BaseTool}
+ */
+class BaseToolExecutor implements ConcurrentToolExecutor {
+
+    private final BaseTool tool;
+
+    private final ToolExecutor delegate;
+
+    BaseToolExecutor(BaseTool tool, ToolExecutor delegate) {
+        this.tool = tool;
+        this.delegate = delegate;
+    }
+
+    @Override
+    public String execute(ToolExecutionRequest request, Object memoryId) {
+        return delegate.execute(request, memoryId);
+    }
+
+    @Override
+    public ToolConcurrency concurrency() {
+        return tool.getConcurrency();
+    }
+
+    @Override
+    public String resourceKey(ToolExecutionRequest request) {
+        try {
+            return tool.getConcurrencyKey(JSONUtil.parseObj(request.arguments()));
+        } catch (Exception e) {
+            return null;
+        }
+    }
+}
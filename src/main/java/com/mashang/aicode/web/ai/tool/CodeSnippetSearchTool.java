@@ -7,6 +7,7 @@ import com.mashang.aicode.web.model.entity.CodeSnippet;
 import com.mashang.aicode.web.service.CodeSnippetService;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.service.tool.ToolConcurrency;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
@@ -149,4 +150,9 @@ public class CodeSnippetSearchTool extends BaseTool {
 
         return result.toString();
     }
+
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.READ_ONLY;
+    }
 }
@@ -5,18 +5,21 @@ import cn.hutool.core.util.RuntimeUtil;
 import cn.hutool.json.JSONArray;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
-import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
-import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStreamReader;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.concurrent.TimeUnit;
@@ -29,6 +32,9 @@ import java.util.concurrent.TimeUnit;
 @Component
 public class CodeValidationTool extends BaseTool {
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("验证Vue/React项目代码质量，检查语法错误、未定义变量等问题。建议在完成所有文件编写后调用此工具进行检查。")
     public String validateCode(
             @P("要验证的项目相对路径，通常为当前项目根目录，传入 '.' 即可")
@@ -38,34 +44,38 @@ public class CodeValidationTool extends BaseTool {
             @ToolMemoryId Long appId
     ) {
         try {
-            // 获取项目目录
-            String projectDirName;
-            if (projectType.equals(CodeGenTypeEnum.VUE_PROJECT.getValue())) {
-                projectDirName = "vue_project_" + appId;
-            }else {
-                projectDirName = "react_project_" + appId;
-            }
-                File projectDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-
-            if (!projectDir.exists()) {
-                return "错误：项目目录不存在: " + projectDirName;
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
+            if (!workspace.exists()) {
+                return "错误：项目目录不存在，请先生成项目文件";
             }
 
-            log.info("开始验证代码质量: {}", projectDir.getAbsolutePath());
-
-            // 1. 检查并安装ESLint（如果需要）
-            if (!ensureESLintInstalled(projectDir)) {
+            // 1. 检查ESLint配置，缺少时通过工作区写入 package.json 和配置文件
+            Boolean needInstall = prepareESLint(workspace);
+            if (needInstall == null) {
                 return "错误：无法安装ESLint，请检查npm环境";
             }
 
-            // 2. 执行ESLint检查
-            String lintResult = runESLint(projectDir);
+            // 2. 安装依赖并执行ESLint；进程需要磁盘目录，生成期间在暂存区的完整副本中运行，对文件的修改记入暂存区
+            return projectWorkspaceManager.runOnDisk(appId, projectDir -> {
+                log.info("开始验证代码质量: {}", projectDir.getAbsolutePath());
+                if (needInstall) {
+                    try {
+                        log.info("安装ESLint依赖...");
+                        executeCommand(projectDir, "npm.cmd install", 120);
+                    } catch (Exception e) {
+                        log.error("安装ESLint失败: {}", e.getMessage());
+                        return "错误：无法安装ESLint，请检查npm环境";
+                    }
+                }
 
-            if (lintResult == null) {
-                return "代码验证通过，未发现错误。可以继续构建项目。";
-            }
+                String lintResult = runESLint(projectDir);
 
-            return lintResult;
+                if (lintResult == null) {
+                    return "代码验证通过，未发现错误。可以继续构建项目。";
+                }
+
+                return lintResult;
+            });
 
         } catch (Exception e) {
             log.error("代码验证失败: {}", e.getMessage(), e);
@@ -74,21 +84,22 @@ public class CodeValidationTool extends BaseTool {
     }
 
     /**
-     * 确保ESLint已安装
+     * 检查ESLint配置，缺少时在 package.json 中添加 lint 脚本和依赖，并创建配置文件
+     *
+     * @return 需要安装依赖时返回 true，已配置时返回 false，package.json 不存在或处理失败时返回 null
      */
-    private boolean ensureESLintInstalled(File projectDir) {
+    private Boolean prepareESLint(WorkspaceView workspace) {
         try {
-            File packageJson = new File(projectDir, "package.json");
-            if (!packageJson.exists()) {
+            String content = workspace.readString("package.json");
+            if (content == null) {
                 log.warn("package.json 不存在，跳过ESLint检查");
-                return false;
+                return null;
             }
 
             // 检查是否已有ESLint依赖
-            String content = FileUtil.readString(packageJson, StandardCharsets.UTF_8);
             if (content.contains("\"eslint\"")) {
                 log.info("ESLint已安装");
-                return true;
+                return false;
             }
 
             // 自动添加ESLint配置
@@ -112,7 +123,7 @@ public class CodeValidationTool extends BaseTool {
             }
             if (!devDeps.containsKey("eslint")) {
                 // 判断是否为React项目
-                boolean isReactProject = isReactProject(projectDir);
+                boolean isReactProject = isReactProject(pkg);
                 
                 if (isReactProject) {
                     // React项目依赖
@@ -126,75 +137,50 @@ public class CodeValidationTool extends BaseTool {
                 }
 
                 // 写回文件
-                FileUtil.writeString(JSONUtil.toJsonPrettyStr(pkg), packageJson, StandardCharsets.UTF_8);
+                workspace.writeString("package.json", JSONUtil.toJsonPrettyStr(pkg));
                 log.info("已添加ESLint配置到package.json");
-
-                // 安装依赖
-                log.info("安装ESLint依赖...");
-                executeCommand(projectDir, "npm.cmd install", 120);
             }
 
             // 创建ESLint配置文件
-            createESLintConfig(projectDir, pkg);
+            createESLintConfig(workspace, pkg);
 
             return true;
 
         } catch (Exception e) {
-            log.error("安装ESLint失败: {}", e.getMessage());
-            return false;
+            log.error("配置ESLint失败: {}", e.getMessage());
+            return null;
         }
     }
 
     /**
      * 判断是否为React项目
      */
-    private boolean isReactProject(File projectDir) {
-        try {
-            File packageJson = new File(projectDir, "package.json");
-            if (!packageJson.exists()) {
-                return false;
-            }
-
-            String content = FileUtil.readString(packageJson, StandardCharsets.UTF_8);
-            JSONObject pkg = JSONUtil.parseObj(content);
-
-            // 检查依赖中是否包含react
-            JSONObject dependencies = pkg.getJSONObject("dependencies");
-            if (dependencies != null) {
-                if (dependencies.containsKey("react")) {
-                    return true;
-                }
-            }
-
-            return false;
-
-        } catch (Exception e) {
-            log.error("判断项目类型失败: {}", e.getMessage());
-            return false;
-        }
+    private boolean isReactProject(JSONObject pkg) {
+        // 检查依赖中是否包含react
+        JSONObject dependencies = pkg.getJSONObject("dependencies");
+        return dependencies != null && dependencies.containsKey("react");
     }
 
     /**
      * 创建ESLint配置文件
      */
-    private void createESLintConfig(File projectDir, JSONObject pkg) {
-        File eslintrc = new File(projectDir, ".eslintrc.js");
-        File eslintrcCjs = new File(projectDir, ".eslintrc.cjs");
-        File eslintrcJson = new File(projectDir, ".eslintrc.json");
+    private void createESLintConfig(WorkspaceView workspace, JSONObject pkg) throws IOException {
+        String eslintrc = ".eslintrc.js";
+        String eslintrcCjs = ".eslintrc.cjs";
 
         // 如果已有配置文件，跳过
-        if (eslintrc.exists() || eslintrcCjs.exists() || eslintrcJson.exists()) {
+        if (workspace.exists(eslintrc) || workspace.exists(eslintrcCjs) || workspace.exists(".eslintrc.json")) {
             return;
         }
 
         // 判断是否为React项目
-        boolean isReactProject = isReactProject(projectDir);
+        boolean isReactProject = isReactProject(pkg);
 
         // 检查是否为ES Module项目
         boolean isESModule = "module".equals(pkg.getStr("type"));
 
         String config;
-        File configFile;
+        String configFile;
 
         if (isReactProject) {
             // React项目配置
@@ -262,29 +248,25 @@ public class CodeValidationTool extends BaseTool {
             configFile = isESModule ? eslintrcCjs : eslintrc;
         }
 
-        FileUtil.writeString(config, configFile, StandardCharsets.UTF_8);
-        log.info("已创建ESLint配置文件: {} (项目类型: {})", configFile.getName(), isReactProject ? "React" : "Vue");
+        workspace.writeString(configFile, config);
+        log.info("已创建ESLint配置文件: {} (项目类型: {})", configFile, isReactProject ? "React" : "Vue");
     }
 
     /**
      * 执行ESLint检查
      */
     private String runESLint(File projectDir) {
+        File jsonOutput = null;
         try {
-            File jsonOutput = new File(projectDir, "eslint-result.json");
+            // 结果输出到项目目录之外的临时文件，不在项目中留下文件
+            jsonOutput = Files.createTempFile("eslint-result", ".json").toFile();
 
             // 执行ESLint（JSON格式输出）
-            String command = "npm.cmd run lint -- --format json --output-file " + jsonOutput.getName();
+            String command = "npm.cmd run lint -- --format json --output-file " + jsonOutput.getAbsolutePath();
             executeCommand(projectDir, command, 60);
 
-            // 读取结果
-            if (!jsonOutput.exists()) {
-                log.info("ESLint未生成输出文件，可能没有错误");
-                return null;
-            }
-
+            // 读取结果，ESLint 未写入时为空
             String jsonContent = FileUtil.readString(jsonOutput, StandardCharsets.UTF_8);
-            FileUtil.del(jsonOutput); // 删除临时文件
 
             if (jsonContent == null || jsonContent.trim().isEmpty()) {
                 return null;
@@ -316,6 +298,8 @@ public class CodeValidationTool extends BaseTool {
         } catch (Exception e) {
             log.error("ESLint执行失败: {}", e.getMessage());
             return "ESLint执行失败: " + e.getMessage();
+        } finally {
+            FileUtil.del(jsonOutput);
         }
     }
 
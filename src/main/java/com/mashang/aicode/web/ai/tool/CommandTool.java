@@ -1,31 +1,25 @@
 package com.mashang.aicode.web.ai.tool;
 
 import cn.hutool.json.JSONObject;
-import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
-import com.mashang.aicode.web.constant.AppConstant;
-import com.mashang.aicode.web.model.entity.App;
-import com.mashang.aicode.web.service.AppService;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Component;
 
 import java.io.BufferedReader;
-import java.io.File;
 import java.io.InputStreamReader;
-import java.nio.file.Paths;
 import java.util.concurrent.TimeUnit;
 
 @Slf4j
 @Component
 public class CommandTool extends BaseTool {
 
-    private final AppService appService;
+    private final ProjectWorkspaceManager projectWorkspaceManager;
 
-    public CommandTool(@Lazy AppService appService) {
-        this.appService = appService;
+    public CommandTool(ProjectWorkspaceManager projectWorkspaceManager) {
+        this.projectWorkspaceManager = projectWorkspaceManager;
     }
 
     @Tool("执行终端命令工具")
@@ -41,38 +35,15 @@ public class CommandTool extends BaseTool {
                 processBuilder = new ProcessBuilder("sh", "-c", command);
             }
 
-            // 设置工作目录
-            if (appId != null) {
-                String projectDirName = getProjectDirName(appId);
-                File projectDir = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName).toFile();
+            if (appId == null) {
+                return run(processBuilder);
+            }
+            // 在项目目录中执行；生成期间是暂存区的完整副本，命令的改动（如 npm install 改写 package.json）记入暂存区
+            return projectWorkspaceManager.runOnDisk(appId, projectDir -> {
                 processBuilder.directory(projectDir);
                 log.info("设置工作目录: {}", projectDir.getAbsolutePath());
-            }
-
-            processBuilder.redirectErrorStream(true);
-            Process process = processBuilder.start();
-
-            // 读取命令输出
-            StringBuilder output = new StringBuilder();
-            try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
-                String line;
-                while ((line = reader.readLine()) != null) {
-                    output.append(line).append("\n");
-                }
-            }
-
-            // 等待命令执行完成（最多10分钟）
-            boolean finished = process.waitFor(10, TimeUnit.MINUTES);
-            if (!finished) {
-                process.destroyForcibly();
-                return "错误：命令执行超时（10分钟）";
-            }
-
-            int exitCode = process.exitValue();
-            String result = "命令执行完成。退出码: " + exitCode + "\n输出:\n" + output.toString();
-
-            log.info("命令执行结果: 退出码={}", exitCode);
-            return result;
+                return run(processBuilder);
+            });
 
         } catch (Exception e) {
             log.error("执行命令时发生异常", e);
@@ -80,28 +51,31 @@ public class CommandTool extends BaseTool {
         }
     }
 
-    private String getProjectDirName(Long appId) {
-        try {
-            App app = appService.getById(appId);
-            if (app == null || app.getCodeGenType() == null) {
-                log.warn("无法获取 appId={} 的项目类型，使用默认目录名", appId);
-                return "project_" + appId;
-            }
+    private String run(ProcessBuilder processBuilder) throws Exception {
+        processBuilder.redirectErrorStream(true);
+        Process process = processBuilder.start();
 
-            String codeGenType = app.getCodeGenType();
-            CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenType);
-
-            if (codeGenTypeEnum == null) {
-                log.warn("未知的代码生成类型: {}，使用默认目录名", codeGenType);
-                return "project_" + appId;
+        // 读取命令输出
+        StringBuilder output = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                output.append(line).append("\n");
             }
+        }
 
-            return codeGenTypeEnum.getValue() + "_" + appId;
-
-        } catch (Exception e) {
-            log.error("获取项目目录名时发生异常", e);
-            return "project_" + appId;
+        // 等待命令执行完成（最多10分钟）
+        boolean finished = process.waitFor(10, TimeUnit.MINUTES);
+        if (!finished) {
+            process.destroyForcibly();
+            return "错误：命令执行超时（10分钟）";
         }
+
+        int exitCode = process.exitValue();
+        String result = "命令执行完成。退出码: " + exitCode + "\n输出:\n" + output.toString();
+
+        log.info("命令执行结果: 退出码={}", exitCode);
+        return result;
     }
 
     @Override
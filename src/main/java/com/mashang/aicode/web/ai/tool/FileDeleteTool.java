@@ -1,22 +1,26 @@
 package com.mashang.aicode.web.ai.tool;
 
 import cn.hutool.json.JSONObject;
-import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
 
 @Slf4j
 @Component
 public class FileDeleteTool extends BaseTool {
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("删除指定路径的文件")
     public String deleteFile(
             @P("文件的相对路径")
@@ -24,16 +28,12 @@ public class FileDeleteTool extends BaseTool {
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
-            if (!Files.exists(path)) {
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
+            Path path = workspace.resolve(relativeFilePath);
+            if (!workspace.exists(relativeFilePath)) {
                 return "警告：文件不存在，无需删除 - " + relativeFilePath;
             }
-            if (!Files.isRegularFile(path)) {
+            if (!workspace.isFile(relativeFilePath)) {
                 return "错误：指定路径不是文件，无法删除 - " + relativeFilePath;
             }
 
@@ -41,10 +41,10 @@ public class FileDeleteTool extends BaseTool {
             if (isImportantFile(fileName)) {
                 return "错误：不允许删除重要文件 - " + fileName;
             }
-            Files.delete(path);
-            log.info("成功删除文件: {}", path.toAbsolutePath());
+            workspace.delete(relativeFilePath);
+            log.info("成功删除文件: {}", path);
             return "文件删除成功: " + relativeFilePath;
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             String errorMessage = "删除文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
             return errorMessage;
@@ -82,6 +82,14 @@ public class FileDeleteTool extends BaseTool {
         String relativeFilePath = arguments.getStr("relativeFilePath");
         return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
     }
-}
 
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.WORKSPACE_WRITE;
+    }
 
+    @Override
+    public String getConcurrencyKey(JSONObject arguments) {
+        return normalizeFilePath(arguments.getStr("relativeFilePath"));
+    }
+}
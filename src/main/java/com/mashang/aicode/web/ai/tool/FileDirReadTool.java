@@ -1,19 +1,19 @@
 package com.mashang.aicode.web.ai.tool;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONObject;
-import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.util.List;
+import java.util.Arrays;
+import java.util.Comparator;
 import java.util.Set;
 
 @Slf4j
@@ -31,6 +31,9 @@ public class FileDirReadTool extends BaseTool {
             ".log", ".tmp", ".cache", ".lock"
     );
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("读取目录结构，获取指定目录下的所有文件和子目录信息")
     public String readDir(
             @P("目录的相对路径，为空则读取整个项目结构")
@@ -38,34 +41,24 @@ public class FileDirReadTool extends BaseTool {
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeDirPath == null ? "" : relativeDirPath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeDirPath == null ? "" : relativeDirPath);
-            }
-            File targetDir = path.toFile();
-            if (!targetDir.exists() || !targetDir.isDirectory()) {
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
+            if (!workspace.isDirectory(relativeDirPath)) {
                 return "错误：目录不存在或不是目录 - " + relativeDirPath;
             }
             StringBuilder structure = new StringBuilder();
             structure.append("项目目录结构:\n");
 
-            List<File> allFiles = FileUtil.loopFiles(targetDir, file -> !shouldIgnore(file.getName()));
-
-            allFiles.stream()
-                    .sorted((f1, f2) -> {
-                        int depth1 = getRelativeDepth(targetDir, f1);
-                        int depth2 = getRelativeDepth(targetDir, f2);
-                        if (depth1 != depth2) {
-                            return Integer.compare(depth1, depth2);
-                        }
-                        return f1.getPath().compareTo(f2.getPath());
-                    })
+            // 从工作区索引取文件列表，不再遍历磁盘
+            String dirPrefix = workspace.getRoot().relativize(workspace.resolve(relativeDirPath)).toString().replace('\\', '/');
+            int baseDepth = dirPrefix.isEmpty() ? 0 : dirPrefix.split("/").length;
+            workspace.listFiles(relativeDirPath).stream()
+                    .filter(file -> Arrays.stream(file.split("/")).noneMatch(this::shouldIgnore))
+                    .sorted(Comparator.comparingInt((String file) -> getRelativeDepth(baseDepth, file))
+                            .thenComparing(Comparator.naturalOrder()))
                     .forEach(file -> {
-                        int depth = getRelativeDepth(targetDir, file);
+                        int depth = getRelativeDepth(baseDepth, file);
                         String indent = "  ".repeat(depth);
-                        structure.append(indent).append(file.getName());
+                        structure.append(indent).append(file.substring(file.lastIndexOf('/') + 1));
                     });
             return structure.toString();
 
@@ -77,10 +70,8 @@ public class FileDirReadTool extends BaseTool {
     }
 
 
-    private int getRelativeDepth(File root, File file) {
-        Path rootPath = root.toPath();
-        Path filePath = file.toPath();
-        return rootPath.relativize(filePath).getNameCount() - 1;
+    private int getRelativeDepth(int baseDepth, String file) {
+        return file.split("/").length - baseDepth - 1;
     }
 
 
@@ -112,6 +103,9 @@ public class FileDirReadTool extends BaseTool {
         }
         return String.format("[工具调用] %s %s", getDisplayName(), relativeDirPath);
     }
-}
-
 
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.READ_ONLY;
+    }
+}
@@ -1,23 +1,25 @@
 package com.mashang.aicode.web.ai.tool;
 
 import cn.hutool.json.JSONObject;
-import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardOpenOption;
 
 @Slf4j
 @Component
 public class FileModifyTool extends BaseTool {
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("修改文件内容，用新内容替换指定的旧内容")
     public String modifyFile(
             @P("文件的相对路径")
@@ -29,16 +31,11 @@ public class FileModifyTool extends BaseTool {
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
-            if (!Files.exists(path) || !Files.isRegularFile(path)) {
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
+            String originalContent = workspace.readString(relativeFilePath);
+            if (originalContent == null) {
                 return "错误：文件不存在或不是文件 - " + relativeFilePath;
             }
-            String originalContent = Files.readString(path);
             if (!originalContent.contains(oldContent)) {
                 return "警告：文件中未找到要替换的内容，文件未修改 - " + relativeFilePath;
             }
@@ -46,10 +43,10 @@ public class FileModifyTool extends BaseTool {
             if (originalContent.equals(modifiedContent)) {
                 return "信息：替换后文件内容未发生变化 - " + relativeFilePath;
             }
-            Files.writeString(path, modifiedContent, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING);
-            log.info("成功修改文件: {}", path.toAbsolutePath());
+            workspace.writeString(relativeFilePath, modifiedContent);
+            log.info("成功修改文件: {}", workspace.resolve(relativeFilePath));
             return "文件修改成功: " + relativeFilePath;
-        } catch (IOException e) {
+        } catch (IOException | IllegalArgumentException e) {
             String errorMessage = "修改文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
             return errorMessage;
@@ -86,6 +83,14 @@ public class FileModifyTool extends BaseTool {
                 ```
                 """, getDisplayName(), relativeFilePath, oldContent, newContent);
     }
-}
 
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.WORKSPACE_WRITE;
+    }
 
+    @Override
+    public String getConcurrencyKey(JSONObject arguments) {
+        return normalizeFilePath(arguments.getStr("relativeFilePath"));
+    }
+}
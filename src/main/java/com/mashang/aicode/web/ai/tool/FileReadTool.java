@@ -1,30 +1,26 @@
 package com.mashang.aicode.web.ai.tool;
 
 import cn.hutool.json.JSONObject;
-import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.cache.annotation.Cacheable;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
-import java.nio.file.Files;
-import java.nio.file.Path;
-import java.nio.file.Paths;
 
 @Slf4j
 @Component
 public class FileReadTool extends BaseTool {
 
-    //加入文件最后修改时间以防止读取到的不是最新内容
-    @Cacheable(
-            value = "tool-results",
-            key = "'fileRead:' + #relativeFilePath + ':' + #appId + ':' + T(java.nio.file.Files).getLastModifiedTime(T(java.nio.file.Paths).get(#relativeFilePath)).toEpochMilli()",
-            //有错误信息则不缓存
-            unless = "#result.contains('错误' || 'error')"
-    )
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
+    //内容缓存由工作区按文件大小和修改时间校验，不会读到旧内容
     @Tool("读取指定路径的文件内容")
     public String readFile(
             @P("文件的相对路径")
@@ -32,17 +28,13 @@ public class FileReadTool extends BaseTool {
             @ToolMemoryId Long appId
     ) {
         try {
-            Path path = Paths.get(relativeFilePath);
-            if (!path.isAbsolute()) {
-                String projectDirName = "vue_project_" + appId;
-                Path projectRoot = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-                path = projectRoot.resolve(relativeFilePath);
-            }
-            if (!Files.exists(path) || !Files.isRegularFile(path)) {
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
+            String content = workspace.readString(relativeFilePath);
+            if (content == null) {
                 return "错误：文件不存在或不是文件 - " + relativeFilePath;
             }
-            return Files.readString(path);
-        } catch (IOException e) {
+            return content;
+        } catch (IOException | IllegalArgumentException e) {
             String errorMessage = "读取文件失败: " + relativeFilePath + ", 错误: " + e.getMessage();
             log.error(errorMessage, e);
             return errorMessage;
@@ -64,6 +56,9 @@ public class FileReadTool extends BaseTool {
         String relativeFilePath = arguments.getStr("relativeFilePath");
         return String.format("[工具调用] %s %s", getDisplayName(), relativeFilePath);
     }
-}
-
 
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.READ_ONLY;
+    }
+}
@@ -6,6 +6,7 @@ import cn.hutool.json.JSONUtil;
 import com.mashang.aicode.web.model.vo.PictureVO;
 import dev.langchain4j.agent.tool.P;
 import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.service.tool.ToolConcurrency;
 import lombok.extern.slf4j.Slf4j;
 import org.jsoup.Jsoup;
 import org.jsoup.nodes.Document;
@@ -108,4 +109,9 @@ public class PictureSeacherTool extends BaseTool {
 
         return result.toString();
     }
+
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.READ_ONLY;
+    }
 }
@@ -1,16 +1,16 @@
 package com.mashang.aicode.web.ai.tool;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.json.JSONObject;
 import cn.hutool.json.JSONUtil;
-import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import dev.langchain4j.agent.tool.Tool;
 import dev.langchain4j.agent.tool.ToolMemoryId;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 
-import java.io.File;
-import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -22,50 +22,46 @@ import java.util.List;
 @Component
 public class ProjectStructureValidationTool extends BaseTool {
 
+    @Resource
+    private ProjectWorkspaceManager projectWorkspaceManager;
+
     @Tool("验证 Vue 项目结构是否符合标准，必须在创建 package.json、vite.config.js、index.html 这三个文件后立即调用")
     public String validateVueProjectStructure(@ToolMemoryId Long appId) {
         try {
             // 获取项目目录
             String projectDirName = "vue_project_" + appId;
-            File projectDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
 
-            if (!projectDir.exists()) {
+            if (!workspace.exists()) {
                 return "错误：项目目录不存在: " + projectDirName;
             }
 
-            log.info("开始验证 Vue 项目结构: {}", projectDir.getAbsolutePath());
+            log.info("开始验证 Vue 项目结构: {}", workspace.getRoot());
 
             List<String> errors = new ArrayList<>();
             List<String> warnings = new ArrayList<>();
 
             // 1. 检查是否有 styles/ 或 scripts/ 目录（这表示生成了原生 HTML 项目）
-            File stylesDir = new File(projectDir, "styles");
-            File scriptsDir = new File(projectDir, "scripts");
-
-            if (stylesDir.exists()) {
+            if (workspace.exists("styles")) {
                 errors.add("发现 styles/ 目录！这是原生 HTML 项目的结构，不是 Vue 项目！");
                 errors.add("   → CSS 文件应该放在 src/styles/ 或组件的 <style> 标签中");
             }
 
-            if (scriptsDir.exists()) {
+            if (workspace.exists("scripts")) {
                 errors.add("发现 scripts/ 目录！这是原生 HTML 项目的结构，不是 Vue 项目！");
                 errors.add("   → JS 文件应该放在 src/ 目录中，使用 ES Module 方式导入");
             }
 
             // 2. 检查必需文件是否存在
-            File packageJson = new File(projectDir, "package.json");
-            File viteConfig = new File(projectDir, "vite.config.js");
-            File indexHtml = new File(projectDir, "index.html");
-
-            if (!packageJson.exists()) {
+            if (!workspace.exists("package.json")) {
                 errors.add("缺少 package.json 文件！这是 Vue 项目的核心配置文件，必须存在");
             }
 
-            if (!viteConfig.exists()) {
+            if (!workspace.exists("vite.config.js")) {
                 errors.add("缺少 vite.config.js 文件！这是 Vite 构建工具的配置文件，必须存在");
             }
 
-            if (!indexHtml.exists()) {
+            if (!workspace.exists("index.html")) {
                 errors.add("缺少 index.html 文件！这是应用的入口 HTML 文件，必须存在");
             }
 
@@ -75,33 +71,29 @@ public class ProjectStructureValidationTool extends BaseTool {
             }
 
             // 3. 验证 package.json 内容
-            String packageJsonContent = FileUtil.readString(packageJson, StandardCharsets.UTF_8);
+            String packageJsonContent = workspace.readString("package.json");
             validateVuePackageJson(packageJsonContent, errors, warnings);
 
             // 4. 验证 vite.config.js 内容
-            String viteConfigContent = FileUtil.readString(viteConfig, StandardCharsets.UTF_8);
+            String viteConfigContent = workspace.readString("vite.config.js");
             validateVueViteConfig(viteConfigContent, errors, warnings);
 
             // 5. 验证 index.html 内容
-            String indexHtmlContent = FileUtil.readString(indexHtml, StandardCharsets.UTF_8);
+            String indexHtmlContent = workspace.readString("index.html");
             validateVueIndexHtml(indexHtmlContent, errors, warnings);
 
             // 6. 检查是否有根目录下的 .css 或 .js 文件
-            File[] rootFiles = projectDir.listFiles();
-            if (rootFiles != null) {
-                for (File file : rootFiles) {
-                    if (!file.isFile()) {
-                        continue;
-                    }
-                    String fileName = file.getName();
-                    if (fileName.endsWith(".css")) {
-                        warnings.add("根目录下发现 CSS 文件: " + fileName);
-                        warnings.add("   → 建议将 CSS 放在 src/styles/ 目录或组件中");
-                    }
-                    if (fileName.endsWith(".js") && !fileName.equals("vite.config.js")) {
-                        warnings.add("根目录下发现 JS 文件: " + fileName);
-                        warnings.add("   → 建议将 JS 代码放在 src/ 目录中");
-                    }
+            for (String fileName : workspace.listFiles()) {
+                if (fileName.contains("/")) {
+                    continue;
+                }
+                if (fileName.endsWith(".css")) {
+                    warnings.add("根目录下发现 CSS 文件: " + fileName);
+                    warnings.add("   → 建议将 CSS 放在 src/styles/ 目录或组件中");
+                }
+                if (fileName.endsWith(".js") && !fileName.equals("vite.config.js")) {
+                    warnings.add("根目录下发现 JS 文件: " + fileName);
+                    warnings.add("   → 建议将 JS 代码放在 src/ 目录中");
                 }
             }
 
@@ -118,45 +110,38 @@ public class ProjectStructureValidationTool extends BaseTool {
         try {
             // 获取项目目录
             String projectDirName = "react_project_" + appId;
-            File projectDir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
+            WorkspaceView workspace = projectWorkspaceManager.view(appId);
 
-            if (!projectDir.exists()) {
+            if (!workspace.exists()) {
                 return "错误：项目目录不存在: " + projectDirName;
             }
 
-            log.info("开始验证 React 项目结构: {}", projectDir.getAbsolutePath());
+            log.info("开始验证 React 项目结构: {}", workspace.getRoot());
 
             List<String> errors = new ArrayList<>();
             List<String> warnings = new ArrayList<>();
 
             // 1. 检查是否有 styles/ 或 scripts/ 目录（这表示生成了原生 HTML 项目）
-            File stylesDir = new File(projectDir, "styles");
-            File scriptsDir = new File(projectDir, "scripts");
-
-            if (stylesDir.exists()) {
+            if (workspace.exists("styles")) {
                 errors.add("发现 styles/ 目录！这是原生 HTML 项目的结构，不是 React 项目！");
                 errors.add("   → CSS 文件应该放在 src/ 目录或组件中");
             }
 
-            if (scriptsDir.exists()) {
+            if (workspace.exists("scripts")) {
                 errors.add("发现 scripts/ 目录！这是原生 HTML 项目的结构，不是 React 项目！");
                 errors.add("   → JS 文件应该放在 src/ 目录中，使用 ES Module 方式导入");
             }
 
             // 2. 检查必需文件是否存在
-            File packageJson = new File(projectDir, "package.json");
-            File viteConfig = new File(projectDir, "vite.config.js");
-            File indexHtml = new File(projectDir, "index.html");
-
-            if (!packageJson.exists()) {
+            if (!workspace.exists("package.json")) {
                 errors.add("缺少 package.json 文件！这是 React 项目的核心配置文件，必须存在");
             }
 
-            if (!viteConfig.exists()) {
+            if (!workspace.exists("vite.config.js")) {
                 errors.add("缺少 vite.config.js 文件！这是 Vite 构建工具的配置文件，必须存在");
             }
 
-            if (!indexHtml.exists()) {
+            if (!workspace.exists("index.html")) {
                 errors.add("缺少 index.html 文件！这是应用的入口 HTML 文件，必须存在");
             }
 
@@ -166,33 +151,29 @@ public class ProjectStructureValidationTool extends BaseTool {
             }
 
             // 3. 验证 package.json 内容
-            String packageJsonContent = FileUtil.readString(packageJson, StandardCharsets.UTF_8);
+            String packageJsonContent = workspace.readString("package.json");
             validateReactPackageJson(packageJsonContent, errors, warnings);
 
             // 4. 验证 vite.config.js 内容
-            String viteConfigContent = FileUtil.readString(viteConfig, StandardCharsets.UTF_8);
+            String viteConfigContent = workspace.readString("vite.config.js");
             validateReactViteConfig(viteConfigContent, errors, warnings);
 
             // 5. 验证 index.html 内容
-            String indexHtmlContent = FileUtil.readString(indexHtml, StandardCharsets.UTF_8);
+            String indexHtmlContent = workspace.readString("index.html");
             validateReactIndexHtml(indexHtmlContent, errors, warnings);
 
             // 6. 检查是否有根目录下的 .css 或 .js 文件
-            File[] rootFiles = projectDir.listFiles();
-            if (rootFiles != null) {
-                for (File file : rootFiles) {
-                    if (!file.isFile()) {
-                        continue;
-                    }
-                    String fileName = file.getName();
-                    if (fileName.endsWith(".css")) {
-                        warnings.add("根目录下发现 CSS 文件: " + fileName);
-                        warnings.add("   → 建议将 CSS 放在 src/ 目录或组件中");
-                    }
-                    if (fileName.endsWith(".js") && !fileName.equals("vite.config.js")) {
-                        warnings.add("根目录下发现 JS 文件: " + fileName);
-                        warnings.add("   → 建议将 JS 代码放在 src/ 目录中");
-                    }
+            for (String fileName : workspace.listFiles()) {
+                if (fileName.contains("/")) {
+                    continue;
+                }
+                if (fileName.endsWith(".css")) {
+                    warnings.add("根目录下发现 CSS 文件: " + fileName);
+                    warnings.add("   → 建议将 CSS 放在 src/ 目录或组件中");
+                }
+                if (fileName.endsWith(".js") && !fileName.equals("vite.config.js")) {
+                    warnings.add("根目录下发现 JS 文件: " + fileName);
+                    warnings.add("   → 建议将 JS 代码放在 src/ 目录中");
                 }
             }
 
@@ -494,4 +475,9 @@ public class ProjectStructureValidationTool extends BaseTool {
     public String generateToolExecutedResult(JSONObject arguments) {
         return String.format("\n\n[工具调用] %s\n\n", getDisplayName());
     }
+
+    @Override
+    public ToolConcurrency getConcurrency() {
+        return ToolConcurrency.READ_ONLY;
+    }
 }
@@ -1,11 +1,20 @@
 package com.mashang.aicode.web.ai.tool;
 
+import dev.langchain4j.agent.tool.Tool;
+import dev.langchain4j.agent.tool.ToolSpecification;
+import dev.langchain4j.agent.tool.ToolSpecifications;
+import dev.langchain4j.service.tool.DefaultToolExecutor;
+import dev.langchain4j.service.tool.ToolExecutor;
 import jakarta.annotation.PostConstruct;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.aop.support.AopUtils;
 import org.springframework.stereotype.Component;
 
+import java.lang.reflect.Method;
+import java.util.Collections;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.Map;
 
 @Slf4j
@@ -15,6 +24,11 @@ public class ToolManager {
 
     private final Map<String, BaseTool> toolMap = new HashMap<>();
 
+    /**
+     * 所有 @Tool 方法的工具说明及执行器，执行器带有工具声明的并发类别
+     */
+    private final Map<ToolSpecification, ToolExecutor> toolExecutors = new LinkedHashMap<>();
+
 
     @Resource
     private BaseTool[] tools;
@@ -25,6 +39,13 @@ public class ToolManager {
         for (BaseTool tool : tools) {
             toolMap.put(tool.getToolName(), tool);
             log.info("注册工具: {} -> {}", tool.getToolName(), tool.getDisplayName());
+            // 工具说明取自目标类上的注解，调用仍经过 Spring 代理，@Cacheable 等保持生效
+            for (Method method : AopUtils.getTargetClass(tool).getDeclaredMethods()) {
+                if (method.isAnnotationPresent(Tool.class)) {
+                    toolExecutors.put(ToolSpecifications.toolSpecificationFrom(method),
+                            new BaseToolExecutor(tool, new DefaultToolExecutor(tool, method)));
+                }
+            }
         }
         log.info("工具管理器初始化完成，共注册 {} 个工具", toolMap.size());
     }
@@ -35,8 +56,8 @@ public class ToolManager {
     }
 
 
-    public BaseTool[] getAllTools() {
-        return tools;
+    public Map<ToolSpecification, ToolExecutor> getToolExecutors() {
+        return Collections.unmodifiableMap(toolExecutors);
     }
 }
 
@@ -0,0 +1,34 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 协作编辑多节点配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app-edit.cluster")
+@Data
+public class AppEditClusterConfig {
+
+    /**
+     * 是否通过 Redis 在多个节点间同步协作编辑，关闭时只在本节点内协作
+     */
+    private boolean enabled = true;
+
+    /**
+     * 编辑锁租约时长，持有节点定期续约，节点宕机后租约到期自动释放
+     */
+    private long leaseTtlSeconds = 30;
+
+    /**
+     * 在线用户记录的有效期，节点定期刷新，宕机节点的记录到期后不再计入
+     */
+    private long presenceTtlSeconds = 45;
+
+    /**
+     * 续约和刷新在线用户的间隔
+     */
+    private long heartbeatIntervalSeconds = 10;
+}
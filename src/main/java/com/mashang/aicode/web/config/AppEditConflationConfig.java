@@ -0,0 +1,24 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 协作编辑高频事件合并配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app-edit.conflation")
+@Data
+public class AppEditConflationConfig {
+
+    /**
+     * 是否合并触摸、选择元素事件
+     */
+    private boolean enabled = true;
+
+    /**
+     * 合并窗口，窗口内同一用户的同类事件只推送最后一条
+     */
+    private long windowMillis = 50;
+}
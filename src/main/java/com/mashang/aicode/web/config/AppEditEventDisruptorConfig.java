@@ -1,33 +1,88 @@
 package com.mashang.aicode.web.config;
 
 import cn.hutool.core.thread.ThreadFactoryBuilder;
+import com.lmax.disruptor.BlockingWaitStrategy;
+import com.lmax.disruptor.BusySpinWaitStrategy;
+import com.lmax.disruptor.LiteBlockingWaitStrategy;
+import com.lmax.disruptor.SleepingWaitStrategy;
+import com.lmax.disruptor.WaitStrategy;
+import com.lmax.disruptor.YieldingWaitStrategy;
 import com.lmax.disruptor.dsl.Disruptor;
+import com.lmax.disruptor.dsl.ProducerType;
 import com.mashang.aicode.web.manager.disruptor.AppEditEvent;
+import com.mashang.aicode.web.manager.disruptor.AppEditEventShardHandler;
 import com.mashang.aicode.web.manager.disruptor.AppEditEventWorkHandler;
-import jakarta.annotation.Resource;
+import com.mashang.aicode.web.monitor.CollaborationMetricsCollector;
+import lombok.Data;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 协作编辑事件 Disruptor 配置
+ * <p>
+ * 按 appId 分片到多个环形队列，每个分片一个消费线程：同一应用的事件始终落在同一分片上，保证顺序，
+ * 不同应用之间并行处理，某个应用处理慢只影响同一分片上的应用。
+ */
+@Slf4j
 @Configuration
+@ConfigurationProperties(prefix = "app-edit.disruptor")
+@Data
 public class AppEditEventDisruptorConfig {
 
-    @Resource
-    private AppEditEventWorkHandler appEditEventWorkHandler;
-
-    @Bean("appEditEventDisruptor")
-    public Disruptor<AppEditEvent> messageModelRingBuffer() {
-        // ringBuffer 的大小
-        int bufferSize = 1024 * 256;
-        Disruptor<AppEditEvent> disruptor = new Disruptor<>(
-                AppEditEvent::new,
-                bufferSize,
-                ThreadFactoryBuilder.create().setNamePrefix("appEditEventDisruptor").build()
-        );
-        // 设置消费者
-        disruptor.handleEventsWithWorkerPool(appEditEventWorkHandler);
-        // 开启 disruptor
-        disruptor.start();
-        return disruptor;
+    /**
+     * 分片数，0 表示取 CPU 核数
+     */
+    private int shardCount = 0;
+
+    /**
+     * 每个分片的环形队列大小，会向上取整为 2 的幂
+     */
+    private int ringBufferSize = 8192;
+
+    /**
+     * 消费者等待策略：blocking、lite-blocking、sleeping、yielding、busy-spin
+     */
+    private String waitStrategy = "blocking";
+
+    @Bean("appEditEventDisruptors")
+    public List<Disruptor<AppEditEvent>> appEditEventDisruptors(AppEditEventWorkHandler appEditEventWorkHandler,
+                                                                 CollaborationMetricsCollector collaborationMetricsCollector) {
+        int shards = shardCount > 0 ? shardCount : Runtime.getRuntime().availableProcessors();
+        int bufferSize = Integer.highestOneBit(Math.max(ringBufferSize - 1, 1)) << 1;
+        List<Disruptor<AppEditEvent>> disruptors = new ArrayList<>(shards);
+        for (int shard = 0; shard < shards; shard++) {
+            Disruptor<AppEditEvent> disruptor = new Disruptor<>(
+                    AppEditEvent::new,
+                    bufferSize,
+                    ThreadFactoryBuilder.create().setNamePrefix("appEditEventDisruptor-" + shard + "-").setDaemon(true).build(),
+                    ProducerType.MULTI,
+                    createWaitStrategy()
+            );
+            // 设置消费者
+            AppEditEventShardHandler handler = new AppEditEventShardHandler(shard, appEditEventWorkHandler, collaborationMetricsCollector);
+            disruptor.handleEventsWith(handler);
+            // 开启 disruptor
+            disruptor.start();
+            collaborationMetricsCollector.registerShardGauges(shard, disruptor, handler);
+            disruptors.add(disruptor);
+        }
+        log.info("协作编辑事件队列已启动: 分片数={}, 每分片容量={}, 等待策略={}", shards, bufferSize, waitStrategy);
+        return disruptors;
+    }
+
+    private WaitStrategy createWaitStrategy() {
+        return switch (waitStrategy) {
+            case "lite-blocking" -> new LiteBlockingWaitStrategy();
+            case "sleeping" -> new SleepingWaitStrategy();
+            case "yielding" -> new YieldingWaitStrategy();
+            case "busy-spin" -> new BusySpinWaitStrategy();
+            default -> new BlockingWaitStrategy();
+        };
     }
 
 }
@@ -0,0 +1,29 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 协作编辑历史配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "app-edit.history")
+@Data
+public class AppEditHistoryConfig {
+
+    /**
+     * 每个应用保留的最近编辑记录数，更早的记录合并进快照
+     */
+    private int maxDeltas = 200;
+
+    /**
+     * 应用没有在线用户且超过该时间无编辑时，清理其编辑历史
+     */
+    private long idleTtlSeconds = 1800;
+
+    /**
+     * 清理空闲应用的检查间隔
+     */
+    private long sweepIntervalSeconds = 60;
+}
@@ -0,0 +1,45 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 对话历史异步写入配置
+ * 消息先进入有界队列，由后台线程合并为多行 INSERT 批量写库
+ */
+@Configuration
+@ConfigurationProperties(prefix = "chat-history.writer")
+@Data
+public class ChatHistoryWriterConfig {
+
+    /**
+     * 是否开启异步批量写入，关闭时同步逐条写入
+     */
+    private boolean enabled = true;
+
+    /**
+     * 队列容量
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单次 INSERT 最多写入的行数
+     */
+    private int batchSize = 200;
+
+    /**
+     * 队列空闲时最多等待的毫秒数，到时即写出已收集的消息
+     */
+    private long flushIntervalMillis = 100;
+
+    /**
+     * 队列满时入队最多等待的毫秒数，超时后由调用线程同步写入
+     */
+    private long offerTimeoutMillis = 500;
+
+    /**
+     * 停机时等待队列写完的最长毫秒数
+     */
+    private long shutdownTimeoutMillis = 10000;
+}
@@ -0,0 +1,56 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * AI 对话记忆配置
+ * 对话记忆保存在 Redis 中，各节点共享；Redis 中没有时从对话历史表加载。
+ * 记忆按 token 预算裁剪：较早轮次的工具结果替换为简短说明，超出预算的轮次异步压缩为摘要
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.chat-memory")
+@Data
+public class ChatMemoryConfig {
+
+    /**
+     * 从对话历史表加载的最大消息条数
+     */
+    private int maxMessages = 30;
+
+    /**
+     * Redis 中记忆的过期秒数，过期后下次对话从对话历史表重新加载
+     */
+    private long ttlSeconds = 3600;
+
+    /**
+     * 序列化后超过该字节数才压缩
+     */
+    private int compressMinBytes = 512;
+
+    /**
+     * 记忆的 token 预算（估算值，含系统提示词和摘要）
+     */
+    private int maxTokens = 32000;
+
+    /**
+     * 最近几轮对话原样保留，更早轮次中较长的工具结果和工具参数替换为简短说明
+     */
+    private int recentTurns = 2;
+
+    /**
+     * 工具结果或参数超过该字符数才替换
+     */
+    private int stubMinChars = 300;
+
+    /**
+     * 是否把移出记忆的轮次压缩为摘要
+     */
+    private boolean summaryEnabled = true;
+
+    /**
+     * 摘要的 token 上限，在预算中预留
+     */
+    private int summaryMaxTokens = 1024;
+}
@@ -0,0 +1,39 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 部署时静态资源优化配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "deploy.optimize")
+@Data
+public class DeployOptimizeConfig {
+
+    /**
+     * 是否开启优化，关闭时按原样部署
+     */
+    private boolean enabled = true;
+
+    /**
+     * 是否精简 HTML/CSS
+     */
+    private boolean minify = true;
+
+    /**
+     * 是否为 CSS/JS 文件名加上内容哈希
+     */
+    private boolean fingerprint = true;
+
+    /**
+     * 是否生成 .gz 预压缩文件（配合 nginx gzip_static）
+     */
+    private boolean gzip = true;
+
+    /**
+     * 小于该字节数的文件不生成预压缩文件
+     */
+    private int compressMinBytes = 1024;
+}
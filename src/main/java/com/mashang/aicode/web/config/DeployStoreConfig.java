@@ -0,0 +1,19 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 部署版本存储配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "deploy.store")
+@Data
+public class DeployStoreConfig {
+
+    /**
+     * 每个部署保留的历史版本数（含当前版本），用于回滚
+     */
+    private int keepReleases = 5;
+}
@@ -0,0 +1,29 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 项目下载压缩包缓存配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "download.cache")
+@Data
+public class DownloadCacheConfig {
+
+    /**
+     * 压缩包缓存目录
+     */
+    private String cacheDir = System.getProperty("user.dir") + "/tmp/download_cache";
+
+    /**
+     * 最多缓存的压缩包数，超出时淘汰最久未下载的
+     */
+    private int maxEntries = 200;
+
+    /**
+     * 文件内容哈希的本地缓存条数（按路径、大小、修改时间复用，避免重复读取未变化的文件）
+     */
+    private long fileHashCacheSize = 100000;
+}
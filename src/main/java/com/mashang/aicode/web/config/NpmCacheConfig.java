@@ -0,0 +1,35 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * npm 依赖缓存配置
+ * 依赖按 package.json/lockfile 的内容哈希安装到共享目录，构建时硬链接到项目中，命中时跳过 npm install
+ */
+@Configuration
+@ConfigurationProperties(prefix = "npm.cache")
+@Data
+public class NpmCacheConfig {
+
+    /**
+     * 是否开启缓存，关闭时每次在项目目录中执行 npm install
+     */
+    private boolean enabled = true;
+
+    /**
+     * 共享依赖存储目录
+     */
+    private String storeDir = System.getProperty("user.dir") + "/tmp/npm_cache";
+
+    /**
+     * 最多保留的依赖组合数，超出时淘汰最久未使用的
+     */
+    private int maxEntries = 20;
+
+    /**
+     * 启动时是否预装 Vue/React 模板依赖
+     */
+    private boolean warmUp = true;
+}
@@ -0,0 +1,30 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * Vue/React 项目构建调度配置
+ * 构建在固定大小的线程池中执行，同一项目的构建请求会合并，源码未变化时跳过构建
+ */
+@Configuration
+@ConfigurationProperties(prefix = "project.build")
+@Data
+public class ProjectBuildConfig {
+
+    /**
+     * 同时执行的构建数，小于等于 0 时取 CPU 核数
+     */
+    private int poolSize = 0;
+
+    /**
+     * 同步等待构建完成的最长秒数（部署、工作流）
+     */
+    private long awaitTimeoutSeconds = 600;
+
+    /**
+     * 源码哈希与上次成功构建一致时是否跳过构建
+     */
+    private boolean sourceHashSkip = true;
+}
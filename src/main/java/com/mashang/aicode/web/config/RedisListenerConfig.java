@@ -0,0 +1,31 @@
+package com.mashang.aicode.web.config;
+
+import com.mashang.aicode.web.manager.cache.UserCacheManager;
+import jakarta.annotation.Resource;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.data.redis.connection.RedisConnectionFactory;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+
+/**
+ * Redis 发布订阅监听配置
+ */
+@Configuration
+public class RedisListenerConfig {
+
+    @Resource
+    private RedisConnectionFactory redisConnectionFactory;
+
+    @Resource
+    private UserCacheManager userCacheManager;
+
+    @Bean
+    public RedisMessageListenerContainer redisMessageListenerContainer() {
+        RedisMessageListenerContainer container = new RedisMessageListenerContainer();
+        container.setConnectionFactory(redisConnectionFactory);
+        // 用户缓存失效通知
+        container.addMessageListener(userCacheManager, new ChannelTopic(UserCacheManager.INVALIDATE_CHANNEL));
+        return container;
+    }
+}
@@ -0,0 +1,59 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 网页截图配置
+ * 截图由固定数量的无头浏览器并行执行，任务排队、超时回收，浏览器按渲染次数和健康状况轮换
+ */
+@Configuration
+@ConfigurationProperties(prefix = "screenshot")
+@Data
+public class ScreenshotConfig {
+
+    /**
+     * 浏览器实例数（同时也是并行截图数）
+     */
+    private int poolSize = 2;
+
+    /**
+     * 启动时是否预热浏览器
+     */
+    private boolean warmUp = true;
+
+    /**
+     * 排队任务上限，超出时拒绝
+     */
+    private int queueCapacity = 100;
+
+    /**
+     * 单个截图任务最长执行秒数，超时后强制关闭所用浏览器
+     */
+    private long jobTimeoutSeconds = 60;
+
+    /**
+     * 单个浏览器最多渲染次数，达到后回收重建，避免内存持续增长
+     */
+    private int maxRendersPerBrowser = 50;
+
+    /**
+     * 连续失败达到该次数后回收浏览器
+     */
+    private int maxConsecutiveFailures = 2;
+
+    /**
+     * 等待页面就绪的最长毫秒数
+     */
+    private long readyTimeoutMillis = 10000;
+
+    /**
+     * 页面 DOM 持续无变化达到该毫秒数即认为渲染完成
+     */
+    private long quietMillis = 300;
+
+    private int width = 1600;
+
+    private int height = 900;
+}
@@ -0,0 +1,30 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 流式输出合并配置
+ * 将模型连续输出的小 token 合并为一帧再下发，按大小或时间先到先刷新
+ */
+@Configuration
+@ConfigurationProperties(prefix = "ai.stream.coalesce")
+@Data
+public class StreamCoalesceConfig {
+
+    /**
+     * 是否开启合并
+     */
+    private boolean enabled = true;
+
+    /**
+     * 累计字符数达到该值立即刷新
+     */
+    private int maxChars = 256;
+
+    /**
+     * 首个 token 到达后最多等待的毫秒数
+     */
+    private long maxDelayMillis = 30;
+}
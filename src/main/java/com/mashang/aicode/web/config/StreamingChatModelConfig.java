@@ -1,5 +1,6 @@
 package com.mashang.aicode.web.config;
 
+import com.mashang.aicode.web.manager.task.CancellableHttpClientBuilder;
 import com.mashang.aicode.web.monitor.AiModelMonitorListener;
 import dev.langchain4j.model.chat.StreamingChatModel;
 import dev.langchain4j.model.openai.OpenAiStreamingChatModel;
@@ -48,6 +49,8 @@ public class StreamingChatModelConfig {
                 .temperature(temperature)
                 .logRequests(logRequests)
                 .logResponses(logResponses)
+                //生成任务取消时中断上游请求
+                .httpClientBuilder(new CancellableHttpClientBuilder())
                 //监控指标监听器-收集各类数据
                 .listeners(List.of(aiModelMonitorListener))
                 .build();
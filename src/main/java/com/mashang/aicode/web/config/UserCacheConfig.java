@@ -0,0 +1,35 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 登录用户两级缓存配置
+ * 本地 Caffeine 为一级缓存，Redis 为二级缓存，用户信息变更时通过 Redis 发布订阅通知各节点失效
+ */
+@Configuration
+@ConfigurationProperties(prefix = "user.cache")
+@Data
+public class UserCacheConfig {
+
+    /**
+     * 是否开启缓存，关闭时每次直接查库
+     */
+    private boolean enabled = true;
+
+    /**
+     * 本地缓存最大条数
+     */
+    private long localMaxSize = 10000;
+
+    /**
+     * 本地缓存过期秒数（兜底，正常情况下由失效通知清除）
+     */
+    private long localTtlSeconds = 300;
+
+    /**
+     * Redis 缓存过期秒数
+     */
+    private long redisTtlSeconds = 1800;
+}
@@ -1,6 +1,7 @@
 package com.mashang.aicode.web.config;
 
 import com.mashang.aicode.web.manager.websocket.AppEditHandler;
+import com.mashang.aicode.web.manager.websocket.MultiplexWebSocketHandler;
 import com.mashang.aicode.web.manager.websocket.WsHandshakeInterceptor;
 import jakarta.annotation.Resource;
 import org.springframework.context.annotation.Configuration;
@@ -28,6 +29,9 @@ public class WebSocketConfig implements WebSocketConfigurer {
     @Resource
     private AppEditHandler appEditHandler;
 
+    @Resource
+    private MultiplexWebSocketHandler multiplexWebSocketHandler;
+
     @Resource
     private WsHandshakeInterceptor wsHandshakeInterceptor;
 
@@ -36,7 +40,7 @@ public class WebSocketConfig implements WebSocketConfigurer {
      * 
      * 配置说明：
      * 1. 注册应用编辑的 WebSocket 处理器
-     * 2. 配置访问路径：/ws/app/edit
+     * 2. 配置访问路径：/ws/app/edit（每个应用一个连接）、/ws/app/mux（每个客户端一个连接，按应用订阅）
      * 3. 配置握手拦截器：用于权限验证
      * 4. 允许跨域访问
      * 
@@ -50,5 +54,9 @@ public class WebSocketConfig implements WebSocketConfigurer {
                 .addInterceptors(wsHandshakeInterceptor)
                 // 允许跨域访问
                 .setAllowedOrigins("*");
+        // 注册多路复用的 WebSocket 处理器，握手时只认证用户，应用权限在订阅时校验
+        registry.addHandler(multiplexWebSocketHandler, "/ws/app/mux")
+                .addInterceptors(wsHandshakeInterceptor)
+                .setAllowedOrigins("*");
     }
 }
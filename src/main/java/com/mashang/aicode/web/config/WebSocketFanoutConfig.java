@@ -0,0 +1,34 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 协作编辑 WebSocket 推送配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "websocket.fanout")
+@Data
+public class WebSocketFanoutConfig {
+
+    /**
+     * 单条消息发送超过该时间仍未完成，视为慢客户端并断开
+     */
+    private long sendTimeLimitMillis = 10000;
+
+    /**
+     * 每个会话最多缓冲的字节数
+     */
+    private int bufferSizeLimitBytes = 512 * 1024;
+
+    /**
+     * 每个会话最多缓冲的消息数
+     */
+    private int bufferMaxMessages = 2000;
+
+    /**
+     * 缓冲区溢出时的处理方式：drop-oldest 丢弃最早的消息；disconnect 断开该会话
+     */
+    private String overflowStrategy = "drop-oldest";
+}
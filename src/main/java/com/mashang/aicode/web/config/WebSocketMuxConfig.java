@@ -0,0 +1,29 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 多路复用 WebSocket 连接配置
+ */
+@Configuration
+@ConfigurationProperties(prefix = "websocket.mux")
+@Data
+public class WebSocketMuxConfig {
+
+    /**
+     * 单个连接最多订阅的应用频道数
+     */
+    private int maxChannelsPerConnection = 32;
+
+    /**
+     * 连接级发送超时，超时后断开整个连接
+     */
+    private int sendTimeLimitMillis = 10000;
+
+    /**
+     * 连接级发送缓冲区上限
+     */
+    private int bufferSizeLimitBytes = 1024 * 1024;
+}
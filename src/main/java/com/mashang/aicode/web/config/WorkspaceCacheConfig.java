@@ -0,0 +1,45 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 项目工作区缓存配置
+ * 文件工具和工作流节点通过工作区读取生成项目，目录索引由文件监听增量更新，文件内容按修改时间和大小校验后复用
+ */
+@Configuration
+@ConfigurationProperties(prefix = "workspace.cache")
+@Data
+public class WorkspaceCacheConfig {
+
+    /**
+     * 是否监听项目目录变化；关闭或监听不可用时，目录索引超过 rescanIntervalMillis 后重新扫描
+     */
+    private boolean watchEnabled = true;
+
+    /**
+     * 未使用监听时目录索引的有效毫秒数
+     */
+    private long rescanIntervalMillis = 2000;
+
+    /**
+     * 同时保留的工作区数量
+     */
+    private long maxWorkspaces = 256;
+
+    /**
+     * 工作区空闲多少分钟后释放（停止监听、丢弃索引）
+     */
+    private long idleExpireMinutes = 30;
+
+    /**
+     * 文件内容缓存的总字节数上限（所有工作区共享）
+     */
+    private long maxContentBytes = 64 * 1024 * 1024;
+
+    /**
+     * 超过该字节数的文件不缓存内容
+     */
+    private long maxFileBytes = 1024 * 1024;
+}
@@ -0,0 +1,20 @@
+package com.mashang.aicode.web.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 生成暂存配置
+ * Vue/React 项目生成期间的文件写入先进入暂存目录，生成成功后整体替换项目目录，失败或取消时丢弃
+ */
+@Configuration
+@ConfigurationProperties(prefix = "workspace.staging")
+@Data
+public class WorkspaceStagingConfig {
+
+    /**
+     * 是否开启暂存；关闭时文件工具直接写入项目目录
+     */
+    private boolean enabled = true;
+}
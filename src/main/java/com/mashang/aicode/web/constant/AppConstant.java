@@ -25,6 +25,11 @@ public interface AppConstant {
      */
     String CODE_DEPLOY_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_deploy";
 
+    /**
+     * 应用发布版本目录（部署目录下的 deployKey 为指向其中某个版本的符号链接）
+     */
+    String CODE_RELEASE_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_release";
+
     /**
      * 应用部署域名
      */
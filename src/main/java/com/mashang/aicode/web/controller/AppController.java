@@ -2,7 +2,7 @@ package com.mashang.aicode.web.controller;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
+import com.mashang.aicode.web.ai.core.handler.SseMessageEncoder;
 import com.mashang.aicode.web.ai.factory.AiCodeGenTypeRoutingServiceFactory;
 import com.mashang.aicode.web.ai.factory.AppNameServiceFactory;
 import com.mashang.aicode.web.ai.service.AiCodeGenTypeRoutingService;
@@ -18,6 +18,7 @@ import com.mashang.aicode.web.constant.UserConstant;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.exception.ThrowUtils;
+import com.mashang.aicode.web.manager.task.GenerationRegistry;
 import com.mashang.aicode.web.model.dto.app.AppAddRequest;
 import com.mashang.aicode.web.model.dto.app.AppDeployRequest;
 import com.mashang.aicode.web.model.dto.app.AppQueryRequest;
@@ -28,6 +29,7 @@ import com.mashang.aicode.web.model.enums.AppTypeEnum;
 import com.mashang.aicode.web.model.vo.AppVO;
 import com.mashang.aicode.web.model.enums.PresetPromptEnum;
 import com.mashang.aicode.web.model.vo.AppTypeVO;
+import com.mashang.aicode.web.model.vo.GenerationTaskVO;
 import com.mashang.aicode.web.model.vo.PresetPromptVO;
 import com.mashang.aicode.web.ratelimiter.annotation.RateLimit;
 import com.mashang.aicode.web.ratelimiter.enums.RateLimitType;
@@ -51,7 +53,6 @@ import java.io.File;
 import java.util.Arrays;
 import java.util.Date;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -85,6 +86,9 @@ public class AppController {
     @Resource
     private IpUtils ipUtils;
 
+    @Resource
+    private GenerationRegistry generationRegistry;
+
 
     /**
      * 下载项目
@@ -109,7 +113,7 @@ public class AppController {
         File sourceDir = new File(sourceDirPath);
         ThrowUtils.throwIf(!sourceDir.exists() || !sourceDir.isDirectory(), ErrorCode.NOT_FOUND_ERROR, "应用代码不存在，请先生成代码");
         String downloadFileName = String.valueOf(appId);
-        projectDownloadService.downloadProjectAsZip(sourceDirPath, downloadFileName, response);
+        projectDownloadService.downloadProjectAsZip(sourceDirPath, downloadFileName, request, response);
     }
 
 
@@ -380,7 +384,7 @@ public class AppController {
      * @return
      */
     @GetMapping(value = "/chat/gen/code", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
-    //redisson令牌桶限流
+    //本地令牌桶限流（Redis 同步全局计数）
     @RateLimit(limitType = RateLimitType.USER, rate = 5, rateInterval = 60, message = "AI 对话请求过于频繁，请稍后再试")
     public Flux<ServerSentEvent<String>> chatToGenCode(@RequestParam Long appId, @RequestParam String message, HttpServletRequest request) {
         ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用ID无效");
@@ -395,13 +399,7 @@ public class AppController {
 
         Flux<String> contentFlux = appService.chatToGenCode(appId, message, loginUser);
         return contentFlux
-                .map(chunk -> {
-                    Map<String, String> wrapper = Map.of("d", chunk);
-                    String jsonData = JSONUtil.toJsonStr(wrapper);
-                    return ServerSentEvent.<String>builder()
-                            .data(jsonData)
-                            .build();
-                })
+                .map(SseMessageEncoder::chunkEvent)
                 .concatWith(Mono.just(
                         // 发送结束事件
                         ServerSentEvent.<String>builder()
@@ -431,6 +429,17 @@ public class AppController {
         return ResultUtils.success(success);
     }
 
+    /**
+     * 查询正在进行的代码生成任务（仅管理员）
+     *
+     * @return 任务列表，包含耗时、token 数和字节数
+     */
+    @GetMapping("/chat/task/list")
+    @AuthCheck(mustRole = UserConstant.ADMIN_ROLE)
+    public BaseResponse<List<GenerationTaskVO>> listGenerationTasks() {
+        return ResultUtils.success(generationRegistry.listActiveTasks());
+    }
+
     /**
      * 部署应用
      *
@@ -448,6 +457,23 @@ public class AppController {
         return ResultUtils.success(deployUrl);
     }
 
+    /**
+     * 回滚应用部署到上一个版本
+     *
+     * @param appDeployRequest
+     * @param request
+     * @return
+     */
+    @PostMapping("/deploy/rollback")
+    public BaseResponse<String> rollbackDeploy(@RequestBody AppDeployRequest appDeployRequest, HttpServletRequest request) {
+        ThrowUtils.throwIf(appDeployRequest == null, ErrorCode.PARAMS_ERROR);
+        Long appId = appDeployRequest.getAppId();
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        User loginUser = userService.getLoginUser(request);
+        String deployUrl = appService.rollbackDeploy(appId, loginUser);
+        return ResultUtils.success(deployUrl);
+    }
+
     /**
      * 查询所有应用类别
      *
@@ -1,7 +1,7 @@
 package com.mashang.aicode.web.controller;
 
 import cn.hutool.core.util.StrUtil;
-import cn.hutool.json.JSONUtil;
+import com.mashang.aicode.web.ai.core.handler.SseMessageEncoder;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
 import com.mashang.aicode.web.constant.AppConstant;
 import com.mashang.aicode.web.langgraph4j.CodeGenWorkflow;
@@ -22,7 +22,6 @@ import reactor.core.publisher.Mono;
 import java.io.File;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.Map;
 
 @RestController
 @RequestMapping("/workflow")
@@ -65,13 +64,7 @@ public class WorkflowSseController {
             User loginUser = userService.getLoginUser(request);
             Flux<String> contentFlux = appService.chatToGenCode(appId, prompt, loginUser);
             return contentFlux
-                    .map(chunk -> {
-                        Map<String, String> wrapper = Map.of("d", chunk);
-                        String jsonData = JSONUtil.toJsonStr(wrapper);
-                        return ServerSentEvent.<String>builder()
-                                .data(jsonData)
-                                .build();
-                    })
+                    .map(SseMessageEncoder::chunkEvent)
                     .concatWith(Mono.just(
                             // 发送结束事件
                             ServerSentEvent.<String>builder()
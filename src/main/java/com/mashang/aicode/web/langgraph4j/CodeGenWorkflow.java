@@ -7,6 +7,8 @@ import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.langgraph4j.model.QualityResult;
 import com.mashang.aicode.web.langgraph4j.node.*;
 import com.mashang.aicode.web.langgraph4j.state.WorkflowContext;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.utils.SpringContextUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.CompiledGraph;
 import org.bsc.langgraph4j.GraphRepresentation;
@@ -95,21 +97,38 @@ public class CodeGenWorkflow {
 
         WorkflowContext finalContext = null;
         int stepCounter = 1;
-        for (NodeOutput<MessagesState<String>> step : workflow.stream(
-                Map.of(WorkflowContext.WORKFLOW_CONTEXT_KEY, initialContext))) {
-            log.info("--- 第 {} 步完成 ---", stepCounter);
-
-            WorkflowContext currentContext = WorkflowContext.getContext(step.state());
-            if (currentContext != null) {
-                finalContext = currentContext;
-                log.info("当前步骤上下文: {}", currentContext);
+        try {
+            for (NodeOutput<MessagesState<String>> step : workflow.stream(
+                    Map.of(WorkflowContext.WORKFLOW_CONTEXT_KEY, initialContext))) {
+                log.info("--- 第 {} 步完成 ---", stepCounter);
+
+                WorkflowContext currentContext = WorkflowContext.getContext(step.state());
+                if (currentContext != null) {
+                    finalContext = currentContext;
+                    log.info("当前步骤上下文: {}", currentContext);
+                }
+                stepCounter++;
             }
-            stepCounter++;
+        } finally {
+            discardStaging(initialContext.getAppId());
         }
         log.info("代码生成工作流执行完成！");
         return finalContext;
     }
 
+    /**
+     * 工作流结束时丢弃未提交的暂存工作区（项目构建前出错或中断），项目目录保持上一个完整版本
+     *
+     * @param appId
+     */
+    private void discardStaging(Long appId) {
+        try {
+            SpringContextUtil.getBean(ProjectWorkspaceManager.class).discardStaging(appId);
+        } catch (Exception e) {
+            log.error("丢弃暂存工作区失败: appId={}, error: {}", appId, e.getMessage(), e);
+        }
+    }
+
     /**
      * 是否需要进行npm构建
      *
@@ -194,6 +213,7 @@ public class CodeGenWorkflow {
                     )));
                     sink.error(e);
                 } finally {
+                    discardStaging(appId != null ? appId : 0L);
                     WorkflowContextHolder.clearContext();
                 }
             });
@@ -4,9 +4,11 @@ import cn.hutool.core.util.StrUtil;
 import cn.hutool.json.JSONUtil;
 import com.mashang.aicode.web.ai.core.AiCodeGeneratorFacade;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
 import com.mashang.aicode.web.constant.AppConstant;
 import com.mashang.aicode.web.langgraph4j.WorkflowContextHolder;
 import com.mashang.aicode.web.langgraph4j.state.WorkflowContext;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
 import com.mashang.aicode.web.monitor.MonitorContext;
 import com.mashang.aicode.web.monitor.MonitorContextHolder;
 import com.mashang.aicode.web.model.entity.App;
@@ -50,9 +52,13 @@ public class CodeGeneratorNode {
             User user = userService.getById(context.getUserId());
 
             log.info("开始生成代码，类型: {} ({})", generationType.getValue(), generationType.getText());
+            // Vue/React 项目的多轮生成（质检不通过时重试）共用一个暂存工作区，在项目构建前统一提交
+            if (generationType == CodeGenTypeEnum.VUE_PROJECT || generationType == CodeGenTypeEnum.REACT_PROJECT) {
+                SpringContextUtil.getBean(ProjectWorkspaceManager.class).beginStaging(generationType, context.getAppId());
+            }
             // 先使用固定的 appId (后续再整合到业务中)
             // 调用流式代码生成，传入用户ID和用户信息
-            Flux<String> codeStream = codeGeneratorFacade.generateAndSaveCodeStream(userMessage, generationType, context.getAppId(), context.getSseMessageCallback(), context.getUserId(), user);
+            Flux<StreamMessage> codeStream = codeGeneratorFacade.generateAndSaveCodeStream(userMessage, generationType, context.getAppId(), context.getSseMessageCallback(), context.getUserId(), user);
             // 同步等待流式输出完成
             codeStream.blockLast(Duration.ofMinutes(10)); // 最多等待 10 分钟
             // 根据类型设置生成目录
@@ -1,16 +1,17 @@
 package com.mashang.aicode.web.langgraph4j.node;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import com.mashang.aicode.web.langgraph4j.ai.CodeQualityCheckService;
 import com.mashang.aicode.web.langgraph4j.model.QualityResult;
 import com.mashang.aicode.web.langgraph4j.state.WorkflowContext;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.manager.workspace.WorkspaceView;
 import com.mashang.aicode.web.utils.SpringContextUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.action.AsyncNodeAction;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 
-import java.io.File;
+import java.io.IOException;
 import java.util.Arrays;
 import java.util.List;
 
@@ -35,7 +36,7 @@ public class CodeQualityCheckNode {
             QualityResult qualityResult;
             try {
                 //读取代码文件内容
-                String codeContent = readAndConcatenateCodeFiles(generatedCodeDir);
+                String codeContent = readAndConcatenateCodeFiles(generatedCodeDir, context.getAppId());
                 if (StrUtil.isBlank(codeContent)) {
                     log.warn("未找到可检查的代码文件");
                     qualityResult = QualityResult.builder().isValid(false).errors(List.of("未找到可检查的代码文件")).suggestions(List.of("请确保代码生成成功")).build();
@@ -69,60 +70,57 @@ public class CodeQualityCheckNode {
      * 读取代码文件方法
      *
      * @param codeDir
+     * @param appId
      * @return
      */
-    private static String readAndConcatenateCodeFiles(String codeDir) {
+    private static String readAndConcatenateCodeFiles(String codeDir, Long appId) throws IOException {
         if (StrUtil.isBlank(codeDir)) {
             return "";
         }
-        File directory = new File(codeDir);
-        if (!directory.exists() || !directory.isDirectory()) {
+        // Vue/React 项目尚未提交，检查暂存工作区中的代码
+        ProjectWorkspaceManager workspaceManager = SpringContextUtil.getBean(ProjectWorkspaceManager.class);
+        WorkspaceView staged = workspaceManager.getStaged(appId);
+        WorkspaceView workspace = staged != null ? staged : workspaceManager.forDirectory(codeDir);
+        if (!workspace.exists()) {
             log.error("代码目录不存在或不是目录: {}", codeDir);
             return "";
         }
         StringBuilder codeContent = new StringBuilder();
         codeContent.append("# 项目文件结构和代码内容\n\n");
 
-        FileUtil.walkFiles(directory, file -> {
-
-            if (shouldSkipFile(file, directory)) {
-                return;
+        // 文件列表来自工作区索引（已排除 node_modules、dist 等目录），内容优先取自工作区缓存
+        for (String relativePath : workspace.listFiles()) {
+            if (shouldSkipFile(relativePath) || !isCodeFile(relativePath)) {
+                continue;
             }
-            if (isCodeFile(file)) {
-                String relativePath = FileUtil.subPath(directory.getAbsolutePath(), file.getAbsolutePath());
-                codeContent.append("## 文件: ").append(relativePath).append("\n\n");
-                String fileContent = FileUtil.readUtf8String(file);
-                codeContent.append(fileContent).append("\n\n");
+            String fileContent = workspace.readString(relativePath);
+            if (fileContent == null) {
+                continue;
             }
-        });
+            codeContent.append("## 文件: ").append(relativePath).append("\n\n");
+            codeContent.append(fileContent).append("\n\n");
+        }
         return codeContent.toString();
     }
 
     /**
      * 是否跳过文件
      *
-     * @param file
-     * @param rootDir
+     * @param relativePath
      * @return
      */
-    private static boolean shouldSkipFile(File file, File rootDir) {
-        String relativePath = FileUtil.subPath(rootDir.getAbsolutePath(), file.getAbsolutePath());
-
-        if (file.getName().startsWith(".")) {
-            return true;
-        }
-        //跳过这些配置相关文件
-        return relativePath.contains("node_modules" + File.separator) || relativePath.contains("dist" + File.separator) || relativePath.contains("target" + File.separator) || relativePath.contains(".git" + File.separator);
+    private static boolean shouldSkipFile(String relativePath) {
+        return relativePath.substring(relativePath.lastIndexOf('/') + 1).startsWith(".");
     }
 
     /**
      * 校验是否为代码文件
      *
-     * @param file
+     * @param relativePath
      * @return
      */
-    private static boolean isCodeFile(File file) {
-        String fileName = file.getName().toLowerCase();
+    private static boolean isCodeFile(String relativePath) {
+        String fileName = relativePath.toLowerCase();
         return CODE_EXTENSIONS.stream().anyMatch(fileName::endsWith);
     }
 
@@ -1,17 +1,17 @@
 package com.mashang.aicode.web.langgraph4j.node;
 
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
-import com.mashang.aicode.web.constant.AppConstant;
 import com.mashang.aicode.web.langgraph4j.state.WorkflowContext;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspace;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
+import com.mashang.aicode.web.utils.SpringContextUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.action.AsyncNodeAction;
 import org.bsc.langgraph4j.prebuilt.MessagesState;
 
-import java.io.File;
 import java.nio.file.Path;
-import java.nio.file.Paths;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
 
@@ -38,6 +38,11 @@ public class ExistingProjectCheckerNode {
             "node_modules", ".git", "dist", "build", "target", ".idea", ".vscode", "coverage"
     );
 
+    /**
+     * 目录结构最多展示的层级（从 0 开始）
+     */
+    private static final int MAX_STRUCTURE_DEPTH = 3;
+
     public static AsyncNodeAction<MessagesState<String>> create() {
         return node_async(state -> {
             WorkflowContext context = WorkflowContext.getContext(state);
@@ -53,12 +58,12 @@ public class ExistingProjectCheckerNode {
                 return WorkflowContext.saveContext(context);
             }
 
-            // 根据项目类型构建项目目录路径
-            String projectDirName = getProjectDirName(generationType, appId);
-            Path projectPath = Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName);
-            File projectDir = projectPath.toFile();
+            // 根据项目类型获取项目工作区，目录结构和文件内容都从工作区索引和缓存读取
+            ProjectWorkspace workspace = SpringContextUtil.getBean(ProjectWorkspaceManager.class)
+                    .forProject(generationType, appId);
+            Path projectPath = workspace.getRoot();
 
-            if (!projectDir.exists() || !projectDir.isDirectory()) {
+            if (!workspace.exists()) {
                 log.info("项目目录不存在: {}，将创建新项目", projectPath);
                 context.setCurrentStep("现有项目检查");
                 return WorkflowContext.saveContext(context);
@@ -67,7 +72,7 @@ public class ExistingProjectCheckerNode {
             log.info("检测到现有项目目录: {}，开始读取现有代码信息", projectPath);
 
             // 读取现有项目信息
-            String existingProjectInfo = readExistingProjectInfo(projectDir);
+            String existingProjectInfo = readExistingProjectInfo(workspace);
 
             if (StrUtil.isNotBlank(existingProjectInfo)) {
                 // 将现有项目信息添加到 prompt 中
@@ -90,33 +95,20 @@ public class ExistingProjectCheckerNode {
         });
     }
 
-    /**
-     * 根据项目类型和 appId 获取项目目录名
-     */
-    private static String getProjectDirName(CodeGenTypeEnum generationType, Long appId) {
-        if (generationType == null) {
-            return "project_" + appId;
-        }
-        return switch (generationType) {
-            case VUE_PROJECT -> "vue_project_" + appId;
-            case REACT_PROJECT -> "react_project_" + appId;
-            case HTML -> "html_" + appId;
-            case MULTI_FILE -> "multi_file_" + appId;
-            default -> "project_" + appId;
-        };
-    }
-
     /**
      * 读取现有项目信息
      * 读取项目结构和关键文件内容
      */
-    private static String readExistingProjectInfo(File projectDir) {
+    private static String readExistingProjectInfo(ProjectWorkspace workspace) {
         StringBuilder info = new StringBuilder();
         info.append("### 项目目录结构\n\n");
         info.append("```\n");
 
         // 读取项目结构
-        readDirectoryStructure(projectDir, projectDir, info, 0, 0);
+        List<String> projectFiles = workspace.listFiles().stream()
+                .filter(file -> !shouldSkipFile(file))
+                .toList();
+        readDirectoryStructure(projectFiles, info);
 
         info.append("```\n\n");
 
@@ -126,33 +118,30 @@ public class ExistingProjectCheckerNode {
         int maxFiles = 10; // 最多读取 10 个关键文件
         int maxFileSize = 5000; // 每个文件最多 5000 字符
 
-        List<File> allFiles = FileUtil.loopFiles(projectDir, file -> {
-            if (shouldSkipFile(file, projectDir)) {
-                return false;
-            }
-            return isCodeFile(file);
-        });
+        List<String> allFiles = new ArrayList<>(projectFiles.stream()
+                .filter(ExistingProjectCheckerNode::isCodeFile)
+                .toList());
 
         // 优先读取关键文件（package.json, 入口文件等）
         allFiles.sort((f1, f2) -> {
-            String name1 = f1.getName().toLowerCase();
-            String name2 = f2.getName().toLowerCase();
-            int priority1 = getFilePriority(name1);
-            int priority2 = getFilePriority(name2);
+            int priority1 = getFilePriority(getFileName(f1).toLowerCase());
+            int priority2 = getFilePriority(getFileName(f2).toLowerCase());
             if (priority1 != priority2) {
                 return Integer.compare(priority2, priority1); // 优先级高的在前
             }
-            return f1.getPath().compareTo(f2.getPath());
+            return f1.compareTo(f2);
         });
 
-        for (File file : allFiles) {
+        for (String relativePath : allFiles) {
             if (fileCount >= maxFiles) {
                 break;
             }
             try {
-                String relativePath = FileUtil.subPath(projectDir.getAbsolutePath(), file.getAbsolutePath());
-                String content = FileUtil.readUtf8String(file);
-                
+                String content = workspace.readString(relativePath);
+                if (content == null) {
+                    continue;
+                }
+
                 // 限制文件大小
                 if (content.length() > maxFileSize) {
                     content = content.substring(0, maxFileSize) + "\n\n... (文件内容过长，已截断)";
@@ -164,7 +153,7 @@ public class ExistingProjectCheckerNode {
                 info.append("\n```\n\n");
                 fileCount++;
             } catch (Exception e) {
-                log.warn("读取文件失败: {}, 错误: {}", file.getAbsolutePath(), e.getMessage());
+                log.warn("读取文件失败: {}, 错误: {}", relativePath, e.getMessage());
             }
         }
 
@@ -179,73 +168,53 @@ public class ExistingProjectCheckerNode {
 
     /**
      * 读取目录结构
+     * 按排序后的相对路径输出，同一目录下的文件相邻，目录在首次出现时输出
      */
-    private static void readDirectoryStructure(File rootDir, File currentDir, StringBuilder info, int depth, int maxDepth) {
-        if (depth > maxDepth && maxDepth > 0) {
-            return;
-        }
-
-        File[] files = currentDir.listFiles();
-        if (files == null) {
-            return;
-        }
-
-        for (File file : files) {
-            String fileName = file.getName();
-            
-            // 跳过隐藏文件和特定目录
-            if (fileName.startsWith(".") || shouldSkipDir(fileName)) {
-                continue;
+    private static void readDirectoryStructure(List<String> files, StringBuilder info) {
+        String[] previousDirs = new String[0];
+        for (String file : files) {
+            String[] parts = file.split("/");
+            int common = 0;
+            while (common < previousDirs.length && common < parts.length - 1 && previousDirs[common].equals(parts[common])) {
+                common++;
             }
-
-            String relativePath = FileUtil.subPath(rootDir.getAbsolutePath(), file.getAbsolutePath());
-            String indent = "  ".repeat(depth);
-            
-            if (file.isDirectory()) {
-                info.append(indent).append("📁 ").append(fileName).append("/\n");
-                // 递归读取子目录（限制深度）
-                if (depth < 3) { // 最多显示 3 层深度
-                    readDirectoryStructure(rootDir, file, info, depth + 1, maxDepth);
+            for (int depth = common; depth < parts.length; depth++) {
+                // 最多显示 4 层
+                if (depth > MAX_STRUCTURE_DEPTH) {
+                    break;
+                }
+                String indent = "  ".repeat(depth);
+                if (depth < parts.length - 1) {
+                    info.append(indent).append("📁 ").append(parts[depth]).append("/\n");
+                } else {
+                    info.append(indent).append("📄 ").append(parts[depth]).append("\n");
                 }
-            } else {
-                info.append(indent).append("📄 ").append(fileName).append("\n");
             }
+            previousDirs = Arrays.copyOf(parts, parts.length - 1);
         }
     }
 
     /**
-     * 判断是否应该跳过文件
+     * 判断是否应该跳过文件（隐藏文件以及隐藏目录、特定目录中的文件）
      */
-    private static boolean shouldSkipFile(File file, File rootDir) {
-        String relativePath = FileUtil.subPath(rootDir.getAbsolutePath(), file.getAbsolutePath());
-        
-        // 跳过隐藏文件
-        if (file.getName().startsWith(".")) {
-            return true;
-        }
-        
-        // 跳过特定目录中的文件
-        for (String skipDir : SKIP_DIRS) {
-            if (relativePath.contains(skipDir + File.separator)) {
+    private static boolean shouldSkipFile(String relativePath) {
+        for (String part : relativePath.split("/")) {
+            if (part.startsWith(".") || SKIP_DIRS.contains(part)) {
                 return true;
             }
         }
-        
         return false;
     }
 
-    /**
-     * 判断是否应该跳过目录
-     */
-    private static boolean shouldSkipDir(String dirName) {
-        return SKIP_DIRS.contains(dirName);
+    private static String getFileName(String relativePath) {
+        return relativePath.substring(relativePath.lastIndexOf('/') + 1);
     }
 
     /**
      * 判断是否为代码文件
      */
-    private static boolean isCodeFile(File file) {
-        String fileName = file.getName().toLowerCase();
+    private static boolean isCodeFile(String relativePath) {
+        String fileName = getFileName(relativePath).toLowerCase();
         return CODE_EXTENSIONS.stream().anyMatch(fileName::endsWith);
     }
 
@@ -1,10 +1,11 @@
 package com.mashang.aicode.web.langgraph4j.node;
 
-import com.mashang.aicode.web.ai.core.builder.ProjectBuilder;
+import com.mashang.aicode.web.ai.core.builder.ProjectBuildScheduler;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.langgraph4j.state.WorkflowContext;
+import com.mashang.aicode.web.manager.workspace.ProjectWorkspaceManager;
 import com.mashang.aicode.web.utils.SpringContextUtil;
 import lombok.extern.slf4j.Slf4j;
 import org.bsc.langgraph4j.action.AsyncNodeAction;
@@ -32,9 +33,11 @@ public class ProjectBuilderNode {
             String buildResultDir;
 
             try {
-                ProjectBuilder vueBuilder = SpringContextUtil.getBean(ProjectBuilder.class);
+                // 先把本次生成的暂存工作区提交到项目目录，再构建
+                SpringContextUtil.getBean(ProjectWorkspaceManager.class).commitStaging(context.getAppId());
+                ProjectBuildScheduler buildScheduler = SpringContextUtil.getBean(ProjectBuildScheduler.class);
 
-                boolean buildSuccess = vueBuilder.buildProject(generatedCodeDir);
+                boolean buildSuccess = buildScheduler.awaitBuild(generatedCodeDir);
                 if (buildSuccess) {
 
                     buildResultDir = generatedCodeDir + File.separator + "dist";
@@ -0,0 +1,169 @@
+package com.mashang.aicode.web.manager.assembler;
+
+import cn.hutool.core.bean.BeanUtil;
+import cn.hutool.core.collection.CollUtil;
+import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mashang.aicode.web.mapper.AppMapper;
+import com.mashang.aicode.web.mapper.UserMapper;
+import com.mashang.aicode.web.mapper.UserPointMapper;
+import com.mashang.aicode.web.model.entity.App;
+import com.mashang.aicode.web.model.entity.User;
+import com.mashang.aicode.web.model.entity.UserPoint;
+import com.mashang.aicode.web.model.vo.AppVO;
+import com.mashang.aicode.web.model.vo.UserVO;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * VO 批量组装器
+ * <p>
+ * 列表接口逐行调用 getById / getUserVO 会产生 N+1 查询（每行用户、应用、应用创建者、积分各查一次）。
+ * 这里先收集整页的 id，用户、积分、应用各一次 IN 查询，再在内存中组装。
+ * 用户 VO 额外放在短时本地缓存中，同一用户在相邻请求中反复出现时不必重复查库。
+ */
+@Slf4j
+@Component
+public class VOAssembler {
+
+    @Resource
+    private UserMapper userMapper;
+
+    @Resource
+    private UserPointMapper userPointMapper;
+
+    @Resource
+    private AppMapper appMapper;
+
+    /**
+     * 用户 VO 本地缓存，只保留很短时间，昵称、头像、积分的变化最多延迟几秒可见
+     */
+    private final Cache<Long, UserVO> userVOCache = Caffeine.newBuilder()
+            .maximumSize(10000)
+            .expireAfterWrite(Duration.ofSeconds(10))
+            .build();
+
+    /**
+     * 批量获取用户 VO
+     *
+     * @param userIds 用户 id，可包含 null 和重复值
+     * @return key 为用户 id，不存在的用户不在结果中
+     */
+    public Map<Long, UserVO> getUserVOMap(Collection<Long> userIds) {
+        Set<Long> ids = distinctIds(userIds);
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        Map<Long, UserVO> result = new HashMap<>(userVOCache.getAllPresent(ids));
+        List<Long> missingIds = ids.stream().filter(id -> !result.containsKey(id)).toList();
+        if (missingIds.isEmpty()) {
+            return result;
+        }
+        List<User> users = userMapper.selectList(new LambdaQueryWrapper<User>()
+                .select(User::getId, User::getUserAccount, User::getUserName, User::getUserAvatar,
+                        User::getUserProfile, User::getUserRole, User::getCreateTime)
+                .in(User::getId, missingIds));
+        if (users.isEmpty()) {
+            return result;
+        }
+        Map<Long, Integer> pointsMap = userPointMapper.selectList(new LambdaQueryWrapper<UserPoint>()
+                        .select(UserPoint::getUserId, UserPoint::getAvailablePoints)
+                        .in(UserPoint::getUserId, users.stream().map(User::getId).toList())
+                        .eq(UserPoint::getIsDelete, 0))
+                .stream()
+                .filter(userPoint -> userPoint.getAvailablePoints() != null)
+                .collect(Collectors.toMap(UserPoint::getUserId, UserPoint::getAvailablePoints, (a, b) -> a));
+        for (User user : users) {
+            UserVO userVO = new UserVO();
+            BeanUtil.copyProperties(user, userVO);
+            userVO.setUserPoints(pointsMap.get(user.getId()));
+            userVOCache.put(user.getId(), userVO);
+            result.put(user.getId(), userVO);
+        }
+        return result;
+    }
+
+    /**
+     * 获取单个用户 VO
+     *
+     * @param userId 用户 id
+     * @return 用户 VO，不存在时返回 null
+     */
+    public UserVO getUserVO(Long userId) {
+        if (userId == null) {
+            return null;
+        }
+        return getUserVOMap(List.of(userId)).get(userId);
+    }
+
+    /**
+     * 批量获取应用 VO（含创建者信息）
+     *
+     * @param appIds 应用 id，可包含 null 和重复值
+     * @return key 为应用 id，不存在的应用不在结果中
+     */
+    public Map<Long, AppVO> getAppVOMap(Collection<Long> appIds) {
+        Set<Long> ids = distinctIds(appIds);
+        if (ids.isEmpty()) {
+            return new HashMap<>();
+        }
+        List<App> apps = appMapper.selectBatchIds(ids);
+        return toAppVOList(apps).stream()
+                .collect(Collectors.toMap(AppVO::getId, Function.identity(), (a, b) -> a));
+    }
+
+    /**
+     * 将应用列表转换为 VO 列表，创建者信息一次查询
+     *
+     * @param apps 应用列表
+     * @return VO 列表，顺序与输入一致
+     */
+    public List<AppVO> toAppVOList(List<App> apps) {
+        if (CollUtil.isEmpty(apps)) {
+            return new ArrayList<>();
+        }
+        Map<Long, UserVO> userVOMap = getUserVOMap(apps.stream().map(App::getUserId).toList());
+        List<AppVO> appVOList = new ArrayList<>(apps.size());
+        for (App app : apps) {
+            AppVO appVO = new AppVO();
+            BeanUtil.copyProperties(app, appVO);
+            appVO.setUser(userVOMap.get(app.getUserId()));
+            appVOList.add(appVO);
+        }
+        return appVOList;
+    }
+
+    /**
+     * 将单个应用转换为 VO
+     *
+     * @param app 应用
+     * @return VO，应用为空时返回 null
+     */
+    public AppVO toAppVO(App app) {
+        if (app == null) {
+            return null;
+        }
+        return toAppVOList(List.of(app)).get(0);
+    }
+
+    private Set<Long> distinctIds(Collection<Long> ids) {
+        if (CollUtil.isEmpty(ids)) {
+            return new HashSet<>();
+        }
+        return ids.stream().filter(Objects::nonNull).collect(Collectors.toSet());
+    }
+}
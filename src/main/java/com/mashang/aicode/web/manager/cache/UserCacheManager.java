@@ -0,0 +1,156 @@
+package com.mashang.aicode.web.manager.cache;
+
+import cn.hutool.core.bean.BeanUtil;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.datatype.jsr310.JavaTimeModule;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mashang.aicode.web.config.UserCacheConfig;
+import com.mashang.aicode.web.model.entity.User;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.function.Function;
+
+/**
+ * 用户实体两级缓存
+ * <p>
+ * 每个已登录请求都会按主键查询当前用户，一次对话请求经过拦截器、限流切面和控制器会查好几次。
+ * 这里先查本地 Caffeine，再查 Redis，都未命中才查库并回填。
+ * 用户信息写库后调用 {@link #evict(Long)}：删除 Redis 缓存并通过发布订阅通知所有节点清除本地缓存。
+ * 缓存中的用户不含密码，需要校验密码的场景直接查库。
+ * Redis 不可用时退化为本地缓存 + 查库，不影响登录态校验。
+ */
+@Slf4j
+@Component
+public class UserCacheManager implements MessageListener {
+
+    /**
+     * 用户缓存失效通知频道
+     */
+    public static final String INVALIDATE_CHANNEL = "user:cache:invalidate";
+
+    private static final String CACHE_KEY_PREFIX = "user:cache:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private UserCacheConfig userCacheConfig;
+
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .registerModule(new JavaTimeModule())
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private Cache<Long, User> localCache;
+
+    @PostConstruct
+    public void init() {
+        localCache = Caffeine.newBuilder()
+                .maximumSize(userCacheConfig.getLocalMaxSize())
+                .expireAfterWrite(Duration.ofSeconds(userCacheConfig.getLocalTtlSeconds()))
+                .build();
+    }
+
+    /**
+     * 获取用户，缓存未命中时通过 loader 查库并回填
+     *
+     * @param userId 用户 id
+     * @param loader 查库方法
+     * @return 用户（不含密码），不存在时返回 null
+     */
+    public User get(Long userId, Function<Long, User> loader) {
+        if (!userCacheConfig.isEnabled()) {
+            return loader.apply(userId);
+        }
+        User user = localCache.getIfPresent(userId);
+        if (user != null) {
+            return user;
+        }
+        user = getFromRedis(userId);
+        if (user == null) {
+            user = loader.apply(userId);
+            if (user == null) {
+                return null;
+            }
+            user = withoutCredentials(user);
+            putToRedis(user);
+        }
+        localCache.put(userId, user);
+        return user;
+    }
+
+    /**
+     * 用户信息变更后清除所有节点上的缓存
+     *
+     * @param userId 用户 id
+     */
+    public void evict(Long userId) {
+        if (userId == null) {
+            return;
+        }
+        localCache.invalidate(userId);
+        try {
+            stringRedisTemplate.delete(CACHE_KEY_PREFIX + userId);
+            stringRedisTemplate.convertAndSend(INVALIDATE_CHANNEL, String.valueOf(userId));
+        } catch (Exception e) {
+            log.warn("清除用户 Redis 缓存失败，userId: {}, error: {}", userId, e.getMessage());
+        }
+    }
+
+    /**
+     * 收到其他节点的失效通知，清除本地缓存
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        String body = new String(message.getBody(), StandardCharsets.UTF_8);
+        try {
+            localCache.invalidate(Long.valueOf(body));
+        } catch (NumberFormatException e) {
+            log.warn("无效的用户缓存失效通知: {}", body);
+        }
+    }
+
+    /**
+     * 去掉密码后的副本，凭据不进入本地缓存和 Redis
+     */
+    private User withoutCredentials(User user) {
+        User cached = BeanUtil.copyProperties(user, User.class);
+        cached.setUserPassword(null);
+        return cached;
+    }
+
+    private User getFromRedis(Long userId) {
+        try {
+            String json = stringRedisTemplate.opsForValue().get(CACHE_KEY_PREFIX + userId);
+            if (json == null) {
+                return null;
+            }
+            // 兼容升级前写入的、仍带密码的缓存
+            User user = objectMapper.readValue(json, User.class);
+            user.setUserPassword(null);
+            return user;
+        } catch (Exception e) {
+            log.warn("读取用户 Redis 缓存失败，userId: {}, error: {}", userId, e.getMessage());
+            return null;
+        }
+    }
+
+    private void putToRedis(User user) {
+        try {
+            stringRedisTemplate.opsForValue().set(CACHE_KEY_PREFIX + user.getId(),
+                    objectMapper.writeValueAsString(user),
+                    Duration.ofSeconds(userCacheConfig.getRedisTtlSeconds()));
+        } catch (Exception e) {
+            log.warn("写入用户 Redis 缓存失败，userId: {}, error: {}", user.getId(), e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com.mashang.aicode.web.manager.deploy;
+
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 静态资源压缩（保守策略）
+ * <p>
+ * 只做不改变语义的精简：CSS 去注释、合并空白；HTML 去注释、合并空白，pre/textarea/script 原样保留，
+ * 内联 style 按 CSS 处理。JS 没有语法解析无法安全精简，保持原样，依赖 gzip 压缩体积。
+ */
+final class AssetMinifier {
+
+    /**
+     * 内容需要原样保留的标签
+     */
+    private static final Pattern HTML_PROTECTED_BLOCK = Pattern.compile(
+            "(<(pre|textarea|script)\\b[^>]*>.*?</\\2\\s*>)|(<style\\b[^>]*>)(.*?)(</style\\s*>)",
+            Pattern.CASE_INSENSITIVE | Pattern.DOTALL);
+
+    /**
+     * HTML 注释，保留 IE 条件注释
+     */
+    private static final Pattern HTML_COMMENT = Pattern.compile("<!--(?!\\[if).*?-->", Pattern.DOTALL);
+
+    private static final Pattern WHITESPACE_RUN = Pattern.compile("\\s{2,}");
+
+    private AssetMinifier() {
+    }
+
+    /**
+     * 精简 CSS：去掉注释，合并空白，去掉 { } ; , 两侧的空白以及 } 前多余的分号，字符串内容不变
+     */
+    static String minifyCss(String css) {
+        StringBuilder out = new StringBuilder(css.length());
+        int length = css.length();
+        int i = 0;
+        while (i < length) {
+            char c = css.charAt(i);
+            if (c == '"' || c == '\'') {
+                int end = i + 1;
+                while (end < length && css.charAt(end) != c) {
+                    end += css.charAt(end) == '\\' ? 2 : 1;
+                }
+                end = Math.min(end + 1, length);
+                out.append(css, i, end);
+                i = end;
+                continue;
+            }
+            if (c == '/' && i + 1 < length && css.charAt(i + 1) == '*') {
+                int end = css.indexOf("*/", i + 2);
+                i = end < 0 ? length : end + 2;
+                continue;
+            }
+            if (Character.isWhitespace(c)) {
+                while (i < length && Character.isWhitespace(css.charAt(i))) {
+                    i++;
+                }
+                char prev = out.isEmpty() ? '{' : out.charAt(out.length() - 1);
+                char next = i < length ? css.charAt(i) : '}';
+                if (!isCssSeparator(prev) && !isCssSeparator(next)) {
+                    out.append(' ');
+                }
+                continue;
+            }
+            if (c == '}' && !out.isEmpty() && out.charAt(out.length() - 1) == ';') {
+                out.setLength(out.length() - 1);
+            }
+            out.append(c);
+            i++;
+        }
+        return out.toString();
+    }
+
+    /**
+     * 精简 HTML：去掉注释并把连续空白合并为一个，保留空白本身以免影响行内元素之间的间距
+     */
+    static String minifyHtml(String html) {
+        StringBuilder out = new StringBuilder(html.length());
+        Matcher matcher = HTML_PROTECTED_BLOCK.matcher(html);
+        int last = 0;
+        while (matcher.find()) {
+            out.append(collapseHtml(html.substring(last, matcher.start())));
+            if (matcher.group(1) != null) {
+                out.append(matcher.group(1));
+            } else {
+                out.append(matcher.group(3)).append(minifyCss(matcher.group(4))).append(matcher.group(5));
+            }
+            last = matcher.end();
+        }
+        out.append(collapseHtml(html.substring(last)));
+        return out.toString().trim();
+    }
+
+    private static String collapseHtml(String fragment) {
+        String withoutComments = HTML_COMMENT.matcher(fragment).replaceAll("");
+        return WHITESPACE_RUN.matcher(withoutComments).replaceAll(" ");
+    }
+
+    private static boolean isCssSeparator(char c) {
+        return c == '{' || c == '}' || c == ';' || c == ',';
+    }
+}
@@ -0,0 +1,294 @@
+package com.mashang.aicode.web.manager.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.StrUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.mashang.aicode.web.config.DeployOptimizeConfig;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 部署时静态资源优化
+ * <p>
+ * 在临时目录中生成优化后的部署内容，源码目录保持不变：
+ * <ul>
+ *     <li>精简 HTML/CSS（见 {@link AssetMinifier}）</li>
+ *     <li>CSS/JS 文件名加上内容哈希并改写 HTML 中的引用，nginx 对其设置的一年 immutable 缓存因此是安全的；
+ *     Vite 构建产物已带哈希，不再处理</li>
+ *     <li>为文本资源生成 .gz 预压缩文件，由 nginx gzip_static 直接发送</li>
+ * </ul>
+ * 各文件并行处理，输出内容只取决于输入，重复部署相同内容时部署存储可以全部复用。
+ * 不需要改写的文件以硬链接放入临时目录，不产生额外复制。
+ */
+@Slf4j
+@Component
+public class AssetOptimizer {
+
+    private static final String WORK_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_deploy_work";
+
+    private static final Set<String> COMPRESSIBLE_EXTENSIONS = Set.of(
+            "html", "htm", "css", "js", "mjs", "json", "svg", "txt", "xml", "map");
+
+    /**
+     * 已带内容哈希的文件名：本类生成的十六进制哈希（app.1a2b3c4d.js）或 Vite 的 8 位哈希（index-BxK9a_3d.js），
+     * 哈希段必须含数字，main-component.js 这类普通文件名不算
+     */
+    private static final Pattern FINGERPRINTED_NAME = Pattern.compile(
+            ".*[.-](?=[A-Za-z0-9_-]*\\d)(?:[0-9a-f]{8,}|[A-Za-z0-9_-]{8})\\.(css|m?js)$");
+
+    private static final Pattern ASSET_REFERENCE = Pattern.compile(
+            "(\\b(?:src|href)\\s*=\\s*)([\"'])([^\"']+)\\2", Pattern.CASE_INSENSITIVE);
+
+    @Resource
+    private DeployOptimizeConfig deployOptimizeConfig;
+
+    /**
+     * 生成优化后的部署目录
+     *
+     * @param sourceDir 待部署目录
+     * @return 优化后的目录，未开启或优化失败时返回 sourceDir 本身
+     */
+    public File optimize(File sourceDir) {
+        if (!deployOptimizeConfig.isEnabled()) {
+            return sourceDir;
+        }
+        long start = System.currentTimeMillis();
+        Path root = sourceDir.toPath();
+        Path workDir = Path.of(WORK_ROOT_DIR, String.valueOf(System.nanoTime()));
+        try {
+            List<String> files;
+            try (Stream<Path> paths = Files.walk(root)) {
+                files = paths.filter(Files::isRegularFile)
+                        .map(path -> root.relativize(path).toString().replace('\\', '/'))
+                        .toList();
+            }
+            // 1. 读入 HTML/CSS/JS，CSS 先行精简（哈希要基于最终内容计算）
+            Map<String, String> texts = new ConcurrentHashMap<>();
+            files.parallelStream()
+                    .filter(file -> isHtml(file) || isCss(file) || isJs(file))
+                    .forEach(file -> {
+                        String content = FileUtil.readUtf8String(root.resolve(file).toFile());
+                        texts.put(file, deployOptimizeConfig.isMinify() && isCss(file) ? AssetMinifier.minifyCss(content) : content);
+                    });
+            // 2. 计算 CSS/JS 的新文件名
+            Map<String, String> renames = deployOptimizeConfig.isFingerprint() ? computeRenames(texts) : Map.of();
+            // 3. 改写 HTML 引用并输出所有文件
+            files.parallelStream().forEach(file -> writeOutput(root, workDir, file, texts.get(file), renames));
+            log.info("静态资源优化完成: {}, 文件数={}, 重命名={}, 耗时={}ms",
+                    sourceDir.getAbsolutePath(), files.size(), renames.size(), System.currentTimeMillis() - start);
+            return workDir.toFile();
+        } catch (Exception e) {
+            log.error("静态资源优化失败，按原样部署: {}, error: {}", sourceDir.getAbsolutePath(), e.getMessage(), e);
+            FileUtil.del(workDir.toFile());
+            return sourceDir;
+        }
+    }
+
+    /**
+     * 清理优化时生成的临时目录
+     *
+     * @param sourceDir    待部署目录
+     * @param optimizedDir {@link #optimize(File)} 的返回值
+     */
+    public void cleanup(File sourceDir, File optimizedDir) {
+        if (optimizedDir != null && !optimizedDir.equals(sourceDir)) {
+            FileUtil.del(optimizedDir);
+        }
+    }
+
+    /**
+     * 只为所有引用都能被改写的文件加哈希：文件名在 HTML 中的每一次出现都必须是 src/href 的相对引用，
+     * 且不被其他 CSS/JS 按文件名引用。绝对路径、内联脚本中的 import()、register('sw.js') 等引用改不到，
+     * 这些文件保持原名，避免部署后 404
+     */
+    private Map<String, String> computeRenames(Map<String, String> texts) {
+        // HTML 中可改写的相对引用：文件 → 引用次数
+        Map<String, Integer> rewritable = new HashMap<>();
+        texts.forEach((file, text) -> {
+            if (isHtml(file)) {
+                Matcher matcher = ASSET_REFERENCE.matcher(text);
+                while (matcher.find()) {
+                    String path = resolveReference(file, matcher.group(3));
+                    if (path != null) {
+                        rewritable.merge(path, 1, Integer::sum);
+                    }
+                }
+            }
+        });
+        Map<String, String> renames = new HashMap<>();
+        for (Map.Entry<String, String> entry : texts.entrySet()) {
+            String file = entry.getKey();
+            if (!(isCss(file) || isJs(file)) || FINGERPRINTED_NAME.matcher(file).matches()) {
+                continue;
+            }
+            int references = rewritable.getOrDefault(file, 0);
+            if (references == 0) {
+                continue;
+            }
+            String fileName = FileUtil.getName(file);
+            boolean referencedByAsset = texts.entrySet().stream()
+                    .anyMatch(other -> !other.getKey().equals(file) && !isHtml(other.getKey()) && other.getValue().contains(fileName));
+            int occurrences = texts.entrySet().stream()
+                    .filter(other -> isHtml(other.getKey()))
+                    .mapToInt(other -> StrUtil.count(other.getValue(), fileName))
+                    .sum();
+            if (referencedByAsset || occurrences != references) {
+                continue;
+            }
+            String hash = DigestUtil.sha256Hex(entry.getValue()).substring(0, 8);
+            String extension = FileUtil.extName(file);
+            String baseName = file.substring(0, file.length() - extension.length() - 1);
+            renames.put(file, baseName + "." + hash + "." + extension);
+        }
+        return renames;
+    }
+
+    private void writeOutput(Path root, Path workDir, String file, String text, Map<String, String> renames) {
+        Path target = workDir.resolve(renames.getOrDefault(file, file));
+        try {
+            Files.createDirectories(target.getParent());
+            byte[] bytes;
+            if (text == null) {
+                linkOrCopy(root.resolve(file), target);
+                if (!isCompressible(file)) {
+                    return;
+                }
+                bytes = Files.readAllBytes(target);
+            } else {
+                if (isHtml(file)) {
+                    text = rewriteReferences(file, text, renames);
+                    if (deployOptimizeConfig.isMinify()) {
+                        text = AssetMinifier.minifyHtml(text);
+                    }
+                }
+                bytes = text.getBytes(StandardCharsets.UTF_8);
+                Files.write(target, bytes);
+            }
+            if (deployOptimizeConfig.isGzip() && bytes.length >= deployOptimizeConfig.getCompressMinBytes()) {
+                writeGzip(bytes, target.resolveSibling(target.getFileName() + ".gz"));
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * 改写 HTML 中 src/href 对已重命名文件的相对引用，外部地址和绝对路径不处理
+     */
+    private String rewriteReferences(String htmlFile, String html, Map<String, String> renames) {
+        if (renames.isEmpty()) {
+            return html;
+        }
+        Matcher matcher = ASSET_REFERENCE.matcher(html);
+        StringBuilder out = new StringBuilder(html.length());
+        while (matcher.find()) {
+            String value = matcher.group(3);
+            String replacement = value;
+            String resolved = resolveReference(htmlFile, value);
+            String renamed = resolved == null ? null : renames.get(resolved);
+            if (renamed != null) {
+                int suffixIndex = indexOfAny(value, '?', '#');
+                String path = suffixIndex < 0 ? value : value.substring(0, suffixIndex);
+                String suffix = suffixIndex < 0 ? "" : value.substring(suffixIndex);
+                String prefix = path.contains("/") ? path.substring(0, path.lastIndexOf('/') + 1) : "";
+                replacement = prefix + FileUtil.getName(renamed) + suffix;
+            }
+            matcher.appendReplacement(out, Matcher.quoteReplacement(matcher.group(1) + matcher.group(2) + replacement + matcher.group(2)));
+        }
+        matcher.appendTail(out);
+        return out.toString();
+    }
+
+    /**
+     * 把 HTML 中的相对引用解析为部署目录内的文件路径
+     *
+     * @return 外部地址、绝对路径、锚点返回 null
+     */
+    private static String resolveReference(String htmlFile, String value) {
+        if (value.contains(":") || value.startsWith("/") || value.startsWith("#")) {
+            return null;
+        }
+        String htmlDir = htmlFile.contains("/") ? htmlFile.substring(0, htmlFile.lastIndexOf('/') + 1) : "";
+        int suffixIndex = indexOfAny(value, '?', '#');
+        String path = suffixIndex < 0 ? value : value.substring(0, suffixIndex);
+        return normalizePath(htmlDir + path);
+    }
+
+    private void writeGzip(byte[] bytes, Path target) throws IOException {
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream(bytes.length / 3 + 64);
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer) {
+            {
+                def.setLevel(Deflater.BEST_COMPRESSION);
+            }
+        }) {
+            gzip.write(bytes);
+        }
+        // 压缩后没有变小的文件不生成
+        if (buffer.size() < bytes.length) {
+            Files.write(target, buffer.toByteArray());
+        }
+    }
+
+    private void linkOrCopy(Path source, Path target) throws IOException {
+        try {
+            Files.createLink(target, source);
+        } catch (UnsupportedOperationException | IOException e) {
+            Files.copy(source, target);
+        }
+    }
+
+    private static String normalizePath(String path) {
+        try {
+            return Path.of(path).normalize().toString().replace('\\', '/');
+        } catch (InvalidPathException e) {
+            return path;
+        }
+    }
+
+    private static int indexOfAny(String value, char first, char second) {
+        int a = value.indexOf(first);
+        int b = value.indexOf(second);
+        if (a < 0) {
+            return b;
+        }
+        return b < 0 ? a : Math.min(a, b);
+    }
+
+    private static boolean isCompressible(String file) {
+        return COMPRESSIBLE_EXTENSIONS.contains(FileUtil.extName(file).toLowerCase());
+    }
+
+    private static boolean isHtml(String file) {
+        String extension = FileUtil.extName(file).toLowerCase();
+        return "html".equals(extension) || "htm".equals(extension);
+    }
+
+    private static boolean isCss(String file) {
+        return "css".equalsIgnoreCase(FileUtil.extName(file));
+    }
+
+    private static boolean isJs(String file) {
+        String extension = FileUtil.extName(file).toLowerCase();
+        return "js".equals(extension) || "mjs".equals(extension);
+    }
+}
@@ -0,0 +1,263 @@
+package com.mashang.aicode.web.manager.deploy;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.mashang.aicode.web.config.DeployStoreConfig;
+import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.exception.BusinessException;
+import com.mashang.aicode.web.exception.ErrorCode;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * 部署版本存储
+ * <p>
+ * 每次部署写入一个以内容哈希命名的版本目录（{@link AppConstant#CODE_RELEASE_ROOT_DIR}/{deployKey}/{releaseId}），
+ * 与当前版本相同的文件直接硬链接，只有变化的文件才真正写入；内容完全相同的部署直接复用已有版本。
+ * 部署目录下的 deployKey 是指向当前版本的符号链接，切换时先建临时链接再 rename 覆盖，nginx 不会读到半成品目录。
+ * 每个部署保留最近若干个版本，可随时回滚。
+ * <p>
+ * 版本清单（相对路径 → 文件哈希）保存在版本目录旁的 {releaseId}.manifest 中，不会被对外访问。
+ */
+@Slf4j
+@Component
+public class DeploymentStore {
+
+    private static final String MANIFEST_SUFFIX = ".manifest";
+
+    private static final String STAGING_PREFIX = ".staging-";
+
+    @Resource
+    private DeployStoreConfig deployStoreConfig;
+
+    /**
+     * 同一 deployKey 的发布与回滚串行执行
+     */
+    private final Map<String, Object> deployLocks = new ConcurrentHashMap<>();
+
+    /**
+     * 发布新版本并切换为当前版本
+     *
+     * @param deployKey 部署标识
+     * @param sourceDir 待部署目录
+     * @return 版本 ID
+     */
+    public String publish(String deployKey, File sourceDir) {
+        synchronized (deployLocks.computeIfAbsent(deployKey, k -> new Object())) {
+            try {
+                long start = System.currentTimeMillis();
+                Map<String, String> manifest = buildManifest(sourceDir);
+                String releaseId = computeReleaseId(manifest);
+                File releaseRoot = releaseRoot(deployKey);
+                File releaseDir = new File(releaseRoot, releaseId);
+                File manifestFile = new File(releaseRoot, releaseId + MANIFEST_SUFFIX);
+                if (manifestFile.isFile() && releaseDir.isDirectory()) {
+                    log.info("部署内容未变化，复用已有版本: deployKey={}, releaseId={}", deployKey, releaseId);
+                } else {
+                    int linked = writeRelease(deployKey, sourceDir, manifest, releaseDir);
+                    FileUtil.writeUtf8String(JSONUtil.toJsonStr(manifest), manifestFile);
+                    log.info("写入部署版本: deployKey={}, releaseId={}, 文件数={}, 复用={}",
+                            deployKey, releaseId, manifest.size(), linked);
+                }
+                // 以清单的修改时间记录版本的发布顺序
+                Files.setLastModifiedTime(manifestFile.toPath(), FileTime.fromMillis(System.currentTimeMillis()));
+                switchLive(deployKey, releaseDir);
+                pruneReleases(deployKey);
+                log.info("部署完成: deployKey={}, releaseId={}, 耗时={}ms", deployKey, releaseId, System.currentTimeMillis() - start);
+                return releaseId;
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 回滚到当前版本之前发布的版本
+     *
+     * @param deployKey 部署标识
+     * @return 回滚后的版本 ID
+     */
+    public String rollback(String deployKey) {
+        synchronized (deployLocks.computeIfAbsent(deployKey, k -> new Object())) {
+            List<String> releases = listReleases(deployKey);
+            String current = getLiveReleaseId(deployKey);
+            int index = releases.indexOf(current);
+            if (index < 0 || index + 1 >= releases.size()) {
+                throw new BusinessException(ErrorCode.OPERATION_ERROR, "没有可回滚的历史版本");
+            }
+            String target = releases.get(index + 1);
+            try {
+                switchLive(deployKey, new File(releaseRoot(deployKey), target));
+            } catch (IOException e) {
+                throw new BusinessException(ErrorCode.SYSTEM_ERROR, "回滚失败：" + e.getMessage());
+            }
+            log.info("部署已回滚: deployKey={}, {} -> {}", deployKey, current, target);
+            return target;
+        }
+    }
+
+    /**
+     * 在临时目录中写入版本，与当前版本相同的文件使用硬链接，完成后整体重命名
+     *
+     * @return 复用（硬链接）的文件数
+     */
+    private int writeRelease(String deployKey, File sourceDir, Map<String, String> manifest, File releaseDir) throws IOException {
+        String liveReleaseId = getLiveReleaseId(deployKey);
+        File liveDir = liveReleaseId == null ? null : new File(releaseRoot(deployKey), liveReleaseId);
+        Map<String, String> liveManifest = liveReleaseId == null ? Map.of() : readManifest(deployKey, liveReleaseId);
+        File stagingDir = new File(releaseRoot(deployKey), STAGING_PREFIX + System.nanoTime());
+        int linked = 0;
+        try {
+            for (Map.Entry<String, String> entry : manifest.entrySet()) {
+                String relativePath = entry.getKey();
+                Path target = stagingDir.toPath().resolve(relativePath);
+                Files.createDirectories(target.getParent());
+                if (entry.getValue().equals(liveManifest.get(relativePath)) && linkFile(new File(liveDir, relativePath).toPath(), target)) {
+                    linked++;
+                    continue;
+                }
+                Files.copy(new File(sourceDir, relativePath).toPath(), target, StandardCopyOption.REPLACE_EXISTING);
+            }
+            FileUtil.del(releaseDir);
+            Files.move(stagingDir.toPath(), releaseDir.toPath(), StandardCopyOption.ATOMIC_MOVE);
+            return linked;
+        } finally {
+            FileUtil.del(stagingDir);
+        }
+    }
+
+    private boolean linkFile(Path existing, Path target) {
+        try {
+            Files.createLink(target, existing);
+            return true;
+        } catch (UnsupportedOperationException | IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * 切换当前版本：新建临时符号链接后 rename 覆盖 deployKey
+     */
+    private void switchLive(String deployKey, File releaseDir) throws IOException {
+        Path live = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+        Path tempLink = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, "." + deployKey + ".tmp-" + System.nanoTime());
+        Files.createDirectories(live.getParent());
+        try {
+            Files.createSymbolicLink(tempLink, releaseDir.toPath().toAbsolutePath());
+        } catch (UnsupportedOperationException | IOException e) {
+            // 不支持符号链接（如未开启开发者模式的 Windows），退回整体复制
+            log.warn("无法创建符号链接，改为复制部署目录: {}", e.getMessage());
+            if (Files.isSymbolicLink(live)) {
+                Files.delete(live);
+            }
+            FileUtil.copyContent(releaseDir, live.toFile(), true);
+            return;
+        }
+        if (Files.isDirectory(live) && !Files.isSymbolicLink(live)) {
+            // 旧版本部署留下的普通目录，先移走再切换，只会发生一次
+            Path legacy = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, "." + deployKey + ".legacy-" + System.nanoTime());
+            Files.move(live, legacy, StandardCopyOption.ATOMIC_MOVE);
+            Files.move(tempLink, live, StandardCopyOption.ATOMIC_MOVE);
+            FileUtil.del(legacy.toFile());
+            return;
+        }
+        Files.move(tempLink, live, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    /**
+     * 只保留最近发布的若干个版本，当前版本始终保留
+     */
+    private void pruneReleases(String deployKey) {
+        List<String> releases = listReleases(deployKey);
+        String current = getLiveReleaseId(deployKey);
+        File releaseRoot = releaseRoot(deployKey);
+        releases.stream()
+                .skip(Math.max(deployStoreConfig.getKeepReleases(), 1))
+                .filter(releaseId -> !releaseId.equals(current))
+                .forEach(releaseId -> {
+                    FileUtil.del(new File(releaseRoot, releaseId));
+                    FileUtil.del(new File(releaseRoot, releaseId + MANIFEST_SUFFIX));
+                    log.info("清理历史部署版本: deployKey={}, releaseId={}", deployKey, releaseId);
+                });
+    }
+
+    /**
+     * 按发布时间倒序列出版本
+     */
+    private List<String> listReleases(String deployKey) {
+        File[] manifests = releaseRoot(deployKey).listFiles((dir, name) -> name.endsWith(MANIFEST_SUFFIX));
+        if (manifests == null) {
+            return List.of();
+        }
+        return Arrays.stream(manifests)
+                .sorted(Comparator.comparingLong(File::lastModified).reversed())
+                .map(file -> file.getName().substring(0, file.getName().length() - MANIFEST_SUFFIX.length()))
+                .toList();
+    }
+
+    private String getLiveReleaseId(String deployKey) {
+        Path live = Path.of(AppConstant.CODE_DEPLOY_ROOT_DIR, deployKey);
+        if (!Files.isSymbolicLink(live)) {
+            return null;
+        }
+        try {
+            return Files.readSymbolicLink(live).getFileName().toString();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    private Map<String, String> readManifest(String deployKey, String releaseId) {
+        File manifestFile = new File(releaseRoot(deployKey), releaseId + MANIFEST_SUFFIX);
+        if (!manifestFile.isFile()) {
+            return Map.of();
+        }
+        JSONObject json = JSONUtil.parseObj(FileUtil.readUtf8String(manifestFile));
+        Map<String, String> manifest = new TreeMap<>();
+        json.forEach((path, hash) -> manifest.put(path, String.valueOf(hash)));
+        return manifest;
+    }
+
+    /**
+     * 生成清单：相对路径（统一使用 /）→ 文件内容 SHA-256
+     */
+    private Map<String, String> buildManifest(File sourceDir) throws IOException {
+        Path root = sourceDir.toPath();
+        Map<String, String> manifest = new TreeMap<>();
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.filter(Files::isRegularFile).toList()) {
+                String relativePath = root.relativize(path).toString().replace('\\', '/');
+                manifest.put(relativePath, DigestUtil.sha256Hex(path.toFile()));
+            }
+        }
+        return manifest;
+    }
+
+    private String computeReleaseId(Map<String, String> manifest) {
+        StringBuilder content = new StringBuilder();
+        manifest.forEach((path, hash) -> content.append(path).append('\0').append(hash).append('\n'));
+        return DigestUtil.sha256Hex(content.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    private File releaseRoot(String deployKey) {
+        return new File(AppConstant.CODE_RELEASE_ROOT_DIR, deployKey);
+    }
+}
@@ -28,4 +28,20 @@ public class AppEditEvent {
      */
     private Long appId;
 
+    /**
+     * 发布时间（System.nanoTime），用于统计排队耗时
+     */
+    private long publishNanos;
+
+    /**
+     * 消费后清空槽位，释放对会话和用户的引用
+     */
+    public void clear() {
+        pictureEditRequestMessage = null;
+        session = null;
+        user = null;
+        appId = null;
+        publishNanos = 0;
+    }
+
 }
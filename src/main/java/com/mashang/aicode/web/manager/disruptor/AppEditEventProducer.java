@@ -10,18 +10,22 @@ import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.util.List;
+
 /**
  * 事件生产器
+ * <p>
+ * 按 appId 选择分片，同一应用的事件由同一个消费线程按发布顺序处理
  */
 @Component
 @Slf4j
 public class AppEditEventProducer {
 
     @Resource
-    Disruptor<AppEditEvent> appEditEventDisruptor;
+    private List<Disruptor<AppEditEvent>> appEditEventDisruptors;
 
     public void publishEvent(DialogueRequestMessage appEditRequestMessage, WebSocketSession session, User user, Long appId) {
-        RingBuffer<AppEditEvent> ringBuffer = appEditEventDisruptor.getRingBuffer();
+        RingBuffer<AppEditEvent> ringBuffer = shardOf(appId).getRingBuffer();
         // 获取可以生成的位置
         long next = ringBuffer.next();
         AppEditEvent appEditEvent = ringBuffer.get(next);
@@ -29,16 +33,21 @@ public class AppEditEventProducer {
         appEditEvent.setPictureEditRequestMessage(appEditRequestMessage);
         appEditEvent.setUser(user);
         appEditEvent.setAppId(appId);
+        appEditEvent.setPublishNanos(System.nanoTime());
         // 发布事件
         ringBuffer.publish(next);
     }
 
+    private Disruptor<AppEditEvent> shardOf(Long appId) {
+        int index = appId == null ? 0 : Math.floorMod(Long.hashCode(appId), appEditEventDisruptors.size());
+        return appEditEventDisruptors.get(index);
+    }
+
     /**
      * 优雅停机
      */
     @PreDestroy
     public void close() {
-        appEditEventDisruptor.shutdown();
+        appEditEventDisruptors.forEach(Disruptor::shutdown);
     }
 }
-
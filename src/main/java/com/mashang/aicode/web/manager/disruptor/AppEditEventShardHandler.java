@@ -0,0 +1,48 @@
+package com.mashang.aicode.web.manager.disruptor;
+
+import com.lmax.disruptor.EventHandler;
+import com.mashang.aicode.web.monitor.CollaborationMetricsCollector;
+import lombok.extern.slf4j.Slf4j;
+
+/**
+ * 单个分片的事件消费者
+ * <p>
+ * 由 BatchEventProcessor 驱动，一次唤醒处理完当前所有可用的事件；
+ * 每个事件处理后清空槽位，避免环形队列长期持有 WebSocketSession、User 等对象。
+ * 单个事件处理失败只记录日志，不会中断该分片的消费线程。
+ */
+@Slf4j
+public class AppEditEventShardHandler implements EventHandler<AppEditEvent> {
+
+    private final int shard;
+
+    private final AppEditEventWorkHandler appEditEventWorkHandler;
+
+    private final CollaborationMetricsCollector collaborationMetricsCollector;
+
+    private int batchSize;
+
+    public AppEditEventShardHandler(int shard, AppEditEventWorkHandler appEditEventWorkHandler,
+                                    CollaborationMetricsCollector collaborationMetricsCollector) {
+        this.shard = shard;
+        this.appEditEventWorkHandler = appEditEventWorkHandler;
+        this.collaborationMetricsCollector = collaborationMetricsCollector;
+    }
+
+    @Override
+    public void onEvent(AppEditEvent event, long sequence, boolean endOfBatch) {
+        try {
+            collaborationMetricsCollector.recordEventLatency(shard, System.nanoTime() - event.getPublishNanos());
+            appEditEventWorkHandler.onEvent(event);
+        } catch (Exception e) {
+            log.error("协作编辑事件处理失败: shard={}, appId={}, error: {}", shard, event.getAppId(), e.getMessage(), e);
+        } finally {
+            event.clear();
+            batchSize++;
+            if (endOfBatch) {
+                collaborationMetricsCollector.recordBatchSize(shard, batchSize);
+                batchSize = 0;
+            }
+        }
+    }
+}
@@ -1,7 +1,6 @@
 package com.mashang.aicode.web.manager.disruptor;
 
 import cn.hutool.json.JSONUtil;
-import com.lmax.disruptor.WorkHandler;
 import com.mashang.aicode.web.manager.websocket.AppEditHandler;
 import com.mashang.aicode.web.manager.websocket.model.enums.DialogueMessageTypeEnum;
 import com.mashang.aicode.web.manager.websocket.model.DialogueRequestMessage;
@@ -15,9 +14,12 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 
+/**
+ * 协作编辑事件分发：按消息类型调用 {@link AppEditHandler} 的处理方法，由各分片的 {@link AppEditEventShardHandler} 调用
+ */
 @Slf4j
 @Component
-public class AppEditEventWorkHandler implements WorkHandler<AppEditEvent> {
+public class AppEditEventWorkHandler {
 
     @Resource
     @Lazy
@@ -31,7 +33,6 @@ public class AppEditEventWorkHandler implements WorkHandler<AppEditEvent> {
      * @param event
      * @throws Exception
      */
-    @Override
     public void onEvent(AppEditEvent event) throws Exception {
         DialogueRequestMessage appEditRequestMessage = event.getPictureEditRequestMessage();
         WebSocketSession session = event.getSession();
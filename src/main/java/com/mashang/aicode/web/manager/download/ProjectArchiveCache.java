@@ -0,0 +1,358 @@
+package com.mashang.aicode.web.manager.download;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.crypto.digest.DigestUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mashang.aicode.web.config.DownloadCacheConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiPredicate;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * 项目压缩包缓存
+ * <p>
+ * 以允许下载的文件集合的内容哈希（相对路径 + 文件 SHA-256）作为 key，同样的内容只打包一次，之后直接返回缓存文件。
+ * 单个文件的哈希按路径、大小、修改时间缓存，未变化的文件不会重复读取。
+ * <p>
+ * 打包时各文件并行压缩，图片、字体等已压缩的格式直接存储（STORED），压缩后没有变小的文件同样直接存储。
+ */
+@Slf4j
+@Component
+public class ProjectArchiveCache {
+
+    /**
+     * 本身已压缩的格式，再 deflate 只会浪费 CPU
+     */
+    private static final Set<String> STORED_EXTENSIONS = Set.of(
+            "png", "jpg", "jpeg", "gif", "webp", "avif", "ico", "woff", "woff2",
+            "zip", "gz", "br", "7z", "rar", "mp3", "mp4", "webm", "ogg");
+
+    private static final int METHOD_STORED = 0;
+
+    private static final int METHOD_DEFLATED = 8;
+
+    /**
+     * 通用标志位：文件名使用 UTF-8 编码
+     */
+    private static final int FLAG_UTF8 = 0x0800;
+
+    private static final long ZIP32_LIMIT = 0xFFFFFFFFL;
+
+    @Resource
+    private DownloadCacheConfig downloadCacheConfig;
+
+    /**
+     * key: 路径|大小|修改时间, value: 文件 SHA-256
+     */
+    private Cache<String, String> fileHashes;
+
+    private final Map<String, Object> buildLocks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        fileHashes = Caffeine.newBuilder()
+                .maximumSize(downloadCacheConfig.getFileHashCacheSize())
+                .build();
+    }
+
+    /**
+     * 获取项目压缩包，内容未变化时直接返回缓存
+     *
+     * @param projectRoot 项目根目录
+     * @param filter      (项目根目录, 文件路径) -> 是否打包
+     * @return 压缩包
+     */
+    public Archive getArchive(Path projectRoot, BiPredicate<Path, Path> filter) throws IOException {
+        List<Path> files = listFiles(projectRoot, filter);
+        String key = computeKey(projectRoot, files);
+        File archiveFile = new File(downloadCacheConfig.getCacheDir(), key + ".zip");
+        if (!archiveFile.isFile()) {
+            synchronized (buildLocks.computeIfAbsent(key, k -> new Object())) {
+                try {
+                    if (!archiveFile.isFile()) {
+                        build(projectRoot, files, archiveFile);
+                        evictIfNecessary();
+                    }
+                } finally {
+                    buildLocks.remove(key);
+                }
+            }
+        }
+        // 以修改时间记录最近下载时间，用于淘汰
+        archiveFile.setLastModified(System.currentTimeMillis());
+        return new Archive(key, archiveFile);
+    }
+
+    private List<Path> listFiles(Path projectRoot, BiPredicate<Path, Path> filter) throws IOException {
+        List<Path> files = new ArrayList<>();
+        Files.walkFileTree(projectRoot, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return dir.equals(projectRoot) || filter.test(projectRoot, dir)
+                        ? FileVisitResult.CONTINUE
+                        : FileVisitResult.SKIP_SUBTREE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                if (attrs.isRegularFile() && filter.test(projectRoot, file)) {
+                    files.add(file);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        files.sort(null);
+        return files;
+    }
+
+    private String computeKey(Path projectRoot, List<Path> files) {
+        StringBuilder content = new StringBuilder();
+        for (Path file : files) {
+            File f = file.toFile();
+            String hash = fileHashes.get(f.getAbsolutePath() + "|" + f.length() + "|" + f.lastModified(),
+                    k -> DigestUtil.sha256Hex(f));
+            content.append(entryName(projectRoot, file)).append('\0').append(hash).append('\n');
+        }
+        return DigestUtil.sha256Hex(content.toString().getBytes(StandardCharsets.UTF_8)).substring(0, 32);
+    }
+
+    /**
+     * 并行压缩各文件，再按顺序写出压缩包；先写临时文件，完成后重命名
+     */
+    private void build(Path projectRoot, List<Path> files, File archiveFile) throws IOException {
+        long start = System.currentTimeMillis();
+        if (files.size() >= 0xFFFF) {
+            throw new IOException("文件数超出 ZIP 格式限制: " + files.size());
+        }
+        List<ZipEntryData> entries;
+        try {
+            entries = files.parallelStream()
+                    .map(file -> compress(projectRoot, file))
+                    .toList();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+        FileUtil.mkdir(archiveFile.getParentFile());
+        File tempFile = new File(archiveFile.getParentFile(), archiveFile.getName() + ".tmp-" + System.nanoTime());
+        try {
+            try (CountingOutputStream out = new CountingOutputStream(new BufferedOutputStream(Files.newOutputStream(tempFile.toPath()), 64 * 1024))) {
+                writeArchive(out, entries);
+            }
+            Files.move(tempFile.toPath(), archiveFile.toPath(), StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        } finally {
+            FileUtil.del(tempFile);
+        }
+        log.info("项目压缩包已生成: {}, 文件数={}, 大小={}B, 耗时={}ms",
+                archiveFile.getName(), entries.size(), archiveFile.length(), System.currentTimeMillis() - start);
+    }
+
+    private ZipEntryData compress(Path projectRoot, Path file) {
+        try {
+            byte[] data = Files.readAllBytes(file);
+            if (data.length >= ZIP32_LIMIT) {
+                throw new IOException("文件大小超出 ZIP 格式限制: " + file);
+            }
+            CRC32 crc = new CRC32();
+            crc.update(data);
+            String name = entryName(projectRoot, file);
+            long dosTime = toDosTime(Files.getLastModifiedTime(file).toMillis());
+            if (!STORED_EXTENSIONS.contains(FileUtil.extName(name).toLowerCase())) {
+                byte[] deflated = deflate(data);
+                if (deflated.length < data.length) {
+                    return new ZipEntryData(name, METHOD_DEFLATED, crc.getValue(), data.length, deflated, dosTime);
+                }
+            }
+            return new ZipEntryData(name, METHOD_STORED, crc.getValue(), data.length, data, dosTime);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private byte[] deflate(byte[] data) {
+        Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+        try {
+            deflater.setInput(data);
+            deflater.finish();
+            byte[] buffer = new byte[Math.max(data.length / 2, 1024)];
+            ByteArrayOutputStream out = new ByteArrayOutputStream(buffer.length);
+            while (!deflater.finished()) {
+                int count = deflater.deflate(buffer);
+                out.write(buffer, 0, count);
+            }
+            return out.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * 写出 ZIP：依次写本地文件头和数据，最后写中央目录和结束记录
+     */
+    private void writeArchive(CountingOutputStream out, List<ZipEntryData> entries) throws IOException {
+        long[] offsets = new long[entries.size()];
+        for (int i = 0; i < entries.size(); i++) {
+            ZipEntryData entry = entries.get(i);
+            offsets[i] = out.getCount();
+            byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+            writeInt(out, 0x04034b50);
+            writeShort(out, 20);
+            writeShort(out, FLAG_UTF8);
+            writeShort(out, entry.method());
+            writeInt(out, entry.dosTime());
+            writeInt(out, entry.crc());
+            writeInt(out, entry.data().length);
+            writeInt(out, entry.size());
+            writeShort(out, name.length);
+            writeShort(out, 0);
+            out.write(name);
+            out.write(entry.data());
+        }
+        long centralStart = out.getCount();
+        for (int i = 0; i < entries.size(); i++) {
+            ZipEntryData entry = entries.get(i);
+            byte[] name = entry.name().getBytes(StandardCharsets.UTF_8);
+            writeInt(out, 0x02014b50);
+            writeShort(out, 20);
+            writeShort(out, 20);
+            writeShort(out, FLAG_UTF8);
+            writeShort(out, entry.method());
+            writeInt(out, entry.dosTime());
+            writeInt(out, entry.crc());
+            writeInt(out, entry.data().length);
+            writeInt(out, entry.size());
+            writeShort(out, name.length);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeShort(out, 0);
+            writeInt(out, 0);
+            writeInt(out, offsets[i]);
+            out.write(name);
+        }
+        long centralEnd = out.getCount();
+        if (centralEnd >= ZIP32_LIMIT) {
+            throw new IOException("压缩包大小超出 ZIP 格式限制");
+        }
+        writeInt(out, 0x06054b50);
+        writeShort(out, 0);
+        writeShort(out, 0);
+        writeShort(out, entries.size());
+        writeShort(out, entries.size());
+        writeInt(out, centralEnd - centralStart);
+        writeInt(out, centralStart);
+        writeShort(out, 0);
+    }
+
+    /**
+     * 超出缓存上限时按最近下载时间淘汰
+     */
+    private void evictIfNecessary() {
+        File[] archives = new File(downloadCacheConfig.getCacheDir()).listFiles((dir, name) -> name.endsWith(".zip"));
+        if (archives == null || archives.length <= downloadCacheConfig.getMaxEntries()) {
+            return;
+        }
+        Arrays.stream(archives)
+                .sorted(Comparator.comparingLong(File::lastModified))
+                .limit(archives.length - downloadCacheConfig.getMaxEntries())
+                .forEach(FileUtil::del);
+    }
+
+    private static String entryName(Path projectRoot, Path file) {
+        return projectRoot.relativize(file).toString().replace('\\', '/');
+    }
+
+    private static long toDosTime(long millis) {
+        LocalDateTime time = LocalDateTime.ofInstant(Instant.ofEpochMilli(millis), ZoneId.systemDefault());
+        if (time.getYear() < 1980) {
+            time = LocalDateTime.of(1980, 1, 1, 0, 0);
+        }
+        return ((long) (time.getYear() - 1980) << 25)
+                | ((long) time.getMonthValue() << 21)
+                | ((long) time.getDayOfMonth() << 16)
+                | ((long) time.getHour() << 11)
+                | ((long) time.getMinute() << 5)
+                | (time.getSecond() >> 1);
+    }
+
+    private static void writeShort(OutputStream out, int value) throws IOException {
+        out.write(value & 0xFF);
+        out.write((value >>> 8) & 0xFF);
+    }
+
+    private static void writeInt(OutputStream out, long value) throws IOException {
+        out.write((int) (value & 0xFF));
+        out.write((int) ((value >>> 8) & 0xFF));
+        out.write((int) ((value >>> 16) & 0xFF));
+        out.write((int) ((value >>> 24) & 0xFF));
+    }
+
+    /**
+     * 项目压缩包
+     *
+     * @param key  内容哈希，可直接作为 ETag
+     * @param file 压缩包文件
+     */
+    public record Archive(String key, File file) {
+    }
+
+    private record ZipEntryData(String name, int method, long crc, long size, byte[] data, long dosTime) {
+    }
+
+    /**
+     * 记录已写出字节数，用于计算各条目的偏移
+     */
+    private static class CountingOutputStream extends FilterOutputStream {
+
+        private long count;
+
+        CountingOutputStream(OutputStream out) {
+            super(out);
+        }
+
+        @Override
+        public void write(int b) throws IOException {
+            out.write(b);
+            count++;
+        }
+
+        @Override
+        public void write(byte[] b, int off, int len) throws IOException {
+            out.write(b, off, len);
+            count += len;
+        }
+
+        long getCount() {
+            return count;
+        }
+    }
+}
@@ -0,0 +1,223 @@
+package com.mashang.aicode.web.manager.history;
+
+import com.baomidou.mybatisplus.core.toolkit.IdWorker;
+import com.mashang.aicode.web.config.ChatHistoryWriterConfig;
+import com.mashang.aicode.web.mapper.ChatHistoryMapper;
+import com.mashang.aicode.web.model.entity.ChatHistory;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 对话历史异步批量写入器（write-behind）
+ * <p>
+ * 调用方只负责入队，后台线程把队列中的消息合并为多行 INSERT 写库，流式输出的完成路径上不再有同步插入。
+ * 队列有界：MySQL 变慢导致队列写满时，入队最多等待 offerTimeoutMillis，超时由调用线程同步写入，形成背压。
+ * 停机时先停止接收，再把队列中剩余的消息全部写完。
+ * <p>
+ * id 和创建时间在入队时生成，保证同一应用下消息的顺序与调用顺序一致。
+ */
+@Slf4j
+@Component
+public class ChatHistoryWriter {
+
+    @Resource
+    private ChatHistoryMapper chatHistoryMapper;
+
+    @Resource
+    private ChatHistoryWriterConfig chatHistoryWriterConfig;
+
+    private BlockingQueue<WriteRequest> queue;
+
+    private Thread worker;
+
+    private volatile boolean running;
+
+    @PostConstruct
+    public void init() {
+        if (!chatHistoryWriterConfig.isEnabled()) {
+            log.info("对话历史异步写入未开启，使用同步写入");
+            return;
+        }
+        queue = new ArrayBlockingQueue<>(chatHistoryWriterConfig.getQueueCapacity());
+        running = true;
+        worker = Thread.ofPlatform()
+                .name("chat-history-writer")
+                .daemon()
+                .start(this::runLoop);
+        log.info("对话历史异步写入已启动，队列容量: {}, 批大小: {}",
+                chatHistoryWriterConfig.getQueueCapacity(), chatHistoryWriterConfig.getBatchSize());
+    }
+
+    /**
+     * 提交一条对话历史
+     *
+     * @param chatHistory 对话历史
+     */
+    public void submit(ChatHistory chatHistory) {
+        prepare(chatHistory);
+        if (!running) {
+            insertDirectly(List.of(chatHistory));
+            return;
+        }
+        try {
+            if (queue.offer(new WriteRequest(chatHistory, null),
+                    chatHistoryWriterConfig.getOfferTimeoutMillis(), TimeUnit.MILLISECONDS)) {
+                return;
+            }
+            log.warn("对话历史写入队列已满，改为同步写入，appId: {}", chatHistory.getAppId());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        insertDirectly(List.of(chatHistory));
+    }
+
+    /**
+     * 等待当前已入队的消息全部写库，用于写后立即更新/读取的场景
+     *
+     * @param timeoutMillis 最长等待毫秒数
+     */
+    public void flush(long timeoutMillis) {
+        if (!running) {
+            return;
+        }
+        CompletableFuture<Void> barrier = new CompletableFuture<>();
+        try {
+            if (!queue.offer(new WriteRequest(null, barrier), timeoutMillis, TimeUnit.MILLISECONDS)) {
+                log.warn("对话历史写入队列已满，等待写入超时");
+                return;
+            }
+            barrier.get(timeoutMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.warn("等待对话历史写入完成失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 当前队列中待写入的消息数
+     */
+    public int getPendingCount() {
+        return queue == null ? 0 : queue.size();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (!running) {
+            return;
+        }
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(chatHistoryWriterConfig.getShutdownTimeoutMillis());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // 超时仍未写完的消息由当前线程直接写入
+        List<WriteRequest> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            log.warn("停机时仍有 {} 条对话历史未写入，同步写入", remaining.size());
+            write(remaining);
+        }
+        log.info("对话历史异步写入已停止");
+    }
+
+    private void runLoop() {
+        int batchSize = chatHistoryWriterConfig.getBatchSize();
+        List<WriteRequest> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                WriteRequest first = running
+                        ? queue.poll(chatHistoryWriterConfig.getFlushIntervalMillis(), TimeUnit.MILLISECONDS)
+                        : queue.poll();
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                queue.drainTo(batch, batchSize - 1);
+                write(batch);
+            } catch (InterruptedException e) {
+                // 停机信号，继续把剩余消息写完
+            } catch (Exception e) {
+                log.error("对话历史批量写入异常: {}", e.getMessage(), e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 按顺序写入一批请求，遇到屏障时先写出之前的消息再放行
+     */
+    private void write(List<WriteRequest> requests) {
+        List<ChatHistory> rows = new ArrayList<>(requests.size());
+        for (WriteRequest request : requests) {
+            if (request.barrier() == null) {
+                rows.add(request.chatHistory());
+                continue;
+            }
+            insertBatch(rows);
+            rows.clear();
+            request.barrier().complete(null);
+        }
+        insertBatch(rows);
+    }
+
+    private void insertBatch(List<ChatHistory> rows) {
+        if (rows.isEmpty()) {
+            return;
+        }
+        try {
+            chatHistoryMapper.insertBatch(rows);
+            log.debug("批量写入对话历史 {} 条", rows.size());
+        } catch (Exception e) {
+            // 批量失败时逐条重试，避免一条异常数据拖累整批
+            log.error("批量写入对话历史失败，逐条重试，数量: {}, error: {}", rows.size(), e.getMessage());
+            insertDirectly(rows);
+        }
+    }
+
+    private void insertDirectly(List<ChatHistory> rows) {
+        for (ChatHistory row : rows) {
+            try {
+                chatHistoryMapper.insert(row);
+            } catch (Exception e) {
+                log.error("写入对话历史失败，appId: {}, error: {}", row.getAppId(), e.getMessage(), e);
+            }
+        }
+    }
+
+    private void prepare(ChatHistory chatHistory) {
+        LocalDateTime now = LocalDateTime.now();
+        if (chatHistory.getId() == null) {
+            chatHistory.setId(IdWorker.getId());
+        }
+        if (chatHistory.getCreateTime() == null) {
+            chatHistory.setCreateTime(now);
+        }
+        if (chatHistory.getUpdateTime() == null) {
+            chatHistory.setUpdateTime(now);
+        }
+        if (chatHistory.getIsDelete() == null) {
+            chatHistory.setIsDelete(0);
+        }
+    }
+
+    /**
+     * 写入请求，barrier 不为空时表示一个等待点
+     */
+    private record WriteRequest(ChatHistory chatHistory, CompletableFuture<Void> barrier) {
+    }
+}
@@ -0,0 +1,71 @@
+package com.mashang.aicode.web.manager.screenshot;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.WebDriver;
+
+/**
+ * 池化的浏览器实例
+ * <p>
+ * 同一时间只会被一个截图任务使用，记录渲染次数和连续失败次数，供截图引擎判断是否回收。
+ */
+@Slf4j
+class BrowserInstance {
+
+    @Getter
+    private final WebDriver driver;
+
+    @Getter
+    private int renderCount;
+
+    @Getter
+    private int consecutiveFailures;
+
+    /**
+     * 被超时看门狗强制关闭或调用出错后置为 true，归还时直接回收
+     */
+    private volatile boolean broken;
+
+    BrowserInstance(WebDriver driver) {
+        this.driver = driver;
+    }
+
+    void recordRender(boolean success) {
+        renderCount++;
+        consecutiveFailures = success ? 0 : consecutiveFailures + 1;
+    }
+
+    void markBroken() {
+        broken = true;
+    }
+
+    boolean isBroken() {
+        return broken;
+    }
+
+    /**
+     * 打开空白页，释放上一个页面占用的资源，同时检查浏览器是否仍然可用
+     *
+     * @return 是否可用
+     */
+    boolean reset() {
+        if (broken) {
+            return false;
+        }
+        try {
+            driver.get("about:blank");
+            return true;
+        } catch (Exception e) {
+            log.warn("浏览器不可用，准备回收: {}", e.getMessage());
+            return false;
+        }
+    }
+
+    void quit() {
+        try {
+            driver.quit();
+        } catch (Exception e) {
+            log.warn("关闭浏览器失败: {}", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,252 @@
+package com.mashang.aicode.web.manager.screenshot;
+
+import com.mashang.aicode.web.config.ScreenshotConfig;
+import com.mashang.aicode.web.exception.BusinessException;
+import com.mashang.aicode.web.exception.ErrorCode;
+import com.mashang.aicode.web.monitor.ScreenshotMetricsCollector;
+import com.mashang.aicode.web.utils.WebScreenshotUtils;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 网页截图引擎
+ * <p>
+ * 维护固定数量的无头浏览器，截图任务进入有界队列，由与浏览器数量相同的工作线程执行，每个任务独占一个浏览器。
+ * <ul>
+ *     <li>同一个去重 key（部署地址）在队列中只保留一个任务，后续请求直接共享其结果</li>
+ *     <li>任务超时后由看门狗强制关闭所用浏览器，阻塞中的 WebDriver 调用随之失败返回</li>
+ *     <li>浏览器达到渲染次数上限、连续失败或已不可用时回收，下次使用时重新创建</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ScreenshotEngine {
+
+    @Resource
+    private ScreenshotConfig screenshotConfig;
+
+    @Resource
+    private ScreenshotMetricsCollector screenshotMetricsCollector;
+
+    /**
+     * 空闲浏览器
+     */
+    private final BlockingQueue<BrowserInstance> idleBrowsers = new LinkedBlockingQueue<>();
+
+    /**
+     * 已创建的浏览器数（含使用中）
+     */
+    private final AtomicInteger browserCount = new AtomicInteger();
+
+    /**
+     * key: 去重 key, value: 尚未开始执行的任务
+     */
+    private final Map<String, ScreenshotJob> queuedJobs = new ConcurrentHashMap<>();
+
+    private ThreadPoolExecutor renderExecutor;
+
+    private ScheduledExecutorService watchdog;
+
+    @PostConstruct
+    public void init() {
+        int poolSize = screenshotConfig.getPoolSize();
+        AtomicInteger threadIndex = new AtomicInteger();
+        renderExecutor = new ThreadPoolExecutor(poolSize, poolSize, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(screenshotConfig.getQueueCapacity()),
+                r -> {
+                    Thread t = new Thread(r, "screenshot-worker-" + threadIndex.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+        watchdog = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "screenshot-watchdog");
+            t.setDaemon(true);
+            return t;
+        });
+        screenshotMetricsCollector.registerQueueGauges(renderExecutor, browserCount);
+        if (screenshotConfig.isWarmUp()) {
+            Thread.startVirtualThread(this::warmUp);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        renderExecutor.shutdownNow();
+        watchdog.shutdownNow();
+        BrowserInstance browser;
+        while ((browser = idleBrowsers.poll()) != null) {
+            browser.quit();
+        }
+        log.info("截图引擎已关闭");
+    }
+
+    /**
+     * 提交截图任务
+     *
+     * @param dedupeKey 去重 key，同一 key 排队中的任务只会执行一次
+     * @param webUrl    要截图的网址
+     * @return 压缩后的本地截图路径
+     */
+    public CompletableFuture<String> submit(String dedupeKey, String webUrl) {
+        ScreenshotJob created = new ScreenshotJob(dedupeKey, webUrl);
+        ScreenshotJob job = queuedJobs.putIfAbsent(dedupeKey, created);
+        if (job != null) {
+            // 排队中的任务尚未打开页面，执行时看到的就是最新部署的内容
+            screenshotMetricsCollector.recordDeduplicated();
+            log.info("截图任务已在队列中，合并请求: {}", dedupeKey);
+            return job.future;
+        }
+        try {
+            renderExecutor.execute(created);
+        } catch (RejectedExecutionException e) {
+            queuedJobs.remove(dedupeKey, created);
+            screenshotMetricsCollector.recordRejected();
+            log.warn("截图队列已满，拒绝任务: {}", webUrl);
+            created.future.completeExceptionally(new BusinessException(ErrorCode.OPERATION_ERROR, "截图任务过多，请稍后再试"));
+        }
+        return created.future;
+    }
+
+    private void render(ScreenshotJob job) {
+        queuedJobs.remove(job.dedupeKey, job);
+        screenshotMetricsCollector.recordQueueWait(Duration.ofNanos(System.nanoTime() - job.submitNanos));
+        long start = System.nanoTime();
+        BrowserInstance browser = null;
+        ScheduledFuture<?> timeout = null;
+        String path = null;
+        try {
+            browser = borrow();
+            BrowserInstance current = browser;
+            timeout = watchdog.schedule(() -> {
+                log.warn("截图任务超时（{}s），强制关闭浏览器: {}", screenshotConfig.getJobTimeoutSeconds(), job.webUrl);
+                current.markBroken();
+                current.quit();
+            }, screenshotConfig.getJobTimeoutSeconds(), TimeUnit.SECONDS);
+            path = WebScreenshotUtils.saveWebPageScreenshot(browser.getDriver(), job.webUrl,
+                    screenshotConfig.getReadyTimeoutMillis(), screenshotConfig.getQuietMillis());
+            browser.recordRender(path != null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (Exception e) {
+            log.error("截图任务执行失败: {}", job.webUrl, e);
+            if (browser != null) {
+                browser.markBroken();
+            }
+        } finally {
+            if (timeout != null) {
+                timeout.cancel(false);
+            }
+            release(browser);
+            screenshotMetricsCollector.recordRender(Duration.ofNanos(System.nanoTime() - start), path != null);
+        }
+        if (path != null) {
+            job.future.complete(path);
+        } else {
+            job.future.completeExceptionally(new BusinessException(ErrorCode.OPERATION_ERROR, "本地截图生成失败"));
+        }
+    }
+
+    private BrowserInstance borrow() throws InterruptedException {
+        BrowserInstance browser = idleBrowsers.poll();
+        if (browser != null) {
+            return browser;
+        }
+        BrowserInstance created = tryCreate();
+        if (created != null) {
+            return created;
+        }
+        // 工作线程数与浏览器数相同，正常情况下不会在这里等待
+        return idleBrowsers.take();
+    }
+
+    /**
+     * 未达到上限时创建浏览器
+     *
+     * @return 新浏览器，已达上限时返回 null
+     */
+    private BrowserInstance tryCreate() {
+        if (browserCount.incrementAndGet() > screenshotConfig.getPoolSize()) {
+            browserCount.decrementAndGet();
+            return null;
+        }
+        try {
+            return new BrowserInstance(WebScreenshotUtils.initChromeDriver(screenshotConfig.getWidth(), screenshotConfig.getHeight()));
+        } catch (Exception e) {
+            browserCount.decrementAndGet();
+            throw e;
+        }
+    }
+
+    private void release(BrowserInstance browser) {
+        if (browser == null) {
+            return;
+        }
+        boolean exhausted = browser.getRenderCount() >= screenshotConfig.getMaxRendersPerBrowser()
+                || browser.getConsecutiveFailures() >= screenshotConfig.getMaxConsecutiveFailures();
+        if (!exhausted && browser.reset()) {
+            idleBrowsers.offer(browser);
+            return;
+        }
+        log.info("回收浏览器: renders={}, consecutiveFailures={}, broken={}",
+                browser.getRenderCount(), browser.getConsecutiveFailures(), browser.isBroken());
+        browser.quit();
+        browserCount.decrementAndGet();
+        screenshotMetricsCollector.recordBrowserRecycled();
+    }
+
+    private void warmUp() {
+        List<BrowserInstance> warmed = new ArrayList<>();
+        try {
+            BrowserInstance browser;
+            while ((browser = tryCreate()) != null) {
+                warmed.add(browser);
+            }
+            log.info("截图浏览器预热完成，实例数: {}", warmed.size());
+        } catch (Exception e) {
+            log.warn("截图浏览器预热失败，首次截图时再创建: {}", e.getMessage());
+        } finally {
+            idleBrowsers.addAll(warmed);
+        }
+    }
+
+    private final class ScreenshotJob implements Runnable {
+
+        private final String dedupeKey;
+
+        private final String webUrl;
+
+        private final long submitNanos = System.nanoTime();
+
+        private final CompletableFuture<String> future = new CompletableFuture<>();
+
+        private ScreenshotJob(String dedupeKey, String webUrl) {
+            this.dedupeKey = dedupeKey;
+            this.webUrl = webUrl;
+        }
+
+        @Override
+        public void run() {
+            render(this);
+        }
+    }
+}
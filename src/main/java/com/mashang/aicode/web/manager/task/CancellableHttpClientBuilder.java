@@ -0,0 +1,173 @@
+package com.mashang.aicode.web.manager.task;
+
+import cn.hutool.core.io.IoUtil;
+import dev.langchain4j.http.client.HttpClient;
+import dev.langchain4j.http.client.HttpClientBuilder;
+import dev.langchain4j.http.client.HttpClientBuilderLoader;
+import dev.langchain4j.http.client.HttpRequest;
+import dev.langchain4j.http.client.SuccessfulHttpResponse;
+import dev.langchain4j.http.client.sse.ServerSentEvent;
+import dev.langchain4j.http.client.sse.ServerSentEventListener;
+import dev.langchain4j.http.client.sse.ServerSentEventParser;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 可取消的模型 HTTP 客户端构建器
+ * <p>
+ * 包装 langchain4j 默认的 HTTP 客户端：流式请求发起时把响应体挂到当前线程的 {@link GenerationTask} 上，
+ * 任务取消时直接关闭响应流，上游请求随之中断，不再继续消耗 token。
+ * 回调时重新绑定任务，工具调用之后在回调线程发起的下一轮请求同样受控。
+ */
+@Slf4j
+public class CancellableHttpClientBuilder implements HttpClientBuilder {
+
+    private final HttpClientBuilder delegate = HttpClientBuilderLoader.loadHttpClientBuilder();
+
+    @Override
+    public Duration connectTimeout() {
+        return delegate.connectTimeout();
+    }
+
+    @Override
+    public CancellableHttpClientBuilder connectTimeout(Duration timeout) {
+        delegate.connectTimeout(timeout);
+        return this;
+    }
+
+    @Override
+    public Duration readTimeout() {
+        return delegate.readTimeout();
+    }
+
+    @Override
+    public CancellableHttpClientBuilder readTimeout(Duration timeout) {
+        delegate.readTimeout(timeout);
+        return this;
+    }
+
+    @Override
+    public HttpClient build() {
+        return new CancellableHttpClient(delegate.build());
+    }
+
+    private static class CancellableHttpClient implements HttpClient {
+
+        private final HttpClient delegate;
+
+        CancellableHttpClient(HttpClient delegate) {
+            this.delegate = delegate;
+        }
+
+        @Override
+        public SuccessfulHttpResponse execute(HttpRequest request) {
+            return delegate.execute(request);
+        }
+
+        @Override
+        public void execute(HttpRequest request, ServerSentEventParser parser, ServerSentEventListener listener) {
+            GenerationTask task = GenerationTaskHolder.getTask();
+            if (task == null) {
+                delegate.execute(request, parser, listener);
+                return;
+            }
+            TaskBoundListener boundListener = new TaskBoundListener(task, listener);
+            if (task.isCancelled()) {
+                // 任务已取消（如工具执行期间被中断），不再发起下一轮请求
+                boundListener.onError(new CancellationException());
+                return;
+            }
+            delegate.execute(request, (inputStream, parserListener) -> {
+                Runnable unregister = task.onCancel(() -> IoUtil.close(inputStream));
+                try {
+                    parser.parse(inputStream, parserListener);
+                } finally {
+                    unregister.run();
+                }
+            }, boundListener);
+        }
+    }
+
+    /**
+     * 回调时绑定生成任务；任务取消后只向上通知一次取消错误，其余事件全部丢弃
+     */
+    private static class TaskBoundListener implements ServerSentEventListener {
+
+        private final GenerationTask task;
+
+        private final ServerSentEventListener delegate;
+
+        private final AtomicBoolean cancelNotified = new AtomicBoolean();
+
+        TaskBoundListener(GenerationTask task, ServerSentEventListener delegate) {
+            this.task = task;
+            this.delegate = delegate;
+        }
+
+        @Override
+        public void onOpen(SuccessfulHttpResponse response) {
+            if (task.isCancelled()) {
+                notifyCancelled();
+                return;
+            }
+            GenerationTask previous = GenerationTaskHolder.bind(task);
+            try {
+                delegate.onOpen(response);
+            } finally {
+                GenerationTaskHolder.restore(previous);
+            }
+        }
+
+        @Override
+        public void onEvent(ServerSentEvent event) {
+            if (task.isCancelled()) {
+                notifyCancelled();
+                return;
+            }
+            GenerationTask previous = GenerationTaskHolder.bind(task);
+            try {
+                delegate.onEvent(event);
+            } finally {
+                GenerationTaskHolder.restore(previous);
+            }
+        }
+
+        @Override
+        public void onError(Throwable throwable) {
+            if (task.isCancelled()) {
+                notifyCancelled();
+                return;
+            }
+            GenerationTask previous = GenerationTaskHolder.bind(task);
+            try {
+                delegate.onError(throwable);
+            } finally {
+                GenerationTaskHolder.restore(previous);
+            }
+        }
+
+        @Override
+        public void onClose() {
+            if (task.isCancelled()) {
+                notifyCancelled();
+                return;
+            }
+            GenerationTask previous = GenerationTaskHolder.bind(task);
+            try {
+                delegate.onClose();
+            } finally {
+                GenerationTaskHolder.restore(previous);
+            }
+        }
+
+        private void notifyCancelled() {
+            if (cancelNotified.compareAndSet(false, true)) {
+                log.info("上游模型请求已中断: generationId={}, appId={}", task.getGenerationId(), task.getAppId());
+                delegate.onError(new CancellationException("生成任务已取消"));
+            }
+        }
+    }
+}
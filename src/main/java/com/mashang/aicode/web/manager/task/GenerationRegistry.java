@@ -0,0 +1,194 @@
+package com.mashang.aicode.web.manager.task;
+
+import cn.hutool.core.util.IdUtil;
+import com.mashang.aicode.web.model.vo.GenerationTaskVO;
+import com.mashang.aicode.web.monitor.StreamMetricsCollector;
+import com.mashang.aicode.web.service.ChatHistoryService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.SignalType;
+import reactor.util.context.Context;
+import reactor.util.context.ContextView;
+
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * 代码生成任务注册表
+ * <p>
+ * 以生成 ID 为 key 管理所有进行中的生成任务，任务随流的结束、出错或取消自动移除。
+ * 取消会一直传递到模型的 HTTP 请求（见 {@link CancellableHttpClientBuilder}），上游生成随之停止。
+ */
+@Slf4j
+@Component
+public class GenerationRegistry {
+
+    /**
+     * Reactor Context 中的任务监听器（Consumer&lt;GenerationTask&gt;）
+     */
+    private static final String TASK_LISTENER_KEY = GenerationRegistry.class.getName() + ".taskListener";
+
+    @Resource
+    private ChatHistoryService chatHistoryService;
+
+    @Resource
+    private StreamMetricsCollector streamMetricsCollector;
+
+    /**
+     * key: 生成 ID, value: 任务
+     */
+    private final Map<String, GenerationTask> activeTasks = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    public void init() {
+        streamMetricsCollector.registerActiveGenerationGauge(activeTasks);
+    }
+
+    /**
+     * 在生成任务中执行流
+     * <p>
+     * 订阅时注册任务并绑定到订阅线程，模型请求因此能挂到该任务上；
+     * 流结束时自动移除任务，下游取消订阅（如客户端断开）会同时中断上游请求。
+     * 下游需要本次生成的任务时，通过 {@link #taskListener(Consumer)} 在订阅时获取。
+     *
+     * @param appId         应用ID
+     * @param userId        用户ID
+     * @param taskType      任务类型
+     * @param streamFactory 基于任务构造输出流
+     * @return 受控的输出流
+     */
+    public <T> Flux<T> track(Long appId, Long userId, String taskType, Function<GenerationTask, Flux<T>> streamFactory) {
+        return Flux.deferContextual(contextView -> {
+            GenerationTask task = register(appId, userId, taskType);
+            contextView.<Consumer<GenerationTask>>getOrEmpty(TASK_LISTENER_KEY).ifPresent(listener -> listener.accept(task));
+            Flux<T> source = streamFactory.apply(task);
+            return Flux.<T>from(subscriber -> {
+                        GenerationTask previous = GenerationTaskHolder.bind(task);
+                        try {
+                            source.subscribe(subscriber);
+                        } finally {
+                            GenerationTaskHolder.restore(previous);
+                        }
+                    })
+                    .doFinally(signalType -> finish(task, signalType));
+        });
+    }
+
+    /**
+     * 构造获取生成任务的订阅上下文
+     * <p>
+     * 下游以 contextWrite 写入后，{@link #track} 在订阅时把本次注册的任务交给监听器，
+     * 同一用户在同一应用下并发生成时也能拿到各自的任务
+     *
+     * @param listener 任务监听器
+     * @return 订阅上下文
+     */
+    public static ContextView taskListener(Consumer<GenerationTask> listener) {
+        return Context.of(TASK_LISTENER_KEY, listener);
+    }
+
+    /**
+     * 取消指定应用下正在进行的生成任务
+     *
+     * @param appId  应用ID
+     * @param userId 用户ID
+     * @return 是否至少取消了一个任务
+     */
+    public boolean cancelByAppId(Long appId, Long userId) {
+        boolean cancelled = false;
+        for (GenerationTask task : activeTasks.values()) {
+            if (task.getAppId().equals(appId)) {
+                cancelled |= cancelTask(task, userId);
+            }
+        }
+        if (!cancelled) {
+            log.warn("未找到要取消的生成任务: appId={}, userId={}", appId, userId);
+        }
+        return cancelled;
+    }
+
+    /**
+     * 检查应用是否有正在进行的任务
+     *
+     * @param appId 应用ID
+     * @return 是否有正在进行的任务
+     */
+    public boolean hasActiveTask(Long appId) {
+        return activeTasks.values().stream().anyMatch(task -> task.getAppId().equals(appId));
+    }
+
+    /**
+     * 获取正在进行的任务数量
+     *
+     * @return 任务数量
+     */
+    public int getActiveTaskCount() {
+        return activeTasks.size();
+    }
+
+    /**
+     * 获取正在进行的任务快照，按开始时间排序
+     *
+     * @return 任务列表
+     */
+    public List<GenerationTaskVO> listActiveTasks() {
+        return activeTasks.values().stream()
+                .sorted(Comparator.comparingLong(GenerationTask::getStartTime))
+                .map(this::toVO)
+                .toList();
+    }
+
+    private GenerationTask register(Long appId, Long userId, String taskType) {
+        GenerationTask task = new GenerationTask(IdUtil.fastSimpleUUID(), appId, userId, taskType);
+        activeTasks.put(task.getGenerationId(), task);
+        log.info("注册生成任务: generationId={}, appId={}, taskType={}, userId={}", task.getGenerationId(), appId, taskType, userId);
+        return task;
+    }
+
+    private boolean cancelTask(GenerationTask task, Long userId) {
+        // 验证用户权限：只有正在生成的用户才能取消
+        if (!task.getUserId().equals(userId)) {
+            log.warn("用户无权限取消生成任务: generationId={}, requestUserId={}, taskUserId={}", task.getGenerationId(), userId, task.getUserId());
+            return false;
+        }
+        if (!task.cancel()) {
+            return false;
+        }
+        // 更新聊天记录状态为手动中断（状态值1）
+        chatHistoryService.updateChatHistoryStatus(task.getAppId(), userId, 1);
+        log.info("成功取消生成任务: generationId={}, appId={}, userId={}", task.getGenerationId(), task.getAppId(), userId);
+        return true;
+    }
+
+    private void finish(GenerationTask task, SignalType signalType) {
+        activeTasks.remove(task.getGenerationId());
+        if (signalType == SignalType.CANCEL) {
+            // 下游取消订阅，中断上游请求
+            task.cancel();
+        }
+        streamMetricsCollector.recordGenerationFinished(task.getTokenCount().get(), task.getByteCount().get(), task.isCancelled());
+        log.info("生成任务结束: generationId={}, appId={}, signal={}, 耗时={}ms, tokens={}, bytes={}",
+                task.getGenerationId(), task.getAppId(), signalType, task.getElapsedMillis(),
+                task.getTokenCount().get(), task.getByteCount().get());
+    }
+
+    private GenerationTaskVO toVO(GenerationTask task) {
+        GenerationTaskVO generationTaskVO = new GenerationTaskVO();
+        generationTaskVO.setGenerationId(task.getGenerationId());
+        generationTaskVO.setAppId(task.getAppId());
+        generationTaskVO.setUserId(task.getUserId());
+        generationTaskVO.setTaskType(task.getTaskType());
+        generationTaskVO.setElapsedMillis(task.getElapsedMillis());
+        generationTaskVO.setTokenCount(task.getTokenCount().get());
+        generationTaskVO.setByteCount(task.getByteCount().get());
+        generationTaskVO.setCancelled(task.isCancelled());
+        return generationTaskVO;
+    }
+}
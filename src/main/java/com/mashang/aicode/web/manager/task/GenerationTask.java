@@ -0,0 +1,123 @@
+package com.mashang.aicode.web.manager.task;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 一次代码生成任务
+ * <p>
+ * 由 {@link GenerationRegistry} 按生成 ID 管理，记录耗时、token 数和字节数；
+ * 取消时依次执行注册的取消回调（关闭上游 HTTP 连接、结束下游流），只会执行一次。
+ */
+@Slf4j
+@Getter
+public class GenerationTask {
+
+    /**
+     * 生成 ID
+     */
+    private final String generationId;
+
+    private final Long appId;
+
+    private final Long userId;
+
+    private final String taskType;
+
+    private final long startTime = System.currentTimeMillis();
+
+    private final AtomicLong tokenCount = new AtomicLong();
+
+    private final AtomicLong byteCount = new AtomicLong();
+
+    private final AtomicBoolean cancelled = new AtomicBoolean();
+
+    private final AtomicBoolean replySaved = new AtomicBoolean();
+
+    private final List<Runnable> cancelHooks = new CopyOnWriteArrayList<>();
+
+    GenerationTask(String generationId, Long appId, Long userId, String taskType) {
+        this.generationId = generationId;
+        this.appId = appId;
+        this.userId = userId;
+        this.taskType = taskType;
+    }
+
+    /**
+     * 记录一个输出片段
+     *
+     * @param chunk 模型输出片段
+     */
+    public void recordChunk(String chunk) {
+        if (chunk == null) {
+            return;
+        }
+        tokenCount.incrementAndGet();
+        byteCount.addAndGet(chunk.getBytes(StandardCharsets.UTF_8).length);
+    }
+
+    /**
+     * 注册取消回调，任务已取消时立即执行
+     *
+     * @param hook 回调
+     * @return 注销回调的句柄
+     */
+    public Runnable onCancel(Runnable hook) {
+        cancelHooks.add(hook);
+        if (cancelled.get() && cancelHooks.remove(hook)) {
+            runQuietly(hook);
+        }
+        return () -> cancelHooks.remove(hook);
+    }
+
+    /**
+     * 取消任务
+     *
+     * @return 本次调用是否真正触发了取消
+     */
+    public boolean cancel() {
+        if (!cancelled.compareAndSet(false, true)) {
+            return false;
+        }
+        for (Runnable hook : cancelHooks) {
+            if (cancelHooks.remove(hook)) {
+                runQuietly(hook);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 标记本次生成的 AI 回复已保存，同一次生成只保存一条回复
+     *
+     * @return 是否首次标记，返回 false 时调用方不应再保存
+     */
+    public boolean markReplySaved() {
+        return replySaved.compareAndSet(false, true);
+    }
+
+    public boolean isCancelled() {
+        return cancelled.get();
+    }
+
+    /**
+     * 已运行时长（毫秒）
+     */
+    public long getElapsedMillis() {
+        return System.currentTimeMillis() - startTime;
+    }
+
+    private void runQuietly(Runnable hook) {
+        try {
+            hook.run();
+        } catch (Exception e) {
+            log.warn("执行取消回调失败: generationId={}, error={}", generationId, e.getMessage());
+        }
+    }
+}
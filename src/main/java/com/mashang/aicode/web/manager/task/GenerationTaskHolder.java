@@ -0,0 +1,46 @@
+package com.mashang.aicode.web.manager.task;
+
+/**
+ * 当前线程正在执行的生成任务
+ * <p>
+ * 模型请求在发起线程上同步进入 HTTP 客户端，借助它把上游连接挂到对应的生成任务上；
+ * 工具调用后的下一轮请求在 HTTP 回调线程发起，由 {@link CancellableHttpClientBuilder} 在回调时重新绑定。
+ */
+public class GenerationTaskHolder {
+
+    private static final ThreadLocal<GenerationTask> TASK_HOLDER = new ThreadLocal<>();
+
+    /**
+     * 绑定任务，返回之前绑定的任务，用于恢复
+     *
+     * @param task 生成任务
+     * @return 之前绑定的任务
+     */
+    public static GenerationTask bind(GenerationTask task) {
+        GenerationTask previous = TASK_HOLDER.get();
+        TASK_HOLDER.set(task);
+        return previous;
+    }
+
+    /**
+     * 恢复之前绑定的任务
+     *
+     * @param previous 之前绑定的任务
+     */
+    public static void restore(GenerationTask previous) {
+        if (previous == null) {
+            TASK_HOLDER.remove();
+        } else {
+            TASK_HOLDER.set(previous);
+        }
+    }
+
+    /**
+     * 获取当前任务
+     *
+     * @return 当前任务，可能为 null
+     */
+    public static GenerationTask getTask() {
+        return TASK_HOLDER.get();
+    }
+}
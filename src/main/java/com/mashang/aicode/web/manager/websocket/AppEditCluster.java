@@ -0,0 +1,487 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import cn.hutool.core.util.IdUtil;
+import cn.hutool.json.JSONObject;
+import cn.hutool.json.JSONUtil;
+import com.mashang.aicode.web.config.AppEditClusterConfig;
+import com.mashang.aicode.web.model.vo.UserVO;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.data.redis.connection.Message;
+import org.springframework.data.redis.connection.MessageListener;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.data.redis.core.script.DefaultRedisScript;
+import org.springframework.data.redis.core.script.RedisScript;
+import org.springframework.data.redis.listener.ChannelTopic;
+import org.springframework.data.redis.listener.RedisMessageListenerContainer;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * 协作编辑多节点同步
+ * <p>
+ * 同一应用的用户可能连接在不同节点上：
+ * <ul>
+ *     <li>消息：每个应用一个 Redis 频道，有本地会话的节点才订阅；本节点广播后发布到频道，其他节点收到后推送给各自的本地会话。
+ *     只有本节点有会话时（不知道其他节点）不发布，保持单节点时的本地路径</li>
+ *     <li>编辑锁：Redis 租约（SET NX + 过期时间），持有节点定期续约；每次加锁从计数器取一个递增的 fencing token，
+ *     编辑相关的消息带上 token，收到比已知 token 更小的消息直接丢弃，租约过期的旧编辑者不会覆盖新编辑者</li>
+ *     <li>在线用户：每个应用一个 Redis Hash，字段为 节点:会话，值带过期时间，各节点定期刷新，合并后得到全部在线用户</li>
+ * </ul>
+ * 未开启或 Redis 不可用时退化为单节点行为。
+ */
+@Slf4j
+@Component
+public class AppEditCluster implements MessageListener {
+
+    private static final String CHANNEL_PREFIX = "app-edit:channel:";
+
+    private static final String PRESENCE_KEY_PREFIX = "app-edit:presence:";
+
+    private static final String LOCK_KEY_PREFIX = "app-edit:lock:";
+
+    private static final String FENCE_KEY_PREFIX = "app-edit:fence:";
+
+    private static final String KIND_MESSAGE = "MESSAGE";
+
+    private static final String KIND_NODE_JOIN = "NODE_JOIN";
+
+    private static final String KIND_NODE_LEAVE = "NODE_LEAVE";
+
+    private static final RedisScript<Long> RENEW_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('expire', KEYS[1], ARGV[2]) else return 0 end",
+            Long.class);
+
+    private static final RedisScript<Long> RELEASE_SCRIPT = new DefaultRedisScript<>(
+            "if redis.call('get', KEYS[1]) == ARGV[1] then return redis.call('del', KEYS[1]) else return 0 end",
+            Long.class);
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RedisMessageListenerContainer redisMessageListenerContainer;
+
+    @Resource
+    private AppEditClusterConfig appEditClusterConfig;
+
+    @Resource
+    @Lazy
+    private AppEditHandler appEditHandler;
+
+    private final String nodeId = IdUtil.fastSimpleUUID();
+
+    /**
+     * 本节点持有的编辑租约，key: appId
+     */
+    private final Map<Long, EditLease> localLeases = new ConcurrentHashMap<>();
+
+    /**
+     * 每个应用已知的最大 fencing token
+     */
+    private final Map<Long, Long> maxFences = new ConcurrentHashMap<>();
+
+    /**
+     * 会话加入、离开时的应用级锁：是否第一个/最后一个本地会话的判断、频道订阅和在线用户更新在同一把锁内完成。
+     * 按 appId 分段，锁对象固定不回收
+     */
+    private final Object[] appLocks = Stream.generate(Object::new).limit(64).toArray();
+
+    /**
+     * 本节点的在线用户，key: appId, value: sessionId -> 用户 JSON，用于定期刷新 Redis 记录；
+     * 有条目即表示本节点订阅了该应用的频道
+     */
+    private final Map<Long, Map<String, String>> localPresence = new ConcurrentHashMap<>();
+
+    /**
+     * 同一应用有会话的其他节点，key: appId, value: nodeId -> 最近一次得知其存在的时间
+     */
+    private final Map<Long, Map<String, Long>> remoteNodes = new ConcurrentHashMap<>();
+
+    /**
+     * 未开启或 Redis 不可用时本地加锁使用的 token
+     */
+    private final AtomicLong localFence = new AtomicLong();
+
+    private final ScheduledExecutorService heartbeatExecutor = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "app-edit-cluster-heartbeat");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    @PostConstruct
+    public void init() {
+        if (!appEditClusterConfig.isEnabled()) {
+            return;
+        }
+        long interval = appEditClusterConfig.getHeartbeatIntervalSeconds();
+        heartbeatExecutor.scheduleWithFixedDelay(this::heartbeat, interval, interval, TimeUnit.SECONDS);
+        log.info("协作编辑多节点同步已开启，nodeId: {}", nodeId);
+    }
+
+    /**
+     * 本节点有会话加入应用，本节点在该应用的第一个会话加入时订阅应用频道
+     *
+     * @param appId     应用ID
+     * @param sessionId 会话ID
+     * @param user      用户信息
+     */
+    public void onLocalJoin(Long appId, String sessionId, UserVO user) {
+        String userJson = JSONUtil.toJsonStr(user);
+        synchronized (appLock(appId)) {
+            Map<String, String> presence = localPresence.computeIfAbsent(appId, k -> new ConcurrentHashMap<>());
+            boolean firstLocalSession = presence.isEmpty();
+            presence.put(sessionId, userJson);
+            if (!appEditClusterConfig.isEnabled()) {
+                return;
+            }
+            try {
+                writePresence(appId, sessionId, userJson);
+                if (firstLocalSession) {
+                    redisMessageListenerContainer.addMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + appId));
+                    refreshRemoteNodes(appId);
+                    publishEnvelope(appId, KIND_NODE_JOIN, null, null, null);
+                }
+            } catch (Exception e) {
+                log.warn("同步在线用户失败，按单节点处理: appId={}, error: {}", appId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 本节点有会话离开应用，本节点在该应用的最后一个会话离开时退订应用频道
+     *
+     * @param appId     应用ID
+     * @param sessionId 会话ID
+     */
+    public void onLocalLeave(Long appId, String sessionId) {
+        synchronized (appLock(appId)) {
+            Map<String, String> presence = localPresence.get(appId);
+            if (presence == null || presence.remove(sessionId) == null) {
+                return;
+            }
+            boolean lastLocalSession = presence.isEmpty();
+            if (lastLocalSession) {
+                localPresence.remove(appId);
+                remoteNodes.remove(appId);
+                maxFences.remove(appId);
+            }
+            if (!appEditClusterConfig.isEnabled()) {
+                return;
+            }
+            try {
+                stringRedisTemplate.opsForHash().delete(PRESENCE_KEY_PREFIX + appId, presenceField(sessionId));
+                if (lastLocalSession) {
+                    publishEnvelope(appId, KIND_NODE_LEAVE, null, null, null);
+                    redisMessageListenerContainer.removeMessageListener(this, new ChannelTopic(CHANNEL_PREFIX + appId));
+                }
+            } catch (Exception e) {
+                log.warn("同步在线用户失败: appId={}, error: {}", appId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 获取应用的在线用户，只有本节点有会话时直接返回本地列表
+     *
+     * @param appId      应用ID
+     * @param localUsers 本节点的在线用户
+     * @return 所有节点的在线用户
+     */
+    public List<UserVO> getOnlineUsers(Long appId, Collection<UserVO> localUsers) {
+        if (!appEditClusterConfig.isEnabled() || !hasRemoteNodes(appId)) {
+            return new ArrayList<>(localUsers);
+        }
+        try {
+            Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(PRESENCE_KEY_PREFIX + appId);
+            long now = System.currentTimeMillis();
+            List<UserVO> users = new ArrayList<>(entries.size());
+            for (Object value : entries.values()) {
+                JSONObject record = JSONUtil.parseObj(String.valueOf(value));
+                if (record.getLong("expireAt", 0L) > now) {
+                    users.add(JSONUtil.toBean(record.getStr("user"), UserVO.class));
+                }
+            }
+            return users;
+        } catch (Exception e) {
+            log.warn("读取在线用户失败，只返回本节点用户: appId={}, error: {}", appId, e.getMessage());
+            return new ArrayList<>(localUsers);
+        }
+    }
+
+    /**
+     * 把本节点已广播的消息发布给其他节点，没有其他节点时不发布
+     *
+     * @param appId        应用ID
+     * @param payload      已序列化的消息
+     * @param recordAction 需要记入编辑历史的编辑动作，可为 null
+     * @param fence        编辑者的 fencing token，非编辑消息为 null
+     */
+    public void publish(Long appId, String payload, String recordAction, Long fence) {
+        if (!appEditClusterConfig.isEnabled() || !hasRemoteNodes(appId)) {
+            return;
+        }
+        try {
+            publishEnvelope(appId, KIND_MESSAGE, payload, recordAction, fence);
+        } catch (Exception e) {
+            log.warn("发布协作消息失败: appId={}, error: {}", appId, e.getMessage());
+        }
+    }
+
+    /**
+     * 尝试获取编辑锁
+     *
+     * @return 是否由该用户在本节点持有
+     */
+    public boolean tryAcquireEditLock(Long appId, Long userId) {
+        EditLease current = localLeases.get(appId);
+        if (current != null) {
+            return current.userId().equals(userId);
+        }
+        if (appEditClusterConfig.isEnabled()) {
+            try {
+                Long fence = stringRedisTemplate.opsForValue().increment(FENCE_KEY_PREFIX + appId);
+                String value = userId + ":" + nodeId + ":" + fence;
+                Boolean acquired = stringRedisTemplate.opsForValue().setIfAbsent(LOCK_KEY_PREFIX + appId, value,
+                        Duration.ofSeconds(appEditClusterConfig.getLeaseTtlSeconds()));
+                if (Boolean.TRUE.equals(acquired)) {
+                    localLeases.put(appId, new EditLease(userId, fence, value));
+                    maxFences.merge(appId, fence, Math::max);
+                    return true;
+                }
+                return false;
+            } catch (Exception e) {
+                log.warn("获取分布式编辑锁失败，改用本地锁: appId={}, error: {}", appId, e.getMessage());
+            }
+        }
+        EditLease lease = new EditLease(userId, localFence.incrementAndGet(), null);
+        EditLease existing = localLeases.putIfAbsent(appId, lease);
+        return existing == null || existing.userId().equals(userId);
+    }
+
+    /**
+     * 该用户是否在本节点持有编辑锁
+     */
+    public boolean isEditing(Long appId, Long userId) {
+        EditLease lease = localLeases.get(appId);
+        return lease != null && lease.userId().equals(userId);
+    }
+
+    /**
+     * 当前编辑者的用户ID，没有编辑者时返回 null
+     */
+    public Long getEditingUserId(Long appId) {
+        EditLease lease = localLeases.get(appId);
+        if (lease != null) {
+            return lease.userId();
+        }
+        if (!appEditClusterConfig.isEnabled()) {
+            return null;
+        }
+        try {
+            String value = stringRedisTemplate.opsForValue().get(LOCK_KEY_PREFIX + appId);
+            return value == null ? null : Long.valueOf(value.substring(0, value.indexOf(':')));
+        } catch (Exception e) {
+            log.warn("读取编辑锁失败: appId={}, error: {}", appId, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * 本节点持有的编辑锁的 fencing token
+     */
+    public Long getFence(Long appId) {
+        EditLease lease = localLeases.get(appId);
+        return lease == null ? null : lease.fence();
+    }
+
+    /**
+     * 释放编辑锁，只释放该用户在本节点持有的锁
+     */
+    public void releaseEditLock(Long appId, Long userId) {
+        EditLease lease = localLeases.get(appId);
+        if (lease == null || !lease.userId().equals(userId) || !localLeases.remove(appId, lease)) {
+            return;
+        }
+        if (lease.lockValue() != null) {
+            try {
+                stringRedisTemplate.execute(RELEASE_SCRIPT, List.of(LOCK_KEY_PREFIX + appId), lease.lockValue());
+            } catch (Exception e) {
+                log.warn("释放分布式编辑锁失败，等待租约到期: appId={}, error: {}", appId, e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * 接收其他节点发布的消息
+     */
+    @Override
+    public void onMessage(Message message, byte[] pattern) {
+        try {
+            JSONObject envelope = JSONUtil.parseObj(new String(message.getBody(), StandardCharsets.UTF_8));
+            String sender = envelope.getStr("nodeId");
+            Long appId = envelope.getLong("appId");
+            if (nodeId.equals(sender) || appId == null) {
+                return;
+            }
+            String kind = envelope.getStr("kind");
+            if (KIND_NODE_LEAVE.equals(kind)) {
+                Map<String, Long> nodes = remoteNodes.get(appId);
+                if (nodes != null) {
+                    nodes.remove(sender);
+                }
+                return;
+            }
+            remoteNodes.computeIfAbsent(appId, k -> new ConcurrentHashMap<>()).put(sender, System.currentTimeMillis());
+            if (!KIND_MESSAGE.equals(kind)) {
+                return;
+            }
+            Long fence = envelope.getLong("fence");
+            if (fence != null && fence < maxFences.merge(appId, fence, Math::max)) {
+                log.info("丢弃过期编辑者的消息: appId={}, fence={}", appId, fence);
+                return;
+            }
+            appEditHandler.deliverRemoteMessage(appId, envelope.getStr("payload"), envelope.getStr("recordAction"));
+        } catch (Exception e) {
+            log.error("处理其他节点的协作消息失败: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 续约编辑锁、刷新本节点在线用户，并清理宕机节点留下的记录
+     */
+    private void heartbeat() {
+        try {
+            String ttl = String.valueOf(appEditClusterConfig.getLeaseTtlSeconds());
+            localLeases.forEach((appId, lease) -> {
+                if (lease.lockValue() == null) {
+                    return;
+                }
+                Long renewed = stringRedisTemplate.execute(RENEW_SCRIPT, List.of(LOCK_KEY_PREFIX + appId), lease.lockValue(), ttl);
+                if (renewed == null || renewed == 0) {
+                    localLeases.remove(appId, lease);
+                    log.warn("编辑锁租约已失效: appId={}, userId={}", appId, lease.userId());
+                }
+            });
+            localPresence.forEach((appId, sessions) -> {
+                sessions.forEach((sessionId, userJson) -> writePresence(appId, sessionId, userJson));
+                refreshRemoteNodes(appId);
+            });
+        } catch (Exception e) {
+            log.warn("协作编辑心跳失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 从在线用户记录中重新计算其他节点，顺带删除已过期的记录
+     */
+    private void refreshRemoteNodes(Long appId) {
+        String key = PRESENCE_KEY_PREFIX + appId;
+        Map<Object, Object> entries = stringRedisTemplate.opsForHash().entries(key);
+        long now = System.currentTimeMillis();
+        Map<String, Long> nodes = new ConcurrentHashMap<>();
+        List<Object> expired = new ArrayList<>();
+        entries.forEach((field, value) -> {
+            if (JSONUtil.parseObj(String.valueOf(value)).getLong("expireAt", 0L) <= now) {
+                expired.add(field);
+                return;
+            }
+            String owner = String.valueOf(field);
+            owner = owner.substring(0, owner.indexOf(':'));
+            if (!nodeId.equals(owner)) {
+                nodes.put(owner, now);
+            }
+        });
+        if (!expired.isEmpty()) {
+            stringRedisTemplate.opsForHash().delete(key, expired.toArray());
+        }
+        if (localPresence.containsKey(appId)) {
+            remoteNodes.put(appId, nodes);
+        }
+    }
+
+    private void writePresence(Long appId, String sessionId, String userJson) {
+        String key = PRESENCE_KEY_PREFIX + appId;
+        long ttlMillis = TimeUnit.SECONDS.toMillis(appEditClusterConfig.getPresenceTtlSeconds());
+        JSONObject record = new JSONObject();
+        record.set("expireAt", System.currentTimeMillis() + ttlMillis);
+        record.set("user", userJson);
+        stringRedisTemplate.opsForHash().put(key, presenceField(sessionId), record.toString());
+        // 所有节点都离开后整个 Hash 自然过期
+        stringRedisTemplate.expire(key, Duration.ofMillis(ttlMillis * 2));
+    }
+
+    private void publishEnvelope(Long appId, String kind, String payload, String recordAction, Long fence) {
+        JSONObject envelope = new JSONObject();
+        envelope.set("nodeId", nodeId);
+        envelope.set("appId", appId);
+        envelope.set("kind", kind);
+        envelope.set("payload", payload);
+        envelope.set("recordAction", recordAction);
+        envelope.set("fence", fence);
+        stringRedisTemplate.convertAndSend(CHANNEL_PREFIX + appId, envelope.toString());
+    }
+
+    private boolean hasRemoteNodes(Long appId) {
+        Map<String, Long> nodes = remoteNodes.get(appId);
+        return nodes != null && !nodes.isEmpty();
+    }
+
+    private Object appLock(Long appId) {
+        return appLocks[Math.floorMod(appId.hashCode(), appLocks.length)];
+    }
+
+    private String presenceField(String sessionId) {
+        return nodeId + ":" + sessionId;
+    }
+
+    /**
+     * 停机时释放本节点持有的编辑锁和在线用户记录
+     */
+    @PreDestroy
+    public void destroy() {
+        heartbeatExecutor.shutdownNow();
+        if (!appEditClusterConfig.isEnabled()) {
+            return;
+        }
+        try {
+            localLeases.forEach((appId, lease) -> releaseEditLock(appId, lease.userId()));
+            Set<Long> appIds = localPresence.keySet();
+            for (Long appId : appIds) {
+                Map<String, String> sessions = localPresence.get(appId);
+                if (sessions != null && !sessions.isEmpty()) {
+                    stringRedisTemplate.opsForHash().delete(PRESENCE_KEY_PREFIX + appId,
+                            sessions.keySet().stream().map(this::presenceField).toArray());
+                }
+            }
+        } catch (Exception e) {
+            log.warn("清理协作编辑状态失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 编辑锁租约
+     *
+     * @param userId    编辑者
+     * @param fence     fencing token
+     * @param lockValue Redis 中的锁值，本地锁为 null
+     */
+    private record EditLease(Long userId, Long fence, String lockValue) {
+    }
+}
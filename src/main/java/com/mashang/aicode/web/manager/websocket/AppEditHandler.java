@@ -5,6 +5,8 @@ import cn.hutool.json.JSONUtil;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.mashang.aicode.web.ai.core.AiCodeGeneratorFacade;
+import com.mashang.aicode.web.config.AppEditConflationConfig;
+import com.mashang.aicode.web.config.AppEditHistoryConfig;
 import com.mashang.aicode.web.manager.disruptor.AppEditEventProducer;
 import com.mashang.aicode.web.manager.websocket.model.enums.DialogueMessageTypeEnum;
 import com.mashang.aicode.web.manager.websocket.model.DialogueRequestMessage;
@@ -14,19 +16,25 @@ import com.mashang.aicode.web.mapper.UserMapper;
 import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.model.vo.UserVO;
 import com.mashang.aicode.web.service.UserService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
 import jakarta.annotation.Resource;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.extern.slf4j.Slf4j;
 import org.apache.commons.lang3.exception.ExceptionUtils;
 import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
 import org.springframework.web.socket.TextMessage;
 import org.springframework.web.socket.WebSocketSession;
 import org.springframework.web.socket.handler.TextWebSocketHandler;
 
-import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
 
 /**
  * 应用编辑 WebSocket 处理器
@@ -36,6 +44,9 @@ import java.util.concurrent.ConcurrentHashMap;
  * 2. 同一应用只能有一个用户处于编辑状态
  * 3. 编辑操作会实时广播给所有连接的用户
  * 4. 新加入的用户可以看到之前的编辑记录
+ * 5. 消息通过 {@link WebSocketFanout} 异步推送，慢客户端不会阻塞其他用户
+ * 6. 多节点部署时通过 {@link AppEditCluster} 同步消息、编辑锁和在线用户
+ * 7. 触摸、选择元素这类高频事件在合并窗口内只推送每个用户的最新一条
  * <p>
  * 使用场景：
  * - 多个用户同时查看同一个应用
@@ -46,15 +57,6 @@ import java.util.concurrent.ConcurrentHashMap;
 @Component
 public class AppEditHandler extends TextWebSocketHandler {
 
-    /**
-     * 记录每个应用的编辑状态
-     * key: 应用ID (appId)
-     * value: 当前正在编辑该应用的用户ID
-     * <p>
-     * 说明：同一时间只有一个用户可以编辑某个应用
-     */
-    private final Map<Long, Long> appEditingUsers = new ConcurrentHashMap<>();
-
     /**
      * 保存所有连接的 WebSocket 会话
      * key: 应用ID (appId)
@@ -67,11 +69,35 @@ public class AppEditHandler extends TextWebSocketHandler {
     /**
      * 保存每个应用的编辑记录
      * key: 应用ID (appId)
-     * value: 该应用的所有编辑操作记录（消息列表）
+     * value: 该应用的编辑历史（快照 + 最近记录，有上限）
      * <p>
-     * 说明：新加入的用户可以看到之前的编辑历史
+     * 说明：新加入的用户可以看到之前的编辑历史；应用没有在线用户且空闲超过 TTL 后清理
+     */
+    private final Map<Long, AppEditHistory> appEditHistories = new ConcurrentHashMap<>();
+
+    /**
+     * 每个应用的在线用户
+     * key: 应用ID (appId)
+     * value: sessionId -> 用户信息，在连接建立和关闭时增量维护
+     */
+    private final Map<Long, Map<String, UserVO>> appPresence = new ConcurrentHashMap<>();
+
+    /**
+     * 每个应用待合并推送的触摸、选择元素事件
      */
-    private final Map<Long, List<TextMessage>> appEditRecodes = new ConcurrentHashMap<>();
+    private final Map<Long, ConflationBuffer> conflationBuffers = new ConcurrentHashMap<>();
+
+    private final ScheduledExecutorService conflationFlusher = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "app-edit-conflation-flusher");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final ScheduledExecutorService idleSweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+        Thread thread = new Thread(r, "app-edit-history-sweeper");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     @Resource
     private UserMapper userDAO;
@@ -88,6 +114,33 @@ public class AppEditHandler extends TextWebSocketHandler {
     @Resource
     private AiCodeGeneratorFacade aiCodeGeneratorFacade;
 
+    @Resource
+    private WebSocketFanout webSocketFanout;
+
+    @Resource
+    private AppEditHistoryConfig appEditHistoryConfig;
+
+    @Resource
+    private AppEditConflationConfig appEditConflationConfig;
+
+    /**
+     * 编辑锁（同一时间只有一个用户可以编辑某个应用）、跨节点消息和在线用户
+     */
+    @Resource
+    private AppEditCluster appEditCluster;
+
+    @PostConstruct
+    public void init() {
+        long interval = appEditHistoryConfig.getSweepIntervalSeconds();
+        idleSweeper.scheduleWithFixedDelay(this::evictIdleApps, interval, interval, TimeUnit.SECONDS);
+    }
+
+    @PreDestroy
+    public void destroy() {
+        idleSweeper.shutdownNow();
+        conflationFlusher.shutdownNow();
+    }
+
     /**
      * WebSocket 连接建立成功后的回调方法
      * <p>
@@ -107,16 +160,22 @@ public class AppEditHandler extends TextWebSocketHandler {
         Long appId = (Long) session.getAttributes().get("appId");
 
         // 将该用户的会话添加到应用的会话集合中
-        // computeIfAbsent: 如果该应用还没有会话集合，则创建一个新的
-        appSessions.computeIfAbsent(appId, k -> ConcurrentHashMap.newKeySet());
-        appSessions.get(appId).add(session);
+        // compute: 如果该应用还没有会话集合，则创建一个新的；与空闲清理互斥
+        appSessions.compute(appId, (k, sessions) -> {
+            Set<WebSocketSession> sessionSet = sessions == null ? ConcurrentHashMap.newKeySet() : sessions;
+            sessionSet.add(session);
+            return sessionSet;
+        });
+        UserVO userVO = userService.getUserVO(user);
+        appPresence.computeIfAbsent(appId, k -> new ConcurrentHashMap<>()).put(session.getId(), userVO);
+        appEditCluster.onLocalJoin(appId, session.getId(), userVO);
 
         // 构造"用户加入"的消息，包含在线用户列表
         DialogueResponseMessage appEditResponseMessage = new DialogueResponseMessage();
         appEditResponseMessage.setType(DialogueMessageTypeEnum.INFO.getValue());
         String message = String.format("%s加入编辑", user.getUserName());
         appEditResponseMessage.setMessage(message);
-        appEditResponseMessage.setUser(userService.getUserVO(user));
+        appEditResponseMessage.setUser(userVO);
 
         // 获取在线用户列表
         List<UserVO> onlineUsersList = getOnlineUsers(appId);
@@ -125,13 +184,19 @@ public class AppEditHandler extends TextWebSocketHandler {
         log.info("用户 {} 加入应用 {}，当前在线用户数: {}", user.getUserName(), appId, onlineUsersList.size());
 
         TextMessage textMessage = getTextMessage(appEditResponseMessage);
-        log.info("发送消息内容: {}", textMessage.getPayload());
+        log.debug("发送消息内容: {}", textMessage.getPayload());
 
         // 向所有连接到该应用的用户广播"用户加入"消息
         broadcastToApp(appId, textMessage);
 
-        // 向新加入的用户发送该应用的历史编辑记录
-        broadcastToOneUser(appId, appEditRecodes.get(appId), session);
+        // 向新加入的用户发送该应用的历史编辑记录（一个批量消息帧）
+        AppEditHistory history = appEditHistories.get(appId);
+        if (history != null) {
+            TextMessage replayFrame = history.getReplayFrame(this::getBatchTextMessage);
+            if (replayFrame != null) {
+                broadcastToOneUser(appId, Collections.singletonList(replayFrame), session);
+            }
+        }
     }
 
     /**
@@ -150,15 +215,112 @@ public class AppEditHandler extends TextWebSocketHandler {
     protected void handleTextMessage(WebSocketSession session, TextMessage message) {
         // 将消息解析为 PictureEditMessage
         DialogueRequestMessage appEditRequestMessage = JSONUtil.toBean(message.getPayload(), DialogueRequestMessage.class);
+        log.debug("客户端消息 = {}", message);
+        handleClientMessage(session, appEditRequestMessage);
+    }
+
+    /**
+     * 处理已解析的客户端消息，多路复用连接的频道消息也从这里进入
+     *
+     * @param session              会话（多路复用连接中为对应频道的会话）
+     * @param appEditRequestMessage 客户端消息
+     */
+    void handleClientMessage(WebSocketSession session, DialogueRequestMessage appEditRequestMessage) {
         // 从 Session 属性中获取公共参数
         Map<String, Object> attributes = session.getAttributes();
         User user = (User) attributes.get("user");
         Long appId = (Long) attributes.get("appId");
-        log.info("客户端消息 = {}", message);
         // 生产消息
         appEditEventProducer.publishEvent(appEditRequestMessage, session, user, appId);
     }
 
+    /**
+     * WebSocket 连接关闭后的回调方法
+     * <p>
+     * 移除该会话及其发送缓冲区；该应用没有用户连接时清理历史记录
+     *
+     * @param session WebSocket 会话对象
+     * @param status  关闭状态
+     */
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Long appId = (Long) session.getAttributes().get("appId");
+        User user = (User) session.getAttributes().get("user");
+        webSocketFanout.remove(session);
+        if (appId == null) {
+            return;
+        }
+        removeSession(appId, session);
+        // 编辑者断开后释放编辑锁，经事件队列处理以保持与该应用其他事件的顺序
+        if (user != null && appEditCluster.isEditing(appId, user.getId()) && !hasOtherSession(appId, user.getId())) {
+            DialogueRequestMessage exitMessage = new DialogueRequestMessage();
+            exitMessage.setType(DialogueMessageTypeEnum.EXIT_EDIT.getValue());
+            appEditEventProducer.publishEvent(exitMessage, session, user, appId);
+        }
+    }
+
+    private boolean hasOtherSession(Long appId, Long userId) {
+        Set<WebSocketSession> sessionSet = appSessions.get(appId);
+        if (sessionSet == null) {
+            return false;
+        }
+        return sessionSet.stream().anyMatch(other -> {
+            User otherUser = (User) other.getAttributes().get("user");
+            return other.isOpen() && otherUser != null && userId.equals(otherUser.getId());
+        });
+    }
+
+    /**
+     * 从应用中移除会话和在线用户，应用没有用户连接时历史记录转为空闲，超过 TTL 后清理
+     */
+    private void removeSession(Long appId, WebSocketSession session) {
+        boolean[] lastLocalSession = new boolean[1];
+        // 与加入、空闲清理互斥地判断是否最后一个会话
+        appSessions.computeIfPresent(appId, (k, sessions) -> {
+            lastLocalSession[0] = sessions.remove(session) && sessions.isEmpty();
+            return sessions;
+        });
+        if (lastLocalSession[0]) {
+            webSocketFanout.removeApp(appId);
+        }
+        appEditCluster.onLocalLeave(appId, session.getId());
+        Map<String, UserVO> presence = appPresence.get(appId);
+        if (presence != null) {
+            presence.remove(session.getId());
+        }
+        AppEditHistory history = appEditHistories.get(appId);
+        if (history != null) {
+            history.touch();
+        }
+    }
+
+    /**
+     * 清理没有在线用户且空闲超过 TTL 的应用
+     */
+    private void evictIdleApps() {
+        try {
+            long expireBefore = System.currentTimeMillis() - TimeUnit.SECONDS.toMillis(appEditHistoryConfig.getIdleTtlSeconds());
+            Set<Long> appIds = new HashSet<>(appSessions.keySet());
+            appIds.addAll(appEditHistories.keySet());
+            for (Long appId : appIds) {
+                AppEditHistory history = appEditHistories.get(appId);
+                if (history != null && history.getLastActiveMillis() > expireBefore) {
+                    continue;
+                }
+                // 只有会话集合为空时才移除，与新用户加入互斥
+                Set<WebSocketSession> remaining = appSessions.computeIfPresent(appId, (k, sessions) -> sessions.isEmpty() ? null : sessions);
+                if (remaining == null) {
+                    appEditHistories.remove(appId);
+                    conflationBuffers.remove(appId);
+                    appPresence.computeIfPresent(appId, (k, presence) -> presence.isEmpty() ? null : presence);
+                    log.info("清理空闲应用的协作编辑状态: appId={}", appId);
+                }
+            }
+        } catch (Exception e) {
+            log.error("清理空闲应用失败: {}", e.getMessage(), e);
+        }
+    }
+
     /**
      * 处理"进入编辑"请求
      * <p>
@@ -174,11 +336,8 @@ public class AppEditHandler extends TextWebSocketHandler {
         User user = appEditContext.getUser();
         Long appId = appEditContext.getAppId();
 
-        // 检查该应用是否已有用户在编辑
-        if (!appEditingUsers.containsKey(appId)) {
-            // 没有用户在编辑，将当前用户设置为编辑者
-            appEditingUsers.put(appId, user.getId());
-
+        // 检查该应用是否已有用户在编辑，没有则将当前用户设置为编辑者
+        if (!appEditCluster.isEditing(appId, user.getId()) && appEditCluster.tryAcquireEditLock(appId, user.getId())) {
             // 构造"开始编辑"的消息
             DialogueResponseMessage appEditResponseMessage = new DialogueResponseMessage();
             appEditResponseMessage.setType(DialogueMessageTypeEnum.ENTER_EDIT.getValue());
@@ -188,11 +347,11 @@ public class AppEditHandler extends TextWebSocketHandler {
             TextMessage textMessage = getTextMessage(appEditResponseMessage);
 
             // 向所有用户广播"开始编辑"消息
-            broadcastToApp(appId, textMessage);
+            broadcastToApp(appId, textMessage, null, null, appEditCluster.getFence(appId));
         }
 
         // 如果当前用户不是编辑者，则发送错误消息
-        if (!Objects.equals(appEditingUsers.get(appId), user.getId())) {
+        if (!appEditCluster.isEditing(appId, user.getId())) {
             handleEditErrorMessage(user, appId, appEditContext.getSession());
         }
     }
@@ -211,13 +370,14 @@ public class AppEditHandler extends TextWebSocketHandler {
      */
     private void handleEditErrorMessage(User user, Long appId, WebSocketSession sendSession) throws Exception {
         // 获取当前正在编辑的用户ID
-        Long editUserId = appEditingUsers.get(appId);
-        User editUser = userDAO.selectById(editUserId);
+        Long editUserId = appEditCluster.getEditingUserId(appId);
+        User editUser = editUserId == null ? null : userDAO.selectById(editUserId);
+        String editUserName = editUser == null ? "其他用户" : editUser.getUserName();
 
         // 构造错误消息
         DialogueResponseMessage appEditResponseMessage = new DialogueResponseMessage();
         appEditResponseMessage.setType(DialogueMessageTypeEnum.ERROR.getValue());
-        appEditResponseMessage.setMessage(String.format("操作失败 %s 正在操作", editUser.getUserName()));
+        appEditResponseMessage.setMessage(String.format("操作失败 %s 正在操作", editUserName));
         appEditResponseMessage.setUser(userService.getUserVO(user));
 
         // 只向请求用户发送错误消息
@@ -240,7 +400,6 @@ public class AppEditHandler extends TextWebSocketHandler {
         WebSocketSession session = appEditContext.getSession();
         User user = appEditContext.getUser();
         Long appId = appEditContext.getAppId();
-        Long editingUserId = appEditingUsers.get(appId);
         String editAction = appEditRequestMessage.getEditAction();
         EditActionEnum actionEnum = EditActionEnum.getEnumByValue(editAction);
 
@@ -250,7 +409,7 @@ public class AppEditHandler extends TextWebSocketHandler {
         }
 
         // 验证当前用户是否是编辑者
-        if (editingUserId != null && editingUserId.equals(user.getId())) {
+        if (appEditCluster.isEditing(appId, user.getId())) {
             // 构造编辑操作消息
             DialogueResponseMessage appEditResponseMessage = new DialogueResponseMessage();
             appEditResponseMessage.setType(DialogueMessageTypeEnum.EDIT_ACTION.getValue());
@@ -262,17 +421,40 @@ public class AppEditHandler extends TextWebSocketHandler {
 
             // 向除了当前编辑者之外的所有用户广播编辑操作
             // 注意：不发送给编辑者自己，否则会造成重复编辑
-            broadcastToApp(appId, textMessage, session);
+            broadcastToApp(appId, textMessage, session, editAction, appEditCluster.getFence(appId));
 
             // 将编辑操作保存到历史记录中，供新加入的用户查看
-            DialogueResponseMessage saveDialogueResponseMessage = new DialogueResponseMessage();
-            saveDialogueResponseMessage.setType(DialogueMessageTypeEnum.EDIT_ACTION.getValue());
-            saveDialogueResponseMessage.setEditAction(editAction);
-
-            // 获取该应用的历史记录列表，如果没有则创建
-            List<TextMessage> list = appEditRecodes.computeIfAbsent(appId, k -> new ArrayList<>());
-            // 将新的编辑操作添加到历史记录中
-            list.add(getTextMessage(saveDialogueResponseMessage));
+            recordEditAction(appId, editAction);
+        }
+    }
+
+    /**
+     * 将编辑操作保存到应用的历史记录中
+     */
+    private void recordEditAction(Long appId, String editAction) {
+        DialogueResponseMessage saveDialogueResponseMessage = new DialogueResponseMessage();
+        saveDialogueResponseMessage.setType(DialogueMessageTypeEnum.EDIT_ACTION.getValue());
+        saveDialogueResponseMessage.setEditAction(editAction);
+
+        // 获取该应用的历史记录，如果没有则创建；超出上限的记录会合并进快照
+        appEditHistories.computeIfAbsent(appId, k -> new AppEditHistory(appEditHistoryConfig.getMaxDeltas()))
+                .append(saveDialogueResponseMessage);
+    }
+
+    /**
+     * 推送其他节点发布的消息给本节点的会话
+     *
+     * @param appId        应用ID
+     * @param payload      已序列化的消息
+     * @param recordAction 需要记入编辑历史的编辑动作，可为 null
+     */
+    public void deliverRemoteMessage(Long appId, String payload, String recordAction) {
+        Set<WebSocketSession> sessionSet = appSessions.get(appId);
+        if (CollUtil.isNotEmpty(sessionSet)) {
+            webSocketFanout.broadcast(appId, sessionSet, new TextMessage(payload), null);
+        }
+        if (recordAction != null) {
+            recordEditAction(appId, recordAction);
         }
     }
 
@@ -292,10 +474,9 @@ public class AppEditHandler extends TextWebSocketHandler {
         try {
             User user = appEditContext.getUser();
             appId = appEditContext.getAppId();
-            Long editingUserId = appEditingUsers.get(appId);
 
             // 检查当前用户是否是编辑者
-            if (editingUserId != null && editingUserId.equals(user.getId())) {
+            if (appEditCluster.isEditing(appId, user.getId())) {
                 // 构造"退出编辑"消息
                 DialogueResponseMessage appEditResponseMessage = new DialogueResponseMessage();
                 appEditResponseMessage.setType(DialogueMessageTypeEnum.EXIT_EDIT.getValue());
@@ -305,28 +486,25 @@ public class AppEditHandler extends TextWebSocketHandler {
                 TextMessage textMessage = getTextMessage(appEditResponseMessage);
 
                 // 向所有用户广播"退出编辑"消息
-                broadcastToApp(appId, textMessage);
+                broadcastToApp(appId, textMessage, null, null, appEditCluster.getFence(appId));
 
                 // 移除该应用的编辑状态
-                appEditingUsers.remove(appId);
+                appEditCluster.releaseEditLock(appId, user.getId());
             }
 
-            // 从会话集合中移除该用户的会话
-            appSessions.get(appId).remove(appEditContext.getSession());
+            // 从会话集合中移除该用户的会话，没有用户连接的应用由空闲清理回收
+            removeSession(appId, appEditContext.getSession());
 
         } catch (Exception e) {
             log.error("AppEditHandler#handleExitEditMessage {}", ExceptionUtils.getRootCauseMessage(e));
             throw new RuntimeException(e);
-        } finally {
-            // 如果该应用没有用户连接了，则清理历史记录，防止内存泄露
-            if (appSessions.get(appId).isEmpty()) {
-                appEditRecodes.remove(appId);
-            }
         }
     }
 
     /**
      * 向应用的所有用户广播消息
+     * <p>
+     * 消息已序列化为同一个 TextMessage，放入各会话的发送缓冲区后立即返回
      *
      * @param appId          应用ID
      * @param textMessage    要广播的消息
@@ -334,19 +512,56 @@ public class AppEditHandler extends TextWebSocketHandler {
      * @throws Exception 异常
      */
     private void broadcastToApp(Long appId, TextMessage textMessage, WebSocketSession excludeSession) throws Exception {
+        broadcastToApp(appId, textMessage, excludeSession, null, null);
+    }
+
+    /**
+     * 向应用的所有用户广播消息，并发布给该应用有会话的其他节点
+     *
+     * @param appId          应用ID
+     * @param textMessage    要广播的消息
+     * @param excludeSession 要排除的会话（不向该会话发送消息）
+     * @param recordAction   其他节点需要记入编辑历史的编辑动作，可为 null
+     * @param fence          编辑者的 fencing token，非编辑消息为 null
+     */
+    private void broadcastToApp(Long appId, TextMessage textMessage, WebSocketSession excludeSession,
+                                String recordAction, Long fence) throws JsonProcessingException {
+        ConflationBuffer buffer = conflationBuffers.get(appId);
+        if (buffer == null) {
+            doBroadcastToApp(appId, textMessage, excludeSession, recordAction, fence);
+            return;
+        }
+        // 先推送窗口内尚未推送的合并事件，保证与其他消息的先后顺序
+        synchronized (buffer) {
+            flushConflated(appId, buffer);
+            doBroadcastToApp(appId, textMessage, excludeSession, recordAction, fence);
+        }
+    }
+
+    private void doBroadcastToApp(Long appId, TextMessage textMessage, WebSocketSession excludeSession,
+                                  String recordAction, Long fence) {
         //获取当前应用中的所有会话组
         Set<WebSocketSession> sessionSet = appSessions.get(appId);
         if (CollUtil.isNotEmpty(sessionSet)) {
-            for (WebSocketSession session : sessionSet) {
-                // 跳过要排除的会话
-                if (excludeSession != null && excludeSession.equals(session)) {
-                    continue;
-                }
-                // 只向打开的会话发送消息
-                if (session.isOpen()) {
-                    session.sendMessage(textMessage);
-                }
-            }
+            webSocketFanout.broadcast(appId, sessionSet, textMessage, excludeSession);
+        }
+        appEditCluster.publish(appId, textMessage.getPayload(), recordAction, fence);
+    }
+
+    /**
+     * 将多条消息合并为一个批量消息帧
+     *
+     * @param messages 按顺序处理的消息
+     * @return WebSocket 文本消息
+     */
+    private TextMessage getBatchTextMessage(List<DialogueResponseMessage> messages) {
+        DialogueResponseMessage batchMessage = new DialogueResponseMessage();
+        batchMessage.setType(DialogueMessageTypeEnum.BATCH.getValue());
+        batchMessage.setMessages(messages);
+        try {
+            return getTextMessage(batchMessage);
+        } catch (JsonProcessingException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
@@ -390,20 +605,10 @@ public class AppEditHandler extends TextWebSocketHandler {
                 return;
             }
 
-            // 遍历所有消息，发送给目标用户
-            textMessages.forEach(textMessage -> {
-                for (WebSocketSession session : sessionSet) {
-                    // 只向目标用户发送消息
-                    if (session.isOpen() && session.equals(sendSession)) {
-                        try {
-                            session.sendMessage(textMessage);
-                        } catch (IOException e) {
-                            log.error("AppEditHandler#broadcastToOneUser {}", ExceptionUtils.getRootCauseMessage(e));
-                            throw new RuntimeException(e);
-                        }
-                    }
-                }
-            });
+            // 只向目标用户发送消息，按顺序放入其发送缓冲区
+            if (sessionSet.contains(sendSession)) {
+                textMessages.forEach(textMessage -> webSocketFanout.send(appId, sendSession, textMessage));
+            }
         }
     }
 
@@ -414,21 +619,8 @@ public class AppEditHandler extends TextWebSocketHandler {
      * @return 在线用户列表
      */
     private List<UserVO> getOnlineUsers(Long appId) {
-        Set<WebSocketSession> sessionSet = appSessions.get(appId);
-        if (CollUtil.isEmpty(sessionSet)) {
-            return new ArrayList<>();
-        }
-
-        List<UserVO> onlineUsersList = new ArrayList<>();
-        for (WebSocketSession session : sessionSet) {
-            if (session.isOpen()) {
-                User user = (User) session.getAttributes().get("user");
-                if (user != null) {
-                    onlineUsersList.add(userService.getUserVO(user));
-                }
-            }
-        }
-        return onlineUsersList;
+        Map<String, UserVO> presence = appPresence.get(appId);
+        return appEditCluster.getOnlineUsers(appId, presence == null ? Collections.emptyList() : presence.values());
     }
 
     /**
@@ -473,10 +665,9 @@ public class AppEditHandler extends TextWebSocketHandler {
         appEditResponseMessage.setMessage(message);
         appEditResponseMessage.setUser(userService.getUserVO(user));
         appEditResponseMessage.setElement(requestMessage.getElement());
-        TextMessage textMessage = getTextMessage(appEditResponseMessage);
-        log.info("触摸广播 = {}", textMessage);
-        // 向所有用户广播
-        broadcastToApp(appId, textMessage);
+
+        // 合并后向所有用户广播
+        conflate(appId, user.getId(), appEditResponseMessage);
     }
 
     /**
@@ -497,10 +688,57 @@ public class AppEditHandler extends TextWebSocketHandler {
         appEditResponseMessage.setMessage(message);
         appEditResponseMessage.setUser(userService.getUserVO(user));
         appEditResponseMessage.setElement(requestMessage.getElement());
-        TextMessage textMessage = getTextMessage(appEditResponseMessage);
 
-        // 向所有用户广播
-        broadcastToApp(appId, textMessage);
+        // 合并后向所有用户广播
+        conflate(appId, user.getId(), appEditResponseMessage);
+    }
+
+    /**
+     * 合并高频事件：窗口内同一用户的同类事件只保留最后一条，窗口结束时作为一个批量消息帧推送
+     *
+     * @param appId   应用ID
+     * @param userId  用户ID
+     * @param message 待推送的消息
+     * @throws Exception 异常
+     */
+    private void conflate(Long appId, Long userId, DialogueResponseMessage message) throws Exception {
+        if (!appEditConflationConfig.isEnabled()) {
+            broadcastToApp(appId, getTextMessage(message));
+            return;
+        }
+        ConflationBuffer buffer = conflationBuffers.computeIfAbsent(appId, k -> new ConflationBuffer());
+        if (buffer.put(userId + ":" + message.getType(), message)) {
+            conflationFlusher.schedule(() -> flushConflated(appId), appEditConflationConfig.getWindowMillis(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    /**
+     * 合并窗口结束，推送该应用待合并的事件
+     */
+    private void flushConflated(Long appId) {
+        ConflationBuffer buffer = conflationBuffers.get(appId);
+        if (buffer == null) {
+            return;
+        }
+        try {
+            synchronized (buffer) {
+                flushConflated(appId, buffer);
+            }
+        } catch (Exception e) {
+            log.error("推送合并事件失败: appId={}, error: {}", appId, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 推送待合并的事件，调用方需持有 buffer 的锁
+     */
+    private void flushConflated(Long appId, ConflationBuffer buffer) throws JsonProcessingException {
+        List<DialogueResponseMessage> messages = buffer.drain();
+        if (messages.isEmpty()) {
+            return;
+        }
+        TextMessage textMessage = messages.size() == 1 ? getTextMessage(messages.get(0)) : getBatchTextMessage(messages);
+        doBroadcastToApp(appId, textMessage, null, null, null);
     }
 
     /**
@@ -590,7 +828,7 @@ public class AppEditHandler extends TextWebSocketHandler {
      * @throws Exception 异常
      */
     public void broadcastAiResponse(Long appId, User user, String message) throws Exception {
-        log.info("开始广播 AI 回复，appId: {}, userId: {}, message: {}", appId, user.getId(), message);
+        log.debug("开始广播 AI 回复，appId: {}, userId: {}, message: {}", appId, user.getId(), message);
         // 构造 AI 回复消息
         DialogueResponseMessage appEditResponseMessage = new DialogueResponseMessage();
         appEditResponseMessage.setType(DialogueMessageTypeEnum.AI_RESPONSE.getValue());
@@ -600,7 +838,7 @@ public class AppEditHandler extends TextWebSocketHandler {
 
         // 向所有用户广播
         broadcastToApp(appId, textMessage);
-        log.info("广播 AI 回复完成，appId: {}", appId);
+        log.debug("广播 AI 回复完成，appId: {}", appId);
     }
 
     /**
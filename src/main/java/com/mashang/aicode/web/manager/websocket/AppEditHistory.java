@@ -0,0 +1,94 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import com.mashang.aicode.web.manager.websocket.model.DialogueResponseMessage;
+import com.mashang.aicode.web.manager.websocket.model.enums.EditActionEnum;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+/**
+ * 单个应用的协作编辑历史
+ * <p>
+ * 由快照和最近记录两部分组成：最近记录最多保留 maxDeltas 条，溢出的记录按编辑动作合并进快照（每种动作只保留最后一条）。
+ * 触摸、选择这类状态型动作只有最后一次有意义，追加时直接替换之前的同类记录。
+ * 回放内容序列化为一个批量消息帧并缓存，历史变化前所有新加入的用户共用同一帧。
+ */
+public class AppEditHistory {
+
+    /**
+     * 只保留最新一条的状态型动作
+     */
+    private static final Set<String> STATE_ACTIONS = Set.of(
+            EditActionEnum.HOVER_ELEMENT.getValue(), EditActionEnum.SELECT_ELEMENT.getValue());
+
+    private final int maxDeltas;
+
+    /**
+     * key: 编辑动作, value: 该动作被合并的最后一条记录
+     */
+    private final Map<String, DialogueResponseMessage> snapshot = new LinkedHashMap<>();
+
+    private final Deque<DialogueResponseMessage> deltas = new ArrayDeque<>();
+
+    private TextMessage replayFrame;
+
+    private volatile long lastActiveMillis = System.currentTimeMillis();
+
+    public AppEditHistory(int maxDeltas) {
+        this.maxDeltas = Math.max(maxDeltas, 1);
+    }
+
+    /**
+     * 追加一条编辑记录
+     */
+    public synchronized void append(DialogueResponseMessage record) {
+        String editAction = record.getEditAction();
+        if (STATE_ACTIONS.contains(editAction)) {
+            deltas.removeIf(delta -> editAction.equals(delta.getEditAction()));
+            snapshot.remove(editAction);
+        }
+        deltas.addLast(record);
+        while (deltas.size() > maxDeltas) {
+            DialogueResponseMessage compacted = deltas.pollFirst();
+            // 先移除再放入，让快照保持最近合并的顺序
+            snapshot.remove(compacted.getEditAction());
+            snapshot.put(compacted.getEditAction(), compacted);
+        }
+        replayFrame = null;
+        touch();
+    }
+
+    /**
+     * 获取回放帧，历史未变化时返回缓存
+     *
+     * @param serializer 把快照和最近记录序列化为一个批量消息帧
+     * @return 回放帧，没有历史时返回 null
+     */
+    public synchronized TextMessage getReplayFrame(Function<List<DialogueResponseMessage>, TextMessage> serializer) {
+        if (snapshot.isEmpty() && deltas.isEmpty()) {
+            return null;
+        }
+        if (replayFrame == null) {
+            List<DialogueResponseMessage> messages = new ArrayList<>(snapshot.size() + deltas.size());
+            messages.addAll(snapshot.values());
+            messages.addAll(deltas);
+            replayFrame = serializer.apply(messages);
+        }
+        return replayFrame;
+    }
+
+    public void touch() {
+        lastActiveMillis = System.currentTimeMillis();
+    }
+
+    public long getLastActiveMillis() {
+        return lastActiveMillis;
+    }
+}
@@ -0,0 +1,83 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.WebSocketSessionDecorator;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多路复用连接中的单个应用频道
+ * <p>
+ * 对 {@link AppEditHandler} 表现为一个普通会话：有自己的 ID 和属性（user、userId、appId），
+ * 发送的消息由 {@link MuxFrameCodec} 加上频道号后写入底层连接。底层连接已做并发发送保护。
+ */
+class ChannelSession extends WebSocketSessionDecorator {
+
+    private final Long appId;
+
+    private final boolean binary;
+
+    private final MuxFrameCodec muxFrameCodec;
+
+    private final Map<String, Object> attributes = new ConcurrentHashMap<>();
+
+    private volatile boolean open = true;
+
+    ChannelSession(WebSocketSession connection, Long appId, boolean binary, MuxFrameCodec muxFrameCodec) {
+        super(connection);
+        this.appId = appId;
+        this.binary = binary;
+        this.muxFrameCodec = muxFrameCodec;
+        attributes.put("user", connection.getAttributes().get("user"));
+        attributes.put("userId", connection.getAttributes().get("userId"));
+        attributes.put("appId", appId);
+    }
+
+    @Override
+    public String getId() {
+        return getDelegate().getId() + ":" + appId;
+    }
+
+    @Override
+    public Map<String, Object> getAttributes() {
+        return attributes;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return open && getDelegate().isOpen();
+    }
+
+    @Override
+    public void sendMessage(WebSocketMessage<?> message) throws IOException {
+        if (!(message instanceof TextMessage textMessage)) {
+            throw new IllegalArgumentException("频道只支持发送文本消息");
+        }
+        getDelegate().sendMessage(muxFrameCodec.encode(appId, textMessage, binary));
+    }
+
+    /**
+     * 关闭频道会话意味着连接已不可用（如发送超时），直接关闭底层连接，由连接关闭回调清理所有频道
+     */
+    @Override
+    public void close(CloseStatus status) throws IOException {
+        open = false;
+        getDelegate().close(status);
+    }
+
+    /**
+     * 取消订阅时只标记频道关闭，不影响底层连接
+     */
+    void markClosed() {
+        open = false;
+    }
+
+    Long getAppId() {
+        return appId;
+    }
+}
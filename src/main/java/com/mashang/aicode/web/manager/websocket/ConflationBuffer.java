@@ -0,0 +1,42 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import com.mashang.aicode.web.manager.websocket.model.DialogueResponseMessage;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 单个应用待推送的高频事件
+ * <p>
+ * key 为 用户ID:消息类型，同一 key 只保留最新一条，按首次出现的顺序推送。
+ * 调用方在推送时持有该对象的锁，保证与同一应用其他消息的推送顺序。
+ */
+class ConflationBuffer {
+
+    private final Map<String, DialogueResponseMessage> pending = new LinkedHashMap<>();
+
+    /**
+     * 放入事件，覆盖同一用户的同类事件
+     *
+     * @return 放入前是否为空（为空时调用方需要安排一次推送）
+     */
+    synchronized boolean put(String key, DialogueResponseMessage message) {
+        boolean wasEmpty = pending.isEmpty();
+        pending.put(key, message);
+        return wasEmpty;
+    }
+
+    /**
+     * 取出全部待推送事件
+     */
+    synchronized List<DialogueResponseMessage> drain() {
+        if (pending.isEmpty()) {
+            return List.of();
+        }
+        List<DialogueResponseMessage> messages = new ArrayList<>(pending.values());
+        pending.clear();
+        return messages;
+    }
+}
@@ -0,0 +1,200 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.mashang.aicode.web.config.WebSocketMuxConfig;
+import com.mashang.aicode.web.manager.websocket.model.DialogueRequestMessage;
+import com.mashang.aicode.web.model.entity.User;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+import org.springframework.web.socket.WebSocketSession;
+import org.springframework.web.socket.handler.AbstractWebSocketHandler;
+import org.springframework.web.socket.handler.ConcurrentWebSocketSessionDecorator;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 多路复用 WebSocket 处理器
+ * <p>
+ * 每个客户端只建立一个连接（握手时认证一次），通过订阅帧加入多个应用的协同编辑：
+ * <pre>
+ * {"op": "subscribe", "channel": 应用ID}
+ * {"op": "unsubscribe", "channel": 应用ID}
+ * {"op": "message", "channel": 应用ID, "type": ..., "editAction": ..., ...}
+ * </pre>
+ * 每个订阅对应一个 {@link ChannelSession}，交给 {@link AppEditHandler} 按普通会话处理，协同逻辑完全复用。
+ * 下行消息带 channel 字段区分应用。握手参数 encoding=cbor 时上下行均使用 CBOR 二进制帧。
+ */
+@Slf4j
+@Component
+public class MultiplexWebSocketHandler extends AbstractWebSocketHandler {
+
+    private static final String OP_SUBSCRIBE = "subscribe";
+
+    private static final String OP_UNSUBSCRIBE = "unsubscribe";
+
+    private static final String OP_MESSAGE = "message";
+
+    @Resource
+    private AppEditHandler appEditHandler;
+
+    @Resource
+    private WsHandshakeInterceptor wsHandshakeInterceptor;
+
+    @Resource
+    private MuxFrameCodec muxFrameCodec;
+
+    @Resource
+    private WebSocketMuxConfig webSocketMuxConfig;
+
+    /**
+     * key: 底层连接 ID
+     */
+    private final Map<String, Connection> connections = new ConcurrentHashMap<>();
+
+    @Override
+    public void afterConnectionEstablished(WebSocketSession session) {
+        // 多个频道的发送线程共用一个连接，用装饰器串行发送
+        WebSocketSession concurrentSession = new ConcurrentWebSocketSessionDecorator(session,
+                webSocketMuxConfig.getSendTimeLimitMillis(), webSocketMuxConfig.getBufferSizeLimitBytes(),
+                ConcurrentWebSocketSessionDecorator.OverflowStrategy.TERMINATE);
+        boolean binary = "cbor".equalsIgnoreCase(String.valueOf(session.getAttributes().get("encoding")));
+        connections.put(session.getId(), new Connection(concurrentSession, binary));
+        User user = (User) session.getAttributes().get("user");
+        log.info("多路复用连接已建立: userId={}, encoding={}", user.getId(), binary ? "cbor" : "json");
+    }
+
+    @Override
+    protected void handleTextMessage(WebSocketSession session, TextMessage message) {
+        handleFrame(session, message);
+    }
+
+    @Override
+    protected void handleBinaryMessage(WebSocketSession session, BinaryMessage message) {
+        handleFrame(session, message);
+    }
+
+    private void handleFrame(WebSocketSession session, WebSocketMessage<?> message) {
+        Connection connection = connections.get(session.getId());
+        if (connection == null) {
+            return;
+        }
+        Long channel = null;
+        try {
+            JsonNode frame = muxFrameCodec.decode(message);
+            String op = frame.path("op").asText(OP_MESSAGE);
+            channel = frame.hasNonNull("channel") ? frame.get("channel").asLong() : null;
+            if (channel == null) {
+                sendControl(connection, "error", null, "缺少 channel");
+                return;
+            }
+            switch (op) {
+                case OP_SUBSCRIBE -> subscribe(connection, channel);
+                case OP_UNSUBSCRIBE -> unsubscribe(connection, channel, CloseStatus.NORMAL);
+                case OP_MESSAGE -> {
+                    ChannelSession channelSession = connection.channels.get(channel);
+                    if (channelSession == null) {
+                        sendControl(connection, "error", channel, "未订阅该应用");
+                        return;
+                    }
+                    ObjectNode body = ((ObjectNode) frame).deepCopy();
+                    body.remove("op");
+                    body.remove("channel");
+                    DialogueRequestMessage request = muxFrameCodec.getObjectMapper().treeToValue(body, DialogueRequestMessage.class);
+                    appEditHandler.handleClientMessage(channelSession, request);
+                }
+                default -> sendControl(connection, "error", channel, "不支持的操作: " + op);
+            }
+        } catch (Exception e) {
+            log.error("处理多路复用帧失败: sessionId={}, error: {}", session.getId(), e.getMessage());
+            sendControl(connection, "error", channel, "消息格式错误");
+        }
+    }
+
+    private void subscribe(Connection connection, Long appId) throws Exception {
+        if (connection.channels.containsKey(appId)) {
+            sendControl(connection, "subscribed", appId, null);
+            return;
+        }
+        if (connection.channels.size() >= webSocketMuxConfig.getMaxChannelsPerConnection()) {
+            sendControl(connection, "error", appId, "订阅的应用过多");
+            return;
+        }
+        User user = (User) connection.session.getAttributes().get("user");
+        if (!wsHandshakeInterceptor.canAccessApp(user, appId)) {
+            sendControl(connection, "error", appId, "无权限协同编辑该应用");
+            return;
+        }
+        ChannelSession channelSession = new ChannelSession(connection.session, appId, connection.binary, muxFrameCodec);
+        if (connection.channels.putIfAbsent(appId, channelSession) != null) {
+            return;
+        }
+        // 先确认订阅，再由协同处理器推送加入消息和历史记录
+        sendControl(connection, "subscribed", appId, null);
+        appEditHandler.afterConnectionEstablished(channelSession);
+    }
+
+    private void unsubscribe(Connection connection, Long appId, CloseStatus status) {
+        ChannelSession channelSession = connection.channels.remove(appId);
+        if (channelSession == null) {
+            return;
+        }
+        channelSession.markClosed();
+        appEditHandler.afterConnectionClosed(channelSession, status);
+        if (connection.session.isOpen()) {
+            sendControl(connection, "unsubscribed", appId, null);
+        }
+    }
+
+    @Override
+    public void afterConnectionClosed(WebSocketSession session, CloseStatus status) {
+        Connection connection = connections.remove(session.getId());
+        if (connection == null) {
+            return;
+        }
+        connection.channels.keySet().forEach(appId -> unsubscribe(connection, appId, status));
+    }
+
+    @Override
+    public void handleTransportError(WebSocketSession session, Throwable exception) {
+        log.warn("多路复用连接传输错误: sessionId={}, error: {}", session.getId(), exception.getMessage());
+    }
+
+    private void sendControl(Connection connection, String op, Long channel, String message) {
+        ObjectNode frame = muxFrameCodec.getObjectMapper().createObjectNode().put("op", op);
+        if (channel != null) {
+            frame.put("channel", channel);
+        }
+        if (message != null) {
+            frame.put("message", message);
+        }
+        try {
+            connection.session.sendMessage(muxFrameCodec.encodeControl(frame, connection.binary));
+        } catch (Exception e) {
+            log.warn("发送控制帧失败: {}", e.getMessage());
+        }
+    }
+
+    /**
+     * 底层连接及其订阅的频道
+     */
+    private static class Connection {
+
+        private final WebSocketSession session;
+
+        private final boolean binary;
+
+        private final Map<Long, ChannelSession> channels = new ConcurrentHashMap<>();
+
+        private Connection(WebSocketSession session, boolean binary) {
+            this.session = session;
+            this.binary = binary;
+        }
+    }
+}
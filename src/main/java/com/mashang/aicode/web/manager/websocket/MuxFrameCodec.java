@@ -0,0 +1,101 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.fasterxml.jackson.dataformat.cbor.databind.CBORMapper;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import jakarta.annotation.Resource;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.BinaryMessage;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketMessage;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 多路复用连接的帧编解码
+ * <p>
+ * 服务端下行帧是原消息加上 channel（appId）字段；上行帧为 {"op": "subscribe" | "unsubscribe" | "message", "channel": appId, ...}，
+ * message 帧的其余字段即原有的协同消息。帧可以是 JSON 文本或 CBOR 二进制，由连接握手参数 encoding 决定。
+ * <p>
+ * 同一条广播消息只属于一个频道，编码结果按消息对象缓存，广播给多个连接时只编码一次。
+ */
+@Component
+public class MuxFrameCodec {
+
+    @Resource
+    private ObjectMapper objectMapper;
+
+    private final CBORMapper cborMapper = new CBORMapper();
+
+    /**
+     * 按消息对象（引用相等）缓存编码结果
+     */
+    private final Cache<TextMessage, WebSocketMessage<?>> jsonFrames = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(4096)
+            .build();
+
+    private final Cache<TextMessage, WebSocketMessage<?>> cborFrames = Caffeine.newBuilder()
+            .weakKeys()
+            .maximumSize(4096)
+            .build();
+
+    /**
+     * 解析上行帧
+     */
+    public JsonNode decode(WebSocketMessage<?> message) throws IOException {
+        if (message instanceof BinaryMessage binaryMessage) {
+            ByteBuffer buffer = binaryMessage.getPayload().duplicate();
+            byte[] bytes = new byte[buffer.remaining()];
+            buffer.get(bytes);
+            return cborMapper.readTree(bytes);
+        }
+        return objectMapper.readTree(((TextMessage) message).getPayload());
+    }
+
+    /**
+     * 把协同消息编码为频道帧
+     *
+     * @param appId   频道（应用ID）
+     * @param message 已序列化的协同消息（JSON 对象）
+     * @param binary  是否使用 CBOR
+     */
+    public WebSocketMessage<?> encode(Long appId, TextMessage message, boolean binary) {
+        if (binary) {
+            return cborFrames.get(message, k -> {
+                try {
+                    ObjectNode frame = objectMapper.createObjectNode().put("channel", appId);
+                    frame.setAll((ObjectNode) objectMapper.readTree(k.getPayload()));
+                    return new BinaryMessage(cborMapper.writeValueAsBytes(frame));
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+        }
+        return jsonFrames.get(message, k -> {
+            String payload = k.getPayload();
+            // 直接在 JSON 对象开头插入 channel 字段，不重新解析
+            String body = payload.substring(1).trim();
+            return new TextMessage("{\"channel\":" + appId + (body.equals("}") ? "" : ",") + body);
+        });
+    }
+
+    /**
+     * 编码控制帧（订阅结果、错误等）
+     */
+    public WebSocketMessage<?> encodeControl(ObjectNode frame, boolean binary) throws IOException {
+        if (binary) {
+            return new BinaryMessage(cborMapper.writeValueAsBytes(frame));
+        }
+        return new TextMessage(objectMapper.writeValueAsString(frame));
+    }
+
+    public ObjectMapper getObjectMapper() {
+        return objectMapper;
+    }
+}
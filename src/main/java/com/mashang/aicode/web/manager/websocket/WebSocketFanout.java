@@ -0,0 +1,205 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import com.mashang.aicode.web.config.WebSocketFanoutConfig;
+import com.mashang.aicode.web.monitor.CollaborationMetricsCollector;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Collection;
+import java.util.Deque;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协作编辑 WebSocket 推送
+ * <p>
+ * 每个会话一个有界发送缓冲区，调用方（Disruptor 消费线程、AI 流式输出线程）只负责入队，立即返回；
+ * 缓冲区由虚拟线程异步逐条发送，同一会话同一时间只有一个线程在发送，不会并发调用 sendMessage。
+ * 慢客户端只会积压自己的缓冲区：超出上限时按配置丢弃最早的消息或断开连接，单条发送超时同样断开。
+ */
+@Slf4j
+@Component
+public class WebSocketFanout {
+
+    private static final String OVERFLOW_DISCONNECT = "disconnect";
+
+    @Resource
+    private WebSocketFanoutConfig webSocketFanoutConfig;
+
+    @Resource
+    private CollaborationMetricsCollector collaborationMetricsCollector;
+
+    /**
+     * key: sessionId
+     */
+    private final Map<String, SendBuffer> sendBuffers = new ConcurrentHashMap<>();
+
+    private final ExecutorService sendExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 向应用内的会话广播，消息只序列化一次，由调用方传入
+     *
+     * @param appId          应用ID
+     * @param sessions       目标会话
+     * @param textMessage    消息
+     * @param excludeSession 要排除的会话，可为 null
+     */
+    public void broadcast(Long appId, Collection<WebSocketSession> sessions, TextMessage textMessage, WebSocketSession excludeSession) {
+        for (WebSocketSession session : sessions) {
+            if (session != excludeSession) {
+                send(appId, session, textMessage);
+            }
+        }
+    }
+
+    /**
+     * 向单个会话发送消息（入队后立即返回）
+     */
+    public void send(Long appId, WebSocketSession session, TextMessage textMessage) {
+        if (!session.isOpen()) {
+            return;
+        }
+        SendBuffer buffer = sendBuffers.computeIfAbsent(session.getId(), id -> new SendBuffer(appId, session));
+        long now = System.nanoTime();
+        long sendStart = buffer.sendStartNanos;
+        if (sendStart != 0 && now - sendStart > TimeUnit.MILLISECONDS.toNanos(webSocketFanoutConfig.getSendTimeLimitMillis())) {
+            disconnect(buffer, "发送超时");
+            return;
+        }
+        boolean overflow = false;
+        boolean startDrain = false;
+        synchronized (buffer) {
+            buffer.queue.addLast(new PendingMessage(textMessage, now));
+            buffer.bufferedBytes += textMessage.getPayloadLength();
+            while (buffer.queue.size() > 1 && (buffer.queue.size() > webSocketFanoutConfig.getBufferMaxMessages()
+                    || buffer.bufferedBytes > webSocketFanoutConfig.getBufferSizeLimitBytes())) {
+                if (OVERFLOW_DISCONNECT.equals(webSocketFanoutConfig.getOverflowStrategy())) {
+                    overflow = true;
+                    break;
+                }
+                PendingMessage dropped = buffer.queue.pollFirst();
+                buffer.bufferedBytes -= dropped.message().getPayloadLength();
+                collaborationMetricsCollector.recordFanoutDropped();
+            }
+            if (!overflow && !buffer.draining) {
+                buffer.draining = true;
+                startDrain = true;
+            }
+        }
+        if (overflow) {
+            disconnect(buffer, "发送缓冲区已满");
+        } else if (startDrain) {
+            sendExecutor.execute(() -> drain(buffer));
+        }
+    }
+
+    /**
+     * 会话关闭后释放其发送缓冲区
+     */
+    public void remove(WebSocketSession session) {
+        SendBuffer buffer = sendBuffers.remove(session.getId());
+        if (buffer != null) {
+            synchronized (buffer) {
+                buffer.queue.clear();
+                buffer.bufferedBytes = 0;
+            }
+        }
+    }
+
+    /**
+     * 应用已没有在线会话，释放该应用的监控指标
+     */
+    public void removeApp(Long appId) {
+        collaborationMetricsCollector.removeApp(appId);
+    }
+
+    private void drain(SendBuffer buffer) {
+        while (true) {
+            PendingMessage pending;
+            synchronized (buffer) {
+                pending = buffer.queue.pollFirst();
+                if (pending == null || !buffer.session.isOpen()) {
+                    buffer.queue.clear();
+                    buffer.bufferedBytes = 0;
+                    buffer.draining = false;
+                    return;
+                }
+                buffer.bufferedBytes -= pending.message().getPayloadLength();
+            }
+            buffer.sendStartNanos = System.nanoTime();
+            try {
+                buffer.session.sendMessage(pending.message());
+                collaborationMetricsCollector.recordFanoutLatency(buffer.appId, System.nanoTime() - pending.enqueuedNanos());
+            } catch (IOException | IllegalStateException e) {
+                log.warn("WebSocket 消息发送失败，断开会话: sessionId={}, error: {}", buffer.session.getId(), e.getMessage());
+                synchronized (buffer) {
+                    buffer.draining = false;
+                }
+                disconnect(buffer, "发送失败");
+                return;
+            } finally {
+                buffer.sendStartNanos = 0;
+            }
+        }
+    }
+
+    private void disconnect(SendBuffer buffer, String reason) {
+        if (sendBuffers.remove(buffer.session.getId(), buffer)) {
+            log.warn("慢客户端已断开: appId={}, sessionId={}, 原因: {}", buffer.appId, buffer.session.getId(), reason);
+            collaborationMetricsCollector.recordSlowConsumerDisconnected();
+        }
+        synchronized (buffer) {
+            buffer.queue.clear();
+            buffer.bufferedBytes = 0;
+        }
+        try {
+            buffer.session.close(CloseStatus.SESSION_NOT_RELIABLE);
+        } catch (IOException e) {
+            log.debug("关闭 WebSocket 会话失败: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        sendExecutor.shutdownNow();
+    }
+
+    /**
+     * 单个会话的发送缓冲区，队列和计数由自身加锁保护
+     */
+    private static class SendBuffer {
+
+        private final Long appId;
+
+        private final WebSocketSession session;
+
+        private final Deque<PendingMessage> queue = new ArrayDeque<>();
+
+        private long bufferedBytes;
+
+        private boolean draining;
+
+        /**
+         * 当前这条消息开始发送的时间，空闲时为 0
+         */
+        private volatile long sendStartNanos;
+
+        private SendBuffer(Long appId, WebSocketSession session) {
+            this.appId = appId;
+            this.session = session;
+        }
+    }
+
+    private record PendingMessage(TextMessage message, long enqueuedNanos) {
+    }
+}
@@ -21,6 +21,7 @@ import org.springframework.http.server.ServerHttpResponse;
 import org.springframework.http.server.ServletServerHttpRequest;
 import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.handler.WebSocketHandlerDecorator;
 import org.springframework.web.socket.server.HandshakeInterceptor;
 
 import java.util.List;
@@ -44,6 +45,8 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
 
     /**
      * websocket握手前处理
+     * <p>
+     * 多路复用连接只在握手时认证一次，应用权限在订阅频道时通过 {@link #canAccessApp(User, Long)} 校验
      * @param request
      * @param response
      * @param wsHandler
@@ -54,9 +57,11 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
     public boolean beforeHandshake(@NotNull ServerHttpRequest request, @NotNull ServerHttpResponse response, @NotNull WebSocketHandler wsHandler, @NotNull Map<String, Object> attributes) {
         if (request instanceof ServletServerHttpRequest) {
             HttpServletRequest servletRequest = ((ServletServerHttpRequest) request).getServletRequest();
+            // 注册的处理器会被 Spring 包装成 ExceptionWebSocketHandlerDecorator 等装饰器，需要先解包
+            boolean multiplex = WebSocketHandlerDecorator.unwrap(wsHandler) instanceof MultiplexWebSocketHandler;
             // 获取请求参数
             String appId = servletRequest.getParameter("appId");
-            if (StrUtil.isBlank(appId)) {
+            if (!multiplex && StrUtil.isBlank(appId)) {
                 log.error("缺少应用参数，拒绝握手");
                 return false;
             }
@@ -73,40 +78,59 @@ public class WsHandshakeInterceptor implements HandshakeInterceptor {
                 log.error("用户未登录，拒绝握手");
                 return false;
             }
-            // 校验用户是否有该应用的权限
-            App app = appService.getById(appId);
-            if (app == null) {
-                log.error("应用不存在，拒绝握手");
-                return false;
-            }
-            Long spaceId = app.getSpaceId();
-            Space space = null;
-            if (spaceId != null) {
-                space = spaceService.getById(spaceId);
-                if (space == null) {
-                    log.error("空间不存在，拒绝握手");
-                    return false;
-                }
-                if (space.getSpaceType() != SpaceTypeEnum.TEAM.getValue()) {
-                    log.info("不是团队空间，拒绝握手");
-                    return false;
-                }
-                // 校验用户是否是空间成员
-                List<String> permissionList = spaceUserAuthManager.getPermissionList(space, loginUser);
-                if (permissionList.isEmpty()) {
-                    log.error("不是空间成员，拒绝握手");
-                    return false;
-                }
-            }
             // 设置 attributes
             attributes.put("user", loginUser);
             attributes.put("userId", loginUser.getId());
+            if (multiplex) {
+                // 帧编码：json（默认）或 cbor
+                attributes.put("encoding", StrUtil.blankToDefault(servletRequest.getParameter("encoding"), "json"));
+                return true;
+            }
+            // 校验用户是否有该应用的权限
+            if (!canAccessApp(loginUser, Long.valueOf(appId))) {
+                return false;
+            }
             // 记得转换为 Long 类型
             attributes.put("appId", Long.valueOf(appId));
         }
         return true;
     }
 
+    /**
+     * 校验用户是否可以协同编辑该应用
+     *
+     * @param loginUser 登录用户
+     * @param appId     应用ID
+     * @return 是否有权限
+     */
+    public boolean canAccessApp(User loginUser, Long appId) {
+        App app = appService.getById(appId);
+        if (app == null) {
+            log.error("应用不存在，拒绝握手");
+            return false;
+        }
+        Long spaceId = app.getSpaceId();
+        Space space = null;
+        if (spaceId != null) {
+            space = spaceService.getById(spaceId);
+            if (space == null) {
+                log.error("空间不存在，拒绝握手");
+                return false;
+            }
+            if (space.getSpaceType() != SpaceTypeEnum.TEAM.getValue()) {
+                log.info("不是团队空间，拒绝握手");
+                return false;
+            }
+            // 校验用户是否是空间成员
+            List<String> permissionList = spaceUserAuthManager.getPermissionList(space, loginUser);
+            if (permissionList.isEmpty()) {
+                log.error("不是空间成员，拒绝握手");
+                return false;
+            }
+        }
+        return true;
+    }
+
     @Override
     public void afterHandshake(@NotNull ServerHttpRequest request, @NotNull ServerHttpResponse response, @NotNull WebSocketHandler wsHandler, Exception exception) {
     }
@@ -41,4 +41,9 @@ public class DialogueResponseMessage {
      * 元素信息（用于协同编辑）
      */
     private Object element;
+
+    /**
+     * 批量消息中包含的消息，按顺序处理
+     */
+    private List<DialogueResponseMessage> messages;
 }
@@ -19,7 +19,8 @@ public enum DialogueMessageTypeEnum {
     SELECT_ELEMENT("选择元素", "选择元素"),
     CLEAR_ELEMENT("清除元素", "清除元素"),
     DEPLOY_PROJECT("部署项目", "部署项目"),
-    STOP_RESPONSE("停止回复", "停止回复");
+    STOP_RESPONSE("停止回复", "停止回复"),
+    BATCH("批量消息", "批量消息");
 
     private final String text;
     private final String value;
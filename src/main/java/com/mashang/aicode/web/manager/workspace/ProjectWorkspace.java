@@ -0,0 +1,418 @@
+package com.mashang.aicode.web.manager.workspace;
+
+import cn.hutool.crypto.digest.DigestUtil;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.WatchKey;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 项目工作区
+ * <p>
+ * 一个生成项目目录（code_output/{类型}_{appId}）的读写入口，由 {@link ProjectWorkspaceManager} 创建和复用：
+ * <ul>
+ *     <li>目录索引：相对路径 → 大小、修改时间、内容哈希（读过内容后才有），首次使用时扫描一次，
+ *     之后由工作区自身的写入和目录监听增量更新，列目录不再遍历磁盘</li>
+ *     <li>文件内容：读取时先取文件属性，大小和修改时间与缓存一致时直接返回缓存内容</li>
+ * </ul>
+ * 依赖目录、构建产物等（{@link #IGNORED_DIRS}）不进入索引，但仍可按路径读取。
+ * 所有路径都必须位于项目目录内。
+ */
+@Slf4j
+public class ProjectWorkspace implements WorkspaceView {
+
+    /**
+     * 不进入索引、也不监听的目录
+     */
+    public static final Set<String> IGNORED_DIRS = Set.of(
+            "node_modules", ".git", "dist", "build", "target", ".mvn", ".idea", ".vscode", "coverage");
+
+    /**
+     * 修改时间的可信窗口：缓存时文件刚被修改过的，同一毫秒内可能再次被修改，下次读取时重新读盘
+     */
+    private static final long RACY_WINDOW_MILLIS = 1000;
+
+    private final Path root;
+
+    private final ProjectWorkspaceManager manager;
+
+    private final ConcurrentSkipListMap<String, FileMeta> index = new ConcurrentSkipListMap<>();
+
+    private final List<WatchKey> watchKeys = new CopyOnWriteArrayList<>();
+
+    private final Object scanLock = new Object();
+
+    private volatile boolean indexed;
+
+    private volatile boolean watched;
+
+    /**
+     * 已从管理器移除：仍被调用方持有时继续可用，但不再注册目录监听，改为定期重新扫描
+     */
+    private volatile boolean retired;
+
+    private volatile long indexedAt;
+
+    /**
+     * 索引中的文件信息
+     *
+     * @param size         字节数
+     * @param lastModified 修改时间（毫秒）
+     * @param hash         内容 SHA-256，尚未读取过内容时为 null
+     */
+    public record FileMeta(long size, long lastModified, String hash) {
+    }
+
+    /**
+     * 缓存的文件内容
+     */
+    record CachedContent(long size, long lastModified, long cachedAt, String content, String hash) {
+    }
+
+    ProjectWorkspace(Path root, ProjectWorkspaceManager manager) {
+        this.root = root;
+        this.manager = manager;
+    }
+
+    @Override
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * 项目目录是否存在
+     */
+    @Override
+    public boolean exists() {
+        return Files.isDirectory(root);
+    }
+
+    /**
+     * 列出项目中的所有文件（不含 {@link #IGNORED_DIRS}），按相对路径排序，分隔符统一为 /
+     */
+    @Override
+    public List<String> listFiles() {
+        ensureIndexed();
+        return List.copyOf(index.keySet());
+    }
+
+    /**
+     * 列出指定目录下的所有文件（含子目录），返回相对项目根目录的路径
+     *
+     * @param relativeDir 目录相对路径，为空表示整个项目
+     */
+    @Override
+    public List<String> listFiles(String relativeDir) {
+        String prefix = toRelative(resolve(relativeDir));
+        if (prefix.isEmpty()) {
+            return listFiles();
+        }
+        ensureIndexed();
+        return List.copyOf(index.subMap(prefix + "/", prefix + "/\uffff").keySet());
+    }
+
+    /**
+     * 获取索引中的文件信息
+     *
+     * @return 文件不存在或被忽略时返回 null
+     */
+    public FileMeta getFileMeta(String relativePath) {
+        ensureIndexed();
+        return index.get(toRelative(resolve(relativePath)));
+    }
+
+    @Override
+    public boolean exists(String relativePath) {
+        return Files.exists(resolve(relativePath));
+    }
+
+    @Override
+    public boolean isFile(String relativePath) {
+        return Files.isRegularFile(resolve(relativePath));
+    }
+
+    @Override
+    public boolean isDirectory(String relativePath) {
+        return Files.isDirectory(resolve(relativePath));
+    }
+
+    /**
+     * 读取文件内容（UTF-8）
+     *
+     * @return 文件不存在或不是普通文件时返回 null
+     */
+    @Override
+    public String readString(String relativePath) throws IOException {
+        Path path = resolve(relativePath);
+        BasicFileAttributes attributes;
+        try {
+            attributes = Files.readAttributes(path, BasicFileAttributes.class);
+        } catch (NoSuchFileException e) {
+            return null;
+        }
+        if (!attributes.isRegularFile()) {
+            return null;
+        }
+        long lastModified = attributes.lastModifiedTime().toMillis();
+        CachedContent cached = manager.getCachedContent(path);
+        if (cached != null && cached.size() == attributes.size() && cached.lastModified() == lastModified
+                && cached.cachedAt() - lastModified > RACY_WINDOW_MILLIS) {
+            return cached.content();
+        }
+        byte[] bytes = Files.readAllBytes(path);
+        String content = new String(bytes, StandardCharsets.UTF_8);
+        remember(path, bytes.length, lastModified, content, DigestUtil.sha256Hex(bytes));
+        return content;
+    }
+
+    /**
+     * 写入文件（UTF-8），父目录不存在时自动创建，并同步更新索引和内容缓存
+     */
+    @Override
+    public void writeString(String relativePath, String content) throws IOException {
+        Path path = resolve(relativePath);
+        Path parent = path.getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        byte[] bytes = content.getBytes(StandardCharsets.UTF_8);
+        Files.write(path, bytes);
+        long lastModified = Files.getLastModifiedTime(path).toMillis();
+        remember(path, bytes.length, lastModified, content, DigestUtil.sha256Hex(bytes));
+    }
+
+    /**
+     * 删除文件，并同步更新索引和内容缓存
+     *
+     * @return 文件是否存在并已删除
+     */
+    @Override
+    public boolean delete(String relativePath) throws IOException {
+        Path path = resolve(relativePath);
+        boolean deleted = Files.deleteIfExists(path);
+        onDeleted(path);
+        return deleted;
+    }
+
+    /**
+     * 解析相对路径，不允许超出项目目录
+     */
+    @Override
+    public Path resolve(String relativePath) {
+        Path path = root.resolve(relativePath == null ? "" : relativePath).normalize();
+        if (!path.startsWith(root)) {
+            throw new IllegalArgumentException("路径超出项目目录: " + relativePath);
+        }
+        return path;
+    }
+
+    private void remember(Path path, long size, long lastModified, String content, String hash) {
+        if (size <= manager.getMaxFileBytes()) {
+            manager.putCachedContent(path, new CachedContent(size, lastModified, System.currentTimeMillis(), content, hash));
+        }
+        if (!isIgnored(path)) {
+            index.put(toRelative(path), new FileMeta(size, lastModified, hash));
+        }
+    }
+
+    /**
+     * 需要时扫描目录建立索引：监听可用时只扫描一次，否则索引过期后重新扫描
+     */
+    private void ensureIndexed() {
+        if (isIndexFresh()) {
+            return;
+        }
+        synchronized (scanLock) {
+            if (isIndexFresh()) {
+                return;
+            }
+            rescan();
+        }
+    }
+
+    private boolean isIndexFresh() {
+        return indexed && (watched || System.currentTimeMillis() - indexedAt < manager.getRescanIntervalMillis());
+    }
+
+    private void rescan() {
+        if (!Files.isDirectory(root)) {
+            index.clear();
+            return;
+        }
+        long start = System.currentTimeMillis();
+        Map<String, FileMeta> scanned = new HashMap<>();
+        boolean rootWatched = scanTree(root, scanned);
+        index.keySet().retainAll(scanned.keySet());
+        index.putAll(scanned);
+        watched = rootWatched;
+        indexed = true;
+        indexedAt = System.currentTimeMillis();
+        log.debug("工作区索引完成: {}, 文件数: {}, 耗时: {}ms", root, scanned.size(), indexedAt - start);
+    }
+
+    /**
+     * 扫描目录树并注册监听
+     *
+     * @return 所有目录是否都已注册监听
+     */
+    private boolean scanTree(Path start, Map<String, FileMeta> scanned) {
+        boolean[] allWatched = {true};
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                    if (!dir.equals(root) && IGNORED_DIRS.contains(dir.getFileName().toString())) {
+                        return FileVisitResult.SKIP_SUBTREE;
+                    }
+                    WatchKey key = retired ? null : manager.register(ProjectWorkspace.this, dir);
+                    if (key == null) {
+                        allWatched[0] = false;
+                    } else if (!watchKeys.contains(key)) {
+                        watchKeys.add(key);
+                    }
+                    // 扫描期间被移除，close 可能已经错过这个 key
+                    if (key != null && retired) {
+                        watchKeys.remove(key);
+                        manager.unregister(ProjectWorkspace.this, key);
+                        allWatched[0] = false;
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (attrs.isRegularFile()) {
+                        scanned.put(toRelative(file), toMeta(toRelative(file), attrs));
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            log.warn("扫描工作区失败: {}, error: {}", start, e.getMessage());
+            return false;
+        }
+        return allWatched[0];
+    }
+
+    /**
+     * 保留未变化文件已计算的哈希
+     */
+    private FileMeta toMeta(String relativePath, BasicFileAttributes attrs) {
+        long lastModified = attrs.lastModifiedTime().toMillis();
+        FileMeta existing = index.get(relativePath);
+        String hash = existing != null && existing.size() == attrs.size() && existing.lastModified() == lastModified
+                ? existing.hash() : null;
+        return new FileMeta(attrs.size(), lastModified, hash);
+    }
+
+    /**
+     * 监听到新建文件或目录
+     */
+    void onCreated(Path path) {
+        if (isIgnored(path)) {
+            return;
+        }
+        if (Files.isDirectory(path)) {
+            Map<String, FileMeta> scanned = new HashMap<>();
+            if (!scanTree(path, scanned)) {
+                watched = false;
+            }
+            index.putAll(scanned);
+        } else {
+            onModified(path);
+        }
+    }
+
+    /**
+     * 监听到文件修改
+     */
+    void onModified(Path path) {
+        if (isIgnored(path)) {
+            return;
+        }
+        try {
+            BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+            if (attrs.isRegularFile()) {
+                String relativePath = toRelative(path);
+                index.put(relativePath, toMeta(relativePath, attrs));
+            }
+        } catch (IOException e) {
+            onDeleted(path);
+        }
+    }
+
+    /**
+     * 监听到文件或目录删除
+     */
+    void onDeleted(Path path) {
+        manager.invalidateContent(path);
+        String relativePath = toRelative(path);
+        index.remove(relativePath);
+        NavigableMap<String, FileMeta> children = index.subMap(relativePath + "/", relativePath + "/\uffff");
+        children.clear();
+    }
+
+    /**
+     * 事件丢失或项目目录被删除重建时，下次访问重新扫描
+     */
+    void invalidate() {
+        indexed = false;
+    }
+
+    void removeWatchKey(WatchKey key) {
+        watchKeys.remove(key);
+    }
+
+    /**
+     * 释放工作区，取消目录监听；之后再次访问时重新扫描目录并注册监听
+     */
+    void close() {
+        for (WatchKey key : watchKeys) {
+            manager.unregister(this, key);
+        }
+        watchKeys.clear();
+        watched = false;
+        indexed = false;
+    }
+
+    /**
+     * 工作区已从管理器移除（空闲过期、数量超限或暂存目录已提交/丢弃），注销监听且不再注册
+     */
+    void retire() {
+        retired = true;
+        close();
+    }
+
+    private boolean isIgnored(Path path) {
+        Path relative = root.relativize(path);
+        for (Path name : relative) {
+            if (IGNORED_DIRS.contains(name.toString())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String toRelative(Path path) {
+        return root.relativize(path).toString().replace('\\', '/');
+    }
+}
@@ -0,0 +1,427 @@
+package com.mashang.aicode.web.manager.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import cn.hutool.core.util.IdUtil;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.RemovalCause;
+import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
+import com.mashang.aicode.web.config.WorkspaceCacheConfig;
+import com.mashang.aicode.web.config.WorkspaceStagingConfig;
+import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.model.entity.App;
+import com.mashang.aicode.web.service.AppService;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.stereotype.Component;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * 项目工作区管理
+ * <p>
+ * 按项目目录复用 {@link ProjectWorkspace}，文件工具和工作流节点都通过这里读写生成项目：
+ * <ul>
+ *     <li>工作区空闲超过 idleExpireMinutes 或数量超过 maxWorkspaces 时释放，释放时注销目录监听；
+ *     仍被调用方持有的旧实例之后只按 rescanIntervalMillis 重新扫描，不再注册监听</li>
+ *     <li>文件内容缓存由所有工作区共享，按字节数限制总量</li>
+ *     <li>一个后台线程处理所有目录的监听事件，增量更新对应工作区的索引；
+ *     监听不可用（关闭配置或系统不支持）时，工作区按 rescanIntervalMillis 重新扫描目录</li>
+ *     <li>Vue/React 项目生成期间，文件工具的写入进入该应用的 {@link StagedWorkspace}，
+ *     生成成功后整体提交，失败或取消时丢弃；
+ *     执行命令、代码检查这类必须在磁盘目录上运行的工具通过 {@link #runOnDisk} 在暂存区的完整副本中执行</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class ProjectWorkspaceManager {
+
+    private static final String STAGING_ROOT_DIR = System.getProperty("user.dir") + "/tmp/code_staging";
+
+    @Resource
+    private WorkspaceCacheConfig workspaceCacheConfig;
+
+    @Resource
+    private WorkspaceStagingConfig workspaceStagingConfig;
+
+    @Resource
+    @Lazy
+    private AppService appService;
+
+    private Cache<Path, ProjectWorkspace> workspaces;
+
+    private Cache<Path, ProjectWorkspace.CachedContent> contents;
+
+    /**
+     * appId → 项目目录名，应用的生成类型创建后不再变化
+     */
+    private final Cache<Long, String> projectDirNames = Caffeine.newBuilder()
+            .maximumSize(10_000)
+            .expireAfterWrite(Duration.ofMinutes(10))
+            .build();
+
+    /**
+     * 同一目录在 WatchService 中只有一个 WatchKey：同一项目目录被释放的旧实例和新实例可能同时注册，
+     * 因此每个 key 记录所有注册了它的工作区，最后一个工作区注销时才取消监听
+     */
+    private final Map<WatchKey, WatchTarget> watchTargets = new ConcurrentHashMap<>();
+
+    /**
+     * 保护目录注册、注销与 {@link #watchTargets} 的一致性
+     */
+    private final Object watchLock = new Object();
+
+    /**
+     * appId → 进行中的暂存工作区
+     */
+    private final Map<Long, StagedWorkspace> stagedWorkspaces = new ConcurrentHashMap<>();
+
+    private WatchService watchService;
+
+    private Thread watcherThread;
+
+    private record WatchTarget(Path dir, Set<ProjectWorkspace> workspaces) {
+    }
+
+    /**
+     * 需要在磁盘上的项目目录中执行的动作（执行命令、代码检查）
+     */
+    @FunctionalInterface
+    public interface DiskAction<T> {
+
+        T run(File projectDir) throws Exception;
+    }
+
+    @PostConstruct
+    public void init() {
+        workspaces = Caffeine.newBuilder()
+                .maximumSize(workspaceCacheConfig.getMaxWorkspaces())
+                .expireAfterAccess(Duration.ofMinutes(workspaceCacheConfig.getIdleExpireMinutes()))
+                .removalListener((Path root, ProjectWorkspace workspace, RemovalCause cause) -> {
+                    if (workspace != null) {
+                        workspace.retire();
+                    }
+                })
+                .build();
+        contents = Caffeine.newBuilder()
+                .maximumWeight(workspaceCacheConfig.getMaxContentBytes())
+                .weigher((Path path, ProjectWorkspace.CachedContent content) -> (int) Math.min(content.size(), Integer.MAX_VALUE))
+                .build();
+        // 清理上次进程退出时遗留的暂存目录
+        FileUtil.del(STAGING_ROOT_DIR);
+        if (workspaceCacheConfig.isWatchEnabled()) {
+            try {
+                watchService = FileSystems.getDefault().newWatchService();
+                watcherThread = new Thread(this::processEvents, "project-workspace-watcher");
+                watcherThread.setDaemon(true);
+                watcherThread.start();
+            } catch (IOException | UnsupportedOperationException e) {
+                log.warn("项目目录监听不可用，改为定期重新扫描: {}", e.getMessage());
+                watchService = null;
+            }
+        }
+    }
+
+    @PreDestroy
+    public void destroy() {
+        workspaces.invalidateAll();
+        if (watchService != null) {
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                log.warn("关闭项目目录监听失败: {}", e.getMessage());
+            }
+        }
+        if (watcherThread != null) {
+            watcherThread.interrupt();
+        }
+    }
+
+    /**
+     * 获取应用当前的读写视图：有进行中的暂存工作区时返回它，否则返回项目工作区
+     */
+    public WorkspaceView view(Long appId) {
+        StagedWorkspace staged = stagedWorkspaces.get(appId);
+        return staged != null ? staged : forApp(appId);
+    }
+
+    /**
+     * 为一次生成开启暂存工作区
+     *
+     * @return 新的暂存工作区；未开启暂存，或该应用已有进行中的暂存工作区（由其开启方负责提交）时返回 null
+     */
+    public StagedWorkspace beginStaging(CodeGenTypeEnum codeGenType, Long appId) {
+        if (!workspaceStagingConfig.isEnabled() || stagedWorkspaces.containsKey(appId)) {
+            return null;
+        }
+        ProjectWorkspace base = forProject(codeGenType, appId);
+        Path overlayRoot = Paths.get(STAGING_ROOT_DIR, base.getRoot().getFileName() + "_" + IdUtil.fastSimpleUUID());
+        StagedWorkspace staged = new StagedWorkspace(appId, base, forDirectory(overlayRoot.toString()), this);
+        if (stagedWorkspaces.putIfAbsent(appId, staged) != null) {
+            release(staged.getOverlay());
+            return null;
+        }
+        log.info("开启暂存工作区: appId={}, root={}", appId, base.getRoot());
+        return staged;
+    }
+
+    /**
+     * 获取应用进行中的暂存工作区
+     *
+     * @return 不存在时返回 null
+     */
+    public StagedWorkspace getStaged(Long appId) {
+        return stagedWorkspaces.get(appId);
+    }
+
+    /**
+     * 提交应用进行中的暂存工作区，不存在时不做任何事
+     */
+    public void commitStaging(Long appId) {
+        StagedWorkspace staged = stagedWorkspaces.get(appId);
+        if (staged != null) {
+            staged.commit();
+        }
+    }
+
+    /**
+     * 丢弃应用进行中的暂存工作区，不存在时不做任何事
+     */
+    public void discardStaging(Long appId) {
+        StagedWorkspace staged = stagedWorkspaces.get(appId);
+        if (staged != null) {
+            staged.discard();
+        }
+    }
+
+    /**
+     * 在应用当前的文件树上执行需要磁盘目录的动作
+     * <p>
+     * 有进行中的暂存工作区时在其完整副本中执行，动作对文件的修改记入暂存区，随本次生成一起提交或丢弃
+     * （见 {@link StagedWorkspace#runOnDisk}）；否则直接在项目目录中执行，执行后重新扫描索引、失效内容缓存，
+     * 不依赖目录监听
+     */
+    public <T> T runOnDisk(Long appId, DiskAction<T> action) throws Exception {
+        StagedWorkspace staged = stagedWorkspaces.get(appId);
+        if (staged != null) {
+            return staged.runOnDisk(action);
+        }
+        ProjectWorkspace workspace = forApp(appId);
+        try {
+            return action.run(workspace.getRoot().toFile());
+        } finally {
+            workspace.invalidate();
+            invalidateContent(workspace.getRoot());
+        }
+    }
+
+    /**
+     * 获取应用的项目工作区，目录名按应用的生成类型确定
+     */
+    public ProjectWorkspace forApp(Long appId) {
+        return forDirectory(Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, getProjectDirName(appId)).toString());
+    }
+
+    /**
+     * 获取指定生成类型的项目工作区
+     */
+    public ProjectWorkspace forProject(CodeGenTypeEnum codeGenType, Long appId) {
+        String projectDirName = codeGenType == null ? "project_" + appId : codeGenType.getValue() + "_" + appId;
+        return forDirectory(Paths.get(AppConstant.CODE_OUTPUT_ROOT_DIR, projectDirName).toString());
+    }
+
+    /**
+     * 获取任意目录的工作区
+     */
+    public ProjectWorkspace forDirectory(String dir) {
+        Path root = Paths.get(dir).toAbsolutePath().normalize();
+        return workspaces.get(root, key -> new ProjectWorkspace(key, this));
+    }
+
+    /**
+     * 根据 appId 获取项目目录名
+     *
+     * @return 项目目录名，格式为：{项目类型}_{appId}，无法确定类型时为 project_{appId}
+     */
+    public String getProjectDirName(Long appId) {
+        return projectDirNames.get(appId, this::loadProjectDirName);
+    }
+
+    private String loadProjectDirName(Long appId) {
+        App app = appService.getById(appId);
+        if (app == null || app.getCodeGenType() == null) {
+            log.warn("无法获取 appId={} 的项目类型，使用默认目录名", appId);
+            return "project_" + appId;
+        }
+        CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(app.getCodeGenType());
+        if (codeGenTypeEnum == null) {
+            log.warn("未知的项目类型: {}, appId={}，使用默认目录名", app.getCodeGenType(), appId);
+            return "project_" + appId;
+        }
+        return codeGenTypeEnum.getValue() + "_" + appId;
+    }
+
+    void endStaging(StagedWorkspace staged) {
+        stagedWorkspaces.remove(staged.getAppId(), staged);
+    }
+
+    /**
+     * 移除并关闭工作区（暂存目录提交或丢弃时）
+     */
+    void release(ProjectWorkspace workspace) {
+        workspaces.asMap().remove(workspace.getRoot(), workspace);
+        workspace.retire();
+        invalidateContent(workspace.getRoot());
+    }
+
+    /**
+     * 项目目录被整体替换后，丢弃旧的索引、监听和内容缓存
+     */
+    void refresh(ProjectWorkspace workspace) {
+        workspace.close();
+        invalidateContent(workspace.getRoot());
+    }
+
+    ProjectWorkspace.CachedContent getCachedContent(Path path) {
+        return contents.getIfPresent(path);
+    }
+
+    void putCachedContent(Path path, ProjectWorkspace.CachedContent content) {
+        contents.put(path, content);
+    }
+
+    /**
+     * 失效文件（或目录下所有文件）的缓存内容
+     */
+    void invalidateContent(Path path) {
+        contents.invalidate(path);
+        contents.asMap().keySet().removeIf(cached -> cached.startsWith(path) && !cached.equals(path));
+    }
+
+    long getMaxFileBytes() {
+        return workspaceCacheConfig.getMaxFileBytes();
+    }
+
+    long getRescanIntervalMillis() {
+        return workspaceCacheConfig.getRescanIntervalMillis();
+    }
+
+    /**
+     * 注册目录监听
+     *
+     * @return 监听不可用时返回 null
+     */
+    WatchKey register(ProjectWorkspace workspace, Path dir) {
+        if (watchService == null) {
+            return null;
+        }
+        synchronized (watchLock) {
+            try {
+                WatchKey key = dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                        StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+                watchTargets.computeIfAbsent(key, k -> new WatchTarget(dir, new CopyOnWriteArraySet<>()))
+                        .workspaces().add(workspace);
+                return key;
+            } catch (IOException | UnsupportedOperationException | ClosedWatchServiceException e) {
+                log.debug("注册目录监听失败: {}, error: {}", dir, e.getMessage());
+                return null;
+            }
+        }
+    }
+
+    /**
+     * 注销工作区对目录的监听，没有其他工作区使用该 key 时取消监听
+     */
+    void unregister(ProjectWorkspace workspace, WatchKey key) {
+        synchronized (watchLock) {
+            WatchTarget target = watchTargets.get(key);
+            if (target == null) {
+                return;
+            }
+            target.workspaces().remove(workspace);
+            if (target.workspaces().isEmpty()) {
+                watchTargets.remove(key);
+                key.cancel();
+            }
+        }
+    }
+
+    private void processEvents() {
+        while (!Thread.currentThread().isInterrupted()) {
+            WatchKey key;
+            try {
+                key = watchService.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ClosedWatchServiceException e) {
+                return;
+            }
+            WatchTarget target;
+            synchronized (watchLock) {
+                target = watchTargets.get(key);
+                if (target == null) {
+                    key.cancel();
+                    continue;
+                }
+            }
+            try {
+                dispatch(key, target);
+            } catch (Exception e) {
+                log.warn("处理目录监听事件失败: {}, error: {}", target.dir(), e.getMessage());
+                target.workspaces().forEach(ProjectWorkspace::invalidate);
+            }
+        }
+    }
+
+    private void dispatch(WatchKey key, WatchTarget target) {
+        List<WatchEvent<?>> events = key.pollEvents();
+        for (ProjectWorkspace workspace : target.workspaces()) {
+            for (WatchEvent<?> event : events) {
+                WatchEvent.Kind<?> kind = event.kind();
+                if (kind == StandardWatchEventKinds.OVERFLOW) {
+                    workspace.invalidate();
+                    continue;
+                }
+                Path path = target.dir().resolve((Path) event.context());
+                if (kind == StandardWatchEventKinds.ENTRY_CREATE) {
+                    workspace.onCreated(path);
+                } else if (kind == StandardWatchEventKinds.ENTRY_MODIFY) {
+                    workspace.onModified(path);
+                } else if (kind == StandardWatchEventKinds.ENTRY_DELETE) {
+                    workspace.onDeleted(path);
+                }
+            }
+        }
+        // 目录已被删除，监听失效；项目根目录本身被删除重建时需要重新扫描
+        if (!key.reset()) {
+            synchronized (watchLock) {
+                watchTargets.remove(key, target);
+            }
+            for (ProjectWorkspace workspace : target.workspaces()) {
+                workspace.removeWatchKey(key);
+                if (target.dir().equals(workspace.getRoot())) {
+                    workspace.invalidate();
+                }
+            }
+        }
+    }
+}
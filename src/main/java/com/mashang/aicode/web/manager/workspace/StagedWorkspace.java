@@ -0,0 +1,392 @@
+package com.mashang.aicode.web.manager.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import com.mashang.aicode.web.exception.BusinessException;
+import com.mashang.aicode.web.exception.ErrorCode;
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.nio.file.FileVisitResult;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.SimpleFileVisitor;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 暂存工作区
+ * <p>
+ * 一次生成期间的写入不直接落到项目目录，而是写到暂存目录（overlay），删除记为标记；
+ * 读取时先看暂存区，再看项目目录。预览、部署、下载等在生成期间看到的始终是上一个完整版本。
+ * <ul>
+ *     <li>{@link #commit()}：把项目目录中未改动的文件以硬链接补进暂存目录，使其成为完整的新版本，
+ *     再把依赖、构建产物等目录（{@link ProjectWorkspace#IGNORED_DIRS}）移过去，最后用目录重命名替换项目目录</li>
+ *     <li>{@link #discard()}：生成失败或被取消时直接删除暂存目录，项目目录保持不变</li>
+ *     <li>{@link #runOnDisk}：执行命令、代码检查等需要磁盘目录的工具在暂存区的完整副本中运行，改动写回暂存区</li>
+ * </ul>
+ * 替换由两次同文件系统内的重命名完成（项目目录 → 备份、暂存目录 → 项目目录），
+ * 中间只有极短的时间项目目录不存在，不会出现一半新一半旧的文件树。
+ * 暂存目录位于 tmp/code_staging，与 code_output 同在 tmp 下，保证重命名不跨文件系统。
+ */
+@Slf4j
+public class StagedWorkspace implements WorkspaceView {
+
+    private static final String NODE_MODULES = "node_modules";
+
+    private enum State {
+        ACTIVE, COMMITTED, DISCARDED
+    }
+
+    private final Long appId;
+
+    private final ProjectWorkspace base;
+
+    private final ProjectWorkspace overlay;
+
+    private final ProjectWorkspaceManager manager;
+
+    /**
+     * 本次生成中删除的、项目目录里存在的文件
+     */
+    private final Set<String> deleted = ConcurrentHashMap.newKeySet();
+    private volatile State state = State.ACTIVE;
+
+    StagedWorkspace(Long appId, ProjectWorkspace base, ProjectWorkspace overlay, ProjectWorkspaceManager manager) {
+        this.appId = appId;
+        this.base = base;
+        this.overlay = overlay;
+        this.manager = manager;
+    }
+
+    public Long getAppId() {
+        return appId;
+    }
+
+    ProjectWorkspace getOverlay() {
+        return overlay;
+    }
+
+    /**
+     * 项目根目录（提交后的位置），而不是暂存目录
+     */
+    @Override
+    public Path getRoot() {
+        return base.getRoot();
+    }
+
+    @Override
+    public boolean exists() {
+        return base.exists() || overlay.exists();
+    }
+
+    @Override
+    public boolean exists(String relativePath) {
+        return !isDeleted(relativePath) && (overlay.exists(relativePath) || base.exists(relativePath));
+    }
+
+    @Override
+    public boolean isFile(String relativePath) {
+        return !isDeleted(relativePath) && (overlay.isFile(relativePath) || base.isFile(relativePath));
+    }
+
+    @Override
+    public boolean isDirectory(String relativePath) {
+        return overlay.isDirectory(relativePath) || base.isDirectory(relativePath);
+    }
+
+    @Override
+    public List<String> listFiles() {
+        return merge(base.listFiles(), overlay.listFiles());
+    }
+
+    @Override
+    public List<String> listFiles(String relativeDir) {
+        return merge(base.listFiles(relativeDir), overlay.listFiles(relativeDir));
+    }
+
+    @Override
+    public String readString(String relativePath) throws IOException {
+        if (isDeleted(relativePath)) {
+            return null;
+        }
+        String content = overlay.readString(relativePath);
+        return content != null ? content : base.readString(relativePath);
+    }
+
+    @Override
+    public void writeString(String relativePath, String content) throws IOException {
+        ensureActive();
+        overlay.writeString(relativePath, content);
+        deleted.remove(toRelative(relativePath));
+    }
+
+    @Override
+    public boolean delete(String relativePath) throws IOException {
+        ensureActive();
+        if (!isFile(relativePath)) {
+            return false;
+        }
+        overlay.delete(relativePath);
+        if (base.isFile(relativePath)) {
+            deleted.add(toRelative(relativePath));
+        }
+        return true;
+    }
+
+    @Override
+    public Path resolve(String relativePath) {
+        return base.resolve(relativePath);
+    }
+
+    /**
+     * 是否有尚未提交的改动
+     */
+    public boolean hasChanges() {
+        return !deleted.isEmpty() || !overlay.listFiles().isEmpty();
+    }
+
+    /**
+     * 提交暂存区，替换项目目录
+     * <p>
+     * 没有改动时只清理暂存目录。失败时项目目录保持原样，暂存区被丢弃。
+     */
+    public synchronized void commit() {
+        if (state != State.ACTIVE) {
+            return;
+        }
+        state = State.COMMITTED;
+        manager.endStaging(this);
+        Path root = base.getRoot();
+        Path staging = overlay.getRoot();
+        if (!hasChanges()) {
+            manager.release(overlay);
+            FileUtil.del(staging.toFile());
+            return;
+        }
+        long start = System.currentTimeMillis();
+        // 暂存目录被重命名前停止监听
+        manager.release(overlay);
+        // 备份放在暂存目录旁边，不出现在 code_output 中
+        Path backup = staging.resolveSibling(staging.getFileName() + ".old");
+        List<String> movedDirs = new ArrayList<>();
+        boolean swapped = false;
+        try {
+            Files.createDirectories(staging);
+            if (Files.isDirectory(root)) {
+                linkUnchangedFiles(root, staging);
+                // 依赖、构建产物目录整体移动，不逐个链接；同一文件系统内的重命名只修改目录项
+                for (String dirName : listIgnoredDirs(root)) {
+                    Files.move(root.resolve(dirName), staging.resolve(dirName), StandardCopyOption.ATOMIC_MOVE);
+                    movedDirs.add(dirName);
+                }
+                Files.move(root, backup, StandardCopyOption.ATOMIC_MOVE);
+            } else {
+                Files.createDirectories(root.getParent());
+            }
+            try {
+                Files.move(staging, root, StandardCopyOption.ATOMIC_MOVE);
+                swapped = true;
+            } catch (IOException e) {
+                if (Files.isDirectory(backup)) {
+                    Files.move(backup, root, StandardCopyOption.ATOMIC_MOVE);
+                }
+                throw e;
+            }
+        } catch (IOException e) {
+            log.error("提交暂存工作区失败，项目目录保持不变: appId={}, root={}, error: {}", appId, root, e.getMessage(), e);
+            restoreMovedDirs(movedDirs, staging, root);
+            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "保存生成结果失败");
+        } finally {
+            if (!swapped) {
+                FileUtil.del(staging.toFile());
+            }
+            // 项目目录已换成新的目录树，重新扫描并注册监听
+            manager.refresh(base);
+        }
+        log.info("暂存工作区已提交: appId={}, root={}, 删除={}, 耗时={}ms",
+                appId, root, deleted.size(), System.currentTimeMillis() - start);
+        if (Files.exists(backup)) {
+            Thread.startVirtualThread(() -> FileUtil.del(backup.toFile()));
+        }
+    }
+
+    /**
+     * 在暂存区的完整文件树上执行需要磁盘目录的动作
+     * <p>
+     * 在暂存目录旁生成当前视图的副本（复制而不是硬链接，命令原地改写文件时不会改到项目目录），
+     * 依赖目录 node_modules 整体移入副本供 npm、ESLint 使用，执行后移回原处；
+     * 随后把副本与当前视图比较，新增和修改的文件写入暂存区，消失的文件记为删除。
+     * 与提交、丢弃互斥，执行期间项目目录中的源码不变。
+     */
+    public synchronized <T> T runOnDisk(ProjectWorkspaceManager.DiskAction<T> action) throws Exception {
+        ensureActive();
+        Path root = base.getRoot();
+        Path staging = overlay.getRoot();
+        Path workDir = staging.resolveSibling(staging.getFileName() + ".run");
+        FileUtil.del(workDir.toFile());
+        // 依赖目录在项目目录中时移回项目目录，否则（首次生成时新安装的）放在暂存目录，随提交进入项目目录
+        Path modulesHome = Files.isDirectory(root.resolve(NODE_MODULES)) ? root.resolve(NODE_MODULES) : staging.resolve(NODE_MODULES);
+        Path workModules = workDir.resolve(NODE_MODULES);
+        try {
+            List<String> files = listFiles();
+            for (String file : files) {
+                Path target = workDir.resolve(file);
+                Files.createDirectories(target.getParent());
+                Files.copy(sourceOf(file), target, StandardCopyOption.COPY_ATTRIBUTES);
+            }
+            Files.createDirectories(workDir);
+            if (Files.isDirectory(modulesHome)) {
+                Files.move(modulesHome, workModules, StandardCopyOption.ATOMIC_MOVE);
+            }
+            try {
+                return action.run(workDir.toFile());
+            } finally {
+                if (Files.isDirectory(workModules)) {
+                    Files.createDirectories(modulesHome.getParent());
+                    Files.move(workModules, modulesHome, StandardCopyOption.ATOMIC_MOVE);
+                }
+                recordChanges(workDir, files);
+            }
+        } finally {
+            FileUtil.del(workDir.toFile());
+        }
+    }
+
+    /**
+     * 丢弃暂存区，项目目录不变
+     */
+    public synchronized void discard() {
+        if (state != State.ACTIVE) {
+            return;
+        }
+        state = State.DISCARDED;
+        manager.endStaging(this);
+        manager.release(overlay);
+        FileUtil.del(overlay.getRoot().toFile());
+        log.info("暂存工作区已丢弃: appId={}, root={}", appId, base.getRoot());
+    }
+
+    /**
+     * 把项目目录中没有被改写或删除的文件硬链接到暂存目录，不支持硬链接时复制；顶层依赖、构建产物目录除外
+     */
+    private void linkUnchangedFiles(Path root, Path staging) throws IOException {
+        Files.walkFileTree(root, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                if (dir.getParent() != null && dir.getParent().equals(root)
+                        && ProjectWorkspace.IGNORED_DIRS.contains(dir.getFileName().toString())) {
+                    return FileVisitResult.SKIP_SUBTREE;
+                }
+                Files.createDirectories(staging.resolve(root.relativize(dir)));
+                return FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                Path relative = root.relativize(file);
+                Path target = staging.resolve(relative);
+                if (deleted.contains(relative.toString().replace('\\', '/')) || Files.exists(target)) {
+                    return FileVisitResult.CONTINUE;
+                }
+                try {
+                    Files.createLink(target, file);
+                } catch (UnsupportedOperationException | IOException e) {
+                    Files.copy(file, target, StandardCopyOption.COPY_ATTRIBUTES);
+                }
+                return FileVisitResult.CONTINUE;
+            }
+        });
+    }
+
+    /**
+     * 把副本中新增、修改的文件写入暂存区，副本中已不存在的文件记为删除；依赖、构建产物目录不记录
+     */
+    private void recordChanges(Path workDir, List<String> files) throws IOException {
+        Set<String> missing = new HashSet<>(files);
+        Files.walkFileTree(workDir, new SimpleFileVisitor<>() {
+            @Override
+            public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) {
+                return !dir.equals(workDir) && ProjectWorkspace.IGNORED_DIRS.contains(dir.getFileName().toString())
+                        ? FileVisitResult.SKIP_SUBTREE : FileVisitResult.CONTINUE;
+            }
+
+            @Override
+            public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) throws IOException {
+                if (!attrs.isRegularFile()) {
+                    return FileVisitResult.CONTINUE;
+                }
+                String relativePath = workDir.relativize(file).toString().replace('\\', '/');
+                if (missing.remove(relativePath) && Files.mismatch(sourceOf(relativePath), file) == -1) {
+                    return FileVisitResult.CONTINUE;
+                }
+                Path target = overlay.resolve(relativePath);
+                Files.createDirectories(target.getParent());
+                Files.copy(file, target, StandardCopyOption.REPLACE_EXISTING);
+                overlay.onModified(target);
+                manager.invalidateContent(target);
+                deleted.remove(relativePath);
+                return FileVisitResult.CONTINUE;
+            }
+        });
+        for (String relativePath : missing) {
+            delete(relativePath);
+        }
+    }
+
+    /**
+     * 文件在当前视图中的实际位置：暂存区优先
+     */
+    private Path sourceOf(String relativePath) {
+        return overlay.isFile(relativePath) ? overlay.resolve(relativePath) : base.resolve(relativePath);
+    }
+
+    private List<String> listIgnoredDirs(Path root) {
+        List<String> dirs = new ArrayList<>();
+        for (String dirName : ProjectWorkspace.IGNORED_DIRS) {
+            if (Files.isDirectory(root.resolve(dirName))) {
+                dirs.add(dirName);
+            }
+        }
+        return dirs;
+    }
+
+    /**
+     * 替换失败时把已移走的依赖、构建产物目录移回项目目录
+     */
+    private void restoreMovedDirs(List<String> movedDirs, Path staging, Path root) {
+        for (String dirName : movedDirs) {
+            try {
+                Files.move(staging.resolve(dirName), root.resolve(dirName), StandardCopyOption.ATOMIC_MOVE);
+            } catch (IOException e) {
+                log.error("恢复目录失败: {}, error: {}", root.resolve(dirName), e.getMessage());
+            }
+        }
+    }
+
+    private List<String> merge(List<String> baseFiles, List<String> overlayFiles) {
+        TreeSet<String> files = new TreeSet<>(baseFiles);
+        files.removeAll(deleted);
+        files.addAll(overlayFiles);
+        return List.copyOf(files);
+    }
+
+    private boolean isDeleted(String relativePath) {
+        return !deleted.isEmpty() && deleted.contains(toRelative(relativePath));
+    }
+
+    private String toRelative(String relativePath) {
+        return base.getRoot().relativize(base.resolve(relativePath)).toString().replace('\\', '/');
+    }
+
+    private void ensureActive() {
+        if (state != State.ACTIVE) {
+            throw new IllegalStateException("本次生成已结束，不能再修改文件");
+        }
+    }
+}
@@ -0,0 +1,64 @@
+package com.mashang.aicode.web.manager.workspace;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.List;
+
+/**
+ * 生成项目的文件读写视图
+ * <p>
+ * 文件工具和工作流节点只通过该接口访问项目：没有进行中的生成时是项目目录本身（{@link ProjectWorkspace}），
+ * 生成期间是叠加在项目目录上的暂存区（{@link StagedWorkspace}）。路径均相对项目根目录，分隔符为 /。
+ */
+public interface WorkspaceView {
+
+    /**
+     * 项目根目录
+     */
+    Path getRoot();
+
+    /**
+     * 项目是否存在
+     */
+    boolean exists();
+
+    boolean exists(String relativePath);
+
+    boolean isFile(String relativePath);
+
+    boolean isDirectory(String relativePath);
+
+    /**
+     * 列出项目中的所有文件（不含 {@link ProjectWorkspace#IGNORED_DIRS}），按相对路径排序
+     */
+    List<String> listFiles();
+
+    /**
+     * 列出指定目录下的所有文件（含子目录）
+     */
+    List<String> listFiles(String relativeDir);
+
+    /**
+     * 读取文件内容（UTF-8）
+     *
+     * @return 文件不存在或不是普通文件时返回 null
+     */
+    String readString(String relativePath) throws IOException;
+
+    /**
+     * 写入文件（UTF-8），父目录不存在时自动创建
+     */
+    void writeString(String relativePath, String content) throws IOException;
+
+    /**
+     * 删除文件
+     *
+     * @return 文件是否存在并已删除
+     */
+    boolean delete(String relativePath) throws IOException;
+
+    /**
+     * 解析为项目目录下的路径，不允许超出项目目录
+     */
+    Path resolve(String relativePath);
+}
@@ -2,11 +2,29 @@ package com.mashang.aicode.web.mapper;
 
 import com.mashang.aicode.web.model.entity.ChatHistory;
 import com.baomidou.mybatisplus.core.mapper.BaseMapper;
+import org.apache.ibatis.annotations.Insert;
 import org.apache.ibatis.annotations.Mapper;
+import org.apache.ibatis.annotations.Param;
+
+import java.util.List;
 
 /**
  * 对话历史 映射层
  */
 @Mapper
 public interface ChatHistoryMapper extends BaseMapper<ChatHistory> {
-}
\ No newline at end of file
+
+    /**
+     * 多行批量插入对话历史，id 和时间字段需由调用方填好
+     *
+     * @param list 对话历史列表
+     * @return 插入行数
+     */
+    @Insert({"<script>",
+            "INSERT INTO chat_history (id, appId, userId, status, messageType, messageContent, createTime, updateTime, isDelete) VALUES ",
+            "<foreach collection='list' item='item' separator=','>",
+            "(#{item.id}, #{item.appId}, #{item.userId}, #{item.status}, #{item.messageType}, #{item.messageContent}, #{item.createTime}, #{item.updateTime}, #{item.isDelete})",
+            "</foreach>",
+            "</script>"})
+    int insertBatch(@Param("list") List<ChatHistory> list);
+}
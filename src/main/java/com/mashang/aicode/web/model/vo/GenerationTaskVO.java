@@ -0,0 +1,54 @@
+package com.mashang.aicode.web.model.vo;
+
+import lombok.Data;
+
+import java.io.Serializable;
+
+/**
+ * 代码生成任务视图对象
+ */
+@Data
+public class GenerationTaskVO implements Serializable {
+
+    /**
+     * 生成 ID
+     */
+    private String generationId;
+
+    /**
+     * 应用 ID
+     */
+    private Long appId;
+
+    /**
+     * 用户 ID
+     */
+    private Long userId;
+
+    /**
+     * 任务类型
+     */
+    private String taskType;
+
+    /**
+     * 已运行时长（毫秒）
+     */
+    private Long elapsedMillis;
+
+    /**
+     * 已输出 token 数
+     */
+    private Long tokenCount;
+
+    /**
+     * 已输出字节数
+     */
+    private Long byteCount;
+
+    /**
+     * 是否已取消
+     */
+    private Boolean cancelled;
+
+    private static final long serialVersionUID = 1L;
+}
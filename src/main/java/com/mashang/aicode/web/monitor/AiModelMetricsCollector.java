@@ -1,6 +1,7 @@
 package com.mashang.aicode.web.monitor;
 
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import jakarta.annotation.Resource;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Component;
 import java.time.Duration;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
 
 
 /**
@@ -112,6 +114,43 @@ public class AiModelMetricsCollector {
         );
         timer.record(duration);
     }
-}
 
+    /**
+     * 收集每次请求的提示词 token 数
+     * @param modelName
+     * @param source estimated（按请求消息估算）或 actual（模型返回的输入 token 数）
+     * @param tokenCount
+     */
+    public void recordPromptTokens(String modelName, String source, long tokenCount) {
+        DistributionSummary.builder("ai_model_prompt_tokens")
+                .description("AI模型每次请求的提示词Token数")
+                .tag("model_name", String.valueOf(modelName))
+                .tag("source", source)
+                .register(meterRegistry)
+                .record(tokenCount);
+    }
 
+    /**
+     * 收集超出 token 预算被移出记忆的消息数
+     * @param messageCount
+     */
+    public void recordMemoryEviction(int messageCount) {
+        Counter.builder("ai_chat_memory_evicted_messages_total")
+                .description("超出Token预算被移出对话记忆的消息数")
+                .register(meterRegistry)
+                .increment(messageCount);
+    }
+
+    /**
+     * 收集对话摘要耗时
+     * @param status
+     * @param durationNanos
+     */
+    public void recordMemorySummary(String status, long durationNanos) {
+        Timer.builder("ai_chat_memory_summary_duration_seconds")
+                .description("对话记忆摘要耗时")
+                .tag("status", status)
+                .register(meterRegistry)
+                .record(durationNanos, TimeUnit.NANOSECONDS);
+    }
+}
@@ -1,5 +1,6 @@
 package com.mashang.aicode.web.monitor;
 
+import com.mashang.aicode.web.ai.memory.TokenEstimator;
 import dev.langchain4j.model.chat.listener.ChatModelErrorContext;
 import dev.langchain4j.model.chat.listener.ChatModelListener;
 import dev.langchain4j.model.chat.listener.ChatModelRequestContext;
@@ -37,6 +38,8 @@ public class AiModelMonitorListener implements ChatModelListener {
     public void onRequest(ChatModelRequestContext requestContext) {
 
         requestContext.attributes().put(REQUEST_START_TIME_KEY, Instant.now());
+        aiModelMetricsCollector.recordPromptTokens(requestContext.chatRequest().modelName(), "estimated",
+                TokenEstimator.estimate(requestContext.chatRequest().messages()));
 
         MonitorContext context = MonitorContextHolder.getContext();
         if (context == null) {
@@ -141,6 +144,9 @@ public class AiModelMonitorListener implements ChatModelListener {
     private void recordTokenUsage(ChatModelResponseContext responseContext, String userId, String appId, String modelName) {
         TokenUsage tokenUsage = responseContext.chatResponse().metadata().tokenUsage();
         if (tokenUsage != null) {
+            if (tokenUsage.inputTokenCount() != null) {
+                aiModelMetricsCollector.recordPromptTokens(modelName, "actual", tokenUsage.inputTokenCount());
+            }
             aiModelMetricsCollector.recordTokenUsage(userId, appId, modelName, "input", tokenUsage.inputTokenCount());
             aiModelMetricsCollector.recordTokenUsage(userId, appId, modelName, "output", tokenUsage.outputTokenCount());
             aiModelMetricsCollector.recordTokenUsage(userId, appId, modelName, "total", tokenUsage.totalTokenCount());
@@ -0,0 +1,125 @@
+package com.mashang.aicode.web.monitor;
+
+import com.lmax.disruptor.EventHandler;
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 协作编辑监控指标收集器
+ */
+@Component
+@Slf4j
+public class CollaborationMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private final Map<Integer, Timer> eventLatencyTimers = new ConcurrentHashMap<>();
+
+    private final Map<Integer, DistributionSummary> batchSizeSummaries = new ConcurrentHashMap<>();
+
+    /**
+     * 按应用统计的推送耗时，应用没有在线会话时移除
+     */
+    private final Map<Long, Timer> fanoutLatencyTimers = new ConcurrentHashMap<>();
+
+    private Counter fanoutDroppedCounter;
+
+    private Counter slowConsumerDisconnectedCounter;
+
+    @PostConstruct
+    public void init() {
+        fanoutDroppedCounter = Counter.builder("ai_code_collab_fanout_dropped_total")
+                .description("发送缓冲区溢出被丢弃的消息数")
+                .register(meterRegistry);
+        slowConsumerDisconnectedCounter = Counter.builder("ai_code_collab_slow_consumer_disconnected_total")
+                .description("因发送超时或缓冲区溢出被断开的会话数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册分片队列仪表：队列占用率和消费滞后的事件数
+     *
+     * @param shard     分片序号
+     * @param disruptor 分片队列
+     * @param handler   分片消费者
+     */
+    public <T> void registerShardGauges(int shard, Disruptor<T> disruptor, EventHandler<T> handler) {
+        String shardTag = String.valueOf(shard);
+        RingBuffer<T> ringBuffer = disruptor.getRingBuffer();
+        Gauge.builder("ai_code_collab_ring_occupancy", ringBuffer,
+                        rb -> (double) (rb.getBufferSize() - rb.remainingCapacity()) / rb.getBufferSize())
+                .description("协作事件队列占用率")
+                .tag("shard", shardTag)
+                .register(meterRegistry);
+        Gauge.builder("ai_code_collab_shard_lag", disruptor,
+                        d -> Math.max(d.getCursor() - d.getSequenceValueFor(handler), 0))
+                .description("协作事件分片未消费的事件数")
+                .tag("shard", shardTag)
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录事件从发布到开始处理的耗时
+     */
+    public void recordEventLatency(int shard, long nanos) {
+        eventLatencyTimers.computeIfAbsent(shard, k -> Timer.builder("ai_code_collab_event_latency_seconds")
+                        .description("协作事件排队耗时")
+                        .tag("shard", String.valueOf(k))
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * 记录一次唤醒处理的事件数
+     */
+    public void recordBatchSize(int shard, int size) {
+        batchSizeSummaries.computeIfAbsent(shard, k -> DistributionSummary.builder("ai_code_collab_batch_size")
+                        .description("协作事件分片每次唤醒处理的事件数")
+                        .tag("shard", String.valueOf(k))
+                        .register(meterRegistry))
+                .record(size);
+    }
+
+    /**
+     * 记录消息从入队到发送完成的耗时
+     */
+    public void recordFanoutLatency(Long appId, long nanos) {
+        fanoutLatencyTimers.computeIfAbsent(appId, k -> Timer.builder("ai_code_collab_fanout_latency_seconds")
+                        .description("协作消息推送耗时（入队到发送完成）")
+                        .tag("appId", String.valueOf(k))
+                        .register(meterRegistry))
+                .record(nanos, TimeUnit.NANOSECONDS);
+    }
+
+    public void recordFanoutDropped() {
+        fanoutDroppedCounter.increment();
+    }
+
+    public void recordSlowConsumerDisconnected() {
+        slowConsumerDisconnectedCounter.increment();
+    }
+
+    /**
+     * 移除应用的推送指标
+     */
+    public void removeApp(Long appId) {
+        Timer timer = fanoutLatencyTimers.remove(appId);
+        if (timer != null) {
+            meterRegistry.remove(timer);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.mashang.aicode.web.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 网页截图监控指标收集器
+ */
+@Component
+@Slf4j
+public class ScreenshotMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Timer renderSuccessTimer;
+
+    private Timer renderFailureTimer;
+
+    private Timer queueWaitTimer;
+
+    private Counter deduplicatedCounter;
+
+    private Counter rejectedCounter;
+
+    private Counter browserRecycledCounter;
+
+    @PostConstruct
+    public void init() {
+        renderSuccessTimer = Timer.builder("ai_code_screenshot_render_duration_seconds")
+                .description("截图渲染耗时")
+                .tag("result", "success")
+                .register(meterRegistry);
+        renderFailureTimer = Timer.builder("ai_code_screenshot_render_duration_seconds")
+                .description("截图渲染耗时")
+                .tag("result", "failure")
+                .register(meterRegistry);
+        queueWaitTimer = Timer.builder("ai_code_screenshot_queue_wait_seconds")
+                .description("截图任务排队耗时")
+                .register(meterRegistry);
+        deduplicatedCounter = Counter.builder("ai_code_screenshot_deduplicated_total")
+                .description("与排队中任务合并的截图请求数")
+                .register(meterRegistry);
+        rejectedCounter = Counter.builder("ai_code_screenshot_rejected_total")
+                .description("队列已满被拒绝的截图请求数")
+                .register(meterRegistry);
+        browserRecycledCounter = Counter.builder("ai_code_screenshot_browser_recycled_total")
+                .description("被回收重建的浏览器数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册截图队列相关仪表
+     *
+     * @param executor     截图执行线程池
+     * @param browserCount 当前浏览器实例数
+     */
+    public void registerQueueGauges(ThreadPoolExecutor executor, AtomicInteger browserCount) {
+        Gauge.builder("ai_code_screenshot_queue_depth", executor, e -> e.getQueue().size())
+                .description("排队中的截图任务数")
+                .register(meterRegistry);
+        Gauge.builder("ai_code_screenshot_active_renders", executor, ThreadPoolExecutor::getActiveCount)
+                .description("正在渲染的截图任务数")
+                .register(meterRegistry);
+        Gauge.builder("ai_code_screenshot_browsers", browserCount, AtomicInteger::get)
+                .description("当前浏览器实例数")
+                .register(meterRegistry);
+    }
+
+    public void recordRender(Duration duration, boolean success) {
+        (success ? renderSuccessTimer : renderFailureTimer).record(duration);
+    }
+
+    public void recordQueueWait(Duration duration) {
+        queueWaitTimer.record(duration);
+    }
+
+    public void recordDeduplicated() {
+        deduplicatedCounter.increment();
+    }
+
+    public void recordRejected() {
+        rejectedCounter.increment();
+    }
+
+    public void recordBrowserRecycled() {
+        browserRecycledCounter.increment();
+    }
+}
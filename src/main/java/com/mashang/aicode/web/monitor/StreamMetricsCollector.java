@@ -0,0 +1,95 @@
+package com.mashang.aicode.web.monitor;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+/**
+ * 流式输出监控指标收集器
+ */
+@Component
+@Slf4j
+public class StreamMetricsCollector {
+
+    @Resource
+    private MeterRegistry meterRegistry;
+
+    private Counter coalesceTokensCounter;
+
+    private Counter coalesceFramesCounter;
+
+    private Counter coalesceFramesSavedCounter;
+
+    private Counter generationTokensCounter;
+
+    private Counter generationBytesCounter;
+
+    private Counter generationCancelledCounter;
+
+    @PostConstruct
+    public void init() {
+        coalesceTokensCounter = Counter.builder("ai_stream_coalesce_tokens_total")
+                .description("进入合并阶段的模型 token 数")
+                .register(meterRegistry);
+        coalesceFramesCounter = Counter.builder("ai_stream_coalesce_frames_total")
+                .description("合并后实际下发的文本帧数")
+                .register(meterRegistry);
+        coalesceFramesSavedCounter = Counter.builder("ai_stream_coalesce_frames_saved_total")
+                .description("合并节省的文本帧数")
+                .register(meterRegistry);
+        generationTokensCounter = Counter.builder("ai_generation_tokens_total")
+                .description("生成任务输出的 token 数")
+                .register(meterRegistry);
+        generationBytesCounter = Counter.builder("ai_generation_bytes_total")
+                .description("生成任务输出的字节数")
+                .register(meterRegistry);
+        generationCancelledCounter = Counter.builder("ai_generation_cancelled_total")
+                .description("被取消的生成任务数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 注册进行中生成任务数量的仪表
+     *
+     * @param activeTasks 进行中的任务
+     */
+    public void registerActiveGenerationGauge(Map<?, ?> activeTasks) {
+        Gauge.builder("ai_generation_active_tasks", activeTasks, Map::size)
+                .description("进行中的生成任务数")
+                .register(meterRegistry);
+    }
+
+    /**
+     * 记录一次生成任务结束
+     *
+     * @param tokenCount 输出 token 数
+     * @param byteCount  输出字节数
+     * @param cancelled  是否被取消
+     */
+    public void recordGenerationFinished(long tokenCount, long byteCount, boolean cancelled) {
+        generationTokensCounter.increment(tokenCount);
+        generationBytesCounter.increment(byteCount);
+        if (cancelled) {
+            generationCancelledCounter.increment();
+        }
+    }
+
+    /**
+     * 记录一次合并刷新
+     *
+     * @param tokenCount 本帧合并的 token 数
+     */
+    public void recordCoalescedFrame(int tokenCount) {
+        coalesceTokensCounter.increment(tokenCount);
+        coalesceFramesCounter.increment();
+        if (tokenCount > 1) {
+            coalesceFramesSavedCounter.increment(tokenCount - 1);
+        }
+    }
+}
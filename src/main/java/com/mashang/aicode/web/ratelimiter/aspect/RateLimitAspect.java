@@ -4,6 +4,7 @@ import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.ratelimiter.annotation.RateLimit;
+import com.mashang.aicode.web.ratelimiter.core.RateLimiterEngine;
 import com.mashang.aicode.web.service.UserService;
 import jakarta.annotation.Resource;
 import jakarta.servlet.http.HttpServletRequest;
@@ -12,16 +13,11 @@ import org.aspectj.lang.JoinPoint;
 import org.aspectj.lang.annotation.Aspect;
 import org.aspectj.lang.annotation.Before;
 import org.aspectj.lang.reflect.MethodSignature;
-import org.redisson.api.RRateLimiter;
-import org.redisson.api.RateIntervalUnit;
-import org.redisson.api.RateType;
-import org.redisson.api.RedissonClient;
 import org.springframework.stereotype.Component;
 import org.springframework.web.context.request.RequestContextHolder;
 import org.springframework.web.context.request.ServletRequestAttributes;
 
 import java.lang.reflect.Method;
-import java.time.Duration;
 
 /**
  * 自定义限流注解切面
@@ -31,7 +27,7 @@ import java.time.Duration;
 @Slf4j
 public class RateLimitAspect {
     @Resource
-    private RedissonClient redissonClient;
+    private RateLimiterEngine rateLimiterEngine;
     @Resource
     private UserService userService;
 
@@ -47,13 +43,8 @@ public class RateLimitAspect {
         //生成限流key
         String key = generateRateLimitKey(point, rateLimit);
 
-        RRateLimiter rateLimiter = redissonClient.getRateLimiter(key);
-        //令牌过期时间设置为一小时
-        rateLimiter.expire(Duration.ofHours(1));
-
-        rateLimiter.trySetRate(RateType.OVERALL, rateLimit.rate(), rateLimit.rateInterval(), RateIntervalUnit.SECONDS);
-
-        if (!rateLimiter.tryAcquire(1)) {
+        //本地令牌桶判定，全局计数由后台与 Redis 同步
+        if (!rateLimiterEngine.tryAcquire(key, rateLimit.rate(), rateLimit.rateInterval())) {
             throw new BusinessException(ErrorCode.TOO_MANY_REQUEST, rateLimit.message());
         }
     }
@@ -0,0 +1,35 @@
+package com.mashang.aicode.web.ratelimiter.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 限流配置
+ * 请求在本地令牌桶中完成判定，后台定时把各节点的消耗量汇总到 Redis，以此收紧本地桶，使全局限流近似准确
+ */
+@Configuration
+@ConfigurationProperties(prefix = "rate-limiter")
+@Data
+public class RateLimiterConfig {
+
+    /**
+     * 是否与 Redis 同步全局计数，关闭时只做单机限流
+     */
+    private boolean syncEnabled = true;
+
+    /**
+     * 同步间隔毫秒数，决定多节点下可能超发的时间窗口
+     */
+    private long syncIntervalMillis = 200;
+
+    /**
+     * 本地令牌桶最大数量
+     */
+    private long localMaxKeys = 100000;
+
+    /**
+     * 令牌桶闲置多少秒后回收
+     */
+    private long idleExpireSeconds = 3600;
+}
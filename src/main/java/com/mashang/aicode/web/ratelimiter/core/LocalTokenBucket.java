@@ -0,0 +1,94 @@
+package com.mashang.aicode.web.ratelimiter.core;
+
+import lombok.Getter;
+
+/**
+ * 本地令牌桶
+ * <p>
+ * 容量为 rate，每 intervalSeconds 秒匀速补满，与原 Redisson 限流器的速率语义一致。
+ * 每个桶单独加锁，不同 key 之间互不竞争；后台同步时根据全局剩余额度收紧桶内令牌。
+ */
+public class LocalTokenBucket {
+
+    @Getter
+    private final int rate;
+
+    @Getter
+    private final int intervalSeconds;
+
+    private final double tokensPerNano;
+
+    private double tokens;
+
+    private long lastRefillNanos;
+
+    /**
+     * 全局额度耗尽时，到该时间点（毫秒）之前一律拒绝
+     */
+    private long blockedUntilMillis;
+
+    /**
+     * 上次同步以来本地放行的请求数
+     */
+    private long pending;
+
+    LocalTokenBucket(int rate, int intervalSeconds) {
+        this.rate = rate;
+        this.intervalSeconds = intervalSeconds;
+        this.tokensPerNano = (double) rate / (intervalSeconds * 1_000_000_000L);
+        this.tokens = rate;
+        this.lastRefillNanos = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    synchronized boolean tryAcquire() {
+        if (blockedUntilMillis > 0) {
+            if (System.currentTimeMillis() < blockedUntilMillis) {
+                return false;
+            }
+            blockedUntilMillis = 0;
+        }
+        refill();
+        if (tokens < 1) {
+            return false;
+        }
+        tokens -= 1;
+        pending++;
+        return true;
+    }
+
+    /**
+     * 取出待同步的放行数并清零
+     */
+    synchronized long drainPending() {
+        long drained = pending;
+        pending = 0;
+        return drained;
+    }
+
+    /**
+     * 按全局剩余额度收紧本地令牌
+     *
+     * @param globalRemaining  当前窗口全局剩余额度
+     * @param windowEndMillis  当前窗口结束时间
+     */
+    synchronized void reconcile(long globalRemaining, long windowEndMillis) {
+        refill();
+        if (globalRemaining <= 0) {
+            tokens = 0;
+            blockedUntilMillis = windowEndMillis;
+            return;
+        }
+        tokens = Math.min(tokens, globalRemaining);
+    }
+
+    private void refill() {
+        long now = System.nanoTime();
+        tokens = Math.min(rate, tokens + (now - lastRefillNanos) * tokensPerNano);
+        lastRefillNanos = now;
+    }
+}
@@ -0,0 +1,164 @@
+package com.mashang.aicode.web.ratelimiter.core;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mashang.aicode.web.ratelimiter.config.RateLimiterConfig;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.annotation.Resource;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.redis.core.RedisOperations;
+import org.springframework.data.redis.core.SessionCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 限流引擎
+ * <p>
+ * 请求只在本地令牌桶中判定，不经过网络；后台线程定时把各桶的放行数以固定窗口计数的方式累加到 Redis
+ * （一次 pipeline），再用返回的全局计数收紧本地令牌，多节点下的全局限流因此近似准确，
+ * 最大误差为一个同步周期内各节点的放行量。Redis 不可用时自动退化为单机限流，恢复后继续同步。
+ */
+@Slf4j
+@Component
+public class RateLimiterEngine {
+
+    private static final String WINDOW_KEY_SEPARATOR = ":w:";
+
+    @Resource
+    private StringRedisTemplate stringRedisTemplate;
+
+    @Resource
+    private RateLimiterConfig rateLimiterConfig;
+
+    private Cache<String, LocalTokenBucket> buckets;
+
+    private ScheduledExecutorService syncScheduler;
+
+    private volatile boolean redisAvailable = true;
+
+    @PostConstruct
+    public void init() {
+        buckets = Caffeine.newBuilder()
+                .maximumSize(rateLimiterConfig.getLocalMaxKeys())
+                .expireAfterAccess(Duration.ofSeconds(rateLimiterConfig.getIdleExpireSeconds()))
+                .build();
+        if (!rateLimiterConfig.isSyncEnabled()) {
+            log.info("限流未开启 Redis 同步，仅做单机限流");
+            return;
+        }
+        syncScheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "rate-limiter-sync");
+            t.setDaemon(true);
+            return t;
+        });
+        long interval = rateLimiterConfig.getSyncIntervalMillis();
+        syncScheduler.scheduleWithFixedDelay(this::syncSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (syncScheduler != null) {
+            syncScheduler.shutdown();
+        }
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @param key             限流 key
+     * @param rate            每个时间窗口允许的请求数
+     * @param intervalSeconds 时间窗口秒数
+     * @return 是否放行
+     */
+    public boolean tryAcquire(String key, int rate, int intervalSeconds) {
+        LocalTokenBucket bucket = buckets.get(key, k -> new LocalTokenBucket(rate, intervalSeconds));
+        if (bucket.getRate() != rate || bucket.getIntervalSeconds() != intervalSeconds) {
+            // 同一个 key 的限流参数被修改（如重新部署），以新参数为准
+            bucket = new LocalTokenBucket(rate, intervalSeconds);
+            buckets.put(key, bucket);
+        }
+        return bucket.tryAcquire();
+    }
+
+    private void syncSafely() {
+        try {
+            sync();
+        } catch (Exception e) {
+            log.error("限流计数同步异常: {}", e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 把上个周期的放行数累加到 Redis 的窗口计数上，并用全局计数收紧本地令牌桶
+     */
+    private void sync() {
+        long nowMillis = System.currentTimeMillis();
+        List<String> keys = new ArrayList<>();
+        List<Long> deltas = new ArrayList<>();
+        List<Integer> intervals = new ArrayList<>();
+        List<LocalTokenBucket> dirtyBuckets = new ArrayList<>();
+        for (Map.Entry<String, LocalTokenBucket> entry : buckets.asMap().entrySet()) {
+            LocalTokenBucket bucket = entry.getValue();
+            long delta = bucket.drainPending();
+            if (delta == 0) {
+                continue;
+            }
+            long windowIndex = nowMillis / 1000 / bucket.getIntervalSeconds();
+            keys.add(entry.getKey() + WINDOW_KEY_SEPARATOR + windowIndex);
+            deltas.add(delta);
+            intervals.add(bucket.getIntervalSeconds());
+            dirtyBuckets.add(bucket);
+        }
+        if (keys.isEmpty()) {
+            return;
+        }
+
+        List<Object> results;
+        try {
+            results = stringRedisTemplate.executePipelined(new SessionCallback<Object>() {
+                @Override
+                @SuppressWarnings("unchecked")
+                public <K, V> Object execute(RedisOperations<K, V> operations) throws DataAccessException {
+                    RedisOperations<String, String> ops = (RedisOperations<String, String>) operations;
+                    for (int i = 0; i < keys.size(); i++) {
+                        ops.opsForValue().increment(keys.get(i), deltas.get(i));
+                        ops.expire(keys.get(i), Duration.ofSeconds(intervals.get(i) * 2L));
+                    }
+                    return null;
+                }
+            });
+        } catch (Exception e) {
+            if (redisAvailable) {
+                redisAvailable = false;
+                log.warn("限流计数同步 Redis 失败，降级为单机限流: {}", e.getMessage());
+            }
+            return;
+        }
+        if (!redisAvailable) {
+            redisAvailable = true;
+            log.info("Redis 已恢复，限流计数重新开始同步");
+        }
+
+        // 结果依次为 INCRBY、EXPIRE 的返回值
+        for (int i = 0; i < dirtyBuckets.size(); i++) {
+            Object count = results.get(i * 2);
+            if (!(count instanceof Long globalCount)) {
+                continue;
+            }
+            LocalTokenBucket bucket = dirtyBuckets.get(i);
+            long intervalMillis = bucket.getIntervalSeconds() * 1000L;
+            long windowEndMillis = (nowMillis / intervalMillis + 1) * intervalMillis;
+            bucket.reconcile(bucket.getRate() - globalCount, windowEndMillis);
+        }
+    }
+}
@@ -78,6 +78,15 @@ public interface AppService extends IService<App> {
      */
     String deployApp(Long appId, User loginUser);
 
+    /**
+     * 回滚应用到上一个部署版本
+     *
+     * @param appId     应用id
+     * @param loginUser 登录用户
+     * @return 部署地址
+     */
+    String rollbackDeploy(Long appId, User loginUser);
+
     /**
      * 删除应用（同时删除关联的对话历史）
      *
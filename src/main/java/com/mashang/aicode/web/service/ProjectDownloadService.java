@@ -1,5 +1,6 @@
 package com.mashang.aicode.web.service;
 
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 
 import java.nio.file.Path;
@@ -8,6 +9,6 @@ public interface ProjectDownloadService {
 
     boolean isPathAllowed(Path projectRoot, Path fullPath);
 
-    void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletResponse response);
+    void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletRequest request, HttpServletResponse response);
 
 }
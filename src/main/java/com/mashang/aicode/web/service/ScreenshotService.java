@@ -1,7 +1,18 @@
 package com.mashang.aicode.web.service;
 
+import java.util.concurrent.CompletableFuture;
+
 public interface ScreenshotService {
 
     String generateAndUploadScreenshot(String webUrl);
 
+    /**
+     * 异步生成截图并上传，同一 dedupeKey 排队中的请求只截图一次
+     *
+     * @param dedupeKey 去重 key（如部署地址）
+     * @param webUrl    网页地址
+     * @return 截图的对象存储地址
+     */
+    CompletableFuture<String> generateAndUploadScreenshotAsync(String dedupeKey, String webUrl);
+
 }
@@ -2,7 +2,6 @@ package com.mashang.aicode.web.service.impl;
 
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
-import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.RandomUtil;
 import cn.hutool.core.util.StrUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
@@ -12,14 +11,18 @@ import com.baomidou.mybatisplus.core.conditions.update.LambdaUpdateWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.mashang.aicode.web.ai.core.AiCodeGeneratorFacade;
 import com.mashang.aicode.web.ai.core.StreamHandlerExecutor;
-import com.mashang.aicode.web.ai.core.builder.ProjectBuilder;
+import com.mashang.aicode.web.ai.core.builder.ProjectBuildScheduler;
 import com.mashang.aicode.web.ai.model.enums.CodeGenTypeEnum;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
 import com.mashang.aicode.web.constant.AppConstant;
+import com.mashang.aicode.web.manager.deploy.AssetOptimizer;
+import com.mashang.aicode.web.manager.deploy.DeploymentStore;
 import com.mashang.aicode.web.constant.PointsConstants;
 import com.mashang.aicode.web.constant.UserConstant;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.exception.ThrowUtils;
+import com.mashang.aicode.web.manager.assembler.VOAssembler;
 
 import com.mashang.aicode.web.mapper.AppMapper;
 import com.mashang.aicode.web.mapper.UserMapper;
@@ -61,6 +64,9 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     @Resource
     private UserMapper userMapper;
 
+    @Resource
+    private VOAssembler voAssembler;
+
     @Resource
     private ChatHistoryService chatHistoryService;
 
@@ -70,10 +76,16 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
     private StreamHandlerExecutor streamHandlerExecutor;
 
     @Resource
-    private ProjectBuilder projectBuilder;
+    private ProjectBuildScheduler projectBuildScheduler;
 
     @Resource
     private ScreenshotService screenshotService;
+
+    @Resource
+    private DeploymentStore deploymentStore;
+
+    @Resource
+    private AssetOptimizer assetOptimizer;
     @Autowired
     private GenerationValidationService generationValidationService;
     @Autowired
@@ -81,43 +93,13 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 
     @Override
     public AppVO getAppVO(App app) {
-        if (app == null) {
-            return null;
-        }
-        AppVO appVO = new AppVO();
-        BeanUtil.copyProperties(app, appVO);
-
-        // 设置用户信息
-        if (app.getUserId() != null) {
-            User user = userMapper.selectById(app.getUserId());
-            if (user != null) {
-                UserVO userVO = userService.getUserVO(user);
-                appVO.setUser(userVO);
-            }
-        }
-
-        return appVO;
+        return voAssembler.toAppVO(app);
     }
 
     @Override
     public List<AppVO> getAppVOList(List<App> appList) {
-        if (CollUtil.isEmpty(appList)) {
-            return new ArrayList<>();
-        }
-
-        // 获取所有用户ID
-        List<Long> userIds = appList.stream().map(App::getUserId).distinct().collect(Collectors.toList());
-
-        // 批量查询用户信息
-        Map<Long, UserVO> userVOMap = userMapper.selectList(new LambdaQueryWrapper<User>().select(User::getId, User::getUserName, User::getUserAvatar).in(User::getId, userIds)).stream().map(userService::getUserVO).collect(Collectors.toMap(UserVO::getId, userVO -> userVO));
-
-        // 转换为VO列表
-        return appList.stream().map(app -> {
-            AppVO appVO = new AppVO();
-            BeanUtil.copyProperties(app, appVO);
-            appVO.setUser(userVOMap.get(app.getUserId()));
-            return appVO;
-        }).collect(Collectors.toList());
+        // 创建者信息批量查询
+        return voAssembler.toAppVOList(appList);
     }
 
     @Override
@@ -334,7 +316,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         );
 
         // 调用 AI 生成代码（流式）
-        Flux<String> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId, null, loginUser.getId(), loginUser);
+        Flux<StreamMessage> codeStream = aiCodeGeneratorFacade.generateAndSaveCodeStream(message, codeGenTypeEnum, appId, null, loginUser.getId(), loginUser);
 
         //流式响应完成后再清除上下文
         //收集 AI 响应内容并在完成后记录到对话历史
@@ -383,8 +365,8 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         // 7. Vue/React 项目特殊处理：执行构建
         CodeGenTypeEnum codeGenTypeEnum = CodeGenTypeEnum.getEnumByValue(codeGenType);
         if (codeGenTypeEnum == CodeGenTypeEnum.VUE_PROJECT || codeGenTypeEnum == CodeGenTypeEnum.REACT_PROJECT) {
-            // Vue/React 项目需要构建
-            boolean buildSuccess = projectBuilder.buildProject(sourceDirPath);
+            // Vue/React 项目需要构建：等待生成完成后已提交的构建，源码未变化时直接复用 dist
+            boolean buildSuccess = projectBuildScheduler.awaitBuild(sourceDirPath);
             ThrowUtils.throwIf(!buildSuccess, ErrorCode.SYSTEM_ERROR, "Vue/React 项目构建失败，请检查代码和依赖");
             // 检查 dist 目录是否存在
             File distDir = new File(sourceDirPath, "dist");
@@ -393,12 +375,12 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
             sourceDir = distDir;
             log.info("Vue/React 项目构建成功，将部署 dist 目录: {}", distDir.getAbsolutePath());
         }
-        String deployDirPath = AppConstant.CODE_DEPLOY_ROOT_DIR + File.separator + deployKey;
-        //执行复制文件
+        //静态资源优化（精简、文件名加哈希、预压缩）后写入新版本并原子切换，未变化的文件直接复用
+        File optimizedDir = assetOptimizer.optimize(sourceDir);
         try {
-            FileUtil.copyContent(sourceDir, new File(deployDirPath), true);
-        } catch (Exception e) {
-            throw new BusinessException(ErrorCode.SYSTEM_ERROR, "部署失败：" + e.getMessage());
+            deploymentStore.publish(deployKey, optimizedDir);
+        } finally {
+            assetOptimizer.cleanup(sourceDir, optimizedDir);
         }
         App updateApp = new App();
         updateApp.setId(appId);
@@ -411,6 +393,26 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         return appDeployUrl;
     }
 
+    @Override
+    public String rollbackDeploy(Long appId, User loginUser) {
+        ThrowUtils.throwIf(appId == null || appId <= 0, ErrorCode.PARAMS_ERROR, "应用 ID 不能为空");
+        ThrowUtils.throwIf(loginUser == null, ErrorCode.NOT_LOGIN_ERROR, "用户未登录");
+
+        App app = this.getById(appId);
+        ThrowUtils.throwIf(app == null, ErrorCode.NOT_FOUND_ERROR, "应用不存在");
+
+        if (!app.getUserId().equals(loginUser.getId())) {
+            throw new BusinessException(ErrorCode.NO_AUTH_ERROR, "无权限回滚该应用");
+        }
+        String deployKey = app.getDeployKey();
+        ThrowUtils.throwIf(StrUtil.isBlank(deployKey), ErrorCode.OPERATION_ERROR, "应用尚未部署");
+
+        deploymentStore.rollback(deployKey);
+        String appDeployUrl = String.format("%s/%s/", AppConstant.CODE_DEPLOY_HOST, deployKey);
+        generateAppScreenshotAsync(appId, appDeployUrl);
+        return appDeployUrl;
+    }
+
     /**
      * 删除应用（同时删除关联的对话历史）
      *
@@ -468,15 +470,19 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
 
     @Override
     public void generateAppScreenshotAsync(Long appId, String appUrl) {
-        //开一个虚拟线程，执行异步截图操作
-        Thread.startVirtualThread(() -> {
-            String screenshotUrl = screenshotService.generateAndUploadScreenshot(appUrl);
-            App updateApp = new App();
-            updateApp.setId(appId);
-            updateApp.setCover(screenshotUrl);
-            boolean updated = this.updateById(updateApp);
-            ThrowUtils.throwIf(!updated, ErrorCode.OPERATION_ERROR, "更新应用封面字段失败");
-        });
+        //提交到截图引擎排队执行，同一部署地址排队中的截图只执行一次
+        screenshotService.generateAndUploadScreenshotAsync(appUrl, appUrl)
+                .thenAccept(screenshotUrl -> {
+                    App updateApp = new App();
+                    updateApp.setId(appId);
+                    updateApp.setCover(screenshotUrl);
+                    boolean updated = this.updateById(updateApp);
+                    ThrowUtils.throwIf(!updated, ErrorCode.OPERATION_ERROR, "更新应用封面字段失败");
+                })
+                .exceptionally(e -> {
+                    log.error("生成应用封面失败，appId: {}, error: {}", appId, e.getMessage());
+                    return null;
+                });
     }
 
     @Override
@@ -502,9 +508,7 @@ public class AppServiceImpl extends ServiceImpl<AppMapper, App> implements AppSe
         appVOPage.setTotal(appPage.getTotal());
         appVOPage.setPages(appPage.getPages());
 
-        List<AppVO> appVOList = appPage.getRecords().stream()
-                .map(this::getAppVO)
-                .collect(Collectors.toList());
+        List<AppVO> appVOList = getAppVOList(appPage.getRecords());
 
         appVOPage.setRecords(appVOList);
 
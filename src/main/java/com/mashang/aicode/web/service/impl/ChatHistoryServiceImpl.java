@@ -13,14 +13,17 @@ import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.model.enums.ChatHistoryMessageTypeEnum;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.exception.ThrowUtils;
+import com.mashang.aicode.web.manager.assembler.VOAssembler;
+import com.mashang.aicode.web.manager.history.ChatHistoryWriter;
 import com.mashang.aicode.web.mapper.ChatHistoryMapper;
 import com.mashang.aicode.web.model.dto.chat.ChatHistoryQueryRequest;
 import com.mashang.aicode.web.model.entity.ChatHistory;
+import com.mashang.aicode.web.model.vo.AppVO;
 import com.mashang.aicode.web.model.vo.ChatHistoryVO;
+import com.mashang.aicode.web.model.vo.UserVO;
 import com.mashang.aicode.web.service.AppService;
 import com.mashang.aicode.web.service.ChatHistoryService;
 import com.mashang.aicode.web.service.SpaceUserService;
-import com.mashang.aicode.web.service.UserService;
 import dev.langchain4j.data.message.AiMessage;
 import dev.langchain4j.data.message.UserMessage;
 import dev.langchain4j.memory.chat.MessageWindowChatMemory;
@@ -30,7 +33,9 @@ import org.springframework.context.annotation.Lazy;
 import org.springframework.stereotype.Service;
 
 import java.time.LocalDateTime;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 /**
@@ -40,9 +45,6 @@ import java.util.stream.Collectors;
 @Slf4j
 public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatHistory> implements ChatHistoryService {
 
-    @Resource
-    private UserService userService;
-
     @Resource
     @Lazy
     private AppService appService;
@@ -50,6 +52,17 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
     @Resource
     private SpaceUserService spaceUserService;
 
+    @Resource
+    private ChatHistoryWriter chatHistoryWriter;
+
+    @Resource
+    private VOAssembler voAssembler;
+
+    /**
+     * 更新消息状态前等待异步写入完成的最长毫秒数
+     */
+    private static final long FLUSH_TIMEOUT_MILLIS = 3000;
+
     @Override
     public boolean saveUserMessage(Long appId, Long userId, String messageContent) {
         ChatHistory chatHistory = ChatHistory.builder()
@@ -60,7 +73,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(chatHistory);
+        chatHistoryWriter.submit(chatHistory);
+        return true;
     }
 
     @Override
@@ -106,7 +120,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .createTime(LocalDateTime.now())
                 .updateTime(LocalDateTime.now())
                 .build();
-        return save(chatHistory);
+        chatHistoryWriter.submit(chatHistory);
+        return true;
     }
 
     @Override
@@ -197,33 +212,24 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         if (chatHistory == null) {
             return null;
         }
-        ChatHistoryVO chatHistoryVO = new ChatHistoryVO();
-        BeanUtil.copyProperties(chatHistory, chatHistoryVO);
-
-//        // 设置消息类型描述
-//        ChatHistoryMessageTypeEnum messageTypeEnum = ChatHistoryMessageTypeEnum.getEnumByValue(chatHistory.getMessageType());
-//        if (messageTypeEnum != null) {
-//            chatHistoryVO.setMessageTypeDesc(messageTypeEnum.getDescription());
-//        }
-
-        // 设置用户信息
-        if (chatHistory.getUserId() != null) {
-            chatHistoryVO.setUser(userService.getUserVO(userService.getById(chatHistory.getUserId())));
-        }
-
-        // 设置应用信息
-        if (chatHistory.getAppId() != null) {
-            chatHistoryVO.setApp(appService.getAppVO(appService.getById(chatHistory.getAppId())));
-        }
-
-        return chatHistoryVO;
+        return getChatHistoryVOList(List.of(chatHistory)).get(0);
     }
 
     @Override
     public List<ChatHistoryVO> getChatHistoryVOList(List<ChatHistory> chatHistoryList) {
-        return chatHistoryList.stream()
-                .map(this::getChatHistoryVO)
-                .collect(Collectors.toList());
+        if (CollUtil.isEmpty(chatHistoryList)) {
+            return new ArrayList<>();
+        }
+        // 整页的用户、应用各批量查询一次，避免逐行查询
+        Map<Long, UserVO> userVOMap = voAssembler.getUserVOMap(chatHistoryList.stream().map(ChatHistory::getUserId).toList());
+        Map<Long, AppVO> appVOMap = voAssembler.getAppVOMap(chatHistoryList.stream().map(ChatHistory::getAppId).toList());
+        return chatHistoryList.stream().map(chatHistory -> {
+            ChatHistoryVO chatHistoryVO = new ChatHistoryVO();
+            BeanUtil.copyProperties(chatHistory, chatHistoryVO);
+            chatHistoryVO.setUser(userVOMap.get(chatHistory.getUserId()));
+            chatHistoryVO.setApp(appVOMap.get(chatHistory.getAppId()));
+            return chatHistoryVO;
+        }).collect(Collectors.toList());
     }
 
     @Override
@@ -241,7 +247,9 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
                 .messageType(messageType)
                 .userId(userId)
                 .build();
-        return this.save(chatHistory);
+        // 异步批量写入，不阻塞流式输出的完成路径
+        chatHistoryWriter.submit(chatHistory);
+        return true;
     }
 
     @Override
@@ -295,6 +303,8 @@ public class ChatHistoryServiceImpl extends ServiceImpl<ChatHistoryMapper, ChatH
         ThrowUtils.throwIf(status == null, ErrorCode.PARAMS_ERROR, "状态不能为空");
 
         try {
+            // 等待已入队的消息写库，避免更新到上一条消息
+            chatHistoryWriter.flush(FLUSH_TIMEOUT_MILLIS);
             // 构建更新条件：根据appId和userId更新最新的AI消息状态
             QueryWrapper<ChatHistory> queryWrapper = new QueryWrapper<>();
             queryWrapper.eq("appId", appId)
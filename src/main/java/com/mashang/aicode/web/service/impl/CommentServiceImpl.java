@@ -3,26 +3,20 @@ package com.mashang.aicode.web.service.impl;
 import cn.hutool.core.bean.BeanUtil;
 import cn.hutool.core.collection.CollUtil;
 import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
-import com.baomidou.mybatisplus.core.conditions.query.LambdaQueryWrapper;
 import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.exception.ThrowUtils;
-import com.mashang.aicode.web.mapper.AppMapper;
+import com.mashang.aicode.web.manager.assembler.VOAssembler;
 import com.mashang.aicode.web.mapper.CommentMapper;
-import com.mashang.aicode.web.mapper.UserMapper;
 import com.mashang.aicode.web.model.dto.comment.CommentQueryRequest;
-import com.mashang.aicode.web.model.entity.App;
 import com.mashang.aicode.web.model.entity.Comment;
-import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.model.vo.AppVO;
 import com.mashang.aicode.web.model.vo.CommentVO;
 import com.mashang.aicode.web.model.vo.UserVO;
-import com.mashang.aicode.web.service.AppService;
 import com.mashang.aicode.web.service.CommentService;
 import com.mashang.aicode.web.service.ForumPostService;
-import com.mashang.aicode.web.service.UserService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -41,48 +35,18 @@ import java.util.stream.Collectors;
 @Slf4j
 public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> implements CommentService {
 
-    @Resource
-    private UserService userService;
-
-    @Resource
-    private AppService appService;
-
     @Resource
     private ForumPostService forumPostService;
 
     @Resource
-    private UserMapper userMapper;
-
-    @Resource
-    private AppMapper appMapper;
+    private VOAssembler voAssembler;
 
     @Override
     public CommentVO getCommentVO(Comment comment) {
         if (comment == null) {
             return null;
         }
-        CommentVO commentVO = new CommentVO();
-        BeanUtil.copyProperties(comment, commentVO);
-
-        // 设置用户信息
-        if (comment.getUserId() != null) {
-            User user = userMapper.selectById(comment.getUserId());
-            if (user != null) {
-                UserVO userVO = userService.getUserVO(user);
-                commentVO.setUser(userVO);
-            }
-        }
-
-        // 设置应用信息
-        if (comment.getAppId() != null) {
-            App app = appMapper.selectById(comment.getAppId());
-            if (app != null) {
-                AppVO appVO = appService.getAppVO(app);
-                commentVO.setApp(appVO);
-            }
-        }
-
-        return commentVO;
+        return getCommentVOList(List.of(comment)).get(0);
     }
 
     @Override
@@ -91,17 +55,11 @@ public class CommentServiceImpl extends ServiceImpl<CommentMapper, Comment> impl
             return new ArrayList<>();
         }
 
-        // 获取所有用户ID
-        List<Long> userIds = commentList.stream().map(Comment::getUserId).distinct().collect(Collectors.toList());
-
         // 批量查询用户信息
-        Map<Long, UserVO> userVOMap = userMapper.selectList(new LambdaQueryWrapper<User>().select(User::getId, User::getUserName, User::getUserAvatar).in(User::getId, userIds)).stream().map(userService::getUserVO).collect(Collectors.toMap(UserVO::getId, userVO -> userVO));
-
-        // 获取所有应用ID
-        List<Long> appIds = commentList.stream().map(Comment::getAppId).distinct().collect(Collectors.toList());
+        Map<Long, UserVO> userVOMap = voAssembler.getUserVOMap(commentList.stream().map(Comment::getUserId).toList());
 
-        // 批量查询应用信息
-        Map<Long, AppVO> appVOMap = appMapper.selectList(new LambdaQueryWrapper<App>().select(App::getId, App::getAppName, App::getCover).in(App::getId, appIds)).stream().map(appService::getAppVO).collect(Collectors.toMap(AppVO::getId, appVO -> appVO));
+        // 批量查询应用信息（含应用创建者）
+        Map<Long, AppVO> appVOMap = voAssembler.getAppVOMap(commentList.stream().map(Comment::getAppId).toList());
 
         // 转换为VO列表
         return commentList.stream().map(comment -> {
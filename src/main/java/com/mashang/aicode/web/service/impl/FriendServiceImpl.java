@@ -4,6 +4,7 @@ import com.baomidou.mybatisplus.extension.plugins.pagination.Page;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
+import com.mashang.aicode.web.manager.assembler.VOAssembler;
 import com.mashang.aicode.web.mapper.ForumPostMapper;
 import com.mashang.aicode.web.mapper.FriendRelationMapper;
 import com.mashang.aicode.web.mapper.FriendRequestMapper;
@@ -17,7 +18,6 @@ import com.mashang.aicode.web.model.entity.User;
 import com.mashang.aicode.web.model.vo.FriendRequestVO;
 import com.mashang.aicode.web.model.vo.UserVO;
 import com.mashang.aicode.web.service.FriendService;
-import com.mashang.aicode.web.service.UserService;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -26,6 +26,7 @@ import org.springframework.transaction.annotation.Transactional;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Map;
 
 /**
  * 好友服务实现类
@@ -44,7 +45,7 @@ public class FriendServiceImpl extends ServiceImpl<FriendRelationMapper, FriendR
     private UserMapper userMapper;
 
     @Resource
-    private UserService userService;
+    private VOAssembler voAssembler;
 
     /**
      * 发送好友请求
@@ -175,6 +176,9 @@ public class FriendServiceImpl extends ServiceImpl<FriendRelationMapper, FriendR
         List<FriendRequest> requests = friendRequestMapper.selectRequestsByAddresseeId(userId, status, offset, pageSize);
         Integer total = friendRequestMapper.countRequestsByAddresseeId(userId, status);
 
+        // 批量查询请求方用户信息
+        Map<Long, UserVO> requesterVOMap = voAssembler.getUserVOMap(requests.stream().map(FriendRequest::getRequesterId).toList());
+
         // 构建VO列表
         List<FriendRequestVO> requestVOs = new ArrayList<>();
         for (FriendRequest request : requests) {
@@ -183,14 +187,7 @@ public class FriendServiceImpl extends ServiceImpl<FriendRelationMapper, FriendR
             requestVO.setMessage(request.getMessage());
             requestVO.setStatus(request.getStatus());
             requestVO.setCreateTime(request.getCreateTime());
-
-            // 查询请求方用户信息
-            User requester = userMapper.selectById(request.getRequesterId());
-            if (requester != null) {
-                UserVO userVO = userService.getUserVO(requester);
-                requestVO.setRequester(userVO);
-            }
-
+            requestVO.setRequester(requesterVOMap.get(request.getRequesterId()));
             requestVOs.add(requestVO);
         }
 
@@ -216,12 +213,14 @@ public class FriendServiceImpl extends ServiceImpl<FriendRelationMapper, FriendR
         List<FriendRelation> relations = friendRelationMapper.selectFriendsByUserId(userId, "ACCEPTED", offset, pageSize);
         Integer total = friendRelationMapper.countFriendsByUserId(userId, "ACCEPTED");
 
+        // 批量查询好友用户信息
+        Map<Long, UserVO> friendVOMap = voAssembler.getUserVOMap(relations.stream().map(FriendRelation::getFriendId).toList());
+
         // 构建用户VO列表
         List<UserVO> userVOs = new ArrayList<>();
         for (FriendRelation relation : relations) {
-            User friend = userMapper.selectById(relation.getFriendId());
-            if (friend != null) {
-                UserVO userVO = userService.getUserVO(friend);
+            UserVO userVO = friendVOMap.get(relation.getFriendId());
+            if (userVO != null) {
                 userVOs.add(userVO);
             }
         }
@@ -5,15 +5,23 @@ import cn.hutool.core.util.ZipUtil;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.exception.ThrowUtils;
+import com.mashang.aicode.web.manager.download.ProjectArchiveCache;
 import com.mashang.aicode.web.service.ProjectDownloadService;
+import jakarta.annotation.Resource;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 
 import java.io.File;
 import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
 import java.util.Set;
 
 /**
@@ -33,6 +41,9 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
      */
     private static final Set<String> IGNORED_EXTENSIONS = Set.of(".log", ".tmp", ".cache");
 
+    @Resource
+    private ProjectArchiveCache projectArchiveCache;
+
     /**
      * 过滤方法
      *
@@ -57,13 +68,17 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
 
     /**
      * 下载项目压缩包方法
+     * <p>
+     * 压缩包按内容缓存，ETag 为内容哈希：客户端带 If-None-Match 且内容未变化时返回 304；
+     * 支持单个 Range 请求断点续传（If-Range 不匹配时返回完整内容）。缓存不可用时退回直接流式打包。
      *
      * @param projectPath
      * @param downloadFileName
+     * @param request
      * @param response
      */
     @Override
-    public void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletResponse response) {
+    public void downloadProjectAsZip(String projectPath, String downloadFileName, HttpServletRequest request, HttpServletResponse response) {
 
         ThrowUtils.throwIf(StrUtil.isBlank(projectPath), ErrorCode.PARAMS_ERROR, "项目路径不能为空");
         ThrowUtils.throwIf(StrUtil.isBlank(downloadFileName), ErrorCode.PARAMS_ERROR, "下载文件名不能为空");
@@ -72,6 +87,72 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
         ThrowUtils.throwIf(!projectDir.isDirectory(), ErrorCode.PARAMS_ERROR, "指定路径不是目录");
         log.info("开始打包下载项目: {} -> {}.zip", projectPath, downloadFileName);
 
+        ProjectArchiveCache.Archive archive;
+        try {
+            archive = projectArchiveCache.getArchive(projectDir.toPath(), this::isPathAllowed);
+        } catch (Exception e) {
+            log.warn("生成缓存压缩包失败，改为直接打包: {}, error: {}", projectPath, e.getMessage());
+            streamZip(projectDir, downloadFileName, response);
+            return;
+        }
+
+        String etag = "\"" + archive.key() + "\"";
+        response.setHeader("ETag", etag);
+        response.setHeader("Cache-Control", "private, no-cache");
+        response.setHeader("Accept-Ranges", "bytes");
+        if (matchesEtag(request.getHeader("If-None-Match"), etag)) {
+            response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+            log.info("项目内容未变化，返回 304: {}", downloadFileName);
+            return;
+        }
+        response.setContentType("application/zip");
+        response.addHeader("Content-Disposition",
+                String.format("attachment; filename=\"%s.zip\"", downloadFileName));
+
+        long length = archive.file().length();
+        long start = 0;
+        long end = length - 1;
+        String range = request.getHeader("Range");
+        String ifRange = request.getHeader("If-Range");
+        long[] byteRange = range != null && (ifRange == null || ifRange.equals(etag)) ? parseRange(range, length) : null;
+        if (byteRange != null && byteRange.length == 0) {
+            response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+            response.setHeader("Content-Range", "bytes */" + length);
+            return;
+        }
+        if (byteRange != null) {
+            start = byteRange[0];
+            end = byteRange[1];
+            response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+            response.setHeader("Content-Range", "bytes " + start + "-" + end + "/" + length);
+        } else {
+            response.setStatus(HttpServletResponse.SC_OK);
+        }
+        response.setContentLengthLong(end - start + 1);
+
+        try (FileChannel channel = FileChannel.open(archive.file().toPath(), StandardOpenOption.READ)) {
+            WritableByteChannel out = Channels.newChannel(response.getOutputStream());
+            long position = start;
+            long remaining = end - start + 1;
+            while (remaining > 0) {
+                long transferred = channel.transferTo(position, remaining, out);
+                if (transferred <= 0) {
+                    break;
+                }
+                position += transferred;
+                remaining -= transferred;
+            }
+            log.info("项目打包下载完成: {}, 字节范围 {}-{}/{}", downloadFileName, start, end, length);
+        } catch (IOException e) {
+            // 响应已开始写出，多为客户端中断下载
+            log.warn("项目压缩包传输中断: {}, error: {}", downloadFileName, e.getMessage());
+        }
+    }
+
+    /**
+     * 直接流式打包（缓存不可用时使用）
+     */
+    private void streamZip(File projectDir, String downloadFileName, HttpServletResponse response) {
         response.setStatus(HttpServletResponse.SC_OK);
         response.setContentType("application/zip");
         response.addHeader("Content-Disposition",
@@ -87,7 +168,51 @@ public class ProjectDownloadServiceImpl implements ProjectDownloadService {
         }
     }
 
+    private boolean matchesEtag(String ifNoneMatch, String etag) {
+        if (StrUtil.isBlank(ifNoneMatch)) {
+            return false;
+        }
+        for (String candidate : ifNoneMatch.split(",")) {
+            String value = StrUtil.removePrefix(candidate.trim(), "W/");
+            if ("*".equals(value) || etag.equals(value)) {
+                return true;
+            }
+        }
+        return false;
+    }
 
+    /**
+     * 解析单个字节范围：bytes=start-end、bytes=start-、bytes=-suffix
+     *
+     * @return {start, end}；范围无法满足时返回空数组；格式不支持（如多个范围）时返回 null，按完整内容返回
+     */
+    private long[] parseRange(String range, long length) {
+        if (!range.startsWith("bytes=") || range.contains(",")) {
+            return null;
+        }
+        String spec = range.substring("bytes=".length()).trim();
+        int dash = spec.indexOf('-');
+        if (dash < 0) {
+            return null;
+        }
+        try {
+            String first = spec.substring(0, dash).trim();
+            String last = spec.substring(dash + 1).trim();
+            if (first.isEmpty()) {
+                long suffix = Long.parseLong(last);
+                if (suffix <= 0 || length == 0) {
+                    return new long[0];
+                }
+                return new long[]{Math.max(length - suffix, 0), length - 1};
+            }
+            long start = Long.parseLong(first);
+            long end = last.isEmpty() ? length - 1 : Math.min(Long.parseLong(last), length - 1);
+            if (start >= length || start > end) {
+                return new long[0];
+            }
+            return new long[]{start, end};
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
 }
-
-
@@ -2,11 +2,12 @@ package com.mashang.aicode.web.service.impl;
 
 import cn.hutool.core.io.FileUtil;
 import cn.hutool.core.util.StrUtil;
+import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import com.mashang.aicode.web.exception.ThrowUtils;
 import com.mashang.aicode.web.manager.cos.CosManager;
+import com.mashang.aicode.web.manager.screenshot.ScreenshotEngine;
 import com.mashang.aicode.web.service.ScreenshotService;
-import com.mashang.aicode.web.utils.WebScreenshotUtils;
 import jakarta.annotation.Resource;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
@@ -14,7 +15,13 @@ import org.springframework.stereotype.Service;
 import java.io.File;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
+import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 @Service
 @Slf4j
@@ -23,6 +30,18 @@ public class ScreenshotServiceImpl implements ScreenshotService {
     @Resource
     private CosManager cosManager;
 
+    @Resource
+    private ScreenshotEngine screenshotEngine;
+
+    private final ExecutorService uploadExecutor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * key: 截图引擎返回的渲染任务, value: 该次渲染结果的上传任务
+     * <p>
+     * 去重合并的请求共享同一个渲染任务，上传和本地文件清理也只执行一次，所有请求拿到同一个 COS 地址
+     */
+    private final Map<CompletableFuture<String>, CompletableFuture<String>> uploads = new ConcurrentHashMap<>();
+
     /**
      * 截图服务
      *
@@ -32,19 +51,44 @@ public class ScreenshotServiceImpl implements ScreenshotService {
     @Override
     public String generateAndUploadScreenshot(String webUrl) {
         ThrowUtils.throwIf(StrUtil.isBlank(webUrl), ErrorCode.PARAMS_ERROR, "网页URL不能为空");
-        log.info("开始生成网页截图，URL: {}", webUrl);
-        String localScreenshotPath = WebScreenshotUtils.saveWebPageScreenshot(webUrl);
-        ThrowUtils.throwIf(StrUtil.isBlank(localScreenshotPath), ErrorCode.OPERATION_ERROR, "本地截图生成失败");
         try {
-            String cosUrl = uploadScreenshotToCos(localScreenshotPath);
-            ThrowUtils.throwIf(StrUtil.isBlank(cosUrl), ErrorCode.OPERATION_ERROR, "截图上传对象存储失败");
-            log.info("网页截图生成并上传成功: {} -> {}", webUrl, cosUrl);
-            return cosUrl;
-        } finally {
-            cleanupLocalFile(localScreenshotPath);
+            return generateAndUploadScreenshotAsync(webUrl, webUrl).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof BusinessException businessException) {
+                throw businessException;
+            }
+            throw new BusinessException(ErrorCode.OPERATION_ERROR, "网页截图失败");
         }
     }
 
+    /**
+     * 异步截图服务：渲染在截图引擎的浏览器池中执行，上传在虚拟线程中执行，不占用浏览器
+     *
+     * @param dedupeKey
+     * @param webUrl
+     * @return
+     */
+    @Override
+    public CompletableFuture<String> generateAndUploadScreenshotAsync(String dedupeKey, String webUrl) {
+        ThrowUtils.throwIf(StrUtil.isBlank(webUrl), ErrorCode.PARAMS_ERROR, "网页URL不能为空");
+        log.info("开始生成网页截图，URL: {}", webUrl);
+        CompletableFuture<String> render = screenshotEngine.submit(dedupeKey, webUrl);
+        CompletableFuture<String> upload = uploads.computeIfAbsent(render, r -> r.thenApplyAsync(localScreenshotPath -> {
+            try {
+                String cosUrl = uploadScreenshotToCos(localScreenshotPath);
+                ThrowUtils.throwIf(StrUtil.isBlank(cosUrl), ErrorCode.OPERATION_ERROR, "截图上传对象存储失败");
+                log.info("网页截图生成并上传成功: {} -> {}", webUrl, cosUrl);
+                return cosUrl;
+            } finally {
+                cleanupLocalFile(localScreenshotPath);
+            }
+        }, uploadExecutor));
+        // 在 computeIfAbsent 之外注册清理，避免在映射函数中修改同一个 Map
+        upload.whenComplete((cosUrl, e) -> uploads.remove(render, upload));
+        // 每个调用方拿到独立的副本，取消自己的副本不影响其他合并的请求
+        return upload.copy();
+    }
+
 
     /**
      * 上传截图到cos
@@ -9,6 +9,7 @@ import com.baomidou.mybatisplus.core.conditions.query.QueryWrapper;
 import com.baomidou.mybatisplus.extension.service.impl.ServiceImpl;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
+import com.mashang.aicode.web.manager.cache.UserCacheManager;
 import com.mashang.aicode.web.mapper.UserMapper;
 import com.mashang.aicode.web.model.dto.user.UserQueryRequest;
 import com.mashang.aicode.web.model.entity.User;
@@ -24,6 +25,7 @@ import jakarta.servlet.http.HttpServletRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.util.DigestUtils;
 
+import java.io.Serializable;
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
@@ -43,6 +45,9 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
     @Resource
     private UserPointService userPointService;
 
+    @Resource
+    private UserCacheManager userCacheManager;
+
     @Override
     public long userRegister(String userAccount, String userPassword, String checkPassword) {
         // 1. 校验参数
@@ -126,14 +131,35 @@ public class UserServiceImpl extends ServiceImpl<UserMapper, User> implements Us
         }
         // 从 Sa-Token 获取用户ID
         long userId = StpUtil.getLoginIdAsLong();
-        // 从数据库查询当前用户信息
-        User currentUser = this.getById(userId);
+        // 先查两级缓存，未命中再查数据库
+        User currentUser = userCacheManager.get(userId, this::getById);
         if (currentUser == null) {
             throw new BusinessException(ErrorCode.NOT_LOGIN_ERROR);
         }
         return currentUser;
     }
 
+    /**
+     * 所有经过 Service 的用户更新（修改资料、头像、密码、管理员修改角色）都会清除用户缓存
+     */
+    @Override
+    public boolean updateById(User user) {
+        boolean result = super.updateById(user);
+        if (result) {
+            userCacheManager.evict(user.getId());
+        }
+        return result;
+    }
+
+    @Override
+    public boolean removeById(Serializable id) {
+        boolean result = super.removeById(id);
+        if (result) {
+            userCacheManager.evict(Long.valueOf(id.toString()));
+        }
+        return result;
+    }
+
     @Override
     public UserVO getUserVO(User user) {
         if (user == null) {
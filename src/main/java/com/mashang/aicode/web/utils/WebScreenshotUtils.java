@@ -7,11 +7,13 @@ import cn.hutool.core.util.StrUtil;
 import com.mashang.aicode.web.exception.BusinessException;
 import com.mashang.aicode.web.exception.ErrorCode;
 import io.github.bonigarcia.wdm.WebDriverManager;
-import jakarta.annotation.PreDestroy;
 import lombok.extern.slf4j.Slf4j;
+import org.openqa.selenium.JavascriptException;
 import org.openqa.selenium.JavascriptExecutor;
 import org.openqa.selenium.OutputType;
+import org.openqa.selenium.ScriptTimeoutException;
 import org.openqa.selenium.TakesScreenshot;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebDriver;
 import org.openqa.selenium.chrome.ChromeDriver;
 import org.openqa.selenium.chrome.ChromeOptions;
@@ -23,34 +25,57 @@ import java.util.UUID;
 
 /**
  * 截图工具类
+ * <p>
+ * 只负责单次渲染，浏览器实例由调用方持有（见 {@link com.mashang.aicode.web.manager.screenshot.ScreenshotEngine}），
+ * WebDriver 不是线程安全的，同一实例不能被多个线程同时使用。
  */
 @Slf4j
 public class WebScreenshotUtils {
 
-    private static final WebDriver webDriver;
-
-    // 全局静态初始化，避免重复初始化驱动程序：
-    static {
-        final int DEFAULT_WIDTH = 1600;
-        final int DEFAULT_HEIGHT = 900;
-        webDriver = initChromeDriver(DEFAULT_WIDTH, DEFAULT_HEIGHT);
-    }
-
     /**
-     * 退出时销毁
+     * 页面就绪检测脚本：等待字体和图片加载完成，之后 DOM 持续 quietMillis 无变化即返回
      */
-    @PreDestroy
-    public void destroy() {
-        webDriver.quit();
-    }
+    private static final String PAGE_READY_SCRIPT = """
+            var quietMillis = arguments[0];
+            var done = arguments[arguments.length - 1];
+            var ready = false;
+            var timer = null;
+            var observer = new MutationObserver(function () {
+                if (ready) {
+                    arm();
+                }
+            });
+            function finish() {
+                observer.disconnect();
+                done(true);
+            }
+            function arm() {
+                clearTimeout(timer);
+                timer = setTimeout(finish, quietMillis);
+            }
+            observer.observe(document.documentElement, {subtree: true, childList: true, attributes: true, characterData: true});
+            var pending = Array.from(document.images)
+                .filter(function (img) { return !img.complete; })
+                .map(function (img) { return new Promise(function (resolve) { img.onload = img.onerror = resolve; }); });
+            pending.push(document.fonts ? document.fonts.ready : Promise.resolve());
+            Promise.all(pending).then(function () {
+                ready = true;
+                arm();
+            });
+            """;
+
+    private static volatile boolean driverSetup = false;
 
     /**
      * 生成网页截图
      *
-     * @param webUrl 要截图的网址
+     * @param webDriver          浏览器实例，调用期间由当前线程独占
+     * @param webUrl             要截图的网址
+     * @param readyTimeoutMillis 等待页面就绪的最长毫秒数
+     * @param quietMillis        DOM 无变化多久视为渲染完成
      * @return 压缩后的截图文件路径，失败返回 null
      */
-    public static String saveWebPageScreenshot(String webUrl) {
+    public static String saveWebPageScreenshot(WebDriver webDriver, String webUrl, long readyTimeoutMillis, long quietMillis) {
         // 非空校验
         if (StrUtil.isBlank(webUrl)) {
             log.error("网页截图失败，url为空");
@@ -66,8 +91,8 @@ public class WebScreenshotUtils {
             String imageSavePath = rootPath + File.separator + RandomUtil.randomNumbers(5) + IMAGE_SUFFIX;
             // 访问网页
             webDriver.get(webUrl);
-            // 等待网页加载
-            waitForPageLoad(webDriver);
+            // 等待网页就绪
+            waitForPageReady(webDriver, readyTimeoutMillis, quietMillis);
             // 截图
             byte[] screenshotBytes = ((TakesScreenshot) webDriver).getScreenshotAs(OutputType.BYTES);
             // 保存原始图片
@@ -90,10 +115,10 @@ public class WebScreenshotUtils {
     /**
      * 初始化 Chrome 浏览器驱动
      */
-    private static WebDriver initChromeDriver(int width, int height) {
+    public static WebDriver initChromeDriver(int width, int height) {
         try {
-            // 自动管理 ChromeDriver
-            WebDriverManager.chromedriver().setup();
+            // 自动管理 ChromeDriver，只需准备一次
+            setupDriverOnce();
             // 配置 Chrome 选项
             ChromeOptions options = new ChromeOptions();
             // 无头模式
@@ -114,8 +139,6 @@ public class WebScreenshotUtils {
             WebDriver driver = new ChromeDriver(options);
             // 设置页面加载超时
             driver.manage().timeouts().pageLoadTimeout(Duration.ofSeconds(30));
-            // 设置隐式等待
-            driver.manage().timeouts().implicitlyWait(Duration.ofSeconds(10));
             return driver;
         } catch (Exception e) {
             log.error("初始化 Chrome 浏览器失败", e);
@@ -123,6 +146,13 @@ public class WebScreenshotUtils {
         }
     }
 
+    private static synchronized void setupDriverOnce() {
+        if (!driverSetup) {
+            WebDriverManager.chromedriver().setup();
+            driverSetup = true;
+        }
+    }
+
     /**
      * 保存图片到文件
      *
@@ -160,24 +190,34 @@ public class WebScreenshotUtils {
     }
 
     /**
-     * 等待页面加载完成
+     * 等待页面就绪
+     * 先等 document.readyState 为 complete，再等字体、图片加载完成且 DOM 短时间内不再变化，
+     * 静态页面通常几百毫秒即可截图，不再固定等待
      *
      * @param webDriver
+     * @param readyTimeoutMillis
+     * @param quietMillis
      */
-    private static void waitForPageLoad(WebDriver webDriver) {
+    private static void waitForPageReady(WebDriver webDriver, long readyTimeoutMillis, long quietMillis) {
+        long start = System.currentTimeMillis();
         try {
             // 创建等待页面加载对象
-            WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofSeconds(10));
+            WebDriverWait wait = new WebDriverWait(webDriver, Duration.ofMillis(readyTimeoutMillis));
             // 等待 document.readyState 为 complete
             wait.until(driver -> ((JavascriptExecutor) driver)
                     .executeScript("return document.readyState").
                     equals("complete")
             );
-            // 额外等待一段时间，确保动态内容加载完成
-            Thread.sleep(2000);
-            log.info("页面加载完成");
-        } catch (Exception e) {
-            log.error("等待页面加载时出现异常，继续执行截图", e);
+            long remaining = Math.max(readyTimeoutMillis - (System.currentTimeMillis() - start), quietMillis);
+            webDriver.manage().timeouts().scriptTimeout(Duration.ofMillis(remaining));
+            ((JavascriptExecutor) webDriver).executeAsyncScript(PAGE_READY_SCRIPT, quietMillis);
+            log.info("页面就绪，耗时 {}ms", System.currentTimeMillis() - start);
+        } catch (ScriptTimeoutException e) {
+            log.warn("等待页面稳定超时（{}ms），继续执行截图", readyTimeoutMillis);
+        } catch (TimeoutException e) {
+            log.warn("等待页面加载超时（{}ms），继续执行截图", readyTimeoutMillis);
+        } catch (JavascriptException e) {
+            log.warn("页面就绪检测脚本执行失败，继续执行截图: {}", e.getMessage());
         }
     }
 }
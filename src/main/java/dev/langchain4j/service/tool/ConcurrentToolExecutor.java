@@ -0,0 +1,19 @@
+package dev.langchain4j.service.tool;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+
+/**
+ * A {@link ToolExecutor} that declares its {@link ToolConcurrency}, allowing independent tool calls
+ * from the same {@code AiMessage} to be executed concurrently.
+ * Executors not implementing this interface are treated as {@link ToolConcurrency#EXCLUSIVE}.
+ */
+public interface ConcurrentToolExecutor extends ToolExecutor {
+
+    ToolConcurrency concurrency();
+
+    /**
+     * @return the resource written by a {@link ToolConcurrency#WORKSPACE_WRITE} call,
+     * or {@code null} if it cannot be determined, in which case the call is executed exclusively
+     */
+    String resourceKey(ToolExecutionRequest request);
+}
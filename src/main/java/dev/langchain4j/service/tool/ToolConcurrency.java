@@ -0,0 +1,23 @@
+package dev.langchain4j.service.tool;
+
+/**
+ * Declares how a tool call may overlap with other tool calls requested in the same {@code AiMessage}.
+ */
+public enum ToolConcurrency {
+
+    /**
+     * Has no side effects; may run concurrently with other read-only calls.
+     */
+    READ_ONLY,
+
+    /**
+     * Writes a single workspace resource identified by {@link ConcurrentToolExecutor#resourceKey};
+     * writes to different resources may run concurrently, writes to the same resource are serialized.
+     */
+    WORKSPACE_WRITE,
+
+    /**
+     * Must not overlap with any other tool call.
+     */
+    EXCLUSIVE
+}
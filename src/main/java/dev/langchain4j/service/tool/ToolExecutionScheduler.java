@@ -0,0 +1,112 @@
+package dev.langchain4j.service.tool;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Schedules the tool calls of one {@code AiMessage} according to their {@link ToolConcurrency}.
+ * Read-only calls overlap with each other and writes to different resources overlap with each other,
+ * while every call still observes the effects of conflicting calls requested before it:
+ * a read waits for preceding writes, a write waits for preceding reads and preceding writes to the same resource,
+ * and an exclusive call waits for everything before it and runs on the calling thread.
+ */
+public class ToolExecutionScheduler {
+
+    private final Map<String, ToolExecutor> toolExecutors;
+    private final Executor executor;
+
+    /**
+     * @param toolExecutors tool executors by tool name
+     * @param executor      runs the calls that may overlap
+     */
+    public ToolExecutionScheduler(Map<String, ToolExecutor> toolExecutors, Executor executor) {
+        this.toolExecutors = toolExecutors;
+        this.executor = executor;
+    }
+
+    /**
+     * @return one result per request, in request order; a failed call completes its future exceptionally
+     * without affecting the calls scheduled after it
+     */
+    public List<CompletableFuture<String>> schedule(List<ToolExecutionRequest> requests, Object memoryId) {
+        List<CompletableFuture<String>> results = new ArrayList<>(requests.size());
+        if (requests.size() == 1) {
+            results.add(executeNow(requests.get(0), memoryId));
+            return results;
+        }
+        List<CompletableFuture<String>> reads = new ArrayList<>();
+        List<CompletableFuture<String>> writes = new ArrayList<>();
+        Map<String, CompletableFuture<String>> lastWriteByResource = new HashMap<>();
+        for (ToolExecutionRequest request : requests) {
+            ToolExecutor toolExecutor = toolExecutors.get(request.name());
+            ToolConcurrency concurrency = ToolConcurrency.EXCLUSIVE;
+            String resourceKey = null;
+            if (toolExecutor instanceof ConcurrentToolExecutor concurrentToolExecutor) {
+                concurrency = concurrentToolExecutor.concurrency();
+                if (concurrency == ToolConcurrency.WORKSPACE_WRITE) {
+                    resourceKey = concurrentToolExecutor.resourceKey(request);
+                    if (resourceKey == null) {
+                        concurrency = ToolConcurrency.EXCLUSIVE;
+                    }
+                }
+            }
+            switch (concurrency) {
+                case READ_ONLY -> {
+                    CompletableFuture<String> result = executeAfter(writes, request, memoryId);
+                    reads.add(result);
+                    results.add(result);
+                }
+                case WORKSPACE_WRITE -> {
+                    List<CompletableFuture<String>> dependencies = new ArrayList<>(reads);
+                    CompletableFuture<String> previousWrite = lastWriteByResource.get(resourceKey);
+                    if (previousWrite != null) {
+                        dependencies.add(previousWrite);
+                    }
+                    CompletableFuture<String> result = executeAfter(dependencies, request, memoryId);
+                    writes.add(result);
+                    lastWriteByResource.put(resourceKey, result);
+                    results.add(result);
+                }
+                default -> {
+                    awaitQuietly(results);
+                    results.add(executeNow(request, memoryId));
+                    reads.clear();
+                    writes.clear();
+                    lastWriteByResource.clear();
+                }
+            }
+        }
+        return results;
+    }
+
+    private CompletableFuture<String> executeAfter(List<CompletableFuture<String>> dependencies,
+                                                   ToolExecutionRequest request, Object memoryId) {
+        return CompletableFuture.allOf(dependencies.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> null)
+                .thenApplyAsync(ignored -> execute(request, memoryId), executor);
+    }
+
+    private CompletableFuture<String> executeNow(ToolExecutionRequest request, Object memoryId) {
+        try {
+            return CompletableFuture.completedFuture(execute(request, memoryId));
+        } catch (RuntimeException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String execute(ToolExecutionRequest request, Object memoryId) {
+        return toolExecutors.get(request.name()).execute(request, memoryId);
+    }
+
+    private static void awaitQuietly(List<CompletableFuture<String>> futures) {
+        CompletableFuture.allOf(futures.toArray(new CompletableFuture[0]))
+                .handle((ignored, error) -> null)
+                .join();
+    }
+}
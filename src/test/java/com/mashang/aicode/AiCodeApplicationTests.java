@@ -23,7 +23,7 @@ class AiCodeApplicationTests {
 
     @Test
     void generateMultiFileCode() {
-        MultiFileCodeResult multiFileCode = aiCodeGeneratorService.generateMultiFileCode("做个程序员加炜的留言板");
+        MultiFileCodeResult multiFileCode = aiCodeGeneratorService.generateMultiFileCode(1L, "做个程序员加炜的留言板");
         Assertions.assertNotNull(multiFileCode);
     }
 
@@ -0,0 +1,149 @@
+package com.mashang.aicode;
+
+import com.lmax.disruptor.RingBuffer;
+import com.lmax.disruptor.dsl.Disruptor;
+import com.mashang.aicode.web.config.AppEditEventDisruptorConfig;
+import com.mashang.aicode.web.manager.disruptor.AppEditEvent;
+import com.mashang.aicode.web.manager.disruptor.AppEditEventProducer;
+import com.mashang.aicode.web.manager.disruptor.AppEditEventWorkHandler;
+import com.mashang.aicode.web.manager.websocket.model.DialogueRequestMessage;
+import com.mashang.aicode.web.model.entity.User;
+import com.mashang.aicode.web.monitor.CollaborationMetricsCollector;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+class AppEditEventShardingTest {
+
+    private static final int SHARDS = 4;
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    private final AppEditEventWorkHandler workHandler = Mockito.mock(AppEditEventWorkHandler.class);
+
+    /**
+     * appId → 按处理顺序记录的 (消息, 线程名)
+     */
+    private final Map<Long, List<String[]>> handled = new ConcurrentHashMap<>();
+
+    private final User user = User.builder().id(1L).userName("tester").build();
+
+    private final WebSocketSession session = Mockito.mock(WebSocketSession.class);
+
+    private List<Disruptor<AppEditEvent>> disruptors;
+
+    private AppEditEventProducer producer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        Mockito.doAnswer(invocation -> {
+            AppEditEvent event = invocation.getArgument(0);
+            String message = event.getPictureEditRequestMessage().getMessage();
+            // 同一应用只在一个分片线程上处理，这里不需要同步
+            handled.computeIfAbsent(event.getAppId(), k -> new ArrayList<>())
+                    .add(new String[]{message, Thread.currentThread().getName()});
+            if ("boom".equals(message)) {
+                throw new IllegalStateException("boom");
+            }
+            return null;
+        }).when(workHandler).onEvent(Mockito.any());
+
+        CollaborationMetricsCollector collector = new CollaborationMetricsCollector();
+        ReflectionTestUtils.setField(collector, "meterRegistry", meterRegistry);
+        collector.init();
+
+        AppEditEventDisruptorConfig config = new AppEditEventDisruptorConfig();
+        config.setShardCount(SHARDS);
+        // 容量远小于事件数，覆盖环形队列回绕
+        config.setRingBufferSize(10);
+        disruptors = config.appEditEventDisruptors(workHandler, collector);
+
+        producer = new AppEditEventProducer();
+        ReflectionTestUtils.setField(producer, "appEditEventDisruptors", disruptors);
+    }
+
+    @AfterEach
+    void tearDown() {
+        producer.close();
+    }
+
+    @Test
+    void eventsOfOneAppStayOnOneShardInOrder() throws Exception {
+        Assertions.assertEquals(SHARDS, disruptors.size());
+        Assertions.assertEquals(16, disruptors.get(0).getRingBuffer().getBufferSize());
+        int apps = 10;
+        int eventsPerApp = 200;
+        List<Thread> publishers = new ArrayList<>();
+        for (long appId = 1; appId <= apps; appId++) {
+            long id = appId;
+            publishers.add(Thread.startVirtualThread(() -> {
+                for (int i = 0; i < eventsPerApp; i++) {
+                    publish(id, String.valueOf(i));
+                }
+            }));
+        }
+        for (Thread publisher : publishers) {
+            publisher.join();
+        }
+        // shutdown 等所有已发布的事件处理完才返回
+        producer.close();
+
+        Set<String> threads = new HashSet<>();
+        for (long appId = 1; appId <= apps; appId++) {
+            List<String[]> records = handled.get(appId);
+            Assertions.assertEquals(eventsPerApp, records.size());
+            String thread = records.get(0)[1];
+            Assertions.assertTrue(thread.startsWith("appEditEventDisruptor-" + Math.floorMod(Long.hashCode(appId), SHARDS) + "-"), thread);
+            for (int i = 0; i < eventsPerApp; i++) {
+                Assertions.assertEquals(String.valueOf(i), records.get(i)[0]);
+                Assertions.assertEquals(thread, records.get(i)[1]);
+            }
+            threads.add(thread);
+        }
+        // 不同分片由不同线程并行消费
+        Assertions.assertEquals(SHARDS, threads.size());
+        // 每个分片的批次大小之和等于该分片处理的事件数
+        double batched = meterRegistry.find("ai_code_collab_batch_size").summaries().stream()
+                .mapToDouble(DistributionSummary::totalAmount)
+                .sum();
+        Assertions.assertEquals(apps * eventsPerApp, batched);
+    }
+
+    @Test
+    void failedEventDoesNotStopShardAndSlotsAreCleared() {
+        publish(1L, "0");
+        publish(1L, "boom");
+        publish(1L, "2");
+        producer.close();
+
+        List<String[]> records = handled.get(1L);
+        Assertions.assertEquals(List.of("0", "boom", "2"), records.stream().map(record -> record[0]).toList());
+        RingBuffer<AppEditEvent> ringBuffer = disruptors.get(Math.floorMod(Long.hashCode(1L), SHARDS)).getRingBuffer();
+        for (long sequence = 0; sequence < 3; sequence++) {
+            AppEditEvent slot = ringBuffer.get(sequence);
+            Assertions.assertNull(slot.getSession());
+            Assertions.assertNull(slot.getUser());
+            Assertions.assertNull(slot.getPictureEditRequestMessage());
+        }
+    }
+
+    private void publish(Long appId, String message) {
+        DialogueRequestMessage requestMessage = new DialogueRequestMessage();
+        requestMessage.setType("SEND_MESSAGE");
+        requestMessage.setMessage(message);
+        producer.publishEvent(requestMessage, session, user, appId);
+    }
+}
@@ -0,0 +1,124 @@
+package com.mashang.aicode;
+
+import com.mashang.aicode.web.manager.websocket.AppEditHistory;
+import com.mashang.aicode.web.manager.websocket.model.DialogueResponseMessage;
+import com.mashang.aicode.web.manager.websocket.model.enums.EditActionEnum;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.socket.TextMessage;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+class AppEditHistoryTest {
+
+    private static final String SEND = EditActionEnum.SEND_MESSAGE.getValue();
+
+    private static final String DEPLOY = EditActionEnum.DEPLOY_PROJECT.getValue();
+
+    private static final String HOVER = EditActionEnum.HOVER_ELEMENT.getValue();
+
+    private static final String SELECT = EditActionEnum.SELECT_ELEMENT.getValue();
+
+    private final AtomicInteger serializeCount = new AtomicInteger();
+
+    /**
+     * 回放帧内容为各条记录的消息，逗号分隔
+     */
+    private final Function<List<DialogueResponseMessage>, TextMessage> serializer = messages -> {
+        serializeCount.incrementAndGet();
+        return new TextMessage(messages.stream().map(DialogueResponseMessage::getMessage).collect(Collectors.joining(",")));
+    };
+
+    @Test
+    void emptyHistoryHasNoReplay() {
+        Assertions.assertNull(new AppEditHistory(10).getReplayFrame(serializer));
+        Assertions.assertEquals(0, serializeCount.get());
+    }
+
+    @Test
+    void replayKeepsAppendOrder() {
+        AppEditHistory history = new AppEditHistory(10);
+        history.append(record(SEND, "m1"));
+        history.append(record(DEPLOY, "d1"));
+        history.append(record(SEND, "m2"));
+        Assertions.assertEquals("m1,d1,m2", replay(history));
+    }
+
+    @Test
+    void overflowIsCompactedIntoSnapshot() {
+        AppEditHistory history = new AppEditHistory(3);
+        history.append(record(SEND, "m1"));
+        history.append(record(SEND, "m2"));
+        history.append(record(DEPLOY, "d1"));
+        history.append(record(SEND, "m3"));
+        history.append(record(SEND, "m4"));
+        // m1、m2 溢出，快照中每种动作只保留最后合并的一条
+        Assertions.assertEquals("m2,d1,m3,m4", replay(history));
+
+        history.append(record(SEND, "m5"));
+        history.append(record(SEND, "m6"));
+        // d1、m3 溢出，快照按最近合并的顺序排列
+        Assertions.assertEquals("d1,m3,m4,m5,m6", replay(history));
+    }
+
+    @Test
+    void stateActionsKeepOnlyLatest() {
+        AppEditHistory history = new AppEditHistory(10);
+        history.append(record(HOVER, "h1"));
+        history.append(record(SELECT, "s1"));
+        history.append(record(SEND, "m1"));
+        history.append(record(HOVER, "h2"));
+        history.append(record(SELECT, "s2"));
+        Assertions.assertEquals("m1,h2,s2", replay(history));
+    }
+
+    @Test
+    void stateActionReplacesCompactedRecord() {
+        AppEditHistory history = new AppEditHistory(1);
+        history.append(record(HOVER, "h1"));
+        history.append(record(SEND, "m1"));
+        Assertions.assertEquals("h1,m1", replay(history));
+        history.append(record(HOVER, "h2"));
+        // 快照中的 h1 被替换，不会和 h2 一起回放
+        Assertions.assertEquals("m1,h2", replay(history));
+    }
+
+    @Test
+    void replayFrameIsCachedUntilNextAppend() {
+        AppEditHistory history = new AppEditHistory(10);
+        history.append(record(SEND, "m1"));
+        TextMessage first = history.getReplayFrame(serializer);
+        Assertions.assertSame(first, history.getReplayFrame(serializer));
+        Assertions.assertEquals(1, serializeCount.get());
+
+        history.append(record(SEND, "m2"));
+        TextMessage second = history.getReplayFrame(serializer);
+        Assertions.assertNotSame(first, second);
+        Assertions.assertEquals("m1,m2", second.getPayload());
+        Assertions.assertEquals(2, serializeCount.get());
+    }
+
+    @Test
+    void appendTouchesHistory() throws InterruptedException {
+        AppEditHistory history = new AppEditHistory(10);
+        long created = history.getLastActiveMillis();
+        Thread.sleep(5);
+        history.append(record(SEND, "m1"));
+        Assertions.assertTrue(history.getLastActiveMillis() > created);
+    }
+
+    private String replay(AppEditHistory history) {
+        return history.getReplayFrame(serializer).getPayload();
+    }
+
+    private static DialogueResponseMessage record(String editAction, String message) {
+        DialogueResponseMessage record = new DialogueResponseMessage();
+        record.setType("EDIT_ACTION");
+        record.setEditAction(editAction);
+        record.setMessage(message);
+        return record;
+    }
+}
@@ -0,0 +1,147 @@
+package com.mashang.aicode;
+
+import com.mashang.aicode.web.ai.memory.RedisCompactChatMemoryStore;
+import com.mashang.aicode.web.config.ChatMemoryConfig;
+import com.mashang.aicode.web.service.ChatHistoryService;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.ChatMessageSerializer;
+import dev.langchain4j.data.message.UserMessage;
+import dev.langchain4j.memory.chat.MessageWindowChatMemory;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.data.redis.RedisConnectionFailureException;
+import org.springframework.data.redis.connection.RedisConnection;
+import org.springframework.data.redis.connection.RedisStringCommands;
+import org.springframework.data.redis.core.RedisCallback;
+import org.springframework.data.redis.core.StringRedisTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+class RedisCompactChatMemoryStoreTest {
+
+    private static final Long APP_ID = 1L;
+
+    private static final String KEY = "chat:memory:" + APP_ID;
+
+    private final RedisCompactChatMemoryStore store = new RedisCompactChatMemoryStore();
+
+    private final ChatMemoryConfig config = new ChatMemoryConfig();
+
+    private final ChatHistoryService chatHistoryService = Mockito.mock(ChatHistoryService.class);
+
+    private final StringRedisTemplate stringRedisTemplate = Mockito.mock(StringRedisTemplate.class);
+
+    /**
+     * 模拟的 Redis 字符串存储
+     */
+    private final Map<String, byte[]> redis = new ConcurrentHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        RedisStringCommands stringCommands = Mockito.mock(RedisStringCommands.class);
+        Mockito.when(stringCommands.get(Mockito.any())).thenAnswer(invocation ->
+                redis.get(new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8)));
+        Mockito.when(stringCommands.set(Mockito.any(), Mockito.any(), Mockito.any(), Mockito.any())).thenAnswer(invocation -> {
+            redis.put(new String(invocation.<byte[]>getArgument(0), StandardCharsets.UTF_8), invocation.getArgument(1));
+            return true;
+        });
+        RedisConnection connection = Mockito.mock(RedisConnection.class);
+        Mockito.when(connection.stringCommands()).thenReturn(stringCommands);
+        Mockito.when(stringRedisTemplate.execute(Mockito.any(RedisCallback.class))).thenAnswer(invocation ->
+                invocation.<RedisCallback<?>>getArgument(0).doInRedis(connection));
+
+        ReflectionTestUtils.setField(store, "stringRedisTemplate", stringRedisTemplate);
+        ReflectionTestUtils.setField(store, "chatMemoryConfig", config);
+        ReflectionTestUtils.setField(store, "chatHistoryService", chatHistoryService);
+    }
+
+    @Test
+    void smallMemoryIsStoredAsPlainJson() {
+        List<ChatMessage> messages = List.of(UserMessage.from("你好"), AiMessage.from("<html></html>"));
+        store.updateMessages(APP_ID, messages);
+
+        byte[] value = redis.get(KEY);
+        Assertions.assertEquals(0, value[0]);
+        Assertions.assertEquals(ChatMessageSerializer.messagesToJson(messages),
+                new String(value, 1, value.length - 1, StandardCharsets.UTF_8));
+        Assertions.assertEquals(messages, store.getMessages(APP_ID));
+    }
+
+    @Test
+    void largeMemoryIsCompressed() {
+        String code = "<div class=\"card\">生成的页面</div>\n".repeat(500);
+        List<ChatMessage> messages = List.of(UserMessage.from("做一个页面"), AiMessage.from(code));
+        store.updateMessages(APP_ID, messages);
+
+        byte[] value = redis.get(KEY);
+        Assertions.assertEquals(1, value[0]);
+        Assertions.assertTrue(value.length < ChatMessageSerializer.messagesToJson(messages).length() / 4);
+        Assertions.assertEquals(messages, store.getMessages(APP_ID));
+        Mockito.verifyNoInteractions(chatHistoryService);
+    }
+
+    @Test
+    void summaryRoundTrips() {
+        Assertions.assertNull(store.getSummary(APP_ID));
+        store.updateSummary(APP_ID, "短摘要");
+        Assertions.assertEquals("短摘要", store.getSummary(APP_ID));
+        String longSummary = "用户要求做一个博客首页，已生成 index.html。".repeat(100);
+        store.updateSummary(APP_ID, longSummary);
+        Assertions.assertEquals(1, redis.get("chat:memory:summary:" + APP_ID)[0]);
+        Assertions.assertEquals(longSummary, store.getSummary(APP_ID));
+    }
+
+    @Test
+    void missingMemoryIsLoadedFromHistoryWithoutTrailingUserMessage() {
+        mockHistory(UserMessage.from("第一轮"), AiMessage.from("回复"), UserMessage.from("本轮，尚未回复"));
+
+        List<ChatMessage> messages = store.getMessages(APP_ID);
+        Assertions.assertEquals(List.of(UserMessage.from("第一轮"), AiMessage.from("回复")), messages);
+        // 回填 Redis，下一次不再查库
+        Assertions.assertEquals(messages, store.getMessages(APP_ID));
+        Mockito.verify(chatHistoryService, Mockito.times(1)).loadChatHistoryToMemory(Mockito.eq(APP_ID), Mockito.any(), Mockito.anyInt());
+    }
+
+    @Test
+    void truncatedValueFallsBackToHistory() {
+        String code = "body { color: red; }\n".repeat(200);
+        store.updateMessages(APP_ID, List.of(UserMessage.from("样式"), AiMessage.from(code)));
+        byte[] value = redis.get(KEY);
+        byte[] truncated = new byte[value.length / 2];
+        System.arraycopy(value, 0, truncated, 0, truncated.length);
+        redis.put(KEY, truncated);
+        mockHistory(UserMessage.from("样式"), AiMessage.from("已保存"));
+
+        Assertions.assertEquals(List.of(UserMessage.from("样式"), AiMessage.from("已保存")), store.getMessages(APP_ID));
+        // 损坏的值被重新写入
+        Assertions.assertEquals(0, redis.get(KEY)[0]);
+    }
+
+    @Test
+    void redisFailureFallsBackToHistory() {
+        Mockito.when(stringRedisTemplate.execute(Mockito.any(RedisCallback.class)))
+                .thenThrow(new RedisConnectionFailureException("down"));
+        mockHistory(UserMessage.from("你好"), AiMessage.from("你好！"));
+
+        Assertions.assertEquals(List.of(UserMessage.from("你好"), AiMessage.from("你好！")), store.getMessages(APP_ID));
+        Assertions.assertDoesNotThrow(() -> store.updateMessages(APP_ID, List.of()));
+        Assertions.assertNull(store.getSummary(APP_ID));
+    }
+
+    private void mockHistory(ChatMessage... history) {
+        Mockito.when(chatHistoryService.loadChatHistoryToMemory(Mockito.eq(APP_ID), Mockito.any(), Mockito.anyInt())).thenAnswer(invocation -> {
+            MessageWindowChatMemory memory = invocation.getArgument(1);
+            for (ChatMessage message : history) {
+                memory.add(message);
+            }
+            return history.length;
+        });
+    }
+}
@@ -0,0 +1,63 @@
+package com.mashang.aicode;
+
+import cn.hutool.core.io.FileUtil;
+import com.mashang.aicode.web.ai.core.saver.HtmlCodeFileSaverTemplate;
+import com.mashang.aicode.web.ai.core.saver.StreamingCodeFileWriter;
+import com.mashang.aicode.web.constant.AppConstant;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+
+class StreamingCodeFileWriterTest {
+
+    private static final long APP_ID = -System.nanoTime();
+
+    private final File dir = new File(AppConstant.CODE_OUTPUT_ROOT_DIR, "html_" + APP_ID);
+
+    @AfterEach
+    void cleanUp() {
+        FileUtil.del(dir);
+    }
+
+    @Test
+    void htmlBlockAfterPreamble() {
+        String content = "Here is page:\n```html\n<html><body>ok</body></html>\n```\n说明文字";
+        // 逐字符、小分片、整段输入的结果应完全一致
+        for (int chunkSize : new int[]{1, 3, 16, content.length()}) {
+            FileUtil.del(dir);
+            write(content, chunkSize);
+            Assertions.assertEquals("<html><body>ok</body></html>", read("index.html"));
+            Assertions.assertFalse(new File(dir, "index.html.part").exists());
+        }
+    }
+
+    @Test
+    void htmlFallbackIsTrimmed() {
+        write("\n\n  <!DOCTYPE html>\n<html><body>ok</body></html>\n\n  ", 5);
+        Assertions.assertEquals("<!DOCTYPE html>\n<html><body>ok</body></html>", read("index.html"));
+        Assertions.assertFalse(new File(dir, "index.html.part").exists());
+    }
+
+    @Test
+    void blankFallbackFails() {
+        Assertions.assertThrows(RuntimeException.class, () -> write(" \n\t ", 2));
+        Assertions.assertFalse(new File(dir, "index.html").exists());
+        Assertions.assertFalse(new File(dir, "index.html.part").exists());
+    }
+
+    private void write(String content, int chunkSize) {
+        try (StreamingCodeFileWriter writer = new HtmlCodeFileSaverTemplate().openStreamingWriter(APP_ID)) {
+            for (int i = 0; i < content.length(); i += chunkSize) {
+                writer.append(content.substring(i, Math.min(content.length(), i + chunkSize)));
+            }
+            writer.complete();
+        }
+    }
+
+    private String read(String fileName) {
+        return FileUtil.readString(new File(dir, fileName), StandardCharsets.UTF_8);
+    }
+}
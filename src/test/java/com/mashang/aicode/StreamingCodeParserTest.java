@@ -0,0 +1,83 @@
+package com.mashang.aicode;
+
+import com.mashang.aicode.web.ai.core.parser.StreamingCodeParser;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+class StreamingCodeParserTest {
+
+    private static final String CONTENT = """
+            创建一个完整的网页：
+            ```html
+              <!DOCTYPE html>
+            <html><body><h1>`欢迎使用`</h1></body></html>
+            ```
+            css 格式
+            ```css
+            h1 { color: blue; }
+            ```
+            ```js
+            console.log('页面加载完成');
+            ```
+            文件创建完成！
+            """;
+
+    @Test
+    void parseMultiFileCodeInChunks() {
+        // 逐字符、小分片、整段输入的结果应完全一致
+        for (int chunkSize : new int[]{1, 2, 3, 7, CONTENT.length()}) {
+            Map<String, String> blocks = parse(CONTENT, chunkSize);
+            Assertions.assertEquals("<!DOCTYPE html>\n<html><body><h1>`欢迎使用`</h1></body></html>", blocks.get("html"));
+            Assertions.assertEquals("h1 { color: blue; }", blocks.get("css"));
+            Assertions.assertEquals("console.log('页面加载完成');", blocks.get("js"));
+        }
+    }
+
+    @Test
+    void ignoreInlineFence() {
+        Map<String, String> blocks = parse("说明 ``` 不是代码块\n```html\n<p>ok</p>\n```", 4);
+        Assertions.assertEquals(1, blocks.size());
+        Assertions.assertEquals("<p>ok</p>", blocks.get("html"));
+    }
+
+    @Test
+    void keepUnclosedBlock() {
+        Map<String, String> blocks = parse("```html\n<p>被截断", 5);
+        Assertions.assertEquals("<p>被截断", blocks.get("html"));
+    }
+
+    private Map<String, String> parse(String content, int chunkSize) {
+        Map<String, StringBuilder> blocks = new LinkedHashMap<>();
+        StringBuilder[] current = new StringBuilder[1];
+        StreamingCodeParser parser = new StreamingCodeParser(new StreamingCodeParser.CodeBlockListener() {
+            @Override
+            public void onText(CharSequence text) {
+            }
+
+            @Override
+            public void onBlockStart(String language) {
+                current[0] = blocks.computeIfAbsent(language, key -> new StringBuilder());
+            }
+
+            @Override
+            public void onBlockContent(CharSequence text) {
+                current[0].append(text);
+            }
+
+            @Override
+            public void onBlockEnd() {
+                current[0] = null;
+            }
+        });
+        for (int i = 0; i < content.length(); i += chunkSize) {
+            parser.feed(content.substring(i, Math.min(content.length(), i + chunkSize)));
+        }
+        parser.finish();
+        Map<String, String> result = new LinkedHashMap<>();
+        blocks.forEach((language, builder) -> result.put(language, builder.toString()));
+        return result;
+    }
+}
@@ -0,0 +1,176 @@
+package com.mashang.aicode;
+
+import com.mashang.aicode.web.ai.memory.ChatMemorySummarizer;
+import com.mashang.aicode.web.ai.memory.RedisCompactChatMemoryStore;
+import com.mashang.aicode.web.ai.memory.TokenBudgetChatMemory;
+import com.mashang.aicode.web.config.ChatMemoryConfig;
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.data.message.AiMessage;
+import dev.langchain4j.data.message.ChatMessage;
+import dev.langchain4j.data.message.SystemMessage;
+import dev.langchain4j.data.message.ToolExecutionResultMessage;
+import dev.langchain4j.data.message.UserMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.util.ArrayList;
+import java.util.List;
+
+class TokenBudgetChatMemoryTest {
+
+    private static final Long APP_ID = 1L;
+
+    private static final SystemMessage SYSTEM = SystemMessage.from("sys");
+
+    /**
+     * 400 个 ASCII 字符，估算为 100 token，加上每条消息的固定开销共 104
+     */
+    private static final String LONG_TEXT = "a".repeat(400);
+
+    private final RedisCompactChatMemoryStore store = Mockito.mock(RedisCompactChatMemoryStore.class);
+
+    private final ChatMemorySummarizer summarizer = Mockito.mock(ChatMemorySummarizer.class);
+
+    private final ChatMemoryConfig config = new ChatMemoryConfig();
+
+    private List<ChatMessage> stored = List.of();
+
+    private String summary;
+
+    private TokenBudgetChatMemory memory;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(store.getMessages(APP_ID)).thenAnswer(invocation -> stored);
+        Mockito.doAnswer(invocation -> {
+            stored = List.copyOf(invocation.<List<ChatMessage>>getArgument(1));
+            return null;
+        }).when(store).updateMessages(Mockito.eq(APP_ID), Mockito.any());
+        Mockito.when(store.getSummary(APP_ID)).thenAnswer(invocation -> summary);
+        memory = new TokenBudgetChatMemory(APP_ID, store, summarizer, config);
+    }
+
+    @Test
+    void systemMessageStaysFirstAndIsReplaced() {
+        memory.add(UserMessage.from("你好"));
+        memory.add(SYSTEM);
+        memory.add(AiMessage.from("你好！"));
+        memory.add(SYSTEM);
+        Assertions.assertEquals(List.of(SYSTEM, UserMessage.from("你好"), AiMessage.from("你好！")), stored);
+
+        SystemMessage updated = SystemMessage.from("new sys");
+        memory.add(updated);
+        Assertions.assertEquals(List.of(updated, UserMessage.from("你好"), AiMessage.from("你好！")), stored);
+    }
+
+    @Test
+    void oldToolContentIsStubbedAndRecentTurnsKept() {
+        config.setRecentTurns(1);
+        config.setStubMinChars(300);
+        memory.add(SYSTEM);
+        memory.add(UserMessage.from("写一个页面"));
+        memory.add(AiMessage.from(List.of(toolRequest("t1", LONG_TEXT))));
+        memory.add(ToolExecutionResultMessage.from("t1", "writeFile", LONG_TEXT));
+        memory.add(AiMessage.from("写好了"));
+        // 还在最近一轮内，原样保留
+        Assertions.assertEquals(LONG_TEXT, ((ToolExecutionResultMessage) stored.get(3)).text());
+
+        memory.add(UserMessage.from("改一下标题"));
+        memory.add(AiMessage.from(List.of(toolRequest("t2", LONG_TEXT))));
+
+        AiMessage oldCall = (AiMessage) stored.get(2);
+        Assertions.assertEquals("t1", oldCall.toolExecutionRequests().getFirst().id());
+        Assertions.assertEquals("writeFile", oldCall.toolExecutionRequests().getFirst().name());
+        Assertions.assertTrue(oldCall.toolExecutionRequests().getFirst().arguments().contains("_omitted"));
+        ToolExecutionResultMessage oldResult = (ToolExecutionResultMessage) stored.get(3);
+        Assertions.assertEquals("t1", oldResult.id());
+        Assertions.assertTrue(oldResult.text().startsWith("[已省略较早的工具结果，原长度 400 字符"));
+        Assertions.assertEquals(AiMessage.from("写好了"), stored.get(4));
+        // 当前轮次不受影响
+        Assertions.assertEquals(LONG_TEXT, ((AiMessage) stored.get(6)).toolExecutionRequests().getFirst().arguments());
+        Mockito.verifyNoInteractions(summarizer);
+    }
+
+    @Test
+    void overBudgetEvictsWholeOldestTurns() {
+        // 预算 300 - 50 = 250
+        config.setMaxTokens(300);
+        config.setSummaryMaxTokens(50);
+        memory.add(SYSTEM);
+        memory.add(UserMessage.from(LONG_TEXT));
+        memory.add(AiMessage.from(LONG_TEXT));
+        memory.add(UserMessage.from("b".repeat(400)));
+        memory.add(AiMessage.from("c".repeat(400)));
+
+        Assertions.assertEquals(List.of(SYSTEM, UserMessage.from("b".repeat(400)), AiMessage.from("c".repeat(400))), stored);
+        Mockito.verify(summarizer).submit(APP_ID, List.of(UserMessage.from(LONG_TEXT), AiMessage.from(LONG_TEXT)));
+        Mockito.verifyNoMoreInteractions(summarizer);
+    }
+
+    @Test
+    void evictionNeverSplitsToolCallFromResult() {
+        config.setMaxTokens(300);
+        config.setSummaryMaxTokens(50);
+        List<ChatMessage> firstTurn = List.of(
+                UserMessage.from("q"),
+                AiMessage.from(List.of(toolRequest("t1", LONG_TEXT))),
+                ToolExecutionResultMessage.from("t1", "writeFile", LONG_TEXT),
+                AiMessage.from("done"));
+        memory.add(SYSTEM);
+        firstTurn.forEach(memory::add);
+        Assertions.assertEquals(5, stored.size());
+
+        memory.add(UserMessage.from("a".repeat(100)));
+        Assertions.assertEquals(List.of(SYSTEM, UserMessage.from("a".repeat(100))), stored);
+        Mockito.verify(summarizer).submit(APP_ID, firstTurn);
+    }
+
+    @Test
+    void currentTurnIsKeptEvenOverBudget() {
+        config.setMaxTokens(100);
+        config.setSummaryEnabled(false);
+        memory.add(SYSTEM);
+        memory.add(UserMessage.from(LONG_TEXT));
+        memory.add(AiMessage.from(LONG_TEXT));
+        Assertions.assertEquals(3, stored.size());
+        Mockito.verifyNoInteractions(summarizer);
+    }
+
+    @Test
+    void summaryIsAppendedToSystemPrompt() {
+        memory.add(SYSTEM);
+        memory.add(UserMessage.from("你好"));
+        Assertions.assertEquals(List.of(SYSTEM, UserMessage.from("你好")), memory.messages());
+
+        summary = "用户之前做了一个博客";
+        List<ChatMessage> messages = memory.messages();
+        Assertions.assertEquals("sys\n\n## 之前对话的摘要\n用户之前做了一个博客", ((SystemMessage) messages.getFirst()).text());
+        Assertions.assertEquals(UserMessage.from("你好"), messages.get(1));
+        // 摘要只在读取时拼接，不写回存储
+        Assertions.assertEquals(SYSTEM, stored.getFirst());
+
+        config.setSummaryEnabled(false);
+        Assertions.assertEquals(SYSTEM, memory.messages().getFirst());
+    }
+
+    @Test
+    void summaryWithoutSystemPromptBecomesSystemMessage() {
+        memory.add(UserMessage.from("你好"));
+        summary = "摘要";
+        List<ChatMessage> messages = new ArrayList<>(memory.messages());
+        Assertions.assertEquals(SystemMessage.from("## 之前对话的摘要\n摘要"), messages.getFirst());
+        Assertions.assertEquals(2, messages.size());
+    }
+
+    @Test
+    void clearDeletesStoredMemory() {
+        memory.clear();
+        Mockito.verify(store).deleteMessages(APP_ID);
+    }
+
+    private static ToolExecutionRequest toolRequest(String id, String arguments) {
+        return ToolExecutionRequest.builder().id(id).name("writeFile").arguments(arguments).build();
+    }
+}
@@ -0,0 +1,234 @@
+package com.mashang.aicode;
+
+import dev.langchain4j.agent.tool.ToolExecutionRequest;
+import dev.langchain4j.service.tool.ConcurrentToolExecutor;
+import dev.langchain4j.service.tool.ToolConcurrency;
+import dev.langchain4j.service.tool.ToolExecutionScheduler;
+import dev.langchain4j.service.tool.ToolExecutor;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+class ToolExecutionSchedulerTest {
+
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+
+    /**
+     * 模拟的项目文件：参数即文件名
+     */
+    private final Map<String, String> files = new ConcurrentHashMap<>();
+
+    @AfterEach
+    void shutdown() {
+        executor.shutdownNow();
+    }
+
+    @Test
+    void resultsFollowRequestOrder() {
+        // 三个读操作互相等待，只有并发执行才能全部完成；先请求的最后完成
+        CountDownLatch allStarted = new CountDownLatch(3);
+        ToolExecutor read = new FakeTool(ToolConcurrency.READ_ONLY, request -> {
+            allStarted.countDown();
+            await(allStarted);
+            sleep(30L * (3 - Integer.parseInt(request.arguments())));
+            return "read-" + request.arguments();
+        });
+        List<String> results = join(schedule(Map.of("read", read),
+                request("read", "0"), request("read", "1"), request("read", "2")));
+        Assertions.assertEquals(List.of("read-0", "read-1", "read-2"), results);
+    }
+
+    @Test
+    void writesToSameFileAreSerialized() {
+        AtomicInteger inFlight = new AtomicInteger();
+        AtomicInteger maxInFlight = new AtomicInteger();
+        ToolExecutor write = new FakeTool(ToolConcurrency.WORKSPACE_WRITE, request -> {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            sleep(20);
+            files.merge(request.arguments(), request.id(), String::concat);
+            inFlight.decrementAndGet();
+            return request.id();
+        });
+        List<String> results = join(schedule(Map.of("write", write),
+                request("write", "a.txt", "1"), request("write", "a.txt", "2"), request("write", "a.txt", "3")));
+        Assertions.assertEquals(List.of("1", "2", "3"), results);
+        Assertions.assertEquals(1, maxInFlight.get());
+        Assertions.assertEquals("123", files.get("a.txt"));
+    }
+
+    @Test
+    void writesToDifferentFilesOverlap() {
+        CountDownLatch allStarted = new CountDownLatch(2);
+        ToolExecutor write = new FakeTool(ToolConcurrency.WORKSPACE_WRITE, request -> {
+            allStarted.countDown();
+            await(allStarted);
+            return request.arguments();
+        });
+        List<String> results = join(schedule(Map.of("write", write),
+                request("write", "a.txt"), request("write", "b.txt")));
+        Assertions.assertEquals(List.of("a.txt", "b.txt"), results);
+    }
+
+    @Test
+    void readSeesPrecedingWrite() {
+        ToolExecutor write = new FakeTool(ToolConcurrency.WORKSPACE_WRITE, request -> {
+            sleep(50);
+            files.put(request.arguments(), "new");
+            return "ok";
+        });
+        ToolExecutor read = new FakeTool(ToolConcurrency.READ_ONLY, request -> files.getOrDefault(request.arguments(), "missing"));
+        files.put("a.txt", "old");
+        List<String> results = join(schedule(Map.of("write", write, "read", read),
+                request("write", "a.txt"), request("read", "a.txt")));
+        Assertions.assertEquals(List.of("ok", "new"), results);
+    }
+
+    @Test
+    void writeWaitsForPrecedingRead() {
+        ToolExecutor read = new FakeTool(ToolConcurrency.READ_ONLY, request -> {
+            sleep(50);
+            return files.get(request.arguments());
+        });
+        ToolExecutor write = new FakeTool(ToolConcurrency.WORKSPACE_WRITE, request -> {
+            files.put(request.arguments(), "new");
+            return "ok";
+        });
+        files.put("a.txt", "old");
+        List<String> results = join(schedule(Map.of("write", write, "read", read),
+                request("read", "a.txt"), request("write", "a.txt")));
+        Assertions.assertEquals(List.of("old", "ok"), results);
+    }
+
+    @Test
+    void exclusiveCallIsBarrier() {
+        AtomicInteger finishedReads = new AtomicInteger();
+        ToolExecutor read = new FakeTool(ToolConcurrency.READ_ONLY, request -> {
+            sleep(30);
+            finishedReads.incrementAndGet();
+            return files.getOrDefault("state", "none");
+        });
+        Thread caller = Thread.currentThread();
+        // 未实现 ConcurrentToolExecutor 的工具按 EXCLUSIVE 处理
+        ToolExecutor command = (request, memoryId) -> {
+            Assertions.assertSame(caller, Thread.currentThread());
+            files.put("state", "after-command");
+            return "reads-before=" + finishedReads.get();
+        };
+        List<String> results = join(schedule(Map.of("read", read, "command", command),
+                request("read", "1"), request("read", "2"), request("command", ""), request("read", "3")));
+        Assertions.assertEquals(List.of("none", "none", "reads-before=2", "after-command"), results);
+    }
+
+    @Test
+    void writeWithoutResourceKeyIsExclusive() {
+        AtomicInteger finishedReads = new AtomicInteger();
+        ToolExecutor read = new FakeTool(ToolConcurrency.READ_ONLY, request -> {
+            sleep(30);
+            finishedReads.incrementAndGet();
+            return "read";
+        });
+        ToolExecutor write = new FakeTool(ToolConcurrency.WORKSPACE_WRITE, request -> "reads-before=" + finishedReads.get()) {
+            @Override
+            public String resourceKey(ToolExecutionRequest request) {
+                return null;
+            }
+        };
+        List<String> results = join(schedule(Map.of("read", read, "write", write),
+                request("read", "1"), request("write", "a.txt")));
+        Assertions.assertEquals(List.of("read", "reads-before=1"), results);
+    }
+
+    @Test
+    void failureDoesNotBlockLaterCalls() {
+        ToolExecutor write = new FakeTool(ToolConcurrency.WORKSPACE_WRITE, request -> {
+            if ("1".equals(request.id())) {
+                throw new IllegalStateException("boom");
+            }
+            return request.id();
+        });
+        List<CompletableFuture<String>> results = schedule(Map.of("write", write),
+                request("write", "a.txt", "1"), request("write", "a.txt", "2"));
+        Assertions.assertThrows(Exception.class, () -> results.get(0).get(5, TimeUnit.SECONDS));
+        Assertions.assertEquals("2", results.get(1).join());
+    }
+
+    private List<CompletableFuture<String>> schedule(Map<String, ToolExecutor> toolExecutors, ToolExecutionRequest... requests) {
+        return new ToolExecutionScheduler(toolExecutors, executor).schedule(List.of(requests), "memory");
+    }
+
+    private static List<String> join(List<CompletableFuture<String>> results) {
+        return results.stream().map(result -> {
+            try {
+                return result.get(5, TimeUnit.SECONDS);
+            } catch (Exception e) {
+                throw new AssertionError(e);
+            }
+        }).toList();
+    }
+
+    private static ToolExecutionRequest request(String name, String arguments) {
+        return request(name, arguments, name + "-" + arguments);
+    }
+
+    private static ToolExecutionRequest request(String name, String arguments, String id) {
+        return ToolExecutionRequest.builder().id(id).name(name).arguments(arguments).build();
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            if (!latch.await(5, TimeUnit.SECONDS)) {
+                throw new IllegalStateException("调用没有并发执行");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class FakeTool implements ConcurrentToolExecutor {
+
+        private final ToolConcurrency concurrency;
+
+        private final Function<ToolExecutionRequest, String> body;
+
+        FakeTool(ToolConcurrency concurrency, Function<ToolExecutionRequest, String> body) {
+            this.concurrency = concurrency;
+            this.body = body;
+        }
+
+        @Override
+        public ToolConcurrency concurrency() {
+            return concurrency;
+        }
+
+        @Override
+        public String resourceKey(ToolExecutionRequest request) {
+            return request.arguments();
+        }
+
+        @Override
+        public String execute(ToolExecutionRequest request, Object memoryId) {
+            return body.apply(request);
+        }
+    }
+}
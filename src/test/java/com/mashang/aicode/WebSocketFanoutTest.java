@@ -0,0 +1,187 @@
+package com.mashang.aicode;
+
+import com.mashang.aicode.web.config.WebSocketFanoutConfig;
+import com.mashang.aicode.web.manager.websocket.WebSocketFanout;
+import com.mashang.aicode.web.monitor.CollaborationMetricsCollector;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.CloseStatus;
+import org.springframework.web.socket.TextMessage;
+import org.springframework.web.socket.WebSocketSession;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.IntStream;
+
+class WebSocketFanoutTest {
+
+    private static final Long APP_ID = 1L;
+
+    private final WebSocketFanout fanout = new WebSocketFanout();
+
+    private final WebSocketFanoutConfig config = new WebSocketFanoutConfig();
+
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    /**
+     * 慢客户端收到第一条消息后阻塞，直到 release 被放行
+     */
+    private final CountDownLatch release = new CountDownLatch(1);
+
+    private final CountDownLatch slowSending = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        CollaborationMetricsCollector collector = new CollaborationMetricsCollector();
+        ReflectionTestUtils.setField(collector, "meterRegistry", meterRegistry);
+        collector.init();
+        ReflectionTestUtils.setField(fanout, "webSocketFanoutConfig", config);
+        ReflectionTestUtils.setField(fanout, "collaborationMetricsCollector", collector);
+    }
+
+    @AfterEach
+    void tearDown() {
+        release.countDown();
+        fanout.close();
+    }
+
+    @Test
+    void slowSessionDoesNotDelayOthers() throws Exception {
+        FakeSession slow = new FakeSession("slow", true);
+        FakeSession fast = new FakeSession("fast", false);
+        FakeSession sender = new FakeSession("sender", false);
+        List<WebSocketSession> sessions = List.of(slow.session, fast.session, sender.session);
+        for (int i = 0; i < 100; i++) {
+            // 调用方只入队，慢客户端阻塞时也立即返回
+            fanout.broadcast(APP_ID, sessions, message(i), sender.session);
+        }
+        fast.awaitReceived(100);
+        Assertions.assertEquals(range(0, 100), fast.received);
+        Assertions.assertTrue(sender.received.isEmpty());
+        Assertions.assertEquals(List.of("0"), slow.received);
+
+        release.countDown();
+        slow.awaitReceived(100);
+        Assertions.assertEquals(range(0, 100), slow.received);
+    }
+
+    @Test
+    void overflowDropsOldestBufferedMessages() throws Exception {
+        config.setBufferMaxMessages(3);
+        FakeSession slow = new FakeSession("slow", true);
+        fanout.send(APP_ID, slow.session, message(0));
+        Assertions.assertTrue(slowSending.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) {
+            fanout.send(APP_ID, slow.session, message(i));
+        }
+        release.countDown();
+        slow.awaitReceived(4);
+        // 正在发送的第 0 条不受影响，缓冲区只保留最新的 3 条
+        Assertions.assertEquals(List.of("0", "7", "8", "9"), slow.received);
+        Assertions.assertEquals(6, meterRegistry.counter("ai_code_collab_fanout_dropped_total").count());
+        Assertions.assertTrue(slow.open.get());
+    }
+
+    @Test
+    void overflowDisconnectsWhenConfigured() throws Exception {
+        config.setBufferMaxMessages(3);
+        config.setOverflowStrategy("disconnect");
+        FakeSession slow = new FakeSession("slow", true);
+        fanout.send(APP_ID, slow.session, message(0));
+        Assertions.assertTrue(slowSending.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i <= 4; i++) {
+            fanout.send(APP_ID, slow.session, message(i));
+        }
+        Mockito.verify(slow.session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        Assertions.assertEquals(1, meterRegistry.counter("ai_code_collab_slow_consumer_disconnected_total").count());
+        release.countDown();
+        Thread.sleep(100);
+        Assertions.assertEquals(List.of("0"), slow.received);
+    }
+
+    @Test
+    void byteLimitAlsoBoundsBuffer() throws Exception {
+        config.setBufferSizeLimitBytes(2);
+        FakeSession slow = new FakeSession("slow", true);
+        fanout.send(APP_ID, slow.session, message(0));
+        Assertions.assertTrue(slowSending.await(5, TimeUnit.SECONDS));
+        for (int i = 1; i < 10; i++) {
+            fanout.send(APP_ID, slow.session, message(i));
+        }
+        release.countDown();
+        slow.awaitReceived(3);
+        Assertions.assertEquals(List.of("0", "8", "9"), slow.received);
+    }
+
+    @Test
+    void stalledSendDisconnectsOnNextMessage() throws Exception {
+        config.setSendTimeLimitMillis(50);
+        FakeSession slow = new FakeSession("slow", true);
+        fanout.send(APP_ID, slow.session, message(0));
+        Assertions.assertTrue(slowSending.await(5, TimeUnit.SECONDS));
+        Thread.sleep(100);
+        fanout.send(APP_ID, slow.session, message(1));
+        Mockito.verify(slow.session).close(CloseStatus.SESSION_NOT_RELIABLE);
+        Assertions.assertEquals(1, meterRegistry.counter("ai_code_collab_slow_consumer_disconnected_total").count());
+    }
+
+    @Test
+    void closedSessionIsSkipped() throws Exception {
+        FakeSession session = new FakeSession("closed", false);
+        session.open.set(false);
+        fanout.send(APP_ID, session.session, message(0));
+        Thread.sleep(50);
+        Assertions.assertTrue(session.received.isEmpty());
+    }
+
+    private static TextMessage message(int i) {
+        return new TextMessage(String.valueOf(i));
+    }
+
+    private static List<String> range(int from, int to) {
+        return IntStream.range(from, to).mapToObj(String::valueOf).toList();
+    }
+
+    private class FakeSession {
+
+        private final WebSocketSession session = Mockito.mock(WebSocketSession.class);
+
+        private final List<String> received = new CopyOnWriteArrayList<>();
+
+        private final AtomicBoolean open = new AtomicBoolean(true);
+
+        FakeSession(String id, boolean slow) throws Exception {
+            Mockito.when(session.getId()).thenReturn(id);
+            Mockito.when(session.isOpen()).thenAnswer(invocation -> open.get());
+            Mockito.doAnswer(invocation -> {
+                TextMessage textMessage = invocation.getArgument(0);
+                received.add(textMessage.getPayload());
+                if (slow && received.size() == 1) {
+                    slowSending.countDown();
+                    release.await(5, TimeUnit.SECONDS);
+                }
+                return null;
+            }).when(session).sendMessage(Mockito.any());
+            Mockito.doAnswer(invocation -> {
+                open.set(false);
+                return null;
+            }).when(session).close(Mockito.any());
+        }
+
+        void awaitReceived(int count) throws InterruptedException {
+            long deadline = System.currentTimeMillis() + 5000;
+            while (received.size() < count && System.currentTimeMillis() < deadline) {
+                Thread.sleep(10);
+            }
+            Assertions.assertEquals(count, received.size());
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package com.mashang.aicode;
+
+import com.mashang.aicode.web.manager.websocket.AppEditHandler;
+import com.mashang.aicode.web.manager.websocket.MultiplexWebSocketHandler;
+import com.mashang.aicode.web.manager.websocket.WsHandshakeInterceptor;
+import com.mashang.aicode.web.model.entity.User;
+import com.mashang.aicode.web.service.UserService;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.http.server.ServletServerHttpRequest;
+import org.springframework.http.server.ServletServerHttpResponse;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.web.socket.WebSocketHandler;
+import org.springframework.web.socket.handler.ExceptionWebSocketHandlerDecorator;
+import org.springframework.web.socket.handler.LoggingWebSocketHandlerDecorator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+class WsHandshakeInterceptorTest {
+
+    private final WsHandshakeInterceptor interceptor = new WsHandshakeInterceptor();
+
+    private final User loginUser = User.builder().id(1L).userName("tester").build();
+
+    @BeforeEach
+    void setUp() {
+        UserService userService = Mockito.mock(UserService.class);
+        Mockito.when(userService.getLoginUser(Mockito.any())).thenReturn(loginUser);
+        ReflectionTestUtils.setField(interceptor, "userService", userService);
+    }
+
+    @Test
+    void multiplexHandshakeWithoutAppId() {
+        // 与 WebSocketHttpRequestHandler 一致：注册的处理器被装饰器包装后才交给拦截器
+        WebSocketHandler wsHandler = decorate(Mockito.mock(MultiplexWebSocketHandler.class));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/app/mux");
+        request.setParameter("encoding", "cbor");
+        Map<String, Object> attributes = new HashMap<>();
+
+        Assertions.assertTrue(handshake(request, wsHandler, attributes));
+        Assertions.assertEquals(loginUser, attributes.get("user"));
+        Assertions.assertEquals("cbor", attributes.get("encoding"));
+        Assertions.assertFalse(attributes.containsKey("appId"));
+    }
+
+    @Test
+    void editHandshakeWithoutAppIdIsRejected() {
+        WebSocketHandler wsHandler = decorate(Mockito.mock(AppEditHandler.class));
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/app/edit");
+        Map<String, Object> attributes = new HashMap<>();
+
+        Assertions.assertFalse(handshake(request, wsHandler, attributes));
+        Assertions.assertTrue(attributes.isEmpty());
+    }
+
+    private boolean handshake(MockHttpServletRequest request, WebSocketHandler wsHandler, Map<String, Object> attributes) {
+        return interceptor.beforeHandshake(new ServletServerHttpRequest(request),
+                new ServletServerHttpResponse(new MockHttpServletResponse()), wsHandler, attributes);
+    }
+
+    private WebSocketHandler decorate(WebSocketHandler handler) {
+        return new ExceptionWebSocketHandlerDecorator(new LoggingWebSocketHandlerDecorator(handler));
+    }
+}
@@ -0,0 +1,66 @@
+package com.mashang.aicode.benchmark;
+
+import cn.hutool.json.JSONUtil;
+import com.mashang.aicode.web.ai.core.handler.SseMessageEncoder;
+import com.mashang.aicode.web.ai.model.message.AiResponseMessage;
+import com.mashang.aicode.web.ai.model.message.StreamMessage;
+import com.mashang.aicode.web.ai.model.message.StreamMessageTypeEnum;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.Options;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 单个 token 从模型回调到 SSE 数据帧的编码开销对比
+ * <p>
+ * legacy：toJsonStr -> toBean(StreamMessage) -> toBean(具体类型) -> toJsonStr(Map)
+ * typed：直接传递消息对象，只用 Jackson 编码一次
+ * <p>
+ * 运行方式：mvn test-compile 后直接运行 main 方法，GC profiler 输出的 gc.alloc.rate.norm 即每个 token 的分配字节数
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StreamMessageEncodeBenchmark {
+
+    @Param({"好", "function render() {", "<div class=\"container\">\n  <h1>任务记录</h1>\n</div>"})
+    private String token;
+
+    @Benchmark
+    public void legacyJsonRoundTrip(Blackhole blackhole) {
+        String json = JSONUtil.toJsonStr(new AiResponseMessage(token));
+        StreamMessage streamMessage = JSONUtil.toBean(json, StreamMessage.class);
+        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
+        if (typeEnum == StreamMessageTypeEnum.AI_RESPONSE) {
+            AiResponseMessage aiMessage = JSONUtil.toBean(json, AiResponseMessage.class);
+            blackhole.consume(JSONUtil.toJsonStr(Map.of("d", aiMessage.getData())));
+        }
+    }
+
+    @Benchmark
+    public void typedSingleEncode(Blackhole blackhole) {
+        StreamMessage streamMessage = new AiResponseMessage(token);
+        StreamMessageTypeEnum typeEnum = StreamMessageTypeEnum.getEnumByValue(streamMessage.getType());
+        if (typeEnum == StreamMessageTypeEnum.AI_RESPONSE) {
+            AiResponseMessage aiMessage = (AiResponseMessage) streamMessage;
+            blackhole.consume(SseMessageEncoder.encodeChunk(aiMessage.getData()));
+        }
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        Options options = new OptionsBuilder()
+                .include(StreamMessageEncodeBenchmark.class.getSimpleName())
+                .addProfiler(GCProfiler.class)
+                .build();
+        new Runner(options).run();
+    }
+}
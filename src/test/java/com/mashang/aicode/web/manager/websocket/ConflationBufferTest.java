@@ -0,0 +1,100 @@
+package com.mashang.aicode.web.manager.websocket;
+
+import com.mashang.aicode.web.manager.websocket.model.DialogueResponseMessage;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * ConflationBuffer 为包内可见，测试放在同一个包下
+ */
+class ConflationBufferTest {
+
+    @Test
+    void onlyFirstPutOfWindowSchedulesFlush() {
+        ConflationBuffer buffer = new ConflationBuffer();
+        Assertions.assertTrue(buffer.put("1:HOVER_ELEMENT", message("h1")));
+        Assertions.assertFalse(buffer.put("1:HOVER_ELEMENT", message("h2")));
+        Assertions.assertFalse(buffer.put("2:HOVER_ELEMENT", message("h3")));
+        buffer.drain();
+        // 推送后进入新的窗口
+        Assertions.assertTrue(buffer.put("1:HOVER_ELEMENT", message("h4")));
+    }
+
+    @Test
+    void latestWinsInFirstSeenOrder() {
+        ConflationBuffer buffer = new ConflationBuffer();
+        buffer.put("1:HOVER_ELEMENT", message("u1-hover-1"));
+        buffer.put("2:HOVER_ELEMENT", message("u2-hover-1"));
+        buffer.put("1:SELECT_ELEMENT", message("u1-select-1"));
+        buffer.put("1:HOVER_ELEMENT", message("u1-hover-2"));
+        buffer.put("2:HOVER_ELEMENT", message("u2-hover-2"));
+        Assertions.assertEquals(List.of("u1-hover-2", "u2-hover-2", "u1-select-1"), messages(buffer.drain()));
+    }
+
+    @Test
+    void drainEmptiesBuffer() {
+        ConflationBuffer buffer = new ConflationBuffer();
+        Assertions.assertTrue(buffer.drain().isEmpty());
+        buffer.put("1:HOVER_ELEMENT", message("h1"));
+        Assertions.assertEquals(List.of("h1"), messages(buffer.drain()));
+        Assertions.assertTrue(buffer.drain().isEmpty());
+    }
+
+    @Test
+    void concurrentFlushesNeverReorderOneKey() throws InterruptedException {
+        ConflationBuffer buffer = new ConflationBuffer();
+        int users = 8;
+        int eventsPerUser = 5000;
+        AtomicBoolean producing = new AtomicBoolean(true);
+        List<DialogueResponseMessage> flushed = new ArrayList<>();
+        Thread flusher = Thread.startVirtualThread(() -> {
+            while (producing.get()) {
+                flushed.addAll(buffer.drain());
+            }
+        });
+        List<Thread> producers = new ArrayList<>();
+        for (int user = 0; user < users; user++) {
+            int userId = user;
+            producers.add(Thread.startVirtualThread(() -> {
+                for (int i = 0; i < eventsPerUser; i++) {
+                    buffer.put(userId + ":HOVER_ELEMENT", message(userId + ":" + i));
+                }
+            }));
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        producing.set(false);
+        flusher.join();
+        flushed.addAll(buffer.drain());
+
+        // 同一用户推送出去的事件严格递增，且最后一条一定被推送
+        Map<String, Integer> last = new HashMap<>();
+        for (String message : messages(flushed)) {
+            String[] parts = message.split(":");
+            int previous = last.getOrDefault(parts[0], -1);
+            Assertions.assertTrue(Integer.parseInt(parts[1]) > previous, message);
+            last.put(parts[0], Integer.parseInt(parts[1]));
+        }
+        for (int user = 0; user < users; user++) {
+            Assertions.assertEquals(eventsPerUser - 1, last.get(String.valueOf(user)));
+        }
+    }
+
+    private static DialogueResponseMessage message(String text) {
+        DialogueResponseMessage message = new DialogueResponseMessage();
+        message.setType("HOVER_ELEMENT");
+        message.setMessage(text);
+        return message;
+    }
+
+    private static List<String> messages(List<DialogueResponseMessage> messages) {
+        return messages.stream().map(DialogueResponseMessage::getMessage).toList();
+    }
+}
@@ -0,0 +1,81 @@
+package com.mashang.aicode.web.manager.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import com.mashang.aicode.web.config.WorkspaceCacheConfig;
+import com.mashang.aicode.web.config.WorkspaceStagingConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+/**
+ * 同一项目目录的新旧两个工作区实例共用 WatchKey，旧实例释放或重新扫描不能影响新实例的监听
+ */
+class ProjectWorkspaceWatchTest {
+
+    private final ProjectWorkspaceManager manager = new ProjectWorkspaceManager();
+
+    private Path root;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WorkspaceCacheConfig cacheConfig = new WorkspaceCacheConfig();
+        // 索引只能通过监听事件更新
+        cacheConfig.setRescanIntervalMillis(3_600_000);
+        ReflectionTestUtils.setField(manager, "workspaceCacheConfig", cacheConfig);
+        ReflectionTestUtils.setField(manager, "workspaceStagingConfig", new WorkspaceStagingConfig());
+        manager.init();
+        root = Files.createTempDirectory("workspace-watch").toAbsolutePath().normalize();
+        Files.writeString(root.resolve("index.html"), "<html></html>");
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.destroy();
+        FileUtil.del(root.toFile());
+    }
+
+    @Test
+    void retiredInstanceDoesNotCancelLiveWatch() throws Exception {
+        ProjectWorkspace retired = new ProjectWorkspace(root, manager);
+        Assertions.assertEquals(1, retired.listFiles().size());
+        ProjectWorkspace live = manager.forDirectory(root.toString());
+        Assertions.assertEquals(1, live.listFiles().size());
+
+        // 旧实例在新实例注册之后才被释放，随后仍被调用方访问
+        retired.retire();
+        Assertions.assertEquals(1, retired.listFiles().size());
+
+        Files.writeString(root.resolve("app.js"), "console.log(1)");
+        awaitFiles(live, 2);
+    }
+
+    @Test
+    void closingOneInstanceKeepsOtherWatched() throws Exception {
+        ProjectWorkspace first = new ProjectWorkspace(root, manager);
+        ProjectWorkspace second = new ProjectWorkspace(root, manager);
+        first.listFiles();
+        second.listFiles();
+
+        first.close();
+        Files.writeString(root.resolve("app.js"), "console.log(1)");
+        awaitFiles(second, 2);
+
+        // 最后一个实例关闭后取消监听
+        second.close();
+        Assertions.assertTrue(((Map<?, ?>) ReflectionTestUtils.getField(manager, "watchTargets")).isEmpty());
+    }
+
+    private static void awaitFiles(ProjectWorkspace workspace, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 10_000;
+        while (workspace.listFiles().size() < count && System.currentTimeMillis() < deadline) {
+            Thread.sleep(50);
+        }
+        Assertions.assertEquals(count, workspace.listFiles().size());
+    }
+}
@@ -0,0 +1,202 @@
+package com.mashang.aicode.web.manager.workspace;
+
+import cn.hutool.core.io.FileUtil;
+import com.mashang.aicode.web.config.WorkspaceCacheConfig;
+import com.mashang.aicode.web.config.WorkspaceStagingConfig;
+import com.mashang.aicode.web.exception.BusinessException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.List;
+
+/**
+ * 暂存工作区的读写叠加、提交和丢弃，在临时目录中操作真实文件
+ */
+class StagedWorkspaceTest {
+
+    private final ProjectWorkspaceManager manager = new ProjectWorkspaceManager();
+
+    private Path tempDir;
+
+    private Path root;
+
+    private Path staging;
+
+    private StagedWorkspace staged;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        WorkspaceCacheConfig cacheConfig = new WorkspaceCacheConfig();
+        cacheConfig.setWatchEnabled(false);
+        cacheConfig.setRescanIntervalMillis(0);
+        ReflectionTestUtils.setField(manager, "workspaceCacheConfig", cacheConfig);
+        ReflectionTestUtils.setField(manager, "workspaceStagingConfig", new WorkspaceStagingConfig());
+        manager.init();
+        tempDir = Files.createTempDirectory("staged-workspace").toAbsolutePath().normalize();
+        root = tempDir.resolve("code_output/vue_project_1");
+        staging = tempDir.resolve("code_staging/vue_project_1_test");
+        write(root, "index.html", "old");
+        write(root, "src/App.vue", "<template/>");
+        write(root, "node_modules/vue/index.js", "vue");
+        write(root, "dist/index.html", "built");
+        staged = new StagedWorkspace(1L, manager.forDirectory(root.toString()), manager.forDirectory(staging.toString()), manager);
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.destroy();
+        FileUtil.del(tempDir.toFile());
+    }
+
+    @Test
+    void overlayIsReadAheadOfBase() throws Exception {
+        staged.writeString("index.html", "new");
+        staged.writeString("src/main.js", "main");
+
+        Assertions.assertEquals("new", staged.readString("index.html"));
+        Assertions.assertEquals("<template/>", staged.readString("src/App.vue"));
+        Assertions.assertEquals(List.of("index.html", "src/App.vue", "src/main.js"), staged.listFiles());
+        // 项目目录在提交前保持不变
+        Assertions.assertEquals("old", Files.readString(root.resolve("index.html")));
+        Assertions.assertFalse(Files.exists(root.resolve("src/main.js")));
+    }
+
+    @Test
+    void tombstonesHideDeletedFiles() throws Exception {
+        Assertions.assertTrue(staged.delete("src/App.vue"));
+
+        Assertions.assertFalse(staged.exists("src/App.vue"));
+        Assertions.assertFalse(staged.isFile("src/App.vue"));
+        Assertions.assertNull(staged.readString("src/App.vue"));
+        Assertions.assertEquals(List.of("index.html"), staged.listFiles());
+        Assertions.assertEquals(List.of(), staged.listFiles("src"));
+        Assertions.assertFalse(staged.delete("src/App.vue"));
+        Assertions.assertTrue(Files.exists(root.resolve("src/App.vue")));
+
+        // 重新写入后恢复可见
+        staged.writeString("src/App.vue", "<template>v2</template>");
+        Assertions.assertEquals("<template>v2</template>", staged.readString("src/App.vue"));
+    }
+
+    @Test
+    void commitLinksUnchangedFilesAndMovesIgnoredDirs() throws Exception {
+        Object modulesKey = fileKey(root.resolve("node_modules/vue/index.js"));
+        Object distKey = fileKey(root.resolve("dist/index.html"));
+        staged.writeString("index.html", "new");
+        staged.delete("src/App.vue");
+        staged.writeString("src/App.vue", "<template>v2</template>");
+        write(root, "src/util.js", "util");
+        staged.delete("src/util.js");
+
+        staged.commit();
+
+        Assertions.assertEquals("new", Files.readString(root.resolve("index.html")));
+        Assertions.assertEquals("<template>v2</template>", Files.readString(root.resolve("src/App.vue")));
+        Assertions.assertFalse(Files.exists(root.resolve("src/util.js")));
+        // 依赖和构建产物整体移动，文件还是原来的 inode
+        Assertions.assertEquals(modulesKey, fileKey(root.resolve("node_modules/vue/index.js")));
+        Assertions.assertEquals(distKey, fileKey(root.resolve("dist/index.html")));
+        Assertions.assertFalse(Files.exists(staging));
+        Assertions.assertThrows(IllegalStateException.class, () -> staged.writeString("index.html", "late"));
+    }
+
+    @Test
+    void unchangedFilesAreHardLinked() throws Exception {
+        Object appKey = fileKey(root.resolve("src/App.vue"));
+        staged.writeString("index.html", "new");
+
+        staged.commit();
+
+        Assertions.assertEquals(appKey, fileKey(root.resolve("src/App.vue")));
+        Assertions.assertEquals("<template/>", Files.readString(root.resolve("src/App.vue")));
+    }
+
+    @Test
+    void failedSwapRestoresIgnoredDirs() throws Exception {
+        staged.writeString("index.html", "new");
+        // 备份位置被占用，项目目录无法移走
+        write(staging.resolveSibling(staging.getFileName() + ".old"), "occupied", "x");
+
+        Assertions.assertThrows(BusinessException.class, () -> staged.commit());
+
+        Assertions.assertEquals("old", Files.readString(root.resolve("index.html")));
+        Assertions.assertEquals("vue", Files.readString(root.resolve("node_modules/vue/index.js")));
+        Assertions.assertEquals("built", Files.readString(root.resolve("dist/index.html")));
+        Assertions.assertFalse(Files.exists(staging));
+    }
+
+    @Test
+    void commitWithoutChangesOnlyDeletesStaging() throws Exception {
+        Object indexKey = fileKey(root.resolve("index.html"));
+        Files.createDirectories(staging);
+        Assertions.assertFalse(staged.hasChanges());
+
+        staged.commit();
+
+        Assertions.assertFalse(Files.exists(staging));
+        Assertions.assertFalse(Files.exists(staging.resolveSibling(staging.getFileName() + ".old")));
+        Assertions.assertEquals(indexKey, fileKey(root.resolve("index.html")));
+    }
+
+    @Test
+    void discardLeavesRootUntouched() throws Exception {
+        Object indexKey = fileKey(root.resolve("index.html"));
+        staged.writeString("index.html", "new");
+        staged.delete("src/App.vue");
+
+        staged.discard();
+
+        Assertions.assertFalse(Files.exists(staging));
+        Assertions.assertEquals(indexKey, fileKey(root.resolve("index.html")));
+        Assertions.assertEquals("old", Files.readString(root.resolve("index.html")));
+        Assertions.assertTrue(Files.exists(root.resolve("src/App.vue")));
+        Assertions.assertThrows(IllegalStateException.class, () -> staged.writeString("index.html", "late"));
+    }
+
+    @Test
+    void runOnDiskRecordsChangesInOverlay() throws Exception {
+        staged.writeString("package.json", "{}");
+        staged.delete("index.html");
+
+        String result = staged.runOnDisk(dir -> {
+            Path projectDir = dir.toPath();
+            // 副本是当前视图：包含暂存区的文件，不含已删除的文件，依赖目录可用
+            Assertions.assertEquals("{}", Files.readString(projectDir.resolve("package.json")));
+            Assertions.assertFalse(Files.exists(projectDir.resolve("index.html")));
+            Assertions.assertTrue(Files.exists(projectDir.resolve("node_modules/vue/index.js")));
+            Files.writeString(projectDir.resolve("package.json"), "{\"devDependencies\":{}}");
+            Files.writeString(projectDir.resolve("package-lock.json"), "{}");
+            Files.delete(projectDir.resolve("src/App.vue"));
+            Files.writeString(projectDir.resolve("node_modules/vue/extra.js"), "extra");
+            return "ok";
+        });
+
+        Assertions.assertEquals("ok", result);
+        Assertions.assertEquals("{\"devDependencies\":{}}", staged.readString("package.json"));
+        Assertions.assertEquals("{}", staged.readString("package-lock.json"));
+        Assertions.assertFalse(staged.exists("src/App.vue"));
+        Assertions.assertEquals(List.of("package-lock.json", "package.json"), staged.listFiles());
+        // 项目目录中的源码不变，依赖目录移回原处
+        Assertions.assertEquals("<template/>", Files.readString(root.resolve("src/App.vue")));
+        Assertions.assertFalse(Files.exists(root.resolve("package.json")));
+        Assertions.assertTrue(Files.exists(root.resolve("node_modules/vue/extra.js")));
+        Assertions.assertFalse(Files.exists(staging.resolveSibling(staging.getFileName() + ".run")));
+    }
+
+    private static void write(Path dir, String relativePath, String content) throws IOException {
+        Path path = dir.resolve(relativePath);
+        Files.createDirectories(path.getParent());
+        Files.writeString(path, content);
+    }
+
+    private static Object fileKey(Path path) throws IOException {
+        return Files.readAttributes(path, BasicFileAttributes.class).fileKey();
+    }
+}